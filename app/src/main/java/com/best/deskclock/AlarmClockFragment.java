@@ -10,16 +10,22 @@ import static com.best.deskclock.DeskClockApplication.getDefaultSharedPreference
 import static com.best.deskclock.settings.PreferencesDefaultValues.SPINNER_TIME_PICKER_STYLE;
 import static com.best.deskclock.uidata.UiDataModel.Tab.ALARMS;
 
+import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.SystemClock;
 import android.text.TextPaint;
 import android.util.TypedValue;
@@ -50,9 +56,11 @@ import com.best.deskclock.alarms.dataadapter.AlarmItemViewHolder;
 import com.best.deskclock.alarms.dataadapter.CollapsedAlarmViewHolder;
 import com.best.deskclock.alarms.dataadapter.ExpandedAlarmViewHolder;
 import com.best.deskclock.data.SettingsDAO;
+import com.best.deskclock.data.WorkPattern;
 import com.best.deskclock.events.Events;
 import com.best.deskclock.provider.Alarm;
 import com.best.deskclock.provider.AlarmInstance;
+import com.best.deskclock.provider.ClockContract;
 import com.best.deskclock.uidata.UiDataModel;
 import com.best.deskclock.utils.LogUtils;
 import com.best.deskclock.utils.ThemeUtils;
@@ -96,8 +104,11 @@ public final class AlarmClockFragment extends DeskClockFragment implements
     private ViewGroup mMainLayout;
     private AlarmRecyclerView mRecyclerView;
 
+    // Re-queries the alarms changed in the database.
+    private final ContentObserver mAlarmsObserver = new AlarmsObserver();
+
     // Data
-    private Loader<?> mCursorLoader;
+    private Alarm.AlarmsCursorLoader mCursorLoader;
     private long mScrollToAlarmId = Alarm.INVALID_ID;
     private long mExpandedAlarmId = Alarm.INVALID_ID;
     private long mCurrentUpdateToken;
@@ -122,7 +133,7 @@ public final class AlarmClockFragment extends DeskClockFragment implements
 
         mPrefs = getDefaultSharedPreferences(requireContext());
 
-        mCursorLoader = LoaderManager.getInstance(this).initLoader(0, null, this);
+        mCursorLoader = (Alarm.AlarmsCursorLoader) LoaderManager.getInstance(this).initLoader(0, null, this);
         if (savedState != null) {
             mExpandedAlarmId = savedState.getLong(KEY_EXPANDED_ID, Alarm.INVALID_ID);
         }
@@ -315,6 +326,9 @@ public final class AlarmClockFragment extends DeskClockFragment implements
             }).attachToRecyclerView(mRecyclerView);
         }
 
+        mContext.getContentResolver().registerContentObserver(
+                ClockContract.AlarmsColumns.ALARMS_WITH_INSTANCES_URI, true, mAlarmsObserver);
+
         return v;
     }
 
@@ -384,6 +398,12 @@ public final class AlarmClockFragment extends DeskClockFragment implements
         outState.putLong(KEY_EXPANDED_ID, mExpandedAlarmId);
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        mContext.getContentResolver().unregisterContentObserver(mAlarmsObserver);
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
@@ -400,16 +420,96 @@ public final class AlarmClockFragment extends DeskClockFragment implements
     public void onLoadFinished(@NonNull Loader<Cursor> cursorLoader, Cursor data) {
         final List<AlarmItemHolder> itemHolders = new ArrayList<>(data.getCount());
         for (data.moveToFirst(); !data.isAfterLast(); data.moveToNext()) {
-            final Alarm alarm = new Alarm(data);
-            final AlarmInstance alarmInstance = alarm.canPreemptivelyDismiss(requireContext())
-                    ? new AlarmInstance(data, true)
-                    : null;
-            final AlarmItemHolder itemHolder = new AlarmItemHolder(alarm, alarmInstance, mAlarmTimeClickHandler);
-            itemHolders.add(itemHolder);
+            itemHolders.add(createItemHolder(requireContext(), data));
         }
         setAdapterItems(itemHolders, SystemClock.elapsedRealtime());
     }
 
+    /**
+     * @return the item holder of the alarm at the current position of the cursor
+     */
+    private AlarmItemHolder createItemHolder(Context context, Cursor data) {
+        final Alarm alarm = new Alarm(data);
+        final AlarmInstance alarmInstance = alarm.canPreemptivelyDismiss(context)
+                ? new AlarmInstance(data, true)
+                : null;
+        return new AlarmItemHolder(alarm, alarmInstance, mAlarmTimeClickHandler);
+    }
+
+    /**
+     * Re-queries a single alarm in the background and updates its item.
+     *
+     * @param alarmId identifies the alarm that changed
+     */
+    private void reloadAlarm(long alarmId) {
+        final Context context = mContext;
+        final long updateToken = SystemClock.elapsedRealtime();
+        AsyncHandler.post(() -> {
+            AlarmItemHolder itemHolder = null;
+            try (Cursor cursor = Alarm.queryAlarmWithInstance(context.getContentResolver(), alarmId)) {
+                if (cursor != null && cursor.moveToFirst()) {
+                    itemHolder = createItemHolder(context, cursor);
+                }
+            }
+
+            final AlarmItemHolder newItemHolder = itemHolder;
+            mRecyclerView.post(() -> setAdapterItem(alarmId, newItemHolder, updateToken));
+        });
+    }
+
+    /**
+     * Updates the item of a single alarm, deferring the update as
+     * {@link #setAdapterItems(List, long)} does. The whole list is reloaded if the alarm is new
+     * or has moved.
+     *
+     * @param alarmId     identifies the alarm that changed
+     * @param itemHolder  the new item of the alarm, or {@code null} if it was deleted
+     * @param updateToken a monotonically increasing value used to preserve ordering of deferred
+     *                    updates
+     */
+    private void setAdapterItem(long alarmId, AlarmItemHolder itemHolder, long updateToken) {
+        if (getView() == null) {
+            return;
+        }
+
+        if (updateToken < mCurrentUpdateToken) {
+            LogUtils.v("Ignoring adapter item update: %d < %d", updateToken, mCurrentUpdateToken);
+            return;
+        }
+
+        if (Objects.requireNonNull(mRecyclerView.getItemAnimator()).isRunning()) {
+            // RecyclerView is currently animating -> defer update.
+            mRecyclerView.getItemAnimator().isRunning(() -> setAdapterItem(alarmId, itemHolder, updateToken));
+            return;
+        } else if (mRecyclerView.isComputingLayout()) {
+            // RecyclerView is currently computing a layout -> defer update.
+            mRecyclerView.post(() -> setAdapterItem(alarmId, itemHolder, updateToken));
+            return;
+        }
+
+        final AlarmItemHolder oldItemHolder = mItemAdapter.findItemById(alarmId);
+        if (oldItemHolder == null) {
+            if (itemHolder != null) {
+                // The position of a new alarm depends on the sort order.
+                mCursorLoader.reload();
+            }
+        } else if (itemHolder == null) {
+            mItemAdapter.removeItem(oldItemHolder);
+            mEmptyViewController.setEmpty(mItemAdapter.getItemCount() == 0);
+        } else if (oldItemHolder.item.hour != itemHolder.item.hour
+                || oldItemHolder.item.minutes != itemHolder.item.minutes
+                || oldItemHolder.item.enabled != itemHolder.item.enabled) {
+            // The alarm may have moved in the list.
+            mCursorLoader.reload();
+        } else {
+            mCurrentUpdateToken = updateToken;
+            mItemAdapter.replaceItem(oldItemHolder, itemHolder);
+            if (alarmId == mExpandedAlarmId) {
+                mAlarmTimeClickHandler.setSelectedAlarm(itemHolder.item);
+            }
+        }
+    }
+
     /**
      * Updates the adapters items, deferring the update until the current animation is finished or
      * if no animation is running then the listener will be automatically be invoked immediately.
@@ -432,34 +532,45 @@ public final class AlarmClockFragment extends DeskClockFragment implements
             mRecyclerView.post(() -> setAdapterItems(items, updateToken));
         } else {
             mCurrentUpdateToken = updateToken;
-            mItemAdapter.setItems(items);
-
-            // Show or hide the empty view as appropriate.
-            final boolean noAlarms = items.isEmpty();
-            mEmptyViewController.setEmpty(noAlarms);
-            if (noAlarms) {
-                // Ensure the drop shadow is hidden when no alarms exist.
-                setTabScrolledToTop(true);
-            }
+            mItemAdapter.setItems(items, () -> onAdapterItemsSet(items));
+        }
+    }
 
-            // Expand the correct alarm.
-            if (mExpandedAlarmId != Alarm.INVALID_ID) {
-                final AlarmItemHolder aih = mItemAdapter.findItemById(mExpandedAlarmId);
-                if (aih != null) {
-                    mAlarmTimeClickHandler.setSelectedAlarm(aih.item);
-                    aih.expand();
-                } else {
-                    mAlarmTimeClickHandler.setSelectedAlarm(null);
-                    mExpandedAlarmId = Alarm.INVALID_ID;
-                }
-            }
+    /**
+     * Invoked once the adapter uses the new list of items.
+     *
+     * @param items the new list of {@link AlarmItemHolder}
+     */
+    private void onAdapterItemsSet(List<AlarmItemHolder> items) {
+        if (getView() == null) {
+            return;
+        }
+
+        // Show or hide the empty view as appropriate.
+        final boolean noAlarms = items.isEmpty();
+        mEmptyViewController.setEmpty(noAlarms);
+        if (noAlarms) {
+            // Ensure the drop shadow is hidden when no alarms exist.
+            setTabScrolledToTop(true);
+        }
 
-            // Scroll to the selected alarm.
-            if (mScrollToAlarmId != Alarm.INVALID_ID) {
-                scrollToAlarm(mScrollToAlarmId);
-                setSmoothScrollStableId(Alarm.INVALID_ID);
+        // Expand the correct alarm.
+        if (mExpandedAlarmId != Alarm.INVALID_ID) {
+            final AlarmItemHolder aih = mItemAdapter.findItemById(mExpandedAlarmId);
+            if (aih != null) {
+                mAlarmTimeClickHandler.setSelectedAlarm(aih.item);
+                aih.expand();
+            } else {
+                mAlarmTimeClickHandler.setSelectedAlarm(null);
+                mExpandedAlarmId = Alarm.INVALID_ID;
             }
         }
+
+        // Scroll to the selected alarm.
+        if (mScrollToAlarmId != Alarm.INVALID_ID) {
+            scrollToAlarm(mScrollToAlarmId);
+            setSmoothScrollStableId(Alarm.INVALID_ID);
+        }
     }
 
     /**
@@ -576,8 +687,9 @@ public final class AlarmClockFragment extends DeskClockFragment implements
         mAlarmUpdateHandler.asyncUpdateAlarm(alarm, false, true);
     }
 
-    public void setHolidayOption(Alarm alarm, int holidayOption) {
+    public void setHolidayOption(Alarm alarm, int holidayOption, WorkPattern workPattern) {
         alarm.holidayOption = holidayOption;
+        alarm.workPattern = workPattern;
         mAlarmUpdateHandler.asyncUpdateAlarm(alarm, false, true);
     }
 
@@ -603,6 +715,40 @@ public final class AlarmClockFragment extends DeskClockFragment implements
         }
     }
 
+    /**
+     * Observes the alarms joined with their instances. The provider notifies the row of each
+     * changed alarm: only that alarm is re-queried, and the whole list only when alarms are added
+     * or when the provider notifies the whole table.
+     */
+    private final class AlarmsObserver extends ContentObserver {
+
+        AlarmsObserver() {
+            super(new Handler(Looper.getMainLooper()));
+        }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            // Before Android 11, the change flags are not delivered.
+            onChange(selfChange, uri, 0);
+        }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri, int flags) {
+            if (mCursorLoader == null) {
+                return;
+            }
+
+            if (uri == null || uri.equals(ClockContract.AlarmsColumns.ALARMS_WITH_INSTANCES_URI)
+                    || (flags & ContentResolver.NOTIFY_INSERT) != 0) {
+                mCursorLoader.reload();
+            } else if ((flags & ContentResolver.NOTIFY_DELETE) != 0) {
+                setAdapterItem(ContentUris.parseId(uri), null, SystemClock.elapsedRealtime());
+            } else {
+                reloadAlarm(ContentUris.parseId(uri));
+            }
+        }
+    }
+
     /**
      * This runnable executes at midnight and refreshes the display of all alarms. Collapsed alarms
      * that do no repeat will have their "Tomorrow" strings updated to say "Today".
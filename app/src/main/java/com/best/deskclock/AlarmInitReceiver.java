@@ -16,7 +16,7 @@ import android.os.PowerManager.WakeLock;
 
 import com.best.deskclock.alarms.AlarmNotifications;
 import com.best.deskclock.alarms.AlarmStateManager;
-import com.best.deskclock.holiday.HolidayRepository;
+import com.best.deskclock.holiday.HolidaySyncJobService;
 import com.best.deskclock.controller.Controller;
 import com.best.deskclock.data.DataModel;
 import com.best.deskclock.data.SettingsDAO;
@@ -99,10 +99,10 @@ public class AlarmInitReceiver extends BroadcastReceiver {
             Controller.getController().updateShortcuts();
         }
 
-        // Update holiday data on boot or app update
+        // Make sure the holiday data sync is scheduled on boot or app update
         if (Intent.ACTION_BOOT_COMPLETED.equals(action)
                 || Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
-            HolidayRepository.getInstance(context).updateWorkdayData();
+            HolidaySyncJobService.schedule(context);
         }
 
         // Update alarm status once receive the status update broadcast
@@ -9,6 +9,8 @@ package com.best.deskclock;
 import android.os.Handler;
 import android.os.HandlerThread;
 
+import java.util.concurrent.CountDownLatch;
+
 /**
  * Helper class for managing the background thread used to perform io operations
  * and handle async broadcasts.
@@ -28,4 +30,22 @@ public final class AsyncHandler {
     public static void post(Runnable r) {
         sHandler.post(r);
     }
+
+    /**
+     * Blocks until the runnables posted so far have run. Returns at once when called from the
+     * background thread itself, where they already ran.
+     */
+    public static void waitForPendingTasks() {
+        if (sHandlerThread.getLooper().isCurrentThread()) {
+            return;
+        }
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        sHandler.post(latch::countDown);
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
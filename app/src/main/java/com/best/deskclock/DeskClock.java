@@ -55,6 +55,7 @@ import com.best.deskclock.data.DataModel;
 import com.best.deskclock.data.DataModel.SilentSetting;
 import com.best.deskclock.data.OnSilentSettingsListener;
 import com.best.deskclock.data.SettingsDAO;
+import com.best.deskclock.data.WorkPattern;
 import com.best.deskclock.events.Events;
 import com.best.deskclock.holiday.HolidayDialogFragment;
 import com.best.deskclock.provider.Alarm;
@@ -511,10 +512,10 @@ public class DeskClock extends BaseActivity
     }
 
     @Override
-    public void onDialogHolidayOptionSet(Alarm alarm, int holidayOption) {
+    public void onDialogHolidayOptionSet(Alarm alarm, int holidayOption, WorkPattern workPattern) {
         final Fragment frag = getSelectedDeskClockFragment();
         if (frag instanceof AlarmClockFragment) {
-            ((AlarmClockFragment) frag).setHolidayOption(alarm, holidayOption);
+            ((AlarmClockFragment) frag).setHolidayOption(alarm, holidayOption, workPattern);
         }
     }
 
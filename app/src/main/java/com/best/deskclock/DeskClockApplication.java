@@ -17,7 +17,10 @@ import androidx.preference.PreferenceManager;
 import com.best.deskclock.controller.Controller;
 import com.best.deskclock.controller.ThemeController;
 import com.best.deskclock.data.DataModel;
+import com.best.deskclock.data.RingtoneCatalog;
+import com.best.deskclock.data.RingtoneMetadataCache;
 import com.best.deskclock.holiday.HolidayRepository;
+import com.best.deskclock.holiday.HolidaySyncJobService;
 import com.best.deskclock.events.LogEventTracker;
 import com.best.deskclock.uidata.UiDataModel;
 import com.best.deskclock.utils.LogUtils;
@@ -45,8 +48,17 @@ public class DeskClockApplication extends Application {
         Controller.getController().addEventTracker(new LogEventTracker(applicationContext));
         Controller.getController().updateShortcuts();
 
-        // Download holiday data on start
-        HolidayRepository.getInstance(applicationContext).updateWorkdayData();
+        // Holiday data is synced by a background job; never download it on the startup path
+        HolidaySyncJobService.schedule(applicationContext);
+
+        // Build the holiday index in the background before an alarm reschedule needs it
+        HolidayRepository.getInstance(applicationContext);
+
+        // Read the ringtones random alarms pick from before an alarm needs one
+        RingtoneCatalog.getRingtoneCatalog().prefetch(applicationContext);
+
+        // Check the cached ringtone metadata before the ringtone screens and players need it
+        RingtoneMetadataCache.getRingtoneMetadataCache().prefetch(applicationContext);
     }
 
     public static Context getContext() {
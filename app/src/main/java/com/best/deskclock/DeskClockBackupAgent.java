@@ -23,6 +23,7 @@ import android.os.SystemClock;
 import androidx.annotation.NonNull;
 
 import com.best.deskclock.alarms.AlarmStateManager;
+import com.best.deskclock.data.AlarmRepository;
 import com.best.deskclock.data.SettingsDAO;
 import com.best.deskclock.provider.Alarm;
 import com.best.deskclock.provider.AlarmInstance;
@@ -30,6 +31,7 @@ import com.best.deskclock.utils.LogUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 
@@ -52,29 +54,40 @@ public class DeskClockBackupAgent extends BackupAgent {
 
         LOGGER.i("processRestoredData() started");
 
+        // The database was replaced by the restore.
+        AlarmRepository.getAlarmRepository().invalidate();
+
         // Now that alarms have been restored, schedule new instances in AlarmManager.
         final ContentResolver contentResolver = context.getContentResolver();
         final List<Alarm> alarms = Alarm.getAlarms(contentResolver, null);
 
+        // Remove any instances that may currently exist for the alarms;
+        // these aren't relevant on the restore device and we'll recreate them below.
+        AlarmStateManager.unregisterAndDeleteInstances(context,
+                AlarmInstance.getInstances(contentResolver, null));
+
+        // Create the next alarm instances to schedule.
         final Calendar now = Calendar.getInstance();
+        final List<AlarmInstance> alarmInstances = new ArrayList<>();
         for (Alarm alarm : alarms) {
-            // Remove any instances that may currently exist for the alarm;
-            // these aren't relevant on the restore device and we'll recreate them below.
-            AlarmStateManager.deleteAllInstances(context, alarm.id);
-
             if (alarm.enabled) {
-                // Create the next alarm instance to schedule.
-                AlarmInstance alarmInstance = alarm.createInstanceAfter(context, now);
-
-                // Add the next alarm instance to the database.
-                alarmInstance.addInstance(contentResolver);
+                alarmInstances.add(alarm.createInstanceAfter(context, now));
+            }
+        }
 
-                // Schedule the next alarm instance in AlarmManager.
-                AlarmStateManager.registerInstance(context, alarmInstance, true);
+        // Add the next alarm instances to the database, in a single transaction.
+        if (AlarmInstance.addInstances(contentResolver, alarmInstances)) {
+            // Schedule the next alarm instances in AlarmManager.
+            for (AlarmInstance alarmInstance : alarmInstances) {
+                AlarmStateManager.registerInstance(context, alarmInstance, false);
                 LOGGER.i("DeskClockBackupAgent scheduled alarm instance: %s", alarmInstance);
             }
         }
 
+        // The instances that existed before the restore were deleted even if no alarm is enabled
+        // or the new instances could not be added, so the next alarm always needs updating.
+        AlarmStateManager.updateNextAlarm(context);
+
         // Remove the preference to avoid executing this logic multiple times.
         SettingsDAO.setRestoreBackupFinished(prefs, false);
 
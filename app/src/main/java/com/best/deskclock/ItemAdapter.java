@@ -9,11 +9,14 @@ package com.best.deskclock;
 import static androidx.recyclerview.widget.RecyclerView.NO_ID;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
@@ -75,6 +78,23 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder<?>>
      */
     private List<T> mItemHolders;
 
+    /**
+     * Posts the diffs computed in the background back to the main thread.
+     */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Incremented by each call to {@link #setItems}, so that only the diff of the latest list is
+     * applied.
+     */
+    private int mItemsGeneration;
+
+    /**
+     * Incremented each time {@link #mItemHolders} is changed in place; a diff computed against an
+     * older version of the list can't be applied.
+     */
+    private int mItemHoldersVersion;
+
     /**
      * Finds the position of the changed item holder and invokes {@link #notifyItemChanged(int)} or
      * {@link #notifyItemChanged(int, Object)} if payloads are present (in order to do in-place
@@ -134,57 +154,139 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder<?>>
     }
 
     /**
-     * Sets the list of item holders to serve as the dataset for this adapter and invokes
-     * {@link #notifyDataSetChanged()} to update the UI.
-     * <p/>
-     * If {@link #hasStableIds()} returns {@code true}, then the instance state will preserved
-     * between new and old holders that have matching {@link ItemHolder#itemId} values.
+     * Sets the list of item holders to serve as the dataset for this adapter. See
+     * {@link #setItems(List, Runnable)}.
      *
      * @param itemHolders the new list of item holders
      */
     public void setItems(List<T> itemHolders) {
+        setItems(itemHolders, null);
+    }
+
+    /**
+     * Sets the list of item holders to serve as the dataset for this adapter and updates the UI.
+     * <p/>
+     * If {@link #hasStableIds()} returns {@code true}, the difference between the old and new
+     * holders is computed in the background by matching their {@link ItemHolder#itemId} values,
+     * and only the inserted, removed, moved and changed items are updated; the items whose
+     * content is the same are not bound again. The instance state is preserved between old and new
+     * holders of the same item. Otherwise, {@link #notifyDataSetChanged()} is invoked.
+     *
+     * @param itemHolders    the new list of item holders
+     * @param commitCallback invoked once the new list is in use, or {@code null}
+     */
+    public void setItems(List<T> itemHolders, Runnable commitCallback) {
         final List<T> oldItemHolders = mItemHolders;
-        if (oldItemHolders != itemHolders) {
-            if (oldItemHolders != null) {
-                // remove the item change listener from the old item holders
-                for (T oldItemHolder : oldItemHolders) {
-                    oldItemHolder.removeOnItemChangedListener(mItemChangedNotifier);
+        final int generation = ++mItemsGeneration;
+        if (oldItemHolders == itemHolders) {
+            if (commitCallback != null) {
+                commitCallback.run();
+            }
+            return;
+        }
+
+        if (oldItemHolders == null || itemHolders == null || !hasStableIds()
+                || oldItemHolders.isEmpty() || itemHolders.isEmpty()) {
+            applyItems(itemHolders, null, commitCallback);
+            return;
+        }
+
+        final List<T> oldSnapshot = new ArrayList<>(oldItemHolders);
+        final int version = mItemHoldersVersion;
+        AsyncHandler.post(() -> {
+            final DiffUtil.DiffResult diffResult =
+                    DiffUtil.calculateDiff(new ItemHolderDiffCallback<>(oldSnapshot, itemHolders));
+            mMainHandler.post(() -> {
+                if (generation != mItemsGeneration) {
+                    // A newer list has been set in the meantime.
+                    return;
                 }
+                // The diff doesn't describe a list that was changed in place in the meantime.
+                applyItems(itemHolders, version == mItemHoldersVersion ? diffResult : null,
+                        commitCallback);
+            });
+        });
+    }
+
+    /**
+     * Replaces the current list of item holders and informs the RV to update the UI.
+     *
+     * @param diffResult the difference with the current list, or {@code null} to invoke
+     *                   {@link #notifyDataSetChanged()}
+     */
+    private void applyItems(List<T> itemHolders, DiffUtil.DiffResult diffResult,
+                            Runnable commitCallback) {
+
+        final List<T> oldItemHolders = mItemHolders;
+        if (oldItemHolders != null) {
+            // remove the item change listener from the old item holders
+            for (T oldItemHolder : oldItemHolders) {
+                oldItemHolder.removeOnItemChangedListener(mItemChangedNotifier);
             }
+        }
+
+        if (oldItemHolders != null && itemHolders != null && hasStableIds()) {
+            // transfer instance state from old to new item holders based on item id,
+            // we use a simple O(N^2) implementation since we assume the number of items is
+            // relatively small and generating a temporary map would be more expensive
+            final Bundle bundle = new Bundle();
+            for (T newItemHolder : itemHolders) {
+                for (T oldItemHolder : oldItemHolders) {
+                    if (newItemHolder.itemId == oldItemHolder.itemId
+                            && newItemHolder != oldItemHolder) {
+                        // clear any existing state from the bundle
+                        bundle.clear();
 
-            if (oldItemHolders != null && itemHolders != null && hasStableIds()) {
-                // transfer instance state from old to new item holders based on item id,
-                // we use a simple O(N^2) implementation since we assume the number of items is
-                // relatively small and generating a temporary map would be more expensive
-                final Bundle bundle = new Bundle();
-                for (T newItemHolder : itemHolders) {
-                    for (T oldItemHolder : oldItemHolders) {
-                        if (newItemHolder.itemId == oldItemHolder.itemId
-                                && newItemHolder != oldItemHolder) {
-                            // clear any existing state from the bundle
-                            bundle.clear();
-
-                            // transfer instance state from old to new item holder
-                            oldItemHolder.onSaveInstanceState(bundle);
-                            newItemHolder.onRestoreInstanceState(bundle);
-
-                            break;
-                        }
+                        // transfer instance state from old to new item holder
+                        oldItemHolder.onSaveInstanceState(bundle);
+                        newItemHolder.onRestoreInstanceState(bundle);
+
+                        break;
                     }
                 }
             }
+        }
 
-            if (itemHolders != null) {
-                // add the item change listener to the new item holders
-                for (T newItemHolder : itemHolders) {
-                    newItemHolder.addOnItemChangedListener(mItemChangedNotifier);
-                }
+        if (itemHolders != null) {
+            // add the item change listener to the new item holders
+            for (T newItemHolder : itemHolders) {
+                newItemHolder.addOnItemChangedListener(mItemChangedNotifier);
             }
+        }
 
-            // finally update the current list of item holders and inform the RV to update the UI
-            mItemHolders = itemHolders;
+        // finally update the current list of item holders and inform the RV to update the UI
+        mItemHolders = itemHolders;
+        mItemHoldersVersion++;
+        if (diffResult != null) {
+            diffResult.dispatchUpdatesTo(this);
+        } else {
             notifyDataSetChanged();
         }
+
+        if (commitCallback != null) {
+            commitCallback.run();
+        }
+    }
+
+    /**
+     * Inserts the specified item holders at the specified position in the current list of item
+     * holders. Invokes {@link #notifyItemRangeInserted} to update the UI, so that the items already
+     * shown are not bound again.
+     *
+     * @param position    the index at which to insert the first item holder
+     * @param itemHolders the item holders to insert
+     */
+    public void insertItems(int position, @NonNull List<T> itemHolders) {
+        if (itemHolders.isEmpty()) {
+            return;
+        }
+
+        for (T itemHolder : itemHolders) {
+            itemHolder.addOnItemChangedListener(mItemChangedNotifier);
+        }
+        mItemHolders.addAll(position, itemHolders);
+        mItemHoldersVersion++;
+        notifyItemRangeInserted(position, itemHolders.size());
     }
 
     /**
@@ -199,10 +301,33 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder<?>>
         if (index >= 0) {
             itemHolder = mItemHolders.remove(index);
             itemHolder.removeOnItemChangedListener(mItemChangedNotifier);
+            mItemHoldersVersion++;
             notifyItemRemoved(index);
         }
     }
 
+    /**
+     * Replaces an item holder with a new holder of the same item, transferring its instance state
+     * as {@link #setItems(List)} does. Invokes {@link #notifyItemChanged(int)} to update the UI.
+     *
+     * @param oldItemHolder the item holder to replace
+     * @param newItemHolder the item holder replacing it
+     */
+    public void replaceItem(@NonNull T oldItemHolder, @NonNull T newItemHolder) {
+        final int index = mItemHolders.indexOf(oldItemHolder);
+        if (index >= 0) {
+            final Bundle bundle = new Bundle();
+            oldItemHolder.onSaveInstanceState(bundle);
+            newItemHolder.onRestoreInstanceState(bundle);
+
+            oldItemHolder.removeOnItemChangedListener(mItemChangedNotifier);
+            newItemHolder.addOnItemChangedListener(mItemChangedNotifier);
+            mItemHolders.set(index, newItemHolder);
+            mItemHoldersVersion++;
+            notifyItemChanged(index, newItemHolder.getChangePayload(oldItemHolder));
+        }
+    }
+
     /**
      * Sets the listener to be invoked whenever any item changes.
      */
@@ -254,6 +379,20 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder<?>>
         viewHolder.setOnItemLongClickedListener(mOnItemLongClickedListener);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onBindViewHolder(@NonNull ItemViewHolder viewHolder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(viewHolder, position);
+            return;
+        }
+
+        viewHolder.bindItemView(mItemHolders.get(position), payloads);
+        viewHolder.setOnItemClickedListener(mOnItemClickedListener);
+        viewHolder.setOnItemLongClickedListener(mOnItemLongClickedListener);
+    }
+
     @Override
     public void onViewRecycled(ItemViewHolder viewHolder) {
         viewHolder.setOnItemClickedListener(null);
@@ -407,6 +546,74 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder<?>>
         public void onRestoreInstanceState(Bundle bundle) {
             // for subclassers
         }
+
+        /**
+         * Called from a background thread by {@link #setItems} to find out whether an item whose
+         * holder was replaced must be bound again.
+         *
+         * @param oldItemHolder the previous holder of the same item
+         * @return {@code true} if this holder displays the same content as the previous one
+         */
+        public boolean isContentSameAs(ItemHolder<?> oldItemHolder) {
+            // for subclassers
+            return false;
+        }
+
+        /**
+         * Called when the content of an item has changed, to describe the change to
+         * {@link ItemViewHolder#onBindItemView(ItemHolder, List)} so that only the affected views
+         * are bound again. It may be called from a background thread.
+         *
+         * @param oldItemHolder the previous holder of the same item
+         * @return the payload describing the change, or {@code null} to bind the whole item
+         */
+        public Object getChangePayload(ItemHolder<?> oldItemHolder) {
+            // for subclassers
+            return null;
+        }
+    }
+
+    /**
+     * Matches old and new item holders by {@link ItemHolder#itemId} for {@link DiffUtil}.
+     */
+    private static final class ItemHolderDiffCallback<T extends ItemHolder<?>> extends DiffUtil.Callback {
+
+        private final List<T> mOldItemHolders;
+        private final List<T> mNewItemHolders;
+
+        ItemHolderDiffCallback(List<T> oldItemHolders, List<T> newItemHolders) {
+            mOldItemHolders = oldItemHolders;
+            mNewItemHolders = newItemHolders;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldItemHolders.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewItemHolders.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldItemHolders.get(oldItemPosition).itemId
+                    == mNewItemHolders.get(newItemPosition).itemId;
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            final T oldItemHolder = mOldItemHolders.get(oldItemPosition);
+            final T newItemHolder = mNewItemHolders.get(newItemPosition);
+            return oldItemHolder == newItemHolder || newItemHolder.isContentSameAs(oldItemHolder);
+        }
+
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            return mNewItemHolders.get(newItemPosition)
+                    .getChangePayload(mOldItemHolders.get(oldItemPosition));
+        }
     }
 
     /**
@@ -457,6 +664,18 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder<?>>
             onBindItemView(itemHolder);
         }
 
+        /**
+         * Binds the holder's {@link #itemView} to a new holder of its item.
+         *
+         * @param itemHolder the {@link ItemHolder} to bind
+         * @param payloads   the changes since the previous holder, see
+         *                   {@link ItemHolder#getChangePayload(ItemHolder)}
+         */
+        public final void bindItemView(T itemHolder, List<Object> payloads) {
+            mItemHolder = itemHolder;
+            onBindItemView(itemHolder, payloads);
+        }
+
         /**
          * Called when a new item is bound to the holder. Subclassers should override to bind any
          * relevant data to their {@link #itemView} in this method.
@@ -467,6 +686,18 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder<?>>
             // for subclassers
         }
 
+        /**
+         * Called when a new holder of the bound item is bound after a change described by
+         * payloads. Subclassers may override to bind only the affected views; by default the
+         * whole item is bound again.
+         *
+         * @param itemHolder the {@link ItemHolder} to bind
+         * @param payloads   the non-empty list of changes
+         */
+        protected void onBindItemView(T itemHolder, List<Object> payloads) {
+            onBindItemView(itemHolder);
+        }
+
         /**
          * Recycles the current item view, unbinding the current item holder and state.
          */
@@ -0,0 +1,49 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.alarms;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.PowerManager;
+import android.os.Process;
+
+import com.best.deskclock.AlarmAlertWakeLock;
+
+/**
+ * The thread on which the state changes of alarm instances delivered to {@link AlarmService} are
+ * applied. It runs at audio priority, ahead of the shared {@code AsyncHandler}, so that the
+ * database work that follows a firing alarm is not queued behind unrelated io.
+ */
+final class AlarmFirePipeline {
+
+    private static final HandlerThread sHandlerThread =
+            new HandlerThread("AlarmFirePipeline", Process.THREAD_PRIORITY_AUDIO);
+    private static final Handler sHandler;
+
+    static {
+        sHandlerThread.start();
+        sHandler = new Handler(sHandlerThread.getLooper());
+    }
+
+    private AlarmFirePipeline() {
+    }
+
+    /**
+     * Runs the given task on the pipeline thread while holding a partial wake lock, so the device
+     * cannot sleep between the delivery of a state change and its processing.
+     */
+    static void post(Context context, Runnable r) {
+        final PowerManager.WakeLock wl = AlarmAlertWakeLock.createPartialWakeLock(context);
+        wl.acquire(10000L);
+        sHandler.post(() -> {
+            try {
+                r.run();
+            } finally {
+                if (wl.isHeld()) {
+                    wl.release();
+                }
+            }
+        });
+    }
+}
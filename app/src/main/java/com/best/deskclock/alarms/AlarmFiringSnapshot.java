@@ -0,0 +1,213 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.alarms;
+
+import static com.best.deskclock.settings.PreferencesDefaultValues.DEFAULT_VIBRATION_PATTERN;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.LongSparseArray;
+
+import com.best.deskclock.provider.Alarm;
+import com.best.deskclock.provider.AlarmInstance;
+import com.best.deskclock.utils.LogUtils;
+import com.best.deskclock.utils.RingtoneUtils;
+import com.best.deskclock.utils.SdkUtils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Calendar;
+
+/**
+ * Stores the alarm instances whose firing is scheduled, as they will fire: in the firing state and
+ * with a random ringtone already picked. This lets {@link AlarmService} start ringing as soon as
+ * the alarm is delivered, without reading the database or querying the media store first.
+ *
+ * <p>A snapshot is written each time a change to the firing state is scheduled for an instance and
+ * removed when any other change is scheduled or the scheduled change is cancelled. Snapshots are
+ * kept in memory and in a dedicated preferences file, which survives the process being killed
+ * between the scheduling and the firing.</p>
+ */
+final class AlarmFiringSnapshot {
+
+    private static final String PREFS_NAME = "alarm_firing_snapshots";
+
+    private static final String KEY_YEAR = "year";
+    private static final String KEY_MONTH = "month";
+    private static final String KEY_DAY = "day";
+    private static final String KEY_HOUR = "hour";
+    private static final String KEY_MINUTE = "minute";
+    private static final String KEY_LABEL = "label";
+    private static final String KEY_VIBRATE = "vibrate";
+    private static final String KEY_VIBRATION_PATTERN = "vibrationPattern";
+    private static final String KEY_FLASH = "flash";
+    private static final String KEY_RINGTONE = "ringtone";
+    private static final String KEY_ALARM_ID = "alarmId";
+    private static final String KEY_AUTO_SILENCE_DURATION = "autoSilenceDuration";
+    private static final String KEY_SNOOZE_DURATION = "snoozeDuration";
+    private static final String KEY_MISSED_ALARM_REPEAT_COUNT = "missedAlarmRepeatCount";
+    private static final String KEY_MISSED_ALARM_REPEAT_LIMIT = "missedAlarmRepeatLimit";
+    private static final String KEY_CRESCENDO_DURATION = "crescendoDuration";
+    private static final String KEY_ALARM_VOLUME = "alarmVolume";
+    private static final String KEY_HOLIDAY_OPTION = "holidayOption";
+
+    /**
+     * The snapshots read or written by this process, by instance id.
+     */
+    private static final LongSparseArray<AlarmInstance> sSnapshots = new LongSparseArray<>();
+
+    private static SharedPreferences sPrefs;
+
+    private AlarmFiringSnapshot() {
+    }
+
+    /**
+     * Resolves how the instance will fire and stores the result until it fires.
+     *
+     * @param context  application context
+     * @param instance whose firing has just been scheduled
+     */
+    static void write(Context context, AlarmInstance instance) {
+        final AlarmInstance snapshot = new AlarmInstance(instance);
+        snapshot.mAlarmState = AlarmInstance.FIRED_STATE;
+
+        // If the alarm ringtone is set to "Random", pick the ringtone it will ring with now.
+        if (snapshot.mAlarmId != null) {
+            final Alarm alarm = Alarm.getAlarm(context.getContentResolver(), snapshot.mAlarmId);
+            if (alarm != null) {
+                if (RingtoneUtils.isRandomRingtone(alarm.alert)) {
+                    snapshot.mRingtone = RingtoneUtils.getRandomRingtoneUri();
+                } else if (RingtoneUtils.isRandomCustomRingtone(alarm.alert)) {
+                    snapshot.mRingtone = RingtoneUtils.getRandomCustomRingtoneUri();
+                }
+            }
+        }
+
+        final String json;
+        try {
+            json = toJson(snapshot).toString();
+        } catch (JSONException e) {
+            LogUtils.e("Failed to write firing snapshot of instance " + instance.mId, e);
+            remove(context, instance.mId);
+            return;
+        }
+
+        synchronized (sSnapshots) {
+            sSnapshots.put(snapshot.mId, snapshot);
+        }
+        getPrefs(context).edit().putString(String.valueOf(snapshot.mId), json).apply();
+    }
+
+    /**
+     * @param context    application context
+     * @param instanceId of the instance about to fire
+     * @return a copy of the instance as it will fire; {@code null} if no snapshot was written
+     */
+    static AlarmInstance read(Context context, long instanceId) {
+        synchronized (sSnapshots) {
+            final AlarmInstance snapshot = sSnapshots.get(instanceId);
+            if (snapshot != null) {
+                return new AlarmInstance(snapshot);
+            }
+        }
+
+        final String json = getPrefs(context).getString(String.valueOf(instanceId), null);
+        if (json == null) {
+            return null;
+        }
+
+        try {
+            final AlarmInstance snapshot = fromJson(instanceId, new JSONObject(json));
+            synchronized (sSnapshots) {
+                sSnapshots.put(instanceId, snapshot);
+            }
+            return new AlarmInstance(snapshot);
+        } catch (JSONException e) {
+            LogUtils.e("Failed to read firing snapshot of instance " + instanceId, e);
+            return null;
+        }
+    }
+
+    /**
+     * @param context    application context
+     * @param instanceId of the instance that no longer fires as its snapshot says
+     */
+    static void remove(Context context, long instanceId) {
+        synchronized (sSnapshots) {
+            sSnapshots.remove(instanceId);
+        }
+
+        final SharedPreferences prefs = getPrefs(context);
+        final String key = String.valueOf(instanceId);
+        if (prefs.contains(key)) {
+            prefs.edit().remove(key).apply();
+        }
+    }
+
+    private static synchronized SharedPreferences getPrefs(Context context) {
+        if (sPrefs == null) {
+            final Context storageContext = SdkUtils.isAtLeastAndroid7()
+                    ? context.createDeviceProtectedStorageContext()
+                    : context;
+            sPrefs = storageContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        }
+
+        return sPrefs;
+    }
+
+    private static JSONObject toJson(AlarmInstance instance) throws JSONException {
+        final JSONObject json = new JSONObject()
+                .put(KEY_YEAR, instance.mYear)
+                .put(KEY_MONTH, instance.mMonth)
+                .put(KEY_DAY, instance.mDay)
+                .put(KEY_HOUR, instance.mHour)
+                .put(KEY_MINUTE, instance.mMinute)
+                .put(KEY_LABEL, instance.mLabel)
+                .put(KEY_VIBRATE, instance.mVibrate)
+                .put(KEY_VIBRATION_PATTERN, instance.mVibrationPattern)
+                .put(KEY_FLASH, instance.mFlash)
+                .put(KEY_AUTO_SILENCE_DURATION, instance.mAutoSilenceDuration)
+                .put(KEY_SNOOZE_DURATION, instance.mSnoozeDuration)
+                .put(KEY_MISSED_ALARM_REPEAT_COUNT, instance.mMissedAlarmCurrentCount)
+                .put(KEY_MISSED_ALARM_REPEAT_LIMIT, instance.mMissedAlarmRepeatLimit)
+                .put(KEY_CRESCENDO_DURATION, instance.mCrescendoDuration)
+                .put(KEY_ALARM_VOLUME, instance.mAlarmVolume)
+                .put(KEY_HOLIDAY_OPTION, instance.mHolidayOption);
+        if (instance.mRingtone != null) {
+            json.put(KEY_RINGTONE, instance.mRingtone.toString());
+        }
+        if (instance.mAlarmId != null) {
+            json.put(KEY_ALARM_ID, instance.mAlarmId.longValue());
+        }
+
+        return json;
+    }
+
+    private static AlarmInstance fromJson(long instanceId, JSONObject json) throws JSONException {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.set(json.getInt(KEY_YEAR), json.getInt(KEY_MONTH), json.getInt(KEY_DAY),
+                json.getInt(KEY_HOUR), json.getInt(KEY_MINUTE), 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+
+        final AlarmInstance instance = new AlarmInstance(calendar,
+                json.has(KEY_ALARM_ID) ? json.getLong(KEY_ALARM_ID) : null);
+        instance.mId = instanceId;
+        instance.mAlarmState = AlarmInstance.FIRED_STATE;
+        instance.mLabel = json.optString(KEY_LABEL, "");
+        instance.mVibrate = json.getBoolean(KEY_VIBRATE);
+        instance.mVibrationPattern = json.optString(KEY_VIBRATION_PATTERN, DEFAULT_VIBRATION_PATTERN);
+        instance.mFlash = json.getBoolean(KEY_FLASH);
+        instance.mRingtone = json.has(KEY_RINGTONE) ? Uri.parse(json.getString(KEY_RINGTONE)) : null;
+        instance.mAutoSilenceDuration = json.getInt(KEY_AUTO_SILENCE_DURATION);
+        instance.mSnoozeDuration = json.getInt(KEY_SNOOZE_DURATION);
+        instance.mMissedAlarmCurrentCount = json.getInt(KEY_MISSED_ALARM_REPEAT_COUNT);
+        instance.mMissedAlarmRepeatLimit = json.getInt(KEY_MISSED_ALARM_REPEAT_LIMIT);
+        instance.mCrescendoDuration = json.getInt(KEY_CRESCENDO_DURATION);
+        instance.mAlarmVolume = json.getInt(KEY_ALARM_VOLUME);
+        instance.mHolidayOption = json.getInt(KEY_HOLIDAY_OPTION);
+
+        return instance;
+    }
+}
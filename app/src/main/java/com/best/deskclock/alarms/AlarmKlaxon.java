@@ -10,6 +10,10 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.media.AudioAttributes;
 import android.media.AudioManager;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.os.VibrationAttributes;
 import android.os.VibrationEffect;
 import android.os.Vibrator;
@@ -17,6 +21,7 @@ import android.os.Vibrator;
 import com.best.deskclock.data.SettingsDAO;
 import com.best.deskclock.provider.AlarmInstance;
 import com.best.deskclock.ringtone.AsyncRingtonePlayer;
+import com.best.deskclock.ringtone.OnPlaybackStartedListener;
 import com.best.deskclock.ringtone.RingtonePlayer;
 import com.best.deskclock.utils.LogUtils;
 import com.best.deskclock.utils.RingtoneUtils;
@@ -37,9 +42,68 @@ final class AlarmKlaxon {
 
     private static int sPreviousAlarmVolume = -1;
 
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * The id of the instance whose ringtone is prepared ahead of its firing; {@code -1} if none.
+     */
+    private static long sPrewarmedInstanceId = -1;
+
+    /**
+     * The elapsed realtime at which the alarm about to ring was delivered; {@code 0} if none.
+     */
+    private static volatile long sAlarmDeliveryTime;
+
     private AlarmKlaxon() {
     }
 
+    /**
+     * Records the delivery of a fired alarm, from which the latency of its ringtone is measured.
+     */
+    static void onAlarmDelivered() {
+        sAlarmDeliveryTime = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Resolves and prepares the ringtone of the instance ahead of its firing, so that it can start
+     * as soon as the alarm is delivered. May be called from any thread.
+     */
+    static synchronized void prewarm(Context context, SharedPreferences prefs, AlarmInstance instance) {
+        final Uri ringtoneUri = instance.mRingtone;
+        if (ringtoneUri == null || RingtoneUtils.RINGTONE_SILENT.equals(ringtoneUri)) {
+            return;
+        }
+
+        LogUtils.v("AlarmKlaxon.prewarm() for instance " + instance.mId);
+        sPrewarmedInstanceId = instance.mId;
+        if (SettingsDAO.isAdvancedAudioPlaybackEnabled(prefs)) {
+            final RingtonePlayer ringtonePlayer = getRingtonePlayer(context);
+            sMainHandler.post(() -> ringtonePlayer.prewarm(ringtoneUri));
+        } else {
+            getAsyncRingtonePlayer(context).prewarm(ringtoneUri);
+        }
+    }
+
+    /**
+     * Releases the ringtone prepared for the instance, if any, because it will not fire as
+     * prepared. May be called from any thread.
+     */
+    static synchronized void cancelPrewarm(long instanceId) {
+        if (sPrewarmedInstanceId != instanceId) {
+            return;
+        }
+
+        LogUtils.v("AlarmKlaxon.cancelPrewarm() for instance " + instanceId);
+        sPrewarmedInstanceId = -1;
+        if (sAsyncRingtonePlayer != null) {
+            sAsyncRingtonePlayer.cancelPrewarm();
+        }
+        if (sRingtonePlayer != null) {
+            final RingtonePlayer ringtonePlayer = sRingtonePlayer;
+            sMainHandler.post(ringtonePlayer::cancelPrewarm);
+        }
+    }
+
     public static void stop(Context context, SharedPreferences prefs) {
         if (sStarted) {
             LogUtils.v("AlarmKlaxon.stop()");
@@ -71,11 +135,23 @@ final class AlarmKlaxon {
         stop(context, prefs);
         LogUtils.v("AlarmKlaxon.start()");
 
+        // The prepared ringtone, if any, is either played or released by the player below.
+        synchronized (AlarmKlaxon.class) {
+            sPrewarmedInstanceId = -1;
+        }
+
+        final long deliveryTime = sAlarmDeliveryTime;
+        sAlarmDeliveryTime = 0;
+
         if (!RingtoneUtils.RINGTONE_SILENT.equals(instance.mRingtone)) {
+            final OnPlaybackStartedListener listener = deliveryTime == 0
+                    ? null
+                    : prewarmed -> onRingtoneStarted(prefs, deliveryTime, prewarmed);
+
             // Crescendo duration always in milliseconds
             final int crescendoDuration = instance.mCrescendoDuration * 1000;
             if (SettingsDAO.isAdvancedAudioPlaybackEnabled(prefs)) {
-                getRingtonePlayer(context).play(instance.mRingtone, crescendoDuration);
+                getRingtonePlayer(context).play(instance.mRingtone, crescendoDuration, listener);
             } else {
                 if (SettingsDAO.isPerAlarmVolumeEnabled(prefs)) {
                     AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
@@ -90,7 +166,7 @@ final class AlarmKlaxon {
                     }
                 }
 
-                getAsyncRingtonePlayer(context).play(instance.mRingtone, crescendoDuration);
+                getAsyncRingtonePlayer(context).play(instance.mRingtone, crescendoDuration, listener);
             }
         }
 
@@ -118,6 +194,16 @@ final class AlarmKlaxon {
         sStarted = true;
     }
 
+    /**
+     * Records the time between the delivery of the alarm and the start of its ringtone, which is
+     * displayed in the debug settings.
+     */
+    private static void onRingtoneStarted(SharedPreferences prefs, long deliveryTime, boolean prewarmed) {
+        final long latency = SystemClock.elapsedRealtime() - deliveryTime;
+        LogUtils.i("Alarm ringtone started %d ms after delivery (prewarmed: %b)", latency, prewarmed);
+        SettingsDAO.setLastAlarmRingtoneLatency(prefs, latency, prewarmed);
+    }
+
     public static void deactivateRingtonePlayback(SharedPreferences prefs) {
         if (SettingsDAO.isAdvancedAudioPlaybackEnabled(prefs)) {
             stopListeningToPreferences();
@@ -153,6 +239,7 @@ final class AlarmKlaxon {
 
     public static synchronized void stopListeningToPreferences() {
         if (sRingtonePlayer != null) {
+            sRingtonePlayer.cancelPrewarm();
             sRingtonePlayer.stopListeningToPreferences();
             sRingtonePlayer = null;
         }
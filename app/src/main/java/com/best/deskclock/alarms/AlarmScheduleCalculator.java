@@ -0,0 +1,193 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.alarms;
+
+import com.best.deskclock.data.Weekdays;
+import com.best.deskclock.data.WorkPattern;
+import com.best.deskclock.holiday.HolidayCalendarIndex;
+import com.best.deskclock.holiday.HolidayUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.Calendar;
+
+/**
+ * Computes alarm firing times with epoch-day arithmetic.
+ * <p>
+ * Candidate days are handled as the number of days since 1970-01-01 and matched against the
+ * {@link Weekdays} bitmask and the {@link HolidayCalendarIndex} with plain integer operations.
+ * The chosen local date and time are resolved to an instant only once, using the rules of the
+ * calculator time zone, so Daylight Saving Time transitions never shift the alarm time.</p>
+ * <p>
+ * A calculator is immutable; the same instance can be reused to schedule or sort many alarms.</p>
+ */
+public final class AlarmScheduleCalculator {
+
+    /**
+     * Returned when no firing time exists.
+     */
+    public static final long NO_ALARM_TIME = Long.MIN_VALUE;
+
+    /**
+     * Maximum number of days searched for a day on which the holiday option allows the alarm to ring.
+     */
+    private static final int MAX_SEARCHED_DAYS = 365;
+
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final ZoneId mZone;
+    private final ZoneRules mZoneRules;
+    private final HolidayCalendarIndex mHolidayIndex;
+
+    public AlarmScheduleCalculator(ZoneId zone, HolidayCalendarIndex holidayIndex) {
+        mZone = zone;
+        mZoneRules = zone.getRules();
+        mHolidayIndex = holidayIndex;
+    }
+
+    /**
+     * Creates a calculator using the time zone of the given calendar, so that results are
+     * consistent with the values read from that calendar.
+     */
+    public static AlarmScheduleCalculator forCalendar(Calendar calendar, HolidayCalendarIndex holidayIndex) {
+        return new AlarmScheduleCalculator(calendar.getTimeZone().toZoneId(), holidayIndex);
+    }
+
+    public HolidayCalendarIndex getHolidayIndex() {
+        return mHolidayIndex;
+    }
+
+    /**
+     * Calculates the next scheduled occurrence of an alarm, ignoring holidays.
+     *
+     * @param nowMillis    the reference time; the result is always after it
+     * @param hour         the hour of the alarm
+     * @param minutes      the minutes of the alarm
+     * @param daysOfWeek   the repeating days of the alarm; {@link Weekdays#NONE} for one-time alarms
+     * @param dateEpochDay the date of one-time alarms, as an epoch day; ignored for repeating alarms
+     * @return the next firing time in milliseconds since the epoch
+     */
+    public long getNextAlarmTime(long nowMillis, int hour, int minutes, Weekdays daysOfWeek,
+                                 long dateEpochDay) {
+
+        return toMillis(getNextAlarmDay(nowMillis, hour, minutes, daysOfWeek, dateEpochDay), hour, minutes);
+    }
+
+    /**
+     * Calculates the next occurrence of an alarm that the holiday option allows to ring.
+     *
+     * @param nowMillis     the reference time; the result is always after it
+     * @param hour          the hour of the alarm
+     * @param minutes       the minutes of the alarm
+     * @param daysOfWeek    the repeating days of the alarm; {@link Weekdays#NONE} for one-time alarms
+     * @param dateEpochDay  the date of one-time alarms, as an epoch day; ignored for repeating alarms
+     * @param holidayOption the holiday option of the alarm
+     * @param workPattern   the work pattern of the alarm
+     * @return the next valid firing time in milliseconds since the epoch, or the next occurrence
+     * ignoring holidays if no valid day was found within a year
+     */
+    public long getNextWorkdayAlarmTime(long nowMillis, int hour, int minutes, Weekdays daysOfWeek,
+                                        long dateEpochDay, int holidayOption,
+                                        WorkPattern workPattern) {
+
+        final long nextDay = getNextAlarmDay(nowMillis, hour, minutes, daysOfWeek, dateEpochDay);
+        if (holidayOption == HolidayUtils.HOLIDAY_OPTION_NONE
+                || (holidayOption == HolidayUtils.HOLIDAY_OPTION_WORK_PATTERN && workPattern.isEmpty())) {
+            // No day matches an empty work pattern; don't search a whole year to fall back.
+            return toMillis(nextDay, hour, minutes);
+        }
+
+        final boolean isRepeating = daysOfWeek.isRepeating();
+        long day = nextDay;
+        for (int i = 0; i < MAX_SEARCHED_DAYS; i++) {
+            if (HolidayUtils.shouldAlarmRing(mHolidayIndex, holidayOption, daysOfWeek, workPattern, day)) {
+                return toMillis(day, hour, minutes);
+            }
+
+            // Jump straight to the next enabled weekday.
+            day++;
+            if (isRepeating) {
+                day += daysOfWeek.getDistanceToNextDay(day);
+            }
+        }
+
+        // Fallback
+        return toMillis(nextDay, hour, minutes);
+    }
+
+    /**
+     * Calculates the previous occurrence of a repeating alarm, relative to its date.
+     *
+     * @param hour         the hour of the alarm
+     * @param minutes      the minutes of the alarm
+     * @param daysOfWeek   the repeating days of the alarm
+     * @param dateEpochDay the reference date, as an epoch day
+     * @return the previous firing time in milliseconds since the epoch, or {@link #NO_ALARM_TIME}
+     * if this is a one-time alarm
+     */
+    public long getPreviousAlarmTime(int hour, int minutes, Weekdays daysOfWeek, long dateEpochDay) {
+        final int subtractDays = daysOfWeek.getDistanceToPreviousDay(dateEpochDay);
+        if (subtractDays > 0) {
+            return toMillis(dateEpochDay - subtractDays, hour, minutes);
+        }
+
+        return NO_ALARM_TIME;
+    }
+
+    /**
+     * @return the day of the next occurrence of the alarm, as an epoch day in the calculator time zone.
+     */
+    private long getNextAlarmDay(long nowMillis, int hour, int minutes, Weekdays daysOfWeek,
+                                 long dateEpochDay) {
+
+        if (daysOfWeek.isRepeating()) {
+            long day = toEpochDay(nowMillis);
+
+            // If we are still behind the passed in time, then move to the next day
+            if (toMillis(day, hour, minutes) <= nowMillis) {
+                day++;
+            }
+
+            // The day of the week might be invalid, so find next valid one
+            return day + daysOfWeek.getDistanceToNextDay(day);
+        }
+
+        // If we are still behind the passed in time, then move to the next day
+        return toMillis(dateEpochDay, hour, minutes) <= nowMillis ? dateEpochDay + 1 : dateEpochDay;
+    }
+
+    /**
+     * @return the local date of the given instant, as an epoch day in the calculator time zone.
+     */
+    public long toEpochDay(long millis) {
+        final int offsetSeconds = mZoneRules.getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds();
+        return Math.floorDiv(Math.floorDiv(millis, 1000L) + offsetSeconds, SECONDS_PER_DAY);
+    }
+
+    /**
+     * Resolves a local date and time to an instant in the calculator time zone.
+     * <p>
+     * A local time falling in a Daylight Saving Time gap is moved forward by the length of the gap;
+     * a local time occurring twice uses the later instant, like {@link Calendar} and
+     * {@link com.best.deskclock.provider.AlarmInstance#getAlarmTime()} do.</p>
+     *
+     * @return the instant in milliseconds since the epoch
+     */
+    public long toMillis(long epochDay, int hour, int minutes) {
+        final LocalDateTime localDateTime = LocalDateTime.of(LocalDate.ofEpochDay(epochDay), LocalTime.of(hour, minutes));
+        return localDateTime.atZone(mZone).withLaterOffsetAtOverlap().toInstant().toEpochMilli();
+    }
+
+    /**
+     * @return a calendar set to the given instant, in the time zone of the {@code reference} calendar.
+     */
+    public static Calendar toCalendar(Calendar reference, long millis) {
+        final Calendar calendar = Calendar.getInstance(reference.getTimeZone());
+        calendar.setTimeInMillis(millis);
+        return calendar;
+    }
+}
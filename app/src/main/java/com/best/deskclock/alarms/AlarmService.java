@@ -329,28 +329,33 @@ public class AlarmService extends Service {
         final long instanceId = AlarmInstance.getId(intent.getData());
         switch (Objects.requireNonNull(intent.getAction())) {
             case AlarmStateManager.CHANGE_STATE_ACTION -> {
-                AlarmStateManager.handleIntent(this, intent);
+                final Context context = getApplicationContext();
 
                 // If state is changed to firing, actually fire the alarm!
                 final int alarmState = intent.getIntExtra(AlarmStateManager.ALARM_STATE_EXTRA, -1);
-                if (alarmState == AlarmInstance.FIRED_STATE) {
-                    final ContentResolver cr = this.getContentResolver();
-                    final AlarmInstance instance = AlarmInstance.getInstance(cr, instanceId);
-                    if (instance == null) {
-                        LogUtils.e("No instance found to start alarm: %d", instanceId);
-                        if (mCurrentAlarm != null) {
-                            // Only release lock if we are not firing alarm
-                            AlarmAlertWakeLock.releaseCpuLock();
-                        }
-                        break;
-                    }
+                if (alarmState != AlarmInstance.FIRED_STATE) {
+                    AlarmFirePipeline.post(context, () -> AlarmStateManager.handleIntent(context, intent));
+                    break;
+                }
 
-                    if (mCurrentAlarm != null && mCurrentAlarm.mId == instanceId) {
-                        LogUtils.e("Alarm already started for instance: %d", instanceId);
-                        break;
-                    }
-                    startAlarm(instance);
+                // Keep the CPU awake from the delivery of the alarm until it rings.
+                AlarmAlertWakeLock.acquireCpuWakeLock(this);
+                AlarmKlaxon.onAlarmDelivered();
+
+                // Ring right away if the way the instance fires was resolved when it was scheduled;
+                // the state change is then stored while the alarm is already ringing.
+                final AlarmInstance snapshot = AlarmFiringSnapshot.read(context, instanceId);
+                if (snapshot != null && AlarmStateManager.isCurrentIntent(context, intent)) {
+                    fireAlarm(instanceId, snapshot);
                 }
+
+                AlarmFirePipeline.post(context, () -> {
+                    AlarmStateManager.handleIntent(context, intent);
+
+                    final ContentResolver cr = context.getContentResolver();
+                    final AlarmInstance instance = AlarmInstance.getInstance(cr, instanceId);
+                    mHandler.post(() -> onFiredStateChanged(instanceId, instance));
+                });
             }
             case STOP_ALARM_ACTION -> {
                 if (mCurrentAlarm != null && mCurrentAlarm.mId != instanceId) {
@@ -403,6 +408,45 @@ public class AlarmService extends Service {
         }
     }
 
+    /**
+     * Starts the alarm of the instance unless it is already ringing.
+     */
+    private void fireAlarm(long instanceId, AlarmInstance instance) {
+        if (mCurrentAlarm != null && mCurrentAlarm.mId == instanceId) {
+            LogUtils.e("Alarm already started for instance: %d", instanceId);
+            return;
+        }
+
+        startAlarm(instance);
+    }
+
+    /**
+     * Called on the main thread once the firing state of the instance has been stored.
+     *
+     * @param instance the stored instance; {@code null} if it no longer exists
+     */
+    private void onFiredStateChanged(long instanceId, AlarmInstance instance) {
+        if (instance == null) {
+            LogUtils.e("No instance found to start alarm: %d", instanceId);
+            if (mCurrentAlarm != null && mCurrentAlarm.mId == instanceId) {
+                // The alarm started from its firing snapshot was deleted in the meantime.
+                stopCurrentAlarm();
+            } else if (mCurrentAlarm == null) {
+                // Only release lock if we are not firing alarm
+                AlarmAlertWakeLock.releaseCpuLock();
+            }
+            return;
+        }
+
+        if (mCurrentAlarm != null && mCurrentAlarm.mId == instanceId) {
+            // Already ringing from its firing snapshot; use the stored instance from now on.
+            mCurrentAlarm = instance;
+            return;
+        }
+
+        startAlarm(instance);
+    }
+
     private void startAlarm(AlarmInstance instance) {
         LogUtils.v("AlarmService.start with instance: " + instance.mId);
         if (mCurrentAlarm != null) {
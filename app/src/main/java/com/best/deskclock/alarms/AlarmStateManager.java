@@ -26,8 +26,10 @@ import android.net.Uri;
 import android.os.Handler;
 import android.os.PowerManager;
 import android.text.format.DateFormat;
+import android.util.LongSparseArray;
 import android.widget.Toast;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.core.app.NotificationManagerCompat;
 
 import com.best.deskclock.AlarmAlertWakeLock;
@@ -45,8 +47,11 @@ import com.best.deskclock.utils.AlarmUtils;
 import com.best.deskclock.utils.LogUtils;
 import com.best.deskclock.utils.RingtoneUtils;
 
+import java.time.Clock;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 
@@ -124,17 +129,40 @@ public final class AlarmStateManager extends BroadcastReceiver {
     private static final String TIME = "time";
 
     // Schedules alarm state transitions; can be mocked for testing purposes.
-    private static final StateChangeScheduler sStateChangeScheduler = new AlarmManagerStateChangeScheduler();
+    private static StateChangeScheduler sStateChangeScheduler = new AlarmManagerStateChangeScheduler();
+
+    // Gives the current time to the state transitions; can be mocked for testing purposes.
+    private static Clock sClock = Clock.systemDefaultZone();
 
     private static Calendar getCurrentTime() {
-        return DataModel.getDataModel().getCalendar();
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(sClock.millis());
+        return calendar;
+    }
+
+    /**
+     * Replaces how state changes are scheduled, or restores the {@link AlarmManager} scheduling
+     * if {@code scheduler} is {@code null}.
+     */
+    @VisibleForTesting
+    static void setStateChangeScheduler(StateChangeScheduler scheduler) {
+        sStateChangeScheduler = scheduler != null ? scheduler : new AlarmManagerStateChangeScheduler();
+    }
+
+    /**
+     * Replaces the clock giving the current time, or restores the system clock if {@code clock} is
+     * {@code null}.
+     */
+    @VisibleForTesting
+    static void setClock(Clock clock) {
+        sClock = clock != null ? clock : Clock.systemDefaultZone();
     }
 
     /**
      * Update the next alarm stored in framework. This value is also displayed in digital widgets,
      * the clock tab and the screensaver in this app.
      */
-    private static void updateNextAlarm(Context context) {
+    public static void updateNextAlarm(Context context) {
         final AlarmInstance nextAlarm = getNextFiringAlarm(context);
 
         if (nextAlarm != null) {
@@ -165,15 +193,7 @@ public final class AlarmStateManager extends BroadcastReceiver {
     public static AlarmInstance getNextFiringAlarm(Context context) {
         final ContentResolver cr = context.getContentResolver();
         final String activeAlarmQuery = AlarmInstance.ALARM_STATE + "<" + AlarmInstance.FIRED_STATE;
-        final List<AlarmInstance> alarmInstances = AlarmInstance.getInstances(cr, activeAlarmQuery);
-
-        AlarmInstance nextAlarm = null;
-        for (AlarmInstance instance : alarmInstances) {
-            if (nextAlarm == null || instance.getAlarmTime().before(nextAlarm.getAlarmTime())) {
-                nextAlarm = instance;
-            }
-        }
-        return nextAlarm;
+        return AlarmInstance.getFirstInstance(cr, activeAlarmQuery);
     }
 
     /**
@@ -244,13 +264,17 @@ public final class AlarmStateManager extends BroadcastReceiver {
             // Schedule the next repeating instance which may be before the current instance if a
             // time jump has occurred. Otherwise, if the current instance is the next instance
             // and has already been fired, schedule the subsequent instance.
-            Calendar nextAlarmTime = HolidayUtils.getNextWorkdayAlarmTime(context, alarm.holidayOption, alarm, getCurrentTime());
-            if (instance.mAlarmState > AlarmInstance.FIRED_STATE
-                    && nextAlarmTime.equals(instance.getAlarmTime())) {
-                nextAlarmTime = HolidayUtils.getNextWorkdayAlarmTime(context, alarm.holidayOption, alarm, instance.getAlarmTime());
+            final Calendar currentTime = getCurrentTime();
+            final AlarmScheduleCalculator calculator = AlarmScheduleCalculator.forCalendar(currentTime,
+                    HolidayUtils.getCalendarIndex(context, alarm.holidayOption));
+            final long instanceTime = instance.getAlarmTime().getTimeInMillis();
+            long nextAlarmTime = alarm.getNextWorkdayAlarmTime(calculator, currentTime.getTimeInMillis());
+            if (instance.mAlarmState > AlarmInstance.FIRED_STATE && nextAlarmTime == instanceTime) {
+                nextAlarmTime = alarm.getNextWorkdayAlarmTime(calculator, instanceTime);
             }
 
-            AlarmInstance nextRepeatedInstance = new AlarmInstance(nextAlarmTime, alarm.id);
+            AlarmInstance nextRepeatedInstance = new AlarmInstance(
+                    AlarmScheduleCalculator.toCalendar(currentTime, nextAlarmTime), alarm.id);
             nextRepeatedInstance.mVibrate = alarm.vibrate;
             nextRepeatedInstance.mFlash = alarm.flash;
             nextRepeatedInstance.mLabel = alarm.label;
@@ -308,6 +332,18 @@ public final class AlarmStateManager extends BroadcastReceiver {
      */
     private static void scheduleInstanceStateChange(Context ctx, Calendar time, AlarmInstance instance, int newState) {
         sStateChangeScheduler.scheduleInstanceStateChange(ctx, time, instance, newState);
+
+        // Resolve now how the instance will fire, so it can ring as soon as it is delivered.
+        if (newState == AlarmInstance.FIRED_STATE) {
+            AlarmFiringSnapshot.write(ctx, instance);
+        } else {
+            AlarmFiringSnapshot.remove(ctx, instance.mId);
+
+            // A firing instance is already playing the ringtone prepared for it, if any.
+            if (instance.mAlarmState != AlarmInstance.FIRED_STATE) {
+                AlarmKlaxon.cancelPrewarm(instance.mId);
+            }
+        }
     }
 
     /**
@@ -318,6 +354,8 @@ public final class AlarmStateManager extends BroadcastReceiver {
      */
     private static void cancelScheduledInstanceStateChange(Context ctx, AlarmInstance instance) {
         sStateChangeScheduler.cancelScheduledInstanceStateChange(ctx, instance);
+        AlarmFiringSnapshot.remove(ctx, instance.mId);
+        AlarmKlaxon.cancelPrewarm(instance.mId);
     }
 
     /**
@@ -334,7 +372,7 @@ public final class AlarmStateManager extends BroadcastReceiver {
         // Update alarm in db
         ContentResolver contentResolver = context.getContentResolver();
         instance.mAlarmState = AlarmInstance.SILENT_STATE;
-        instance.updateInstance(contentResolver);
+        instance.updateInstanceState(contentResolver);
 
         // Setup instance notification and scheduling timers
         AlarmNotifications.clearNotification(context, instance);
@@ -356,11 +394,24 @@ public final class AlarmStateManager extends BroadcastReceiver {
         // Update alarm state in db
         ContentResolver contentResolver = context.getContentResolver();
         instance.mAlarmState = AlarmInstance.NOTIFICATION_STATE;
-        instance.updateInstance(contentResolver);
+        instance.updateInstanceState(contentResolver);
 
         // Setup instance notification and scheduling timers
         AlarmNotifications.showUpcomingNotification(context, instance);
         scheduleInstanceStateChange(context, instance.getAlarmTime(), instance, AlarmInstance.FIRED_STATE);
+        prewarmFiring(context, instance);
+    }
+
+    /**
+     * Prepares the ringtone the instance will fire with, so that it rings as soon as it fires.
+     * Must follow the scheduling of its {@link AlarmInstance#FIRED_STATE}, which resolves that
+     * ringtone.
+     */
+    private static void prewarmFiring(Context context, AlarmInstance instance) {
+        final AlarmInstance snapshot = AlarmFiringSnapshot.read(context, instance.mId);
+        if (snapshot != null) {
+            AlarmKlaxon.prewarm(context, getDefaultSharedPreferences(context), snapshot);
+        }
     }
 
     /**
@@ -378,13 +429,21 @@ public final class AlarmStateManager extends BroadcastReceiver {
         ContentResolver contentResolver = context.getContentResolver();
         instance.mAlarmState = AlarmInstance.FIRED_STATE;
 
-        // If the alarm ringtone is set to "Random", assign a random ringtone uri to the alarm.
-        Alarm alarm = Alarm.getAlarm(context.getContentResolver(), instance.mAlarmId);
-        if (alarm != null) {
-            if (RingtoneUtils.isRandomRingtone(alarm.alert)) {
-                instance.mRingtone = RingtoneUtils.getRandomRingtoneUri();
-            } else if (RingtoneUtils.isRandomCustomRingtone(alarm.alert)) {
-                instance.mRingtone = RingtoneUtils.getRandomCustomRingtoneUri();
+        // Ring with the ringtone picked when the firing was scheduled, which AlarmService may
+        // already be playing. Otherwise, if the alarm ringtone is set to "Random", assign a random
+        // ringtone uri to the alarm.
+        final AlarmInstance snapshot = AlarmFiringSnapshot.read(context, instance.mId);
+        if (snapshot != null) {
+            instance.mRingtone = snapshot.mRingtone;
+            AlarmFiringSnapshot.remove(context, instance.mId);
+        } else {
+            Alarm alarm = Alarm.getAlarm(context.getContentResolver(), instance.mAlarmId);
+            if (alarm != null) {
+                if (RingtoneUtils.isRandomRingtone(alarm.alert)) {
+                    instance.mRingtone = RingtoneUtils.getRandomRingtoneUri();
+                } else if (RingtoneUtils.isRandomCustomRingtone(alarm.alert)) {
+                    instance.mRingtone = RingtoneUtils.getRandomCustomRingtoneUri();
+                }
             }
         }
 
@@ -418,7 +477,7 @@ public final class AlarmStateManager extends BroadcastReceiver {
     public static void setSnoozeState(final Context context, AlarmInstance instance, boolean showToast) {
         final SharedPreferences prefs = getDefaultSharedPreferences(context);
         final int snoozeMinutes = instance.mSnoozeDuration;
-        Calendar newAlarmTime = Calendar.getInstance();
+        Calendar newAlarmTime = getCurrentTime();
         // If the "Snooze duration" setting has been set to "None" or if "Enable alarm snooze actions"
         // is not enabled in the expanded alarm view, simply dismiss the alarm.
         if (snoozeMinutes == ALARM_SNOOZE_DURATION_DISABLED) {
@@ -493,7 +552,7 @@ public final class AlarmStateManager extends BroadcastReceiver {
         // Update alarm state
         ContentResolver contentResolver = context.getContentResolver();
         instance.mAlarmState = AlarmInstance.MISSED_STATE;
-        instance.updateInstance(contentResolver);
+        instance.updateInstanceState(contentResolver);
 
         // Setup instance notification and scheduling timers
         AlarmNotifications.showMissedNotification(context, instance);
@@ -523,7 +582,7 @@ public final class AlarmStateManager extends BroadcastReceiver {
         // Update alarm in database
         final ContentResolver contentResolver = context.getContentResolver();
         instance.mAlarmState = AlarmInstance.PREDISMISSED_STATE;
-        instance.updateInstance(contentResolver);
+        instance.updateInstanceState(contentResolver);
 
         // Setup instance notification and scheduling timers
         AlarmNotifications.clearNotification(context, instance);
@@ -545,7 +604,7 @@ public final class AlarmStateManager extends BroadcastReceiver {
         LogUtils.i("Setting dismissed state to instance " + instance.mId);
         instance.mAlarmState = AlarmInstance.DISMISSED_STATE;
         final ContentResolver contentResolver = context.getContentResolver();
-        instance.updateInstance(contentResolver);
+        instance.updateInstanceState(contentResolver);
 
         cancelPowerOffAlarm(context, instance);
     }
@@ -569,11 +628,16 @@ public final class AlarmStateManager extends BroadcastReceiver {
             AlarmService.stopAlarm(context, instance);
         }
 
+        // Missed and predismissed instances have already rescheduled their parent; updating it
+        // again would create a second instance for the next occurrence.
+        final boolean parentUpdated = instance.mAlarmState == AlarmInstance.MISSED_STATE
+                || instance.mAlarmState == AlarmInstance.PREDISMISSED_STATE;
+
         // Remove all other timers and notifications associated to it
         unregisterInstance(context, instance);
 
         // Check parent if it needs to reschedule, disable or delete itself
-        if (instance.mAlarmId != null) {
+        if (instance.mAlarmId != null && !parentUpdated) {
             updateParentAlarm(context, instance);
         }
 
@@ -625,7 +689,6 @@ public final class AlarmStateManager extends BroadcastReceiver {
     public static void registerInstance(Context context, AlarmInstance instance, boolean updateNextAlarm) {
         LogUtils.i("Registering instance: " + instance.mId);
         final ContentResolver cr = context.getContentResolver();
-        final Alarm alarm = Alarm.getAlarm(cr, instance.mAlarmId);
         final Calendar currentTime = getCurrentTime();
         final Calendar alarmTime = instance.getAlarmTime();
         final Calendar timeoutTime = instance.getTimeout(context);
@@ -660,6 +723,7 @@ public final class AlarmStateManager extends BroadcastReceiver {
 
                 // Make sure we re-enable the parent alarm of the instance
                 // because it will get activated by by the below code
+                final Alarm alarm = Alarm.getAlarm(cr, instance.mAlarmId);
                 Objects.requireNonNull(alarm).enabled = true;
                 alarm.updateAlarm(cr);
             }
@@ -673,26 +737,21 @@ public final class AlarmStateManager extends BroadcastReceiver {
         }
 
         // Fix states that are time sensitive
-        if (currentTime.after(missedTTL)) {
+        final int state = AlarmStateRules.getStateAt(currentTime.getTimeInMillis(),
+                notificationTime.getTimeInMillis(), alarmTime.getTimeInMillis(), missedTTL.getTimeInMillis());
+        if (state == AlarmInstance.DISMISSED_STATE) {
             // Alarm is so old, just dismiss it
             deleteInstanceAndUpdateParent(context, instance);
-        } else if (currentTime.after(alarmTime)) {
-            // There is a chance that the TIME_SET occurred right when the alarm should go off, so
-            // we need to add a check to see if we should fire the alarm instead of marking it missed.
-            Calendar alarmBuffer = Calendar.getInstance();
-            alarmBuffer.setTime(alarmTime.getTime());
-            alarmBuffer.add(Calendar.SECOND, ALARM_FIRE_BUFFER);
-            if (currentTime.before(alarmBuffer)) {
-                setFiredState(context, instance);
-            } else {
-                setMissedState(context, instance);
-            }
+        } else if (state == AlarmInstance.FIRED_STATE) {
+            setFiredState(context, instance);
+        } else if (state == AlarmInstance.MISSED_STATE) {
+            setMissedState(context, instance);
         } else if (instance.mAlarmState == AlarmInstance.SNOOZE_STATE) {
             // We only want to display snooze notification and not update the time,
             // so handle showing the notification directly
             AlarmNotifications.showSnoozeNotification(context, instance);
             scheduleInstanceStateChange(context, instance.getAlarmTime(), instance, AlarmInstance.FIRED_STATE);
-        } else if (currentTime.after(notificationTime)) {
+        } else if (state == AlarmInstance.NOTIFICATION_STATE) {
             setNotificationState(context, instance);
         } else {
             // Alarm is still active, so initialize as a silent alarm
@@ -716,15 +775,118 @@ public final class AlarmStateManager extends BroadcastReceiver {
         LogUtils.i("Deleting all instances of alarm: " + alarmId);
         ContentResolver cr = context.getContentResolver();
         List<AlarmInstance> instances = AlarmInstance.getInstancesByAlarmId(cr, alarmId);
+        unregisterAndDeleteInstances(context, instances);
+        updateNextAlarm(context);
+    }
+
+    /**
+     * Deletes all alarms and their instances, in one transaction for each table.
+     *
+     * @param context application context
+     */
+    public static void deleteAllAlarms(Context context) {
+        LogUtils.i("Deleting all alarms");
+        final ContentResolver cr = context.getContentResolver();
+        unregisterAndDeleteInstances(context, AlarmInstance.getInstances(cr, null));
+        Alarm.deleteAlarms(cr, Alarm.getAlarms(cr, null));
+        updateNextAlarm(context);
+    }
+
+    /**
+     * Removes the notifications and alarm timers of the instances, then deletes them in a single
+     * transaction. Their parent alarms are not updated.
+     *
+     * @param context   application context
+     * @param instances to delete
+     */
+    public static void unregisterAndDeleteInstances(Context context, List<AlarmInstance> instances) {
+        if (instances.isEmpty()) {
+            return;
+        }
+
         for (AlarmInstance instance : instances) {
-            unregisterInstance(context, instance);
-            AlarmInstance.deleteInstance(context.getContentResolver(), instance.mId);
+            unregisterDeletedInstance(context, instance);
         }
-        updateNextAlarm(context);
+
+        AlarmInstance.deleteInstances(context.getContentResolver(), instances);
+    }
+
+    /**
+     * Removes the notifications and alarm timers of an instance whose row is deleted, so the
+     * dismissed state is not written.
+     */
+    private static void unregisterDeletedInstance(Context context, AlarmInstance instance) {
+        LogUtils.i("Unregistering instance " + instance.mId);
+        AlarmNotifications.clearNotification(context, instance);
+        cancelScheduledInstanceStateChange(context, instance);
+        instance.mAlarmState = AlarmInstance.DISMISSED_STATE;
+        cancelPowerOffAlarm(context, instance);
+    }
+
+    /**
+     * Reschedules the enabled alarms that depend on holidays after the holiday data has changed.
+     * Alarms that are snoozed, firing or missed are left untouched, as are alarms whose next
+     * instance doesn't move.
+     *
+     * @param context application context
+     */
+    public static void rescheduleHolidayAlarms(Context context) {
+        final ContentResolver cr = context.getContentResolver();
+        final List<Alarm> alarms = Alarm.getAlarms(cr, null);
+        alarms.removeIf(alarm -> !alarm.enabled || alarm.holidayOption == HolidayUtils.HOLIDAY_OPTION_NONE);
+        if (alarms.isEmpty()) {
+            return;
+        }
+
+        LogUtils.i("Rescheduling " + alarms.size() + " alarms after a holiday data update");
+        final Calendar currentTime = getCurrentTime();
+        boolean rescheduled = false;
+        for (Alarm alarm : alarms) {
+            final List<AlarmInstance> instances = AlarmInstance.getInstancesByAlarmId(cr, alarm.id);
+            if (hasStartedInstance(instances)) {
+                continue;
+            }
+
+            final AlarmInstance newInstance = alarm.createInstanceAfter(context, currentTime);
+            if (instances.size() == 1 && instances.get(0).getAlarmTime().getTimeInMillis()
+                    == newInstance.getAlarmTime().getTimeInMillis()) {
+                continue;
+            }
+
+            for (AlarmInstance instance : instances) {
+                unregisterInstance(context, instance);
+                AlarmInstance.deleteInstance(cr, instance.mId);
+            }
+            newInstance.addInstance(cr);
+            registerInstance(context, newInstance, false);
+            rescheduled = true;
+        }
+
+        if (rescheduled) {
+            updateNextAlarm(context);
+        }
+    }
+
+    /**
+     * @return {@code true} if one of the instances is past the notification state.
+     */
+    private static boolean hasStartedInstance(List<AlarmInstance> instances) {
+        for (AlarmInstance instance : instances) {
+            if (instance.mAlarmState > AlarmInstance.NOTIFICATION_STATE) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
      * Fix and update all alarm instance when a time change event occurs.
+     * <p>
+     * Alarms and instances are read once and matched in memory. The instances that only need a
+     * new state and new timers are written along with the fire time of every instance and the
+     * deletion of orphan instances in one transaction, then their notifications and
+     * {@link AlarmManager} timers are set in a single sweep. The few instances that fire, are
+     * missed or are replaced go through the regular state transitions afterwards.</p>
      *
      * @param context application context
      */
@@ -733,41 +895,126 @@ public final class AlarmStateManager extends BroadcastReceiver {
         // Register all instances after major time changes or when phone restarts
         final ContentResolver contentResolver = context.getContentResolver();
         final Calendar currentTime = getCurrentTime();
+        final long now = currentTime.getTimeInMillis();
 
-        // Sort the instances in reverse chronological order so that later instances are fixed or deleted
-        // before re-scheduling prior instances (which may re-create or update the later instances).
-        final List<AlarmInstance> instances = AlarmInstance.getInstances(contentResolver, null);
-        Collections.sort(instances, (lhs, rhs) -> rhs.getAlarmTime().compareTo(lhs.getAlarmTime()));
+        final LongSparseArray<Alarm> alarms = new LongSparseArray<>();
+        for (Alarm alarm : Alarm.getAlarms(contentResolver, null)) {
+            alarms.put(alarm.id, alarm);
+        }
 
+        final List<AlarmInstance> instances = AlarmInstance.getInstances(contentResolver, null);
+        final List<AlarmInstance> orphanInstances = new ArrayList<>();
+        final List<AlarmInstance> updatedInstances = new ArrayList<>(instances.size());
+        final List<AlarmInstance> repairedInstances = new ArrayList<>(instances.size());
+        final List<AlarmInstance> replacedInstances = new ArrayList<>();
+        final List<AlarmInstance> registeredInstances = new ArrayList<>();
         for (AlarmInstance instance : instances) {
-            final Alarm alarm = Alarm.getAlarm(contentResolver, instance.mAlarmId);
+            final Alarm alarm = instance.mAlarmId == null ? null : alarms.get(instance.mAlarmId);
             if (alarm == null) {
-                unregisterInstance(context, instance);
-                AlarmInstance.deleteInstance(contentResolver, instance.mId);
                 LogUtils.e("Found instance without matching alarm; deleting instance %s", instance);
+                orphanInstances.add(instance);
                 continue;
             }
-            final Calendar priorAlarmTime = alarm.getPreviousAlarmTime(instance.getAlarmTime());
+
+            updatedInstances.add(instance);
+            final Calendar alarmTime = instance.getAlarmTime();
+            final Calendar priorAlarmTime = alarm.getPreviousAlarmTime(alarmTime);
             final Calendar missedTTLTime = instance.getMissedTimeToLive();
             if (currentTime.before(priorAlarmTime) || currentTime.after(missedTTLTime)) {
-                final Calendar oldAlarmTime = instance.getAlarmTime();
                 final Calendar newAlarmTime = alarm.getNextAlarmTime(currentTime);
-                final CharSequence oldTime = DateFormat.format("MM/dd/yyyy hh:mm a", oldAlarmTime);
+                final CharSequence oldTime = DateFormat.format("MM/dd/yyyy hh:mm a", alarmTime);
                 final CharSequence newTime = DateFormat.format("MM/dd/yyyy hh:mm a", newAlarmTime);
                 LogUtils.i("A time change has caused an existing alarm scheduled to fire at %s to" +
                         " be replaced by a new alarm scheduled to fire at %s", oldTime, newTime);
+                replacedInstances.add(instance);
+                continue;
+            }
+
+            final int repairedState = getRepairedState(context, instance, now);
+            if (repairedState == -1) {
+                registeredInstances.add(instance);
+            } else {
+                instance.mAlarmState = repairedState;
+                repairedInstances.add(instance);
+            }
+        }
+
+        AlarmInstance.updateAndDeleteInstances(contentResolver, updatedInstances, orphanInstances);
 
-                // The time change is so dramatic the AlarmInstance doesn't make any sense;
-                // remove it and schedule the new appropriate instance.
-                AlarmStateManager.deleteInstanceAndUpdateParent(context, instance);
+        for (AlarmInstance instance : orphanInstances) {
+            unregisterDeletedInstance(context, instance);
+        }
+
+        for (AlarmInstance instance : repairedInstances) {
+            if (instance.mAlarmState == AlarmInstance.SILENT_STATE) {
+                AlarmNotifications.clearNotification(context, instance);
+                scheduleInstanceStateChange(context, instance.getNotificationTime(context),
+                        instance, AlarmInstance.NOTIFICATION_STATE);
             } else {
-                registerInstance(context, instance, false);
+                if (instance.mAlarmState == AlarmInstance.SNOOZE_STATE) {
+                    AlarmNotifications.showSnoozeNotification(context, instance);
+                } else {
+                    AlarmNotifications.showUpcomingNotification(context, instance);
+                }
+                scheduleInstanceStateChange(context, instance.getAlarmTime(), instance, AlarmInstance.FIRED_STATE);
+
+                // Like setNotificationState, which the repaired instance did not go through.
+                if (instance.mAlarmState == AlarmInstance.NOTIFICATION_STATE) {
+                    prewarmFiring(context, instance);
+                }
             }
         }
 
+        // Handle later instances first so that they are fixed or deleted before re-scheduling
+        // prior instances (which may re-create or update the later instances).
+        final Comparator<AlarmInstance> reverseChronological =
+                (lhs, rhs) -> rhs.getAlarmTime().compareTo(lhs.getAlarmTime());
+        Collections.sort(replacedInstances, reverseChronological);
+        Collections.sort(registeredInstances, reverseChronological);
+
+        for (AlarmInstance instance : replacedInstances) {
+            // The time change is so dramatic the AlarmInstance doesn't make any sense;
+            // remove it and schedule the new appropriate instance.
+            deleteInstanceAndUpdateParent(context, instance);
+        }
+
+        for (AlarmInstance instance : registeredInstances) {
+            registerInstance(context, instance, false);
+        }
+
+        LogUtils.i("Fixed %d alarm instances: %d repaired, %d registered, %d replaced, %d orphans",
+                instances.size(), repairedInstances.size(), registeredInstances.size(),
+                replacedInstances.size(), orphanInstances.size());
         updateNextAlarm(context);
     }
 
+    /**
+     * Returns the state {@link #registerInstance} would move an instance to when the instance
+     * only needs its state, notification and timer to be set again, i.e. when it is silent,
+     * showing its upcoming notification or snoozed and stays so.
+     *
+     * @return the new state of the instance, or -1 if it needs a full state transition
+     */
+    private static int getRepairedState(Context context, AlarmInstance instance, long now) {
+        final int currentState = instance.mAlarmState;
+        if (currentState != AlarmInstance.SILENT_STATE
+                && currentState != AlarmInstance.NOTIFICATION_STATE
+                && currentState != AlarmInstance.SNOOZE_STATE) {
+            return -1;
+        }
+
+        final int state = AlarmStateRules.getStateAt(now,
+                instance.getNotificationTime(context).getTimeInMillis(),
+                instance.getAlarmTime().getTimeInMillis(),
+                instance.getMissedTimeToLive().getTimeInMillis());
+        if (state != AlarmInstance.SILENT_STATE && state != AlarmInstance.NOTIFICATION_STATE) {
+            return -1;
+        }
+
+        // The snooze notification is kept as long as the snoozed alarm has not fired.
+        return currentState == AlarmInstance.SNOOZE_STATE ? AlarmInstance.SNOOZE_STATE : state;
+    }
+
     /**
      * Utility method to set alarm instance state via constants.
      *
@@ -803,11 +1050,11 @@ public final class AlarmStateManager extends BroadcastReceiver {
                 return;
             }
 
-            int globalId = SettingsDAO.getGlobalIntentId(getDefaultSharedPreferences(context));
-            int intentId = intent.getIntExtra(ALARM_GLOBAL_ID_EXTRA, -1);
             int alarmState = intent.getIntExtra(ALARM_STATE_EXTRA, -1);
-            if (intentId != globalId) {
-                LogUtils.i("IntentId: " + intentId + " GlobalId: " + globalId + " AlarmState: " + alarmState);
+            if (!isCurrentIntent(context, intent)) {
+                LogUtils.i("IntentId: " + intent.getIntExtra(ALARM_GLOBAL_ID_EXTRA, -1)
+                        + " GlobalId: " + SettingsDAO.getGlobalIntentId(getDefaultSharedPreferences(context))
+                        + " AlarmState: " + alarmState);
                 // Allows dismiss/snooze requests to go through
                 if (!intent.hasCategory(ALARM_DISMISS_TAG) && !intent.hasCategory(ALARM_SNOOZE_TAG)) {
                     LogUtils.i("Ignoring old Intent");
@@ -854,6 +1101,15 @@ public final class AlarmStateManager extends BroadcastReceiver {
         }
     }
 
+    /**
+     * @return {@code true} if the state change intent was created since the global intent id last
+     * changed; older intents are ignored unless they dismiss or snooze an alarm
+     */
+    static boolean isCurrentIntent(Context context, Intent intent) {
+        final int globalId = SettingsDAO.getGlobalIntentId(getDefaultSharedPreferences(context));
+        return intent.getIntExtra(ALARM_GLOBAL_ID_EXTRA, -1) == globalId;
+    }
+
     /**
      * Creates an intent that can be used to set an AlarmManager alarm to set the next alarm
      * indicators.
@@ -0,0 +1,49 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.alarms;
+
+import com.best.deskclock.provider.AlarmInstance;
+
+/**
+ * Time rules of the alarm instance state machine.
+ * <p>
+ * These rules only compare instants, so they are shared by {@link AlarmStateManager#registerInstance}
+ * and {@link AlarmStateManager#fixAlarmInstances}.</p>
+ */
+public final class AlarmStateRules {
+
+    private static final long ALARM_FIRE_BUFFER_MILLIS = AlarmStateManager.ALARM_FIRE_BUFFER * 1000L;
+
+    private AlarmStateRules() {
+    }
+
+    /**
+     * Chooses the state of a registered instance from the current time, e.g. after the system
+     * time changed or the phone restarted.
+     *
+     * @param now              the current time in milliseconds since the epoch
+     * @param notificationTime the time the upcoming notification is shown
+     * @param alarmTime        the time the alarm fires
+     * @param missedTimeToLive the time the missed notification is removed
+     * @return {@link AlarmInstance#DISMISSED_STATE} if the instance is too old to be kept,
+     * {@link AlarmInstance#FIRED_STATE} if the alarm time has just passed,
+     * {@link AlarmInstance#MISSED_STATE} if it passed more than
+     * {@link AlarmStateManager#ALARM_FIRE_BUFFER} seconds ago,
+     * {@link AlarmInstance#NOTIFICATION_STATE} if the notification time has passed and
+     * {@link AlarmInstance#SILENT_STATE} otherwise
+     */
+    public static int getStateAt(long now, long notificationTime, long alarmTime, long missedTimeToLive) {
+        if (now > missedTimeToLive) {
+            return AlarmInstance.DISMISSED_STATE;
+        } else if (now > alarmTime) {
+            // There is a chance that the time changed right when the alarm should go off, so
+            // fire the alarm instead of marking it missed within a small buffer.
+            return now < alarmTime + ALARM_FIRE_BUFFER_MILLIS
+                    ? AlarmInstance.FIRED_STATE
+                    : AlarmInstance.MISSED_STATE;
+        } else if (now > notificationTime) {
+            return AlarmInstance.NOTIFICATION_STATE;
+        }
+        return AlarmInstance.SILENT_STATE;
+    }
+}
@@ -6,15 +6,27 @@
 
 package com.best.deskclock.alarms.dataadapter;
 
+import android.content.ContentValues;
 import android.os.Bundle;
 
 import com.best.deskclock.ItemAdapter;
 import com.best.deskclock.alarms.AlarmTimeClickHandler;
 import com.best.deskclock.provider.Alarm;
 import com.best.deskclock.provider.AlarmInstance;
+import com.best.deskclock.provider.ClockContract;
+
+import java.util.Objects;
 
 public class AlarmItemHolder extends ItemAdapter.ItemHolder<Alarm> {
 
+    /**
+     * Change payloads binding only part of an alarm item, or'ed together when several of them
+     * have changed.
+     */
+    public static final int CHANGE_ENABLED = 1;
+    public static final int CHANGE_TIME = 1 << 1;
+    public static final int CHANGE_LABEL = 1 << 2;
+
     private static final java.lang.String EXPANDED_KEY = "expanded";
     private final AlarmTimeClickHandler mAlarmTimeClickHandler;
     private final AlarmInstance mAlarmInstance;
@@ -58,6 +70,67 @@ public class AlarmItemHolder extends ItemAdapter.ItemHolder<Alarm> {
         return mExpanded;
     }
 
+    @Override
+    public boolean isContentSameAs(ItemAdapter.ItemHolder<?> oldItemHolder) {
+        if (!(oldItemHolder instanceof final AlarmItemHolder old)) {
+            return false;
+        }
+
+        return item.instanceState == old.item.instanceState
+                && isInstanceSameAs(old.mAlarmInstance)
+                && item.createContentValues().equals(old.item.createContentValues());
+    }
+
+    /**
+     * @return a combination of {@link #CHANGE_ENABLED}, {@link #CHANGE_TIME} and
+     * {@link #CHANGE_LABEL}, or {@code null} if other properties of the alarm have changed
+     */
+    @Override
+    public Object getChangePayload(ItemAdapter.ItemHolder<?> oldItemHolder) {
+        if (!(oldItemHolder instanceof final AlarmItemHolder old)) {
+            return null;
+        }
+
+        final ContentValues values = item.createContentValues();
+        final ContentValues oldValues = old.item.createContentValues();
+        int changes = 0;
+        if (item.enabled != old.item.enabled) {
+            changes |= CHANGE_ENABLED;
+        }
+        if (item.hour != old.item.hour || item.minutes != old.item.minutes) {
+            changes |= CHANGE_TIME;
+        }
+        if (!Objects.equals(item.label, old.item.label)) {
+            changes |= CHANGE_LABEL;
+        }
+        for (String key : new String[] {ClockContract.AlarmsColumns.ENABLED,
+                ClockContract.AlarmsColumns.HOUR, ClockContract.AlarmsColumns.MINUTES,
+                ClockContract.AlarmsColumns.LABEL}) {
+            values.remove(key);
+            oldValues.remove(key);
+        }
+
+        // The instance follows the enabled state and the time of its alarm; the partial binds of
+        // these changes also bind the dismiss button showing it.
+        final boolean instanceChanged = item.instanceState != old.item.instanceState
+                || !isInstanceSameAs(old.mAlarmInstance);
+        if (changes == 0 || !values.equals(oldValues)
+                || (instanceChanged && (changes & (CHANGE_ENABLED | CHANGE_TIME)) == 0)) {
+            return null;
+        }
+        return changes;
+    }
+
+    private boolean isInstanceSameAs(AlarmInstance instance) {
+        if (mAlarmInstance == null || instance == null) {
+            return mAlarmInstance == instance;
+        }
+
+        return mAlarmInstance.mId == instance.mId
+                && mAlarmInstance.mAlarmState == instance.mAlarmState
+                && mAlarmInstance.getAlarmTime().getTimeInMillis() == instance.getAlarmTime().getTimeInMillis();
+    }
+
     @Override
     public void onSaveInstanceState(Bundle bundle) {
         super.onSaveInstanceState(bundle);
@@ -41,6 +41,7 @@ import com.google.android.material.color.MaterialColors;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -118,6 +119,44 @@ public abstract class AlarmItemViewHolder extends ItemAdapter.ItemViewHolder<Ala
         itemView.setContentDescription(clock.getText() + " " + alarm.getLabelOrDefault(context));
     }
 
+    /**
+     * Binds only the views affected by the {@link AlarmItemHolder} change payloads.
+     */
+    @Override
+    protected void onBindItemView(AlarmItemHolder itemHolder, List<Object> payloads) {
+        int changes = 0;
+        for (Object payload : payloads) {
+            if (!(payload instanceof Integer)) {
+                onBindItemView(itemHolder);
+                return;
+            }
+            changes |= (Integer) payload;
+        }
+
+        final Alarm alarm = itemHolder.item;
+        final Context context = itemView.getContext();
+
+        if ((changes & (AlarmItemHolder.CHANGE_ENABLED | AlarmItemHolder.CHANGE_TIME)) != 0) {
+            bindClock(alarm);
+            bindRepeatText(context, alarm);
+            bindPreemptiveDismissButton(context, alarm, itemHolder.getAlarmInstance());
+        }
+        if ((changes & AlarmItemHolder.CHANGE_ENABLED) != 0) {
+            bindOnOffSwitch(alarm);
+            bindAnnotations(alarm);
+        }
+        if ((changes & (AlarmItemHolder.CHANGE_ENABLED | AlarmItemHolder.CHANGE_LABEL)) != 0) {
+            bindLabel(context, alarm);
+        }
+
+        itemView.setContentDescription(clock.getText() + " " + alarm.getLabelOrDefault(context));
+    }
+
+    /**
+     * Binds the label of the alarm, whose style also depends on its enabled state.
+     */
+    protected abstract void bindLabel(Context context, Alarm alarm);
+
     protected void bindOnOffSwitch(Alarm alarm) {
         if (onOff.isChecked() != alarm.enabled) {
             onOff.setChecked(alarm.enabled);
@@ -72,8 +72,7 @@ public final class CollapsedAlarmViewHolder extends AlarmItemViewHolder {
         final Alarm alarm = itemHolder.item;
         final Context context = itemView.getContext();
 
-        bindReadOnlyLabelAndMargins(context, alarm);
-        bindAlarmLabelAnnotations(alarm);
+        bindLabel(context, alarm);
 
         // If this view is bound without coming from a ExpandedAlarmViewHolder (e.g.
         // when duplicating the alarm), the animation listeners won't do the showing
@@ -84,6 +83,12 @@ public final class CollapsedAlarmViewHolder extends AlarmItemViewHolder {
         daysOfWeek.setVisibility(VISIBLE);
     }
 
+    @Override
+    protected void bindLabel(Context context, Alarm alarm) {
+        bindReadOnlyLabelAndMargins(context, alarm);
+        bindAlarmLabelAnnotations(alarm);
+    }
+
     private void bindReadOnlyLabelAndMargins(Context context, Alarm alarm) {
         ConstraintLayout.LayoutParams clockParams = (ConstraintLayout.LayoutParams) clock.getLayoutParams();
         ConstraintLayout.LayoutParams daysOfWeekParams = (ConstraintLayout.LayoutParams) daysOfWeek.getLayoutParams();
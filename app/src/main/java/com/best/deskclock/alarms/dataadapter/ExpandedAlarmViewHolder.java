@@ -342,6 +342,12 @@ public final class ExpandedAlarmViewHolder extends AlarmItemViewHolder {
         duplicate.setAlpha(1f);
     }
 
+    @Override
+    protected void bindLabel(Context context, Alarm alarm) {
+        bindEditLabel(context, alarm);
+        bindEditLabelAnnotations(alarm);
+    }
+
     private void bindEditLabel(Context context, Alarm alarm) {
         final boolean alarmLabelIsEmpty = alarm.label == null || alarm.label.isEmpty();
 
@@ -700,6 +706,9 @@ public final class ExpandedAlarmViewHolder extends AlarmItemViewHolder {
                     holidayOption.setText(context.getString(R.string.holiday_option_big_small_xiao));
             case com.best.deskclock.holiday.HolidayUtils.HOLIDAY_OPTION_SINGLE_DAY_OFF ->
                     holidayOption.setText(context.getString(R.string.holiday_option_single_day_off));
+            case com.best.deskclock.holiday.HolidayUtils.HOLIDAY_OPTION_WORK_PATTERN ->
+                    holidayOption.setText(context.getString(R.string.holiday_option_work_pattern,
+                            alarm.workPattern.toString()));
             default -> holidayOption.setText(context.getString(R.string.holiday_option_none));
         }
     }
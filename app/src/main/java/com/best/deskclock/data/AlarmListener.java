@@ -0,0 +1,45 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.data;
+
+import com.best.deskclock.provider.Alarm;
+import com.best.deskclock.provider.AlarmInstance;
+
+/**
+ * The interface through which interested parties are notified of changes to the alarms and their
+ * instances held by the {@link AlarmRepository}. Callbacks run on the thread that made the change.
+ */
+public interface AlarmListener {
+
+    /**
+     * @param alarm the alarm that was added
+     */
+    void alarmAdded(Alarm alarm);
+
+    /**
+     * @param before the alarm before the update
+     * @param after  the alarm after the update
+     */
+    void alarmUpdated(Alarm before, Alarm after);
+
+    /**
+     * @param alarm the alarm that was removed
+     */
+    void alarmRemoved(Alarm alarm);
+
+    /**
+     * @param instance the instance that was added
+     */
+    void instanceAdded(AlarmInstance instance);
+
+    /**
+     * @param before the instance before the update
+     * @param after  the instance after the update
+     */
+    void instanceUpdated(AlarmInstance before, AlarmInstance after);
+
+    /**
+     * @param instance the instance that was removed
+     */
+    void instanceRemoved(AlarmInstance instance);
+}
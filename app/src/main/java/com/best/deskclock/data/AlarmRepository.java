@@ -0,0 +1,545 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.data;
+
+import android.content.ContentResolver;
+import android.media.RingtoneManager;
+import android.util.LongSparseArray;
+
+import com.best.deskclock.provider.Alarm;
+import com.best.deskclock.provider.AlarmInstance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide cache of the alarms and alarm instances stored by the
+ * {@link com.best.deskclock.provider.ClockProvider}.
+ * <p>
+ * Both tables are read once, on first access, into an immutable snapshot keyed by id. Every
+ * write made through {@link Alarm} and {@link AlarmInstance} runs in {@link #write}: it is applied
+ * to the database first, then published here, and writers take turns so that they publish in the
+ * order they wrote. A new snapshot replaces the previous one and the change is reported to the
+ * {@link AlarmListener}s. Reads never touch the database again and return copies that the caller
+ * is free to modify.</p>
+ * <p>
+ * Any other write to the provider drops the snapshot, see {@link #onDatabaseChanged()}, so that
+ * it is read again on next access.</p>
+ * <p>
+ * The provider remains the source of truth: queries with a selection and the cursor loaders of
+ * the UI still go through it.</p>
+ */
+public final class AlarmRepository {
+
+    private static final AlarmRepository sAlarmRepository = new AlarmRepository();
+
+    /**
+     * The listeners to notify when an alarm or an instance is added, updated or removed.
+     */
+    private final List<AlarmListener> mAlarmListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The alarms and instances, or {@code null} until first read. Replaced on each write,
+     * never modified.
+     */
+    private volatile Snapshot mSnapshot;
+
+    /**
+     * The thread running {@link #write}, or {@code null}; guarded by {@code this}.
+     */
+    private Thread mWriter;
+
+    /**
+     * The listener calls of the changes published by {@link #mWriter}, made once it leaves
+     * {@link #write}; guarded by {@code this}.
+     */
+    private final List<Runnable> mWriterChanges = new ArrayList<>();
+
+    private AlarmRepository() {
+    }
+
+    public static AlarmRepository getAlarmRepository() {
+        return sAlarmRepository;
+    }
+
+    /**
+     * @param alarmListener to be notified when alarms or instances are added, updated and removed
+     */
+    public void addAlarmListener(AlarmListener alarmListener) {
+        mAlarmListeners.add(alarmListener);
+    }
+
+    /**
+     * @param alarmListener to no longer be notified when alarms or instances are added, updated
+     *                      and removed
+     */
+    public void removeAlarmListener(AlarmListener alarmListener) {
+        mAlarmListeners.remove(alarmListener);
+    }
+
+    /**
+     * Drops the snapshot, e.g. after the database was replaced by a restore; it is read again
+     * from the provider on next access.
+     */
+    public synchronized void invalidate() {
+        mSnapshot = null;
+    }
+
+    /**
+     * Called by the provider once rows of the alarms or instances are committed, on the thread
+     * that wrote them. The writes made in {@link #write} are published by their writer; any other
+     * write drops the snapshot.
+     */
+    public synchronized void onDatabaseChanged() {
+        if (mWriter != Thread.currentThread()) {
+            mSnapshot = null;
+        }
+    }
+
+    /**
+     * Runs a write to the provider together with its publication here. Writes made this way are
+     * serialized, so that the snapshots are published in the order the database was written; the
+     * listeners are called once the outermost write is done.
+     *
+     * @return the result of the write
+     */
+    public <T> T write(Supplier<T> write) {
+        final T result;
+        final List<Runnable> changes;
+        synchronized (this) {
+            final Thread previousWriter = mWriter;
+            mWriter = Thread.currentThread();
+            try {
+                result = write.get();
+            } finally {
+                mWriter = previousWriter;
+            }
+
+            // A nested write leaves the listeners to the outermost one.
+            if (previousWriter != null) {
+                return result;
+            }
+            changes = new ArrayList<>(mWriterChanges);
+            mWriterChanges.clear();
+        }
+
+        dispatch(changes);
+        return result;
+    }
+
+    /**
+     * @return a copy of the alarm with the given id, or {@code null} if it doesn't exist
+     */
+    public Alarm getAlarm(ContentResolver cr, long alarmId) {
+        final Alarm alarm = getSnapshot(cr).mAlarms.get(alarmId);
+        return alarm == null ? null : new Alarm(alarm);
+    }
+
+    /**
+     * @return copies of all alarms, sorted by id
+     */
+    public List<Alarm> getAlarms(ContentResolver cr) {
+        final LongSparseArray<Alarm> alarms = getSnapshot(cr).mAlarms;
+        final List<Alarm> result = new ArrayList<>(alarms.size());
+        for (int i = 0; i < alarms.size(); i++) {
+            result.add(new Alarm(alarms.valueAt(i)));
+        }
+        return result;
+    }
+
+    /**
+     * @return a copy of the instance with the given id, or {@code null} if it doesn't exist
+     */
+    public AlarmInstance getInstance(ContentResolver cr, long instanceId) {
+        final AlarmInstance instance = getSnapshot(cr).mInstances.get(instanceId);
+        return instance == null ? null : new AlarmInstance(instance);
+    }
+
+    /**
+     * @return copies of all instances, sorted by id
+     */
+    public List<AlarmInstance> getInstances(ContentResolver cr) {
+        final LongSparseArray<AlarmInstance> instances = getSnapshot(cr).mInstances;
+        final List<AlarmInstance> result = new ArrayList<>(instances.size());
+        for (int i = 0; i < instances.size(); i++) {
+            result.add(new AlarmInstance(instances.valueAt(i)));
+        }
+        return result;
+    }
+
+    /**
+     * @return copies of the instances of the given alarm, sorted by id
+     */
+    public List<AlarmInstance> getInstancesByAlarmId(ContentResolver cr, long alarmId) {
+        final LongSparseArray<AlarmInstance> instances = getSnapshot(cr).mInstances;
+        final List<AlarmInstance> result = new ArrayList<>();
+        for (int i = 0; i < instances.size(); i++) {
+            final AlarmInstance instance = instances.valueAt(i);
+            if (instance.mAlarmId != null && instance.mAlarmId == alarmId) {
+                result.add(new AlarmInstance(instance));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return copies of the instances in the given state, sorted by id
+     */
+    public List<AlarmInstance> getInstancesByState(ContentResolver cr, int state) {
+        final LongSparseArray<AlarmInstance> instances = getSnapshot(cr).mInstances;
+        final List<AlarmInstance> result = new ArrayList<>();
+        for (int i = 0; i < instances.size(); i++) {
+            final AlarmInstance instance = instances.valueAt(i);
+            if (instance.mAlarmState == state) {
+                result.add(new AlarmInstance(instance));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return a copy of the instance of the given alarm that fires first, or {@code null} if the
+     * alarm has no instance
+     */
+    public AlarmInstance getNextInstanceByAlarmId(ContentResolver cr, long alarmId) {
+        final LongSparseArray<AlarmInstance> instances = getSnapshot(cr).mInstances;
+        AlarmInstance nextInstance = null;
+        long nextAlarmTime = Long.MAX_VALUE;
+        for (int i = 0; i < instances.size(); i++) {
+            final AlarmInstance instance = instances.valueAt(i);
+            if (instance.mAlarmId == null || instance.mAlarmId != alarmId) {
+                continue;
+            }
+
+            final long alarmTime = instance.getAlarmTime().getTimeInMillis();
+            if (nextInstance == null || alarmTime < nextAlarmTime) {
+                nextInstance = instance;
+                nextAlarmTime = alarmTime;
+            }
+        }
+        return nextInstance == null ? null : new AlarmInstance(nextInstance);
+    }
+
+    /**
+     * Publishes alarms that were inserted or updated in the database.
+     */
+    public void putAlarms(List<Alarm> alarms) {
+        final List<Runnable> changes = new ArrayList<>(alarms.size());
+        synchronized (this) {
+            final Snapshot snapshot = mSnapshot;
+            if (snapshot == null) {
+                // The alarms will be read from the database on first access.
+                return;
+            }
+
+            final LongSparseArray<Alarm> newAlarms = snapshot.mAlarms.clone();
+            for (Alarm alarm : alarms) {
+                if (alarm.id == Alarm.INVALID_ID) {
+                    continue;
+                }
+
+                final Alarm after = copyAsStored(alarm);
+                final Alarm before = newAlarms.get(after.id);
+                newAlarms.put(after.id, after);
+                addAlarmChange(changes, before, after);
+            }
+            mSnapshot = new Snapshot(newAlarms, snapshot.mInstances);
+            if (deferToWriter(changes)) {
+                return;
+            }
+        }
+
+        dispatch(changes);
+    }
+
+    /**
+     * Publishes alarms that were deleted from the database, together with their instances, which
+     * are deleted with them.
+     */
+    public void removeAlarms(long... alarmIds) {
+        final List<Runnable> changes = new ArrayList<>(alarmIds.length);
+        synchronized (this) {
+            final Snapshot snapshot = mSnapshot;
+            if (snapshot == null) {
+                return;
+            }
+
+            final LongSparseArray<Alarm> newAlarms = snapshot.mAlarms.clone();
+            final LongSparseArray<AlarmInstance> newInstances = snapshot.mInstances.clone();
+            for (long alarmId : alarmIds) {
+                final Alarm before = newAlarms.get(alarmId);
+                if (before == null) {
+                    continue;
+                }
+
+                newAlarms.remove(alarmId);
+                for (int i = newInstances.size() - 1; i >= 0; i--) {
+                    final AlarmInstance instance = newInstances.valueAt(i);
+                    if (instance.mAlarmId != null && instance.mAlarmId == alarmId) {
+                        newInstances.removeAt(i);
+                        addInstanceChange(changes, instance, null);
+                    }
+                }
+                addAlarmChange(changes, before, null);
+            }
+            mSnapshot = new Snapshot(newAlarms, newInstances);
+            if (deferToWriter(changes)) {
+                return;
+            }
+        }
+
+        dispatch(changes);
+    }
+
+    /**
+     * Publishes instances that were inserted or updated, and instances that were deleted.
+     */
+    public void updateInstances(List<AlarmInstance> putInstances, List<AlarmInstance> removedInstances) {
+        final List<Runnable> changes = new ArrayList<>(putInstances.size() + removedInstances.size());
+        synchronized (this) {
+            final Snapshot snapshot = mSnapshot;
+            if (snapshot == null) {
+                return;
+            }
+
+            final LongSparseArray<AlarmInstance> newInstances = snapshot.mInstances.clone();
+            for (AlarmInstance instance : putInstances) {
+                if (instance.mId == AlarmInstance.INVALID_ID) {
+                    continue;
+                }
+
+                final AlarmInstance after = copyAsStored(instance);
+                final AlarmInstance before = newInstances.get(after.mId);
+                newInstances.put(after.mId, after);
+                addInstanceChange(changes, before, after);
+            }
+            for (AlarmInstance instance : removedInstances) {
+                final AlarmInstance before = newInstances.get(instance.mId);
+                if (before == null) {
+                    continue;
+                }
+
+                newInstances.remove(instance.mId);
+                addInstanceChange(changes, before, null);
+            }
+            mSnapshot = new Snapshot(snapshot.mAlarms, newInstances);
+            if (deferToWriter(changes)) {
+                return;
+            }
+        }
+
+        dispatch(changes);
+    }
+
+    /**
+     * Publishes an instance that was inserted or updated.
+     */
+    public void putInstance(AlarmInstance instance) {
+        updateInstances(Collections.singletonList(instance), Collections.emptyList());
+    }
+
+    /**
+     * Publishes an instance that was deleted.
+     */
+    public void removeInstance(long instanceId) {
+        final List<Runnable> changes = new ArrayList<>(1);
+        synchronized (this) {
+            final Snapshot snapshot = mSnapshot;
+            if (snapshot == null) {
+                return;
+            }
+
+            final AlarmInstance before = snapshot.mInstances.get(instanceId);
+            if (before == null) {
+                return;
+            }
+
+            final LongSparseArray<AlarmInstance> newInstances = snapshot.mInstances.clone();
+            newInstances.remove(instanceId);
+            addInstanceChange(changes, before, null);
+            mSnapshot = new Snapshot(snapshot.mAlarms, newInstances);
+            if (deferToWriter(changes)) {
+                return;
+            }
+        }
+
+        dispatch(changes);
+    }
+
+    /**
+     * Publishes a change of the state of an instance, the only column written by
+     * {@link AlarmInstance#updateInstanceState}.
+     */
+    public void setInstanceState(long instanceId, int state) {
+        final List<Runnable> changes = new ArrayList<>(1);
+        synchronized (this) {
+            final Snapshot snapshot = mSnapshot;
+            if (snapshot == null) {
+                return;
+            }
+
+            final AlarmInstance before = snapshot.mInstances.get(instanceId);
+            if (before == null || before.mAlarmState == state) {
+                return;
+            }
+
+            final AlarmInstance after = new AlarmInstance(before);
+            after.mAlarmState = state;
+            final LongSparseArray<AlarmInstance> newInstances = snapshot.mInstances.clone();
+            newInstances.put(instanceId, after);
+            addInstanceChange(changes, before, after);
+            mSnapshot = new Snapshot(snapshot.mAlarms, newInstances);
+            if (deferToWriter(changes)) {
+                return;
+            }
+        }
+
+        dispatch(changes);
+    }
+
+    private Snapshot getSnapshot(ContentResolver cr) {
+        Snapshot snapshot = mSnapshot;
+        if (snapshot == null) {
+            synchronized (this) {
+                snapshot = mSnapshot;
+                if (snapshot == null) {
+                    snapshot = load(cr);
+                    mSnapshot = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private static Snapshot load(ContentResolver cr) {
+        final LongSparseArray<Alarm> alarms = new LongSparseArray<>();
+        for (Alarm alarm : Alarm.queryAlarms(cr, null)) {
+            alarms.put(alarm.id, alarm);
+        }
+
+        final LongSparseArray<AlarmInstance> instances = new LongSparseArray<>();
+        for (AlarmInstance instance : AlarmInstance.queryInstances(cr, null)) {
+            instances.put(instance.mId, instance);
+        }
+
+        return new Snapshot(alarms, instances);
+    }
+
+    private void addAlarmChange(List<Runnable> changes, Alarm before, Alarm after) {
+        if (mAlarmListeners.isEmpty()) {
+            return;
+        }
+
+        if (before == null) {
+            changes.add(() -> {
+                for (AlarmListener listener : mAlarmListeners) {
+                    listener.alarmAdded(after);
+                }
+            });
+        } else if (after == null) {
+            changes.add(() -> {
+                for (AlarmListener listener : mAlarmListeners) {
+                    listener.alarmRemoved(before);
+                }
+            });
+        } else {
+            changes.add(() -> {
+                for (AlarmListener listener : mAlarmListeners) {
+                    listener.alarmUpdated(before, after);
+                }
+            });
+        }
+    }
+
+    private void addInstanceChange(List<Runnable> changes, AlarmInstance before, AlarmInstance after) {
+        if (mAlarmListeners.isEmpty()) {
+            return;
+        }
+
+        if (before == null) {
+            changes.add(() -> {
+                for (AlarmListener listener : mAlarmListeners) {
+                    listener.instanceAdded(after);
+                }
+            });
+        } else if (after == null) {
+            changes.add(() -> {
+                for (AlarmListener listener : mAlarmListeners) {
+                    listener.instanceRemoved(before);
+                }
+            });
+        } else {
+            changes.add(() -> {
+                for (AlarmListener listener : mAlarmListeners) {
+                    listener.instanceUpdated(before, after);
+                }
+            });
+        }
+    }
+
+    /**
+     * Listeners are notified outside of the lock, once the new snapshot is visible.
+     */
+    private static void dispatch(List<Runnable> changes) {
+        for (Runnable change : changes) {
+            change.run();
+        }
+    }
+
+    /**
+     * Leaves the notification of the published changes to the end of the current {@link #write},
+     * if any; called with the lock held.
+     *
+     * @return {@code true} if the changes are deferred, {@code false} if the caller dispatches them
+     */
+    private boolean deferToWriter(List<Runnable> changes) {
+        if (mWriter != Thread.currentThread()) {
+            return false;
+        }
+
+        mWriterChanges.addAll(changes);
+        return true;
+    }
+
+    /**
+     * @return a copy of the alarm as it reads from the database
+     */
+    private static Alarm copyAsStored(Alarm alarm) {
+        final Alarm copy = new Alarm(alarm);
+        // The instance state only comes with the alarms joined with their instances.
+        copy.instanceState = 0;
+        if (copy.alert == null) {
+            copy.alert = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
+        }
+        return copy;
+    }
+
+    /**
+     * @return a copy of the instance as it reads from the database
+     */
+    private static AlarmInstance copyAsStored(AlarmInstance instance) {
+        final AlarmInstance copy = new AlarmInstance(instance);
+        if (copy.mRingtone == null) {
+            copy.mRingtone = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
+        }
+        return copy;
+    }
+
+    /**
+     * The alarms and instances at one point in time. The maps and their values are never modified
+     * once the snapshot is published.
+     */
+    private static final class Snapshot {
+
+        private final LongSparseArray<Alarm> mAlarms;
+        private final LongSparseArray<AlarmInstance> mInstances;
+
+        private Snapshot(LongSparseArray<Alarm> alarms, LongSparseArray<AlarmInstance> instances) {
+            mAlarms = alarms;
+            mInstances = instances;
+        }
+    }
+}
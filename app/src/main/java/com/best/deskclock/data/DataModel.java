@@ -643,6 +643,17 @@ public final class DataModel {
         mStopwatchModel.setStopwatch(getStopwatch().reset());
     }
 
+    /**
+     * Resets the stopwatch and clears its laps, which are not stored with the settings, before
+     * resetting the settings or restoring a backup.
+     */
+    public void clearStopwatch() {
+        enforceMainLooper();
+        mStopwatchModel.setStopwatch(getStopwatch().reset());
+        // Also clears the laps when the stopwatch was already reset.
+        mStopwatchModel.clearLaps();
+    }
+
     /**
      * @return the laps recorded for this stopwatch
      */
@@ -651,6 +662,40 @@ public final class DataModel {
         return (mStopwatchModel != null) ? mStopwatchModel.getLaps() : new ArrayList<>();
     }
 
+    /**
+     * @return the number of laps recorded for this stopwatch
+     */
+    public int getLapCount() {
+        enforceMainLooper();
+        return (mStopwatchModel != null) ? mStopwatchModel.getLapCount() : 0;
+    }
+
+    /**
+     * @param lapNumber the 1-based number of a recorded lap
+     * @return the time elapsed between the end of the prior lap and the end of the lap
+     */
+    public long getLapTime(int lapNumber) {
+        enforceMainLooper();
+        return mStopwatchModel.getLapTime(lapNumber);
+    }
+
+    /**
+     * @param lapNumber the 1-based number of a recorded lap
+     * @return the time accumulated by the stopwatch at the end of the lap
+     */
+    public long getLapAccumulatedTime(int lapNumber) {
+        enforceMainLooper();
+        return mStopwatchModel.getLapAccumulatedTime(lapNumber);
+    }
+
+    /**
+     * @return the running statistics of the laps recorded for this stopwatch
+     */
+    public LapStatistics getLapStatistics() {
+        enforceMainLooper();
+        return mStopwatchModel.getLapStatistics();
+    }
+
     /**
      * @return a newly recorded lap completed now; {@code null} if no more laps can be added
      */
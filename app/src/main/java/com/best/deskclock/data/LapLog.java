@@ -0,0 +1,217 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.data;
+
+import android.content.Context;
+
+import com.best.deskclock.utils.LogUtils;
+import com.best.deskclock.utils.SdkUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * An append-only file of the laps recorded by the stopwatch. Each lap is stored as the 8 bytes of
+ * the time accumulated by the stopwatch at the end of the lap, so the lap at a given index can be
+ * located without reading the ones before it and recording a lap never rewrites earlier laps.
+ *
+ * <p>The file is memory-mapped once, on first access, into an array of accumulated times. Appended
+ * laps are written through immediately but only synced to the disk in batches of
+ * {@link #SYNC_BATCH_SIZE} laps or when {@link #sync()} is called.</p>
+ *
+ * <p>The {@link LapStatistics} of the laps are kept up to date with each lap that is appended.</p>
+ */
+final class LapLog {
+
+    private static final String FILE_NAME = "stopwatch_laps.bin";
+
+    /**
+     * The number of laps that may be appended before the file is synced to the disk.
+     */
+    private static final int SYNC_BATCH_SIZE = 32;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final File mFile;
+
+    /**
+     * Holds a single accumulated time while it is written to the file.
+     */
+    private final ByteBuffer mWriteBuffer = ByteBuffer.allocate(Long.BYTES);
+
+    private final LapStatistics mStatistics = new LapStatistics();
+
+    /**
+     * The accumulated time of each lap, in the order the laps were recorded.
+     */
+    private long[] mAccumulatedTimes;
+
+    /**
+     * The number of laps in {@link #mAccumulatedTimes}.
+     */
+    private int mCount;
+
+    /**
+     * The number of laps written to the file since it was last synced to the disk.
+     */
+    private int mUnsyncedCount;
+
+    private RandomAccessFile mRandomAccessFile;
+
+    LapLog(Context context) {
+        final Context storageContext = SdkUtils.isAtLeastAndroid7()
+                ? context.createDeviceProtectedStorageContext()
+                : context;
+        mFile = new File(storageContext.getFilesDir(), FILE_NAME);
+    }
+
+    /**
+     * @return the number of recorded laps
+     */
+    int size() {
+        load();
+        return mCount;
+    }
+
+    /**
+     * @param index the 0-based index of the lap in the order the laps were recorded
+     * @return the time accumulated by the stopwatch at the end of the lap
+     */
+    long getAccumulatedTime(int index) {
+        load();
+        if (index < 0 || index >= mCount) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + mCount);
+        }
+
+        return mAccumulatedTimes[index];
+    }
+
+    /**
+     * @param index the 0-based index of the lap in the order the laps were recorded
+     * @return the time elapsed between the end of the prior lap and the end of this one
+     */
+    long getLapTime(int index) {
+        final long accumulatedTime = getAccumulatedTime(index);
+        return index == 0 ? accumulatedTime : accumulatedTime - mAccumulatedTimes[index - 1];
+    }
+
+    /**
+     * @return the statistics of the recorded laps
+     */
+    LapStatistics getStatistics() {
+        load();
+        return mStatistics;
+    }
+
+    /**
+     * @param accumulatedTime the time accumulated by the stopwatch at the end of the new lap
+     */
+    void append(long accumulatedTime) {
+        load();
+        if (mCount == mAccumulatedTimes.length) {
+            mAccumulatedTimes = Arrays.copyOf(mAccumulatedTimes, mCount * 2);
+        }
+        mAccumulatedTimes[mCount++] = accumulatedTime;
+        mStatistics.add(getLapTime(mCount - 1));
+
+        try {
+            final FileChannel channel = getChannel();
+            mWriteBuffer.clear();
+            mWriteBuffer.putLong(accumulatedTime).flip();
+            // Write at the end of the laps rather than the end of the file, which may hold a
+            // partial lap left by a write that was interrupted.
+            long position = (long) (mCount - 1) * Long.BYTES;
+            while (mWriteBuffer.hasRemaining()) {
+                position += channel.write(mWriteBuffer, position);
+            }
+
+            if (++mUnsyncedCount >= SYNC_BATCH_SIZE) {
+                sync();
+            }
+        } catch (IOException e) {
+            LogUtils.e("Failed to append lap to " + mFile, e);
+        }
+    }
+
+    /**
+     * Removes all the recorded laps.
+     */
+    void clear() {
+        mAccumulatedTimes = new long[INITIAL_CAPACITY];
+        mCount = 0;
+        mUnsyncedCount = 0;
+        mStatistics.clear();
+
+        try {
+            final FileChannel channel = getChannel();
+            channel.truncate(0);
+            channel.force(false);
+        } catch (IOException e) {
+            LogUtils.e("Failed to truncate " + mFile, e);
+        }
+    }
+
+    /**
+     * Syncs the laps appended since the last sync to the disk.
+     */
+    void sync() {
+        if (mUnsyncedCount == 0 || mRandomAccessFile == null) {
+            return;
+        }
+
+        try {
+            mRandomAccessFile.getChannel().force(false);
+            mUnsyncedCount = 0;
+        } catch (IOException e) {
+            LogUtils.e("Failed to sync " + mFile, e);
+        }
+    }
+
+    /**
+     * Reads the accumulated times from the file if that has not yet occurred.
+     */
+    private void load() {
+        if (mAccumulatedTimes != null) {
+            return;
+        }
+
+        mAccumulatedTimes = new long[INITIAL_CAPACITY];
+        mCount = 0;
+        if (!mFile.exists()) {
+            return;
+        }
+
+        try {
+            final FileChannel channel = getChannel();
+            // A trailing partial lap can only come from an interrupted write and is ignored.
+            final int count = (int) Math.min(channel.size() / Long.BYTES, Integer.MAX_VALUE - 8);
+            if (count > 0) {
+                final LongBuffer buffer = channel
+                        .map(FileChannel.MapMode.READ_ONLY, 0, (long) count * Long.BYTES)
+                        .asLongBuffer();
+                mAccumulatedTimes = new long[Math.max(INITIAL_CAPACITY, count)];
+                buffer.get(mAccumulatedTimes, 0, count);
+                mCount = count;
+
+                for (int i = 0; i < count; i++) {
+                    mStatistics.add(getLapTime(i));
+                }
+            }
+        } catch (IOException e) {
+            LogUtils.e("Failed to read laps from " + mFile, e);
+        }
+    }
+
+    private FileChannel getChannel() throws IOException {
+        if (mRandomAccessFile == null) {
+            mRandomAccessFile = new RandomAccessFile(mFile, "rw");
+        }
+
+        return mRandomAccessFile.getChannel();
+    }
+}
@@ -0,0 +1,129 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.data;
+
+/**
+ * Running statistics of the recorded stopwatch laps, updated as each lap is recorded so that none
+ * of them requires visiting the laps again.
+ */
+public final class LapStatistics {
+
+    /**
+     * The number of laps included in the statistics.
+     */
+    private int mCount;
+
+    /**
+     * The 1-based number of the shortest lap; the earliest one if several laps tie.
+     */
+    private int mShortestLapNumber;
+
+    /**
+     * The 1-based number of the longest lap; the earliest one if several laps tie.
+     */
+    private int mLongestLapNumber;
+
+    private long mShortestLapTime;
+
+    private long mLongestLapTime;
+
+    private double mMeanLapTime;
+
+    /**
+     * The sum of squared differences from the mean lap time, maintained by Welford's algorithm.
+     */
+    private double mSquaredDeviations;
+
+    LapStatistics() {
+    }
+
+    /**
+     * @param lapTime the time of the lap recorded after all the laps already included
+     */
+    void add(long lapTime) {
+        mCount++;
+
+        if (mCount == 1 || lapTime < mShortestLapTime) {
+            mShortestLapTime = lapTime;
+            mShortestLapNumber = mCount;
+        }
+        if (mCount == 1 || lapTime > mLongestLapTime) {
+            mLongestLapTime = lapTime;
+            mLongestLapNumber = mCount;
+        }
+
+        final double delta = lapTime - mMeanLapTime;
+        mMeanLapTime += delta / mCount;
+        mSquaredDeviations += delta * (lapTime - mMeanLapTime);
+    }
+
+    /**
+     * Removes all laps from the statistics.
+     */
+    void clear() {
+        mCount = 0;
+        mShortestLapNumber = 0;
+        mLongestLapNumber = 0;
+        mShortestLapTime = 0;
+        mLongestLapTime = 0;
+        mMeanLapTime = 0;
+        mSquaredDeviations = 0;
+    }
+
+    /**
+     * @return the number of recorded laps
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return the number of the shortest recorded lap; {@code 0} if no laps are recorded
+     */
+    public int getShortestLapNumber() {
+        return mShortestLapNumber;
+    }
+
+    /**
+     * @return the number of the longest recorded lap; {@code 0} if no laps are recorded
+     */
+    public int getLongestLapNumber() {
+        return mLongestLapNumber;
+    }
+
+    /**
+     * @return the time of the shortest recorded lap; {@code 0} if no laps are recorded
+     */
+    public long getShortestLapTime() {
+        return mShortestLapTime;
+    }
+
+    /**
+     * @return the time of the longest recorded lap; {@code 0} if no laps are recorded
+     */
+    public long getLongestLapTime() {
+        return mLongestLapTime;
+    }
+
+    /**
+     * @return the mean time of the recorded laps; {@code 0} if no laps are recorded
+     */
+    public double getMeanLapTime() {
+        return mMeanLapTime;
+    }
+
+    /**
+     * @return the population variance of the recorded lap times; {@code 0} if fewer than two laps
+     * are recorded
+     */
+    public double getVariance() {
+        return mCount < 2 ? 0 : mSquaredDeviations / mCount;
+    }
+
+    /**
+     * @return the population standard deviation of the recorded lap times
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+}
@@ -0,0 +1,369 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.data;
+
+import static com.best.deskclock.data.CustomRingtoneDAO.RINGTONE_IDS;
+import static com.best.deskclock.data.CustomRingtoneDAO.RINGTONE_URI;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.UriPermission;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.media.RingtoneManager;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+import android.text.TextUtils;
+import android.util.ArraySet;
+
+import com.best.deskclock.AsyncHandler;
+import com.best.deskclock.DeskClockApplication;
+import com.best.deskclock.utils.LogUtils;
+import com.best.deskclock.utils.SdkUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Process-wide catalog of the ringtones a "Random" alarm or timer sound may pick from: the system
+ * alarm ringtones and the custom ringtones the application is allowed to read.
+ * <p>
+ * Each list is read once into an array, so picking a random ringtone is a single index into it.
+ * The system ringtones are read again after the media store reports a change and the custom
+ * ringtones after they are added, removed or their permissions reloaded; in both cases the list
+ * is rebuilt on the {@link AsyncHandler} thread rather than by the next caller.</p>
+ * <p>
+ * Besides uniform random picks, the catalog can deal the ringtones of a list in a shuffled order
+ * so that none repeats before all have been picked. The order and the position reached in it are
+ * stored, so they survive the process being killed between alarms.</p>
+ */
+public final class RingtoneCatalog {
+
+    private static final String SHUFFLE_PREFS_NAME = "ringtone_shuffle";
+
+    private static final RingtoneCatalog sRingtoneCatalog = new RingtoneCatalog();
+
+    private final Random mRandom = new Random();
+
+    private final ShuffleDeck mSystemDeck = new ShuffleDeck("system");
+    private final ShuffleDeck mCustomDeck = new ShuffleDeck("custom");
+
+    /**
+     * Rebuilds the list of system ringtones when the media store changes.
+     */
+    private final ContentObserver mMediaStoreObserver =
+            new ContentObserver(new Handler(Looper.getMainLooper())) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    invalidateSystemRingtones();
+                }
+            };
+
+    /**
+     * Rebuilds the list of custom ringtones when one is added or removed.
+     */
+    private final SharedPreferences.OnSharedPreferenceChangeListener mPrefListener =
+            (sharedPreferences, key) -> {
+                // A null key means the preferences were cleared, e.g. by a restore.
+                if (key == null || RINGTONE_IDS.equals(key) || key.startsWith(RINGTONE_URI)) {
+                    invalidateCustomRingtones();
+                }
+            };
+
+    /**
+     * The uris of the system alarm ringtones, or {@code null} until read. Replaced when the media
+     * store changes, never modified.
+     */
+    private volatile Uri[] mSystemRingtoneUris;
+
+    /**
+     * The uris of the custom ringtones the application may read, or {@code null} until read.
+     * Replaced when the custom ringtones change, never modified.
+     */
+    private volatile Uri[] mCustomRingtoneUris;
+
+    private Context mContext;
+
+    private SharedPreferences mShufflePrefs;
+
+    private RingtoneCatalog() {
+    }
+
+    public static RingtoneCatalog getRingtoneCatalog() {
+        return sRingtoneCatalog;
+    }
+
+    /**
+     * Reads both lists on the {@link AsyncHandler} thread if they have not been read yet.
+     */
+    public void prefetch(Context context) {
+        AsyncHandler.post(() -> {
+            getSystemRingtoneUris(context);
+            getCustomRingtoneUris(context);
+        });
+    }
+
+    /**
+     * @param withoutRepeat {@code true} to deal the ringtones in a shuffled order instead of
+     *                      picking one uniformly at random
+     * @return one of the system alarm ringtones, or the default alarm ringtone if there is none
+     */
+    public Uri getRandomRingtoneUri(Context context, boolean withoutRepeat) {
+        return pick(context, mSystemDeck, getSystemRingtoneUris(context), withoutRepeat);
+    }
+
+    /**
+     * @param withoutRepeat {@code true} to deal the ringtones in a shuffled order instead of
+     *                      picking one uniformly at random
+     * @return one of the readable custom ringtones, or the default alarm ringtone if there is none
+     */
+    public Uri getRandomCustomRingtoneUri(Context context, boolean withoutRepeat) {
+        return pick(context, mCustomDeck, getCustomRingtoneUris(context), withoutRepeat);
+    }
+
+    /**
+     * Drops the list of system ringtones and reads it again in the background.
+     */
+    public void invalidateSystemRingtones() {
+        mSystemRingtoneUris = null;
+        rebuild();
+    }
+
+    /**
+     * Drops the list of custom ringtones and reads it again in the background.
+     */
+    public void invalidateCustomRingtones() {
+        mCustomRingtoneUris = null;
+        rebuild();
+    }
+
+    private void rebuild() {
+        final Context context = mContext;
+        if (context != null) {
+            prefetch(context);
+        }
+    }
+
+    private Uri pick(Context context, ShuffleDeck deck, Uri[] uris, boolean withoutRepeat) {
+        if (uris.length == 0) {
+            return RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
+        }
+
+        if (withoutRepeat) {
+            return deck.next(context, uris);
+        }
+
+        return uris[mRandom.nextInt(uris.length)];
+    }
+
+    private Uri[] getSystemRingtoneUris(Context context) {
+        Uri[] uris = mSystemRingtoneUris;
+        if (uris == null) {
+            synchronized (this) {
+                uris = mSystemRingtoneUris;
+                if (uris == null) {
+                    registerObservers(context);
+                    uris = loadSystemRingtoneUris(mContext);
+                    mSystemRingtoneUris = uris;
+                }
+            }
+        }
+
+        return uris;
+    }
+
+    private Uri[] getCustomRingtoneUris(Context context) {
+        Uri[] uris = mCustomRingtoneUris;
+        if (uris == null) {
+            synchronized (this) {
+                uris = mCustomRingtoneUris;
+                if (uris == null) {
+                    registerObservers(context);
+                    uris = loadCustomRingtoneUris(mContext);
+                    mCustomRingtoneUris = uris;
+                }
+            }
+        }
+
+        return uris;
+    }
+
+    private synchronized void registerObservers(Context context) {
+        if (mContext != null) {
+            return;
+        }
+
+        mContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+
+        final ContentResolver cr = mContext.getContentResolver();
+        cr.registerContentObserver(MediaStore.Audio.Media.INTERNAL_CONTENT_URI, true, mMediaStoreObserver);
+        cr.registerContentObserver(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, true, mMediaStoreObserver);
+
+        DeskClockApplication.getDefaultSharedPreferences(mContext)
+                .registerOnSharedPreferenceChangeListener(mPrefListener);
+    }
+
+    private synchronized SharedPreferences getShufflePrefs(Context context) {
+        if (mShufflePrefs == null) {
+            final Context storageContext = SdkUtils.isAtLeastAndroid7()
+                    ? context.createDeviceProtectedStorageContext()
+                    : context;
+            mShufflePrefs = storageContext.getSharedPreferences(SHUFFLE_PREFS_NAME, Context.MODE_PRIVATE);
+        }
+
+        return mShufflePrefs;
+    }
+
+    private static Uri[] loadSystemRingtoneUris(Context context) {
+        final RingtoneManager manager = new RingtoneManager(context);
+        manager.setType(RingtoneManager.TYPE_ALARM);
+
+        try (Cursor cursor = manager.getCursor()) {
+            if (cursor == null) {
+                return new Uri[0];
+            }
+
+            final Uri[] uris = new Uri[cursor.getCount()];
+            int count = 0;
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                final Uri uri = manager.getRingtoneUri(cursor.getPosition());
+                if (uri != null) {
+                    uris[count++] = uri;
+                }
+            }
+            return count == uris.length ? uris : Arrays.copyOf(uris, count);
+        } catch (Exception e) {
+            LogUtils.e("Failed to read the system alarm ringtones", e);
+            return new Uri[0];
+        }
+    }
+
+    /**
+     * @return the uris of the custom ringtones the application may read, sorted by title
+     */
+    private static Uri[] loadCustomRingtoneUris(Context context) {
+        final List<CustomRingtone> ringtones =
+                CustomRingtoneDAO.getCustomRingtones(DeskClockApplication.getDefaultSharedPreferences(context));
+        Collections.sort(ringtones);
+
+        final List<UriPermission> uriPermissions = context.getContentResolver().getPersistedUriPermissions();
+        final Set<Uri> permissions = new ArraySet<>(uriPermissions.size());
+        for (UriPermission uriPermission : uriPermissions) {
+            permissions.add(uriPermission.getUri());
+        }
+
+        final Uri[] uris = new Uri[ringtones.size()];
+        int count = 0;
+        for (CustomRingtone ringtone : ringtones) {
+            final Uri uri = ringtone.getUri();
+            // Ringtones copied to the application storage need no permission.
+            if (ContentResolver.SCHEME_FILE.equals(uri.getScheme()) || permissions.contains(uri)) {
+                uris[count++] = uri;
+            }
+        }
+
+        return count == uris.length ? uris : Arrays.copyOf(uris, count);
+    }
+
+    /**
+     * Deals the ringtones of a list in a shuffled order, reshuffling once all have been dealt.
+     */
+    private final class ShuffleDeck {
+
+        private final String mOrderKey;
+        private final String mPositionKey;
+
+        /**
+         * The list the order was shuffled from; the order is restored or reshuffled when it changes.
+         */
+        private Uri[] mSource;
+
+        private Uri[] mOrder;
+
+        /**
+         * The index in {@link #mOrder} of the next ringtone to deal.
+         */
+        private int mPosition;
+
+        private ShuffleDeck(String name) {
+            mOrderKey = name + "_order";
+            mPositionKey = name + "_position";
+        }
+
+        synchronized Uri next(Context context, Uri[] uris) {
+            if (mSource != uris) {
+                mSource = uris;
+                restore(context, uris);
+            }
+
+            if (mPosition >= mOrder.length) {
+                shuffle(context, mOrder[mOrder.length - 1]);
+            }
+
+            final Uri uri = mOrder[mPosition++];
+            getShufflePrefs(context).edit().putInt(mPositionKey, mPosition).apply();
+            return uri;
+        }
+
+        /**
+         * Continues the stored order if it holds exactly the given ringtones; shuffles them
+         * otherwise.
+         */
+        private void restore(Context context, Uri[] uris) {
+            final SharedPreferences prefs = getShufflePrefs(context);
+            final String order = prefs.getString(mOrderKey, null);
+            if (order != null) {
+                final String[] parts = TextUtils.split(order, "\n");
+                if (parts.length == uris.length) {
+                    final Set<Uri> remaining = new ArraySet<>(Arrays.asList(uris));
+                    final Uri[] storedOrder = new Uri[parts.length];
+                    for (int i = 0; i < parts.length; i++) {
+                        storedOrder[i] = Uri.parse(parts[i]);
+                        remaining.remove(storedOrder[i]);
+                    }
+
+                    if (remaining.isEmpty()) {
+                        mOrder = storedOrder;
+                        mPosition = prefs.getInt(mPositionKey, 0);
+                        return;
+                    }
+                }
+            }
+
+            mOrder = uris.clone();
+            shuffle(context, null);
+        }
+
+        /**
+         * Shuffles {@link #mOrder} in place and stores it.
+         *
+         * @param last the ringtone dealt last, which is not dealt first in the new order
+         */
+        private void shuffle(Context context, Uri last) {
+            for (int i = mOrder.length - 1; i > 0; i--) {
+                final int j = mRandom.nextInt(i + 1);
+                final Uri uri = mOrder[i];
+                mOrder[i] = mOrder[j];
+                mOrder[j] = uri;
+            }
+
+            if (mOrder.length > 1 && mOrder[0].equals(last)) {
+                final int j = 1 + mRandom.nextInt(mOrder.length - 1);
+                mOrder[0] = mOrder[j];
+                mOrder[j] = last;
+            }
+            mPosition = 0;
+
+            getShufflePrefs(context).edit()
+                    .putString(mOrderKey, TextUtils.join("\n", mOrder))
+                    .putInt(mPositionKey, 0)
+                    .apply();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.data;
+
+import android.net.Uri;
+
+/**
+ * The metadata of a ringtone held by the {@link RingtoneMetadataCache}. Instances are immutable.
+ */
+public final class RingtoneMetadata {
+
+    /**
+     * The value of the duration, size or last modification time when it is not known.
+     */
+    public static final long UNKNOWN = -1;
+
+    private final Uri mUri;
+
+    /**
+     * The title of the ringtone, or {@code null} if not known.
+     */
+    private final String mTitle;
+
+    /**
+     * The duration of the ringtone in milliseconds; {@link #UNKNOWN} until it has been extracted.
+     */
+    private final long mDuration;
+
+    /**
+     * The size of the ringtone in bytes, or {@link #UNKNOWN}.
+     */
+    private final long mSize;
+
+    /**
+     * The last modification time of the ringtone, or {@link #UNKNOWN} if its provider does not
+     * tell it; the size alone then identifies the version of the ringtone.
+     */
+    private final long mLastModified;
+
+    private final boolean mReadable;
+
+    RingtoneMetadata(Uri uri, String title, long duration, long size, long lastModified,
+            boolean readable) {
+        mUri = uri;
+        mTitle = title;
+        mDuration = duration;
+        mSize = size;
+        mLastModified = lastModified;
+        mReadable = readable;
+    }
+
+    public Uri getUri() {
+        return mUri;
+    }
+
+    public String getTitle() {
+        return mTitle;
+    }
+
+    public long getDuration() {
+        return mDuration;
+    }
+
+    public long getSize() {
+        return mSize;
+    }
+
+    public long getLastModified() {
+        return mLastModified;
+    }
+
+    public boolean isReadable() {
+        return mReadable;
+    }
+
+    /**
+     * @return {@code true} if the ringtone has been read, so its duration is known
+     */
+    boolean isExtracted() {
+        return mDuration != UNKNOWN;
+    }
+
+    /**
+     * @return {@code true} if this metadata describes the same version of the ringtone as the
+     * given one
+     */
+    boolean isSameVersion(RingtoneMetadata other) {
+        return mReadable == other.mReadable
+                && mSize == other.mSize
+                && mLastModified == other.mLastModified;
+    }
+
+    RingtoneMetadata setTitle(String title) {
+        return new RingtoneMetadata(mUri, title, mDuration, mSize, mLastModified, mReadable);
+    }
+
+    RingtoneMetadata setDuration(long duration) {
+        return new RingtoneMetadata(mUri, mTitle, duration, mSize, mLastModified, mReadable);
+    }
+
+    @Override
+    public String toString() {
+        return "RingtoneMetadata{" +
+                "uri=" + mUri +
+                ", title=" + mTitle +
+                ", duration=" + mDuration +
+                ", size=" + mSize +
+                ", lastModified=" + mLastModified +
+                ", readable=" + mReadable +
+                '}';
+    }
+}
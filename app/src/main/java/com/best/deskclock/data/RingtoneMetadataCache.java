@@ -0,0 +1,482 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.data;
+
+import static android.media.RingtoneManager.TITLE_COLUMN_INDEX;
+
+import static com.best.deskclock.data.RingtoneMetadata.UNKNOWN;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.media.MediaMetadataRetriever;
+import android.media.MediaPlayer;
+import android.media.RingtoneManager;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+import android.provider.OpenableColumns;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+
+import com.best.deskclock.AsyncHandler;
+import com.best.deskclock.DeskClockApplication;
+import com.best.deskclock.utils.LogUtils;
+import com.best.deskclock.utils.RingtoneUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Process-wide cache of the title, duration, size and readability of ringtones, stored in the
+ * database of {@link RingtoneMetadataDatabaseHelper} so that it outlives the process.
+ * <p>
+ * A ringtone is identified by its uri together with its size and, when its provider tells it, its
+ * last modification time. The cached metadata of a ringtone is trusted once it has been checked
+ * against these in the current process; it is checked again after the media store reports a
+ * change. Only a ringtone found to have changed is read again, with a
+ * {@link MediaMetadataRetriever} rather than a prepared {@link MediaPlayer}.</p>
+ * <p>
+ * Methods prefixed with {@code peek} only read memory and may be called from the main thread; the
+ * others may read the ringtones and belong on a background thread.</p>
+ */
+public final class RingtoneMetadataCache {
+
+    private static final RingtoneMetadataCache sRingtoneMetadataCache = new RingtoneMetadataCache();
+
+    private static final String[] COLUMNS = {
+            RingtoneMetadataDatabaseHelper.URI,
+            RingtoneMetadataDatabaseHelper.TITLE,
+            RingtoneMetadataDatabaseHelper.DURATION,
+            RingtoneMetadataDatabaseHelper.SIZE,
+            RingtoneMetadataDatabaseHelper.LAST_MODIFIED,
+            RingtoneMetadataDatabaseHelper.READABLE,
+    };
+
+    /**
+     * The metadata of each ringtone, by uri.
+     */
+    private final Map<Uri, RingtoneMetadata> mMetadata = new ArrayMap<>();
+
+    /**
+     * The uris whose metadata has been checked against the ringtone since the process started or
+     * the media store last changed.
+     */
+    private final Set<Uri> mChecked = new ArraySet<>();
+
+    /**
+     * Forgets which ringtones have been checked when the media store changes.
+     */
+    private final ContentObserver mMediaStoreObserver =
+            new ContentObserver(new Handler(Looper.getMainLooper())) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    invalidate();
+                }
+            };
+
+    private volatile Context mContext;
+
+    /**
+     * {@code true} once the titles of the system ringtones have been read from the media store.
+     */
+    private volatile boolean mSystemRingtonesLoaded;
+
+    private RingtoneMetadataCache() {
+    }
+
+    public static RingtoneMetadataCache getRingtoneMetadataCache() {
+        return sRingtoneMetadataCache;
+    }
+
+    /**
+     * Reads the titles of the system ringtones and the metadata of the custom ringtones on the
+     * {@link AsyncHandler} thread, so that later lookups find them.
+     */
+    public void prefetch(Context context) {
+        AsyncHandler.post(() -> {
+            loadSystemRingtones(context);
+
+            final List<CustomRingtone> ringtones = CustomRingtoneDAO.getCustomRingtones(
+                    DeskClockApplication.getDefaultSharedPreferences(context));
+            for (CustomRingtone ringtone : ringtones) {
+                getMetadata(context, ringtone.getUri());
+            }
+        });
+    }
+
+    /**
+     * Records the title of each system alarm ringtone. The media store is only queried once per
+     * process and again after it reports a change.
+     */
+    public void loadSystemRingtones(Context context) {
+        load(context);
+        if (mSystemRingtonesLoaded) {
+            return;
+        }
+
+        final RingtoneManager ringtoneManager = new RingtoneManager(mContext);
+        ringtoneManager.setType(RingtoneManager.TYPE_ALARM);
+
+        final List<RingtoneMetadata> changed = new ArrayList<>();
+        try (Cursor cursor = ringtoneManager.getCursor()) {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                final String title = cursor.getString(TITLE_COLUMN_INDEX);
+                final Uri uri = ringtoneManager.getRingtoneUri(cursor.getPosition());
+                synchronized (mMetadata) {
+                    final RingtoneMetadata metadata = mMetadata.get(uri);
+                    if (metadata == null) {
+                        changed.add(new RingtoneMetadata(uri, title, UNKNOWN, UNKNOWN, UNKNOWN, true));
+                    } else if (!Objects.equals(metadata.getTitle(), title)) {
+                        changed.add(metadata.setTitle(title));
+                    }
+                }
+            }
+            mSystemRingtonesLoaded = true;
+        } catch (Throwable throwable) {
+            // best attempt only
+            LogUtils.e("Error loading system ringtone titles", throwable);
+        }
+
+        put(changed);
+    }
+
+    /**
+     * @return the metadata of the ringtone, including its duration, read from the ringtone if it
+     * is not cached or has changed
+     */
+    public RingtoneMetadata getMetadata(Context context, Uri uri) {
+        RingtoneMetadata metadata = check(context, uri);
+        if (!metadata.isExtracted() && metadata.isReadable()) {
+            metadata = extract(mContext, metadata);
+            put(Collections.singletonList(metadata));
+        }
+
+        return metadata;
+    }
+
+    /**
+     * @return the metadata of the ringtone after checking that the ringtone has not changed; its
+     * duration is not read, so it may be {@link RingtoneMetadata#UNKNOWN}
+     */
+    public RingtoneMetadata check(Context context, Uri uri) {
+        load(context);
+        uri = resolveDefaultUri(uri);
+        if (uri == null) {
+            return unreadable(null);
+        }
+
+        final RingtoneMetadata cached;
+        synchronized (mMetadata) {
+            cached = mMetadata.get(uri);
+            if (cached != null && mChecked.contains(uri)) {
+                return cached;
+            }
+        }
+
+        RingtoneMetadata metadata = stat(mContext, uri);
+        if (cached != null) {
+            if (cached.isSameVersion(metadata)) {
+                metadata = cached;
+            } else if (cached.getTitle() != null) {
+                // The title given by the media store outranks the one read from the ringtone.
+                metadata = metadata.setTitle(cached.getTitle());
+            }
+        }
+
+        synchronized (mMetadata) {
+            mChecked.add(uri);
+        }
+        if (metadata != cached) {
+            put(Collections.singletonList(metadata));
+        }
+
+        return metadata;
+    }
+
+    /**
+     * @return the cached metadata of the ringtone, which may not have been checked against the
+     * ringtone yet; {@code null} if none is cached
+     */
+    public RingtoneMetadata peekMetadata(Uri uri) {
+        synchronized (mMetadata) {
+            return mMetadata.get(uri);
+        }
+    }
+
+    /**
+     * @return {@code false} if the ringtone is known to be unreadable; {@code true} otherwise. If
+     * the ringtone has not been checked yet, it is checked in the background.
+     */
+    public boolean peekReadable(Context context, Uri uri) {
+        final RingtoneMetadata metadata;
+        synchronized (mMetadata) {
+            metadata = mMetadata.get(uri);
+            if (metadata != null && mChecked.contains(uri)) {
+                return metadata.isReadable();
+            }
+        }
+
+        AsyncHandler.post(() -> check(context, uri));
+        return metadata == null || metadata.isReadable();
+    }
+
+    /**
+     * Forgets the metadata of a ringtone that is no longer used.
+     */
+    public void remove(Context context, Uri uri) {
+        synchronized (mMetadata) {
+            mMetadata.remove(uri);
+            mChecked.remove(uri);
+        }
+
+        AsyncHandler.post(() -> RingtoneMetadataDatabaseHelper.getInstance(context)
+                .getWritableDatabase()
+                .delete(RingtoneMetadataDatabaseHelper.RINGTONES_TABLE_NAME,
+                        RingtoneMetadataDatabaseHelper.URI + " = ?", new String[]{uri.toString()}));
+    }
+
+    /**
+     * Checks each ringtone against its cached metadata again when it is next used, and reads the
+     * titles of the system ringtones again.
+     */
+    public void invalidate() {
+        synchronized (mMetadata) {
+            mChecked.clear();
+        }
+        mSystemRingtonesLoaded = false;
+    }
+
+    /**
+     * Reads the cached metadata from the database if that has not yet occurred.
+     */
+    private void load(Context context) {
+        if (mContext != null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (mContext != null) {
+                return;
+            }
+
+            final Context appContext = context.getApplicationContext() != null
+                    ? context.getApplicationContext()
+                    : context;
+
+            final SQLiteDatabase db =
+                    RingtoneMetadataDatabaseHelper.getInstance(appContext).getReadableDatabase();
+            try (Cursor cursor = db.query(RingtoneMetadataDatabaseHelper.RINGTONES_TABLE_NAME,
+                    COLUMNS, null, null, null, null, null)) {
+
+                synchronized (mMetadata) {
+                    while (cursor.moveToNext()) {
+                        final Uri uri = Uri.parse(cursor.getString(0));
+                        mMetadata.put(uri, new RingtoneMetadata(uri, cursor.getString(1),
+                                cursor.getLong(2), cursor.getLong(3), cursor.getLong(4),
+                                cursor.getInt(5) != 0));
+                    }
+                }
+            } catch (Exception e) {
+                LogUtils.e("Failed to read the ringtone metadata", e);
+            }
+
+            final ContentResolver cr = appContext.getContentResolver();
+            cr.registerContentObserver(MediaStore.Audio.Media.INTERNAL_CONTENT_URI, true, mMediaStoreObserver);
+            cr.registerContentObserver(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, true, mMediaStoreObserver);
+
+            mContext = appContext;
+        }
+    }
+
+    /**
+     * Caches the given metadata and writes it to the database on the {@link AsyncHandler} thread.
+     */
+    private void put(List<RingtoneMetadata> metadataList) {
+        if (metadataList.isEmpty()) {
+            return;
+        }
+
+        synchronized (mMetadata) {
+            for (RingtoneMetadata metadata : metadataList) {
+                mMetadata.put(metadata.getUri(), metadata);
+            }
+        }
+
+        final Context context = mContext;
+        AsyncHandler.post(() -> {
+            final SQLiteDatabase db = RingtoneMetadataDatabaseHelper.getInstance(context).getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (RingtoneMetadata metadata : metadataList) {
+                    final ContentValues values = new ContentValues(COLUMNS.length);
+                    values.put(RingtoneMetadataDatabaseHelper.URI, metadata.getUri().toString());
+                    values.put(RingtoneMetadataDatabaseHelper.TITLE, metadata.getTitle());
+                    values.put(RingtoneMetadataDatabaseHelper.DURATION, metadata.getDuration());
+                    values.put(RingtoneMetadataDatabaseHelper.SIZE, metadata.getSize());
+                    values.put(RingtoneMetadataDatabaseHelper.LAST_MODIFIED, metadata.getLastModified());
+                    values.put(RingtoneMetadataDatabaseHelper.READABLE, metadata.isReadable() ? 1 : 0);
+                    db.insertWithOnConflict(RingtoneMetadataDatabaseHelper.RINGTONES_TABLE_NAME, null,
+                            values, SQLiteDatabase.CONFLICT_REPLACE);
+                }
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                LogUtils.e("Failed to write the ringtone metadata", e);
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    /**
+     * @return the uri of the ringtone the default alarm ringtone currently stands for
+     */
+    private Uri resolveDefaultUri(Uri uri) {
+        if (RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM).equals(uri)) {
+            return RingtoneManager.getActualDefaultRingtoneUri(mContext, RingtoneManager.TYPE_ALARM);
+        }
+
+        return uri;
+    }
+
+    /**
+     * @return the readability, size and, if known, last modification time of the ringtone
+     */
+    private static RingtoneMetadata stat(Context context, Uri uri) {
+        if (ContentResolver.SCHEME_FILE.equals(uri.getScheme())) {
+            final File file = new File(Objects.requireNonNull(uri.getPath()));
+            if (!file.canRead()) {
+                LogUtils.e("Ringtone URI is not readable: " + uri);
+                return unreadable(uri);
+            }
+
+            return new RingtoneMetadata(uri, null, UNKNOWN, file.length(), file.lastModified(), true);
+        }
+
+        final ContentResolver cr = context.getContentResolver();
+        long size = UNKNOWN;
+        long lastModified = UNKNOWN;
+
+        try (AssetFileDescriptor afd = cr.openAssetFileDescriptor(uri, "r")) {
+            if (afd == null) {
+                LogUtils.e("Ringtone URI is not readable: " + uri);
+                return unreadable(uri);
+            }
+            size = afd.getLength();
+        } catch (Exception e) {
+            // Compressed resources cannot be opened as a file descriptor, only as a stream.
+            if (!canOpenStream(cr, uri)) {
+                LogUtils.e("Ringtone URI is not readable: " + uri, e);
+                return unreadable(uri);
+            }
+        }
+
+        if (ContentResolver.SCHEME_CONTENT.equals(uri.getScheme())) {
+            final boolean mediaStore = MediaStore.AUTHORITY.equals(uri.getAuthority());
+            final String[] projection = mediaStore
+                    ? new String[]{OpenableColumns.SIZE, MediaStore.MediaColumns.DATE_MODIFIED}
+                    : new String[]{OpenableColumns.SIZE};
+            try (Cursor cursor = cr.query(uri, projection, null, null, null)) {
+                if (cursor != null && cursor.moveToFirst()) {
+                    if (size < 0 && !cursor.isNull(0)) {
+                        size = cursor.getLong(0);
+                    }
+                    if (mediaStore && !cursor.isNull(1)) {
+                        lastModified = cursor.getLong(1);
+                    }
+                }
+            } catch (Exception e) {
+                LogUtils.w("Failed to query the size of ringtone: %s", uri);
+            }
+        }
+
+        // As a fallback: read the whole stream
+        if (size < 0) {
+            try (InputStream inputStream = cr.openInputStream(uri)) {
+                if (inputStream != null) {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    size = 0;
+                    while ((read = inputStream.read(buffer)) != -1) {
+                        size += read;
+                    }
+                }
+            } catch (IOException e) {
+                LogUtils.e("Failed to determine file size of ringtone", e);
+            }
+        }
+
+        return new RingtoneMetadata(uri, null, UNKNOWN, size, lastModified, true);
+    }
+
+    private static boolean canOpenStream(ContentResolver cr, Uri uri) {
+        try (InputStream stream = cr.openInputStream(uri)) {
+            return stream != null;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the metadata of a ringtone that cannot be read, which has no duration to extract
+     */
+    private static RingtoneMetadata unreadable(Uri uri) {
+        return new RingtoneMetadata(uri, null, 0, UNKNOWN, UNKNOWN, false);
+    }
+
+    /**
+     * @return the given metadata completed with the duration and, if it has none, the title read
+     * from the ringtone
+     */
+    private static RingtoneMetadata extract(Context context, RingtoneMetadata metadata) {
+        final Uri uri = metadata.getUri();
+        String title = null;
+        long duration = UNKNOWN;
+
+        final MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(context, uri);
+            title = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_TITLE);
+            final String value = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
+            if (value != null) {
+                duration = Long.parseLong(value);
+            }
+        } catch (RuntimeException e) {
+            LogUtils.e("Failed to extract metadata of ringtone: " + uri, e);
+        } finally {
+            try {
+                retriever.release();
+            } catch (IOException e) {
+                LogUtils.e("Failed to release MediaMetadataRetriever", e);
+            }
+        }
+
+        // Some formats do not declare their duration; preparing a player measures it.
+        if (duration < 0) {
+            final MediaPlayer player = RingtoneUtils.createPreparedMediaPlayer(context, uri);
+            if (player != null) {
+                duration = player.getDuration();
+                player.release();
+            }
+        }
+
+        RingtoneMetadata result = metadata.setDuration(Math.max(duration, 0));
+        if (result.getTitle() == null && title != null) {
+            result = result.setTitle(title);
+        }
+
+        return result;
+    }
+}
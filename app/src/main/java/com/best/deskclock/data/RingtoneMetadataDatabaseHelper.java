@@ -0,0 +1,78 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.data;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.best.deskclock.utils.LogUtils;
+import com.best.deskclock.utils.SdkUtils;
+
+/**
+ * Opens the database backing the {@link RingtoneMetadataCache}, one row per ringtone uri.
+ */
+final class RingtoneMetadataDatabaseHelper extends SQLiteOpenHelper {
+
+    static final String DATABASE_NAME = "ringtone_metadata.db";
+    static final String RINGTONES_TABLE_NAME = "ringtones";
+
+    static final String URI = "uri";
+    static final String TITLE = "title";
+    static final String DURATION = "duration";
+    static final String SIZE = "size";
+    static final String LAST_MODIFIED = "last_modified";
+    static final String READABLE = "readable";
+
+    private static final int DATABASE_VERSION = 1;
+
+    private static RingtoneMetadataDatabaseHelper sInstance;
+
+    private RingtoneMetadataDatabaseHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * @return the helper of the ringtone metadata database, which lives in the device encrypted
+     * storage area so that alarms firing before the user unlocks the device can read it
+     */
+    static synchronized RingtoneMetadataDatabaseHelper getInstance(Context context) {
+        if (sInstance == null) {
+            final Context appContext = context.getApplicationContext() != null
+                    ? context.getApplicationContext()
+                    : context;
+            sInstance = new RingtoneMetadataDatabaseHelper(SdkUtils.isAtLeastAndroid7()
+                    ? appContext.createDeviceProtectedStorageContext()
+                    : appContext);
+        }
+
+        return sInstance;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.execSQL("PRAGMA synchronous = NORMAL;");
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + RINGTONES_TABLE_NAME + " (" +
+                URI + " TEXT PRIMARY KEY, " +
+                TITLE + " TEXT, " +
+                DURATION + " INTEGER NOT NULL, " +
+                SIZE + " INTEGER NOT NULL, " +
+                LAST_MODIFIED + " INTEGER NOT NULL, " +
+                READABLE + " INTEGER NOT NULL);");
+        LogUtils.i("Ringtone metadata table created");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The table only caches what can be read again from the ringtones themselves.
+        LogUtils.v("Upgrading ringtone metadata database from version %d to %d", oldVersion, newVersion);
+        db.execSQL("DROP TABLE IF EXISTS " + RINGTONES_TABLE_NAME);
+        onCreate(db);
+    }
+}
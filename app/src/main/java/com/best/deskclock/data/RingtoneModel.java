@@ -6,9 +6,6 @@
 
 package com.best.deskclock.data;
 
-import static android.media.AudioManager.STREAM_ALARM;
-import static android.media.RingtoneManager.TITLE_COLUMN_INDEX;
-
 import static com.best.deskclock.utils.RingtoneUtils.RANDOM_CUSTOM_RINGTONE;
 import static com.best.deskclock.utils.RingtoneUtils.RANDOM_RINGTONE;
 
@@ -21,7 +18,6 @@ import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.content.UriPermission;
 import android.database.ContentObserver;
-import android.database.Cursor;
 import android.media.Ringtone;
 import android.media.RingtoneManager;
 import android.net.Uri;
@@ -173,6 +169,7 @@ public final class RingtoneModel {
                 }
 
                 CustomRingtoneDAO.removeCustomRingtone(mPrefs, ringtone.getId());
+                RingtoneMetadataCache.getRingtoneMetadataCache().remove(mContext, uri);
                 ringtones.remove(ringtone);
                 break;
             }
@@ -224,34 +221,28 @@ public final class RingtoneModel {
             permissions.add(uriPermission.getUri());
         }
 
+        boolean permissionsChanged = false;
         for (ListIterator<CustomRingtone> i = ringtones.listIterator(); i.hasNext(); ) {
             final CustomRingtone ringtone = i.next();
-            i.set(ringtone.setHasPermissions(permissions.contains(ringtone.getUri())));
+            final CustomRingtone updated =
+                    ringtone.setHasPermissions(permissions.contains(ringtone.getUri()));
+            permissionsChanged |= updated != ringtone;
+            i.set(updated);
         }
-    }
 
-    void loadRingtoneTitles() {
-        // Early return if the cache is already primed.
-        if (!mRingtoneTitles.isEmpty()) {
-            return;
-        }
-
-        final RingtoneManager ringtoneManager = new RingtoneManager(mContext);
-        ringtoneManager.setType(STREAM_ALARM);
+        // The permissions may have been granted or revoked since the catalog was read.
+        RingtoneCatalog.getRingtoneCatalog().invalidateCustomRingtones();
 
-        // Cache a title for each system ringtone.
-        try (Cursor cursor = ringtoneManager.getCursor()) {
-            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
-                final String ringtoneTitle = cursor.getString(TITLE_COLUMN_INDEX);
-                final Uri ringtoneUri = ringtoneManager.getRingtoneUri(cursor.getPosition());
-                mRingtoneTitles.put(ringtoneUri, ringtoneTitle);
-            }
-        } catch (Throwable throwable) {
-            // best attempt only
-            LogUtils.e("Error loading ringtone title cache", throwable);
+        // Likewise for the readability the metadata cache remembers for each ringtone.
+        if (permissionsChanged) {
+            RingtoneMetadataCache.getRingtoneMetadataCache().invalidate();
         }
     }
 
+    void loadRingtoneTitles() {
+        RingtoneMetadataCache.getRingtoneMetadataCache().loadSystemRingtones(mContext);
+    }
+
     String getRingtoneTitle(Uri uri) {
         final Context localizedContext = Utils.getLocalizedContext(mContext);
 
@@ -271,8 +262,15 @@ public final class RingtoneModel {
             return customRingtone.getTitle();
         }
 
-        // Check the cache.
+        // Check the caches; the titles of the system ringtones are kept by the metadata cache.
         String title = mRingtoneTitles.get(uri);
+        if (title == null) {
+            final RingtoneMetadata metadata =
+                    RingtoneMetadataCache.getRingtoneMetadataCache().peekMetadata(uri);
+            if (metadata != null) {
+                title = metadata.getTitle();
+            }
+        }
 
         if (title == null) {
             // This is slow because a media player is created during Ringtone object creation.
@@ -345,6 +343,8 @@ public final class RingtoneModel {
         public void onReceive(Context context, Intent intent) {
             // Titles such as "Default ringtone (Oxygen)" are wrong after locale changes.
             mRingtoneTitles.clear();
+            // The media store may also translate the titles of the system ringtones.
+            RingtoneMetadataCache.getRingtoneMetadataCache().invalidate();
         }
     }
 }
@@ -66,6 +66,23 @@ public final class SettingsDAO {
      */
     private static final String KEY_ALARM_GLOBAL_ID = "intent.extra.alarm.global.id";
 
+    /**
+     * Keys to preferences that store the state of the last successful holiday data sync.
+     */
+    private static final String KEY_HOLIDAY_SYNC_URL = "holiday_sync_url";
+    private static final String KEY_HOLIDAY_SYNC_ETAG = "holiday_sync_etag";
+    private static final String KEY_HOLIDAY_SYNC_LAST_MODIFIED = "holiday_sync_last_modified";
+    private static final String KEY_HOLIDAY_SYNC_CONTENT_HASH = "holiday_sync_content_hash";
+    private static final String KEY_HOLIDAY_SYNC_LAST_SUCCESS_TIME = "holiday_sync_last_success_time";
+    private static final String KEY_HOLIDAY_SYNC_FAILURE_COUNT = "holiday_sync_failure_count";
+
+    /**
+     * Keys to preferences that store the delay between the delivery of the last fired alarm and
+     * the start of its ringtone, and whether that ringtone had been prewarmed.
+     */
+    private static final String KEY_LAST_ALARM_RINGTONE_LATENCY = "last_alarm_ringtone_latency";
+    private static final String KEY_LAST_ALARM_RINGTONE_PREWARMED = "last_alarm_ringtone_prewarmed";
+
     /**
      * @return the id used to discriminate relevant AlarmManager callbacks from defunct ones
      */
@@ -172,6 +189,32 @@ public final class SettingsDAO {
         return prefs.getBoolean(KEY_DISPLAY_DEBUG_SETTINGS, DEFAULT_DISPLAY_DEBUG_SETTINGS);
     }
 
+    /**
+     * @return the time in milliseconds between the delivery of the last fired alarm and the start
+     * of its ringtone, or {@code -1} if no alarm ringtone has been played yet.
+     */
+    public static long getLastAlarmRingtoneLatency(SharedPreferences prefs) {
+        return prefs.getLong(KEY_LAST_ALARM_RINGTONE_LATENCY, -1);
+    }
+
+    /**
+     * @return {@code true} if the ringtone of the last fired alarm had been prewarmed.
+     * {@code false} otherwise.
+     */
+    public static boolean isLastAlarmRingtonePrewarmed(SharedPreferences prefs) {
+        return prefs.getBoolean(KEY_LAST_ALARM_RINGTONE_PREWARMED, false);
+    }
+
+    /**
+     * Records the time between the delivery of a fired alarm and the start of its ringtone.
+     */
+    public static void setLastAlarmRingtoneLatency(SharedPreferences prefs, long latency, boolean prewarmed) {
+        prefs.edit()
+                .putLong(KEY_LAST_ALARM_RINGTONE_LATENCY, latency)
+                .putBoolean(KEY_LAST_ALARM_RINGTONE_PREWARMED, prewarmed)
+                .apply();
+    }
+
     /**
      * @return a value indicating whether analog or digital clocks are displayed in the app
      */
@@ -960,6 +1003,15 @@ public final class SettingsDAO {
         };
     }
 
+    /**
+     * @return {@code true} if random ringtones are played in a shuffled order, without repeating
+     * one before all the others have been played. {@code false} otherwise.
+     */
+    public static boolean isRandomRingtoneShuffleEnabled(SharedPreferences prefs) {
+        // Default value must match the one in res/xml/settings_alarm.xml
+        return prefs.getBoolean(KEY_SHUFFLE_RANDOM_RINGTONES, DEFAULT_SHUFFLE_RANDOM_RINGTONES);
+    }
+
     /**
      * @return {@code true} if a custom auto silence duration can be set for each alarm.
      * {@code false} otherwise.
@@ -1535,6 +1587,85 @@ public final class SettingsDAO {
         prefs.edit().putString(KEY_HOLIDAY_DATA_URL, url).apply();
     }
 
+    /**
+     * @return the url from which the stored holiday data was last synced, or {@code null}.
+     */
+    public static String getHolidaySyncUrl(SharedPreferences prefs) {
+        return prefs.getString(KEY_HOLIDAY_SYNC_URL, null);
+    }
+
+    /**
+     * @return the ETag returned with the stored holiday data, or {@code null}.
+     */
+    public static String getHolidaySyncETag(SharedPreferences prefs) {
+        return prefs.getString(KEY_HOLIDAY_SYNC_ETAG, null);
+    }
+
+    /**
+     * @return the Last-Modified header returned with the stored holiday data, or {@code null}.
+     */
+    public static String getHolidaySyncLastModified(SharedPreferences prefs) {
+        return prefs.getString(KEY_HOLIDAY_SYNC_LAST_MODIFIED, null);
+    }
+
+    /**
+     * @return the hash of the content of the stored holiday data, or {@code null}.
+     */
+    public static String getHolidaySyncContentHash(SharedPreferences prefs) {
+        return prefs.getString(KEY_HOLIDAY_SYNC_CONTENT_HASH, null);
+    }
+
+    /**
+     * @return the wall clock time of the last successful holiday data sync, or {@code 0} if the
+     * data was never synced.
+     */
+    public static long getHolidaySyncLastSuccessTime(SharedPreferences prefs) {
+        return prefs.getLong(KEY_HOLIDAY_SYNC_LAST_SUCCESS_TIME, 0);
+    }
+
+    /**
+     * @return the number of holiday data syncs that failed since the last successful one.
+     */
+    public static int getHolidaySyncFailureCount(SharedPreferences prefs) {
+        return prefs.getInt(KEY_HOLIDAY_SYNC_FAILURE_COUNT, 0);
+    }
+
+    /**
+     * Records a successful holiday data sync.
+     */
+    public static void setHolidaySyncSucceeded(SharedPreferences prefs, long time) {
+        prefs.edit()
+                .putLong(KEY_HOLIDAY_SYNC_LAST_SUCCESS_TIME, time)
+                .remove(KEY_HOLIDAY_SYNC_FAILURE_COUNT)
+                .apply();
+    }
+
+    /**
+     * Records a failed holiday data sync.
+     *
+     * @return the number of holiday data syncs that failed since the last successful one.
+     */
+    public static int incrementHolidaySyncFailureCount(SharedPreferences prefs) {
+        final int failureCount = getHolidaySyncFailureCount(prefs) + 1;
+        prefs.edit().putInt(KEY_HOLIDAY_SYNC_FAILURE_COUNT, failureCount).apply();
+        return failureCount;
+    }
+
+    /**
+     * Saves the state of the holiday data that has just been stored. The state is written before
+     * returning, so that it is never older than the committed holiday data it describes.
+     */
+    public static void setHolidaySyncState(SharedPreferences prefs, String url, String eTag,
+                                           String lastModified, String contentHash) {
+
+        prefs.edit()
+                .putString(KEY_HOLIDAY_SYNC_URL, url)
+                .putString(KEY_HOLIDAY_SYNC_ETAG, eTag)
+                .putString(KEY_HOLIDAY_SYNC_LAST_MODIFIED, lastModified)
+                .putString(KEY_HOLIDAY_SYNC_CONTENT_HASH, contentHash)
+                .commit();
+    }
+
     /**
      * @return {@code true} if auto routing to bluetooth device is enabled.
      * {@code false} otherwise.
@@ -8,17 +8,14 @@ package com.best.deskclock.data;
 
 import static com.best.deskclock.data.Stopwatch.State.RESET;
 
+import android.content.Context;
 import android.content.SharedPreferences;
 
 import com.best.deskclock.data.Stopwatch.State;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
 /**
  * This class encapsulates the transfer of data between {@link Stopwatch} and {@link Lap} domain
- * objects and their permanent storage in {@link SharedPreferences}.
+ * objects and their permanent storage in {@link SharedPreferences} and the {@link LapLog}.
  */
 final class StopwatchDAO {
 
@@ -43,12 +40,14 @@ final class StopwatchDAO {
     private static final String ACCUMULATED_TIME = "sw_accum_time";
 
     /**
-     * Prefix for a key to a preference that stores the number of recorded laps.
+     * Key to a preference that stored the number of recorded laps before they moved to the
+     * {@link LapLog}.
      */
     private static final String LAP_COUNT = "sw_lap_num";
 
     /**
-     * Prefix for a key to a preference that stores accumulated time at the end of a lap.
+     * Prefix for a key to a preference that stored accumulated time at the end of a lap before the
+     * laps moved to the {@link LapLog}.
      */
     private static final String LAP_ACCUMULATED_TIME = "sw_lap_time_";
 
@@ -96,60 +95,33 @@ final class StopwatchDAO {
     }
 
     /**
-     * @return a list of recorded laps for the stopwatch
+     * @return the log of recorded laps for the stopwatch, into which any laps still stored in
+     * preferences are first moved
      */
-    static List<Lap> getLaps(SharedPreferences prefs) {
-        // Prepare the container to be filled with laps.
-        final int lapCount = prefs.getInt(LAP_COUNT, 0);
-        final List<Lap> laps = new ArrayList<>(lapCount);
-
-        long prevAccumulatedTime = 0;
-
-        // Lap numbers are 1-based and so the are corresponding shared preference keys.
-        for (int lapNumber = 1; lapNumber <= lapCount; lapNumber++) {
-            // Look up the accumulated time for the lap.
-            final String lapAccumulatedTimeKey = LAP_ACCUMULATED_TIME + lapNumber;
-            final long accumulatedTime = prefs.getLong(lapAccumulatedTimeKey, 0);
+    static LapLog getLaps(Context context, SharedPreferences prefs) {
+        final LapLog laps = new LapLog(context);
 
-            // Lap time is the delta between accumulated time of this lap and prior lap.
-            final long lapTime = accumulatedTime - prevAccumulatedTime;
-
-            // Create the lap instance from the data.
-            laps.add(new Lap(lapNumber, lapTime, accumulatedTime));
-
-            // Update the accumulated time of the previous lap.
-            prevAccumulatedTime = accumulatedTime;
+        if (!prefs.contains(LAP_COUNT)) {
+            return laps;
         }
 
-        // Laps are stored in the order they were recorded; display order is the reverse.
-        Collections.reverse(laps);
-
-        return laps;
-    }
-
-    /**
-     * @param newLapCount     the number of laps including the new lap
-     * @param accumulatedTime the amount of time accumulate by the stopwatch at the end of the lap
-     */
-    static void addLap(SharedPreferences prefs, int newLapCount, long accumulatedTime) {
-        prefs.edit()
-                .putInt(LAP_COUNT, newLapCount)
-                .putLong(LAP_ACCUMULATED_TIME + newLapCount, accumulatedTime)
-                .apply();
-    }
-
-    /**
-     * Remove the recorded laps for the stopwatch
-     */
-    static void clearLaps(SharedPreferences prefs) {
+        // Only move the laps if the log is empty; otherwise they were already moved before the
+        // preferences could be cleaned up.
+        final boolean migrate = laps.size() == 0;
+        final int lapCount = prefs.getInt(LAP_COUNT, 0);
         final SharedPreferences.Editor editor = prefs.edit();
 
-        final int lapCount = prefs.getInt(LAP_COUNT, 0);
+        // Lap numbers are 1-based and so the are corresponding shared preference keys.
         for (int lapNumber = 1; lapNumber <= lapCount; lapNumber++) {
-            editor.remove(LAP_ACCUMULATED_TIME + lapNumber);
+            final String lapAccumulatedTimeKey = LAP_ACCUMULATED_TIME + lapNumber;
+            if (migrate) {
+                laps.append(prefs.getLong(lapAccumulatedTimeKey, 0));
+            }
+            editor.remove(lapAccumulatedTimeKey);
         }
-        editor.remove(LAP_COUNT);
+        laps.sync();
+        editor.remove(LAP_COUNT).apply();
 
-        editor.apply();
+        return laps;
     }
 }
@@ -15,21 +15,26 @@ import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 
-import androidx.annotation.VisibleForTesting;
 import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationManagerCompat;
 
 import com.best.deskclock.utils.SdkUtils;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * All {@link Stopwatch} data is accessed via this model.
  */
 final class StopwatchModel {
 
+    /**
+     * The maximum number of laps that can be recorded; keeps the laps held in memory under 8 MB.
+     */
+    private static final int MAX_LAP_COUNT = 1_000_000;
+
     private final Context mContext;
 
     private final SharedPreferences mPrefs;
@@ -67,9 +72,14 @@ final class StopwatchModel {
     private Stopwatch mStopwatch;
 
     /**
-     * A mutable copy of the recorded stopwatch laps.
+     * A read-only view of the recorded stopwatch laps, newest first.
+     */
+    private final List<Lap> mLaps = new LapList();
+
+    /**
+     * The recorded stopwatch laps, oldest first.
      */
-    private List<Lap> mLaps;
+    private LapLog mLapLog;
 
     StopwatchModel(Context context, SharedPreferences prefs, NotificationModel notificationModel) {
         mContext = context;
@@ -120,6 +130,11 @@ final class StopwatchModel {
             StopwatchDAO.setStopwatch(mPrefs, stopwatch);
             mStopwatch = stopwatch;
 
+            // Laps are synced in batches while the stopwatch runs; flush them when it stops.
+            if (!stopwatch.isRunning()) {
+                getLapLog().sync();
+            }
+
             // Refresh the stopwatch notification to reflect the latest stopwatch state.
             if (!mNotificationModel.isApplicationInForeground()) {
                 updateNotification();
@@ -141,7 +156,37 @@ final class StopwatchModel {
      * @return the laps recorded for this stopwatch
      */
     List<Lap> getLaps() {
-        return Collections.unmodifiableList(getMutableLaps());
+        return mLaps;
+    }
+
+    /**
+     * @return the number of laps recorded for this stopwatch
+     */
+    int getLapCount() {
+        return getLapLog().size();
+    }
+
+    /**
+     * @param lapNumber the 1-based number of a recorded lap
+     * @return the time elapsed between the end of the prior lap and the end of the lap
+     */
+    long getLapTime(int lapNumber) {
+        return getLapLog().getLapTime(lapNumber - 1);
+    }
+
+    /**
+     * @param lapNumber the 1-based number of a recorded lap
+     * @return the time accumulated by the stopwatch at the end of the lap
+     */
+    long getLapAccumulatedTime(int lapNumber) {
+        return getLapLog().getAccumulatedTime(lapNumber - 1);
+    }
+
+    /**
+     * @return the running statistics of the laps recorded for this stopwatch
+     */
+    LapStatistics getLapStatistics() {
+        return getLapLog().getStatistics();
     }
 
     /**
@@ -153,16 +198,11 @@ final class StopwatchModel {
         }
 
         final long totalTime = getStopwatch().getTotalTime();
-        final List<Lap> laps = getMutableLaps();
-
-        final int lapNumber = laps.size() + 1;
-        StopwatchDAO.addLap(mPrefs, lapNumber, totalTime);
-
-        final long prevAccumulatedTime = laps.isEmpty() ? 0 : laps.get(0).getAccumulatedTime();
-        final long lapTime = totalTime - prevAccumulatedTime;
+        final LapLog lapLog = getLapLog();
+        lapLog.append(totalTime);
 
-        final Lap lap = new Lap(lapNumber, lapTime, totalTime);
-        laps.add(0, lap);
+        final int lapNumber = lapLog.size();
+        final Lap lap = new Lap(lapNumber, lapLog.getLapTime(lapNumber - 1), totalTime);
 
         // Refresh the stopwatch notification to reflect the latest stopwatch state.
         if (!mNotificationModel.isApplicationInForeground()) {
@@ -175,39 +215,32 @@ final class StopwatchModel {
     /**
      * Clears the laps recorded for this stopwatch.
      */
-    @VisibleForTesting
     void clearLaps() {
-        StopwatchDAO.clearLaps(mPrefs);
-        getMutableLaps().clear();
+        getLapLog().clear();
     }
 
     /**
      * @return {@code true} iff more laps can be recorded
      */
     boolean canAddMoreLaps() {
-        return getLaps().size() < 98;
+        return getLapLog().size() < MAX_LAP_COUNT;
     }
 
     /**
      * @return the longest lap time of all recorded laps and the current lap
      */
     long getLongestLapTime() {
-        long maxLapTime = 0;
-
-        final List<Lap> laps = getLaps();
-        if (!laps.isEmpty()) {
-            // Compute the maximum lap time across all recorded laps.
-            for (Lap lap : getLaps()) {
-                maxLapTime = Math.max(maxLapTime, lap.getLapTime());
-            }
-
-            // Compare with the maximum lap time for the current lap.
-            final Stopwatch stopwatch = getStopwatch();
-            final long currentLapTime = stopwatch.getTotalTime() - laps.get(0).getAccumulatedTime();
-            maxLapTime = Math.max(maxLapTime, currentLapTime);
+        final LapLog lapLog = getLapLog();
+        final int lapCount = lapLog.size();
+        if (lapCount == 0) {
+            return 0;
         }
 
-        return maxLapTime;
+        // Compare the maximum lap time across all recorded laps with the current lap.
+        final Stopwatch stopwatch = getStopwatch();
+        final long currentLapTime =
+                stopwatch.getTotalTime() - lapLog.getAccumulatedTime(lapCount - 1);
+        return Math.max(Math.max(0, lapLog.getStatistics().getLongestLapTime()), currentLapTime);
     }
 
     /**
@@ -219,8 +252,8 @@ final class StopwatchModel {
      * negative elapsed times are normalized to {@code 0}
      */
     long getCurrentLapTime(long time) {
-        final Lap previousLap = getLaps().get(0);
-        final long currentLapTime = time - previousLap.getAccumulatedTime();
+        final LapLog lapLog = getLapLog();
+        final long currentLapTime = time - lapLog.getAccumulatedTime(lapLog.size() - 1);
         return Math.max(0, currentLapTime);
     }
 
@@ -248,12 +281,30 @@ final class StopwatchModel {
         mNotificationManager.notify(mNotificationModel.getStopwatchNotificationId(), notification);
     }
 
-    private List<Lap> getMutableLaps() {
-        if (mLaps == null) {
-            mLaps = StopwatchDAO.getLaps(mPrefs);
+    private LapLog getLapLog() {
+        if (mLapLog == null) {
+            mLapLog = StopwatchDAO.getLaps(mContext, mPrefs);
         }
 
-        return mLaps;
+        return mLapLog;
+    }
+
+    /**
+     * Presents the laps of the {@link LapLog} newest first, creating each {@link Lap} on demand.
+     */
+    private final class LapList extends AbstractList<Lap> implements RandomAccess {
+
+        @Override
+        public Lap get(int location) {
+            final LapLog lapLog = getLapLog();
+            final int index = lapLog.size() - 1 - location;
+            return new Lap(index + 1, lapLog.getLapTime(index), lapLog.getAccumulatedTime(index));
+        }
+
+        @Override
+        public int size() {
+            return getLapLog().size();
+        }
     }
 
     /**
@@ -84,7 +84,7 @@ class StopwatchNotificationBuilder {
             }
 
             // Show the current lap number if any laps have been recorded.
-            final int lapCount = DataModel.getDataModel().getLaps().size();
+            final int lapCount = DataModel.getDataModel().getLapCount();
             if (lapCount > 0) {
                 final int lapNumber = lapCount + 1;
                 final String lap = context.getString(R.string.sw_notification_lap_number, lapNumber);
@@ -6,26 +6,45 @@
 
 package com.best.deskclock.data;
 
+import static com.best.deskclock.DeskClockApplication.getDefaultSharedPreferences;
 import static com.best.deskclock.data.Timer.State.RESET;
 
+import android.content.ContentValues;
+import android.content.Context;
 import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 
+import com.best.deskclock.AsyncHandler;
 import com.best.deskclock.data.Timer.State;
+import com.best.deskclock.utils.LogUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class encapsulates the transfer of data between {@link Timer} domain objects and their
- * permanent storage in {@link SharedPreferences}.
+ * permanent storage in the database of {@link TimerDatabaseHelper}.
+ * <p>
+ * Timers used to be stored as a set of keys per timer in {@link SharedPreferences}; these keys are
+ * migrated into the database when they are found, which also restores the timers of a backup
+ * written with them.</p>
+ * <p>
+ * Writes are posted to the {@link AsyncHandler} thread, in order, so that starting or pausing a
+ * timer never waits on the disk; reads first wait for the timer writes still pending, if any.
+ * Ids are therefore assigned here rather than by the database, from a counter kept in the
+ * preferences so that the id of a removed timer is never given again, even after a restart.</p>
  */
 public final class TimerDAO {
 
     /**
-     * Key to a preference that stores the set of timer ids.
+     * Key to a preference that stored the set of timer ids.
      */
     public static final String TIMER_IDS = "timers_list";
 
@@ -35,175 +54,339 @@ public final class TimerDAO {
     private static final String NEXT_TIMER_ID = "next_timer_id";
 
     /**
-     * Prefix for a key to a preference that stores the state of the timer.
+     * Prefix for a key to a preference that stored the state of the timer.
      */
     private static final String STATE = "timer_state_";
 
     /**
-     * Prefix for a key to a preference that stores the original timer length at creation.
+     * Prefix for a key to a preference that stored the original timer length at creation.
      */
     private static final String LENGTH = "timer_setup_timet_";
 
     /**
-     * Prefix for a key to a preference that stores the total timer length with additions.
+     * Prefix for a key to a preference that stored the total timer length with additions.
      */
     private static final String TOTAL_LENGTH = "timer_original_timet_";
 
     /**
-     * Prefix for a key to a preference that stores the last start time of the timer.
+     * Prefix for a key to a preference that stored the last start time of the timer.
      */
     private static final String LAST_START_TIME = "timer_start_time_";
 
     /**
-     * Prefix for a key to a preference that stores the epoch time when the timer last started.
+     * Prefix for a key to a preference that stored the epoch time when the timer last started.
      */
     private static final String LAST_WALL_CLOCK_TIME = "timer_wall_clock_time_";
 
     /**
-     * Prefix for a key to a preference that stores the remaining time before expiry.
+     * Prefix for a key to a preference that stored the remaining time before expiry.
      */
     private static final String REMAINING_TIME = "timer_time_left_";
 
     /**
-     * Prefix for a key to a preference that stores the label of the timer.
+     * Prefix for a key to a preference that stored the label of the timer.
      */
     private static final String LABEL = "timer_label_";
 
     /**
-     * Prefix for a key to a preference that stores the time of the timer button.
+     * Prefix for a key to a preference that stored the time of the timer button.
      */
     private static final String BUTTON_TIME = "timer_button_time";
 
     /**
-     * Prefix for a key to a preference that signals the timer should be deleted on first reset.
+     * Prefix for a key to a preference that signaled the timer should be deleted on first reset.
      */
     private static final String DELETE_AFTER_USE = "delete_after_use_";
 
+    private static final String[] TIMER_COLUMNS = {
+            TimerDatabaseHelper.ID,
+            TimerDatabaseHelper.STATE,
+            TimerDatabaseHelper.LENGTH,
+            TimerDatabaseHelper.TOTAL_LENGTH,
+            TimerDatabaseHelper.LAST_START_TIME,
+            TimerDatabaseHelper.LAST_WALL_CLOCK_TIME,
+            TimerDatabaseHelper.REMAINING_TIME,
+            TimerDatabaseHelper.LABEL,
+            TimerDatabaseHelper.BUTTON_TIME,
+            TimerDatabaseHelper.DELETE_AFTER_USE
+    };
+
+    /**
+     * The id to assign to the next timer, or {@code -1} until it is read from the preferences.
+     */
+    private static int sNextTimerId = -1;
+
+    /**
+     * The number of writes posted to the {@link AsyncHandler} thread that haven't run yet.
+     */
+    private static final AtomicInteger sPendingWrites = new AtomicInteger();
+
     private TimerDAO() {
     }
 
     /**
-     * @return the timers from permanent storage
+     * @return the timers from permanent storage, after migrating those still held by the
+     * preferences
      */
-    static List<Timer> getTimers(SharedPreferences prefs) {
-        // Read the set of timer ids.
-        final Set<String> timerIds = prefs.getStringSet(TIMER_IDS, Collections.emptySet());
-        final List<Timer> timers = new ArrayList<>(timerIds.size());
-
-        // Build a timer using the data associated with each timer id.
-        for (String timerId : timerIds) {
-            final int id = Integer.parseInt(timerId);
-            final int stateValue = prefs.getInt(STATE + id, RESET.getValue());
-            final State state = State.fromValue(stateValue);
-
-            // Timer state may be null when migrating timers from prior releases which defined a
-            // "deleted" state. Such a state is no longer required.
-            if (state != null) {
-                final long length = prefs.getLong(LENGTH + id, Long.MIN_VALUE);
-                final long totalLength = prefs.getLong(TOTAL_LENGTH + id, Long.MIN_VALUE);
-                final long lastStartTime = prefs.getLong(LAST_START_TIME + id, Timer.UNUSED);
-                final long lastWallClockTime = prefs.getLong(LAST_WALL_CLOCK_TIME + id,
-                        Timer.UNUSED);
-                final long remainingTime = prefs.getLong(REMAINING_TIME + id, totalLength);
-                final String label = prefs.getString(LABEL + id, null);
-                final String buttonTime = prefs.getString(BUTTON_TIME + id, "1");
-                final boolean deleteAfterUse = prefs.getBoolean(DELETE_AFTER_USE + id, false);
-                timers.add(new Timer(id, state, length, totalLength, lastStartTime,
-                        lastWallClockTime, remainingTime, label, buttonTime, deleteAfterUse));
+    static List<Timer> getTimers(Context context, SharedPreferences prefs) {
+        waitForPendingWrites();
+
+        final SQLiteDatabase db = getDatabase(context);
+        migrateTimers(db, prefs);
+
+        final List<Timer> timers = new ArrayList<>();
+        try (Cursor cursor = db.query(TimerDatabaseHelper.TIMERS_TABLE_NAME, TIMER_COLUMNS,
+                null, null, null, null, TimerDatabaseHelper.ID)) {
+
+            while (cursor.moveToNext()) {
+                final State state = State.fromValue(cursor.getInt(1));
+                if (state != null) {
+                    timers.add(new Timer(cursor.getInt(0), state, cursor.getLong(2),
+                            cursor.getLong(3), cursor.getLong(4), cursor.getLong(5),
+                            cursor.getLong(6), cursor.getString(7), cursor.getString(8),
+                            cursor.getInt(9) != 0));
+                }
             }
         }
 
+        if (!timers.isEmpty()) {
+            updateNextTimerId(context, timers.get(timers.size() - 1).getId() + 1);
+        }
+
         return timers;
     }
 
     /**
      * @param timer the timer to be added
+     * @return the timer with its assigned id
      */
-    static Timer addTimer(SharedPreferences prefs, Timer timer) {
-        final SharedPreferences.Editor editor = prefs.edit();
+    static Timer addTimer(Context context, Timer timer) {
+        final int id = nextTimerId(context);
+
+        // Return a new timer with the assigned timer id present.
+        final Timer added = new Timer(id, timer.getState(), timer.getLength(),
+                timer.getTotalLength(), timer.getLastStartTime(), timer.getLastWallClockTime(),
+                timer.getRemainingTime(), timer.getLabel(), timer.getButtonTime(),
+                timer.getDeleteAfterUse());
+
+        final ContentValues values = createContentValues(added);
+        values.put(TimerDatabaseHelper.ID, id);
+        postWrite(() -> getDatabase(context).insertWithOnConflict(
+                TimerDatabaseHelper.TIMERS_TABLE_NAME, null, values,
+                SQLiteDatabase.CONFLICT_REPLACE));
+
+        return added;
+    }
 
-        // Fetch the next timer id.
-        final int id = prefs.getInt(NEXT_TIMER_ID, 0);
-        editor.putInt(NEXT_TIMER_ID, id + 1);
-
-        // Add the new timer id to the set of all timer ids.
-        final Set<String> timerIds = new HashSet<>(getTimerIds(prefs));
-        timerIds.add(String.valueOf(id));
-        editor.putStringSet(TIMER_IDS, timerIds);
-
-        // Record the fields of the timer.
-        editor.putInt(STATE + id, timer.getState().getValue());
-        editor.putLong(LENGTH + id, timer.getLength());
-        editor.putLong(TOTAL_LENGTH + id, timer.getTotalLength());
-        editor.putLong(LAST_START_TIME + id, timer.getLastStartTime());
-        editor.putLong(LAST_WALL_CLOCK_TIME + id, timer.getLastWallClockTime());
-        editor.putLong(REMAINING_TIME + id, timer.getRemainingTime());
-        editor.putString(LABEL + id, timer.getLabel());
-        editor.putString(BUTTON_TIME + id, timer.getButtonTime());
-        editor.putBoolean(DELETE_AFTER_USE + id, timer.getDeleteAfterUse());
+    /**
+     * @param timer the timer to be updated
+     */
+    static void updateTimer(Context context, Timer timer) {
+        final ContentValues values = createContentValues(timer);
+        final String where = TimerDatabaseHelper.ID + " = " + timer.getId();
+        postWrite(() -> getDatabase(context).update(
+                TimerDatabaseHelper.TIMERS_TABLE_NAME, values, where, null));
+    }
 
-        editor.apply();
+    /**
+     * @param timer the timer to be removed
+     */
+    static void removeTimer(Context context, Timer timer) {
+        final String where = TimerDatabaseHelper.ID + " = " + timer.getId();
+        postWrite(() -> getDatabase(context).delete(
+                TimerDatabaseHelper.TIMERS_TABLE_NAME, where, null));
+    }
 
-        // Return a new timer with the generated timer id present.
-        return new Timer(id, timer.getState(), timer.getLength(), timer.getTotalLength(),
-                timer.getLastStartTime(), timer.getLastWallClockTime(), timer.getRemainingTime(),
-                timer.getLabel(), timer.getButtonTime(), timer.getDeleteAfterUse());
+    /**
+     * Removes all timers, before resetting the settings or restoring a backup.
+     */
+    public static void removeAllTimers(Context context) {
+        postWrite(() -> getDatabase(context).delete(
+                TimerDatabaseHelper.TIMERS_TABLE_NAME, null, null));
     }
 
     /**
-     * @param timer the timer to be updated
+     * @return the ids of the timers, as they were stored under {@link #TIMER_IDS}
      */
-    static void updateTimer(SharedPreferences prefs, Timer timer) {
-        final SharedPreferences.Editor editor = prefs.edit();
+    public static Set<String> getTimerIds(Context context) {
+        final Set<String> timerIds = new LinkedHashSet<>();
+        for (Timer timer : getTimers(context, null)) {
+            timerIds.add(String.valueOf(timer.getId()));
+        }
+        return timerIds;
+    }
+
+    /**
+     * @return the fields of the timers under the keys of the preferences that stored them, so
+     * that backups keep their format and are restored by the migration of these keys
+     */
+    public static Map<String, Object> getTimerPreferences(Context context) {
+        final Map<String, Object> values = new HashMap<>();
+        for (Timer timer : getTimers(context, null)) {
+            final int id = timer.getId();
+            values.put(STATE + id, timer.getState().getValue());
+            values.put(LENGTH + id, timer.getLength());
+            values.put(TOTAL_LENGTH + id, timer.getTotalLength());
+            values.put(LAST_START_TIME + id, timer.getLastStartTime());
+            values.put(LAST_WALL_CLOCK_TIME + id, timer.getLastWallClockTime());
+            values.put(REMAINING_TIME + id, timer.getRemainingTime());
+            if (timer.getLabel() != null) {
+                values.put(LABEL + id, timer.getLabel());
+            }
+            if (timer.getButtonTime() != null) {
+                values.put(BUTTON_TIME + id, timer.getButtonTime());
+            }
+            values.put(DELETE_AFTER_USE + id, timer.getDeleteAfterUse());
+        }
+        return values;
+    }
+
+    /**
+     * Moves the timers stored in the preferences into the database, keeping their ids, and
+     * removes their keys. This runs once after an upgrade, and after restoring a backup.
+     */
+    private static void migrateTimers(SQLiteDatabase db, SharedPreferences prefs) {
+        if (prefs == null || !prefs.contains(TIMER_IDS)) {
+            return;
+        }
 
-        // Record the fields of the timer.
-        final int id = timer.getId();
-        editor.putInt(STATE + id, timer.getState().getValue());
-        editor.putLong(LENGTH + id, timer.getLength());
-        editor.putLong(TOTAL_LENGTH + id, timer.getTotalLength());
-        editor.putLong(LAST_START_TIME + id, timer.getLastStartTime());
-        editor.putLong(LAST_WALL_CLOCK_TIME + id, timer.getLastWallClockTime());
-        editor.putLong(REMAINING_TIME + id, timer.getRemainingTime());
-        editor.putString(LABEL + id, timer.getLabel());
-        editor.putString(BUTTON_TIME + id, timer.getButtonTime());
-        editor.putBoolean(DELETE_AFTER_USE + id, timer.getDeleteAfterUse());
+        final Set<String> timerIds = prefs.getStringSet(TIMER_IDS, Collections.emptySet());
+        final SharedPreferences.Editor editor = prefs.edit();
+        db.beginTransaction();
+        try {
+            for (String timerId : timerIds) {
+                final int id = Integer.parseInt(timerId);
+                final int stateValue = prefs.getInt(STATE + id, RESET.getValue());
+                final State state = State.fromValue(stateValue);
+
+                // Timer state may be null when migrating timers from prior releases which defined
+                // a "deleted" state. Such a state is no longer required.
+                if (state != null) {
+                    final long length = prefs.getLong(LENGTH + id, Long.MIN_VALUE);
+                    final long totalLength = prefs.getLong(TOTAL_LENGTH + id, Long.MIN_VALUE);
+                    final long lastStartTime = prefs.getLong(LAST_START_TIME + id, Timer.UNUSED);
+                    final long lastWallClockTime = prefs.getLong(LAST_WALL_CLOCK_TIME + id,
+                            Timer.UNUSED);
+                    final long remainingTime = prefs.getLong(REMAINING_TIME + id, totalLength);
+                    final String label = prefs.getString(LABEL + id, null);
+                    final String buttonTime = prefs.getString(BUTTON_TIME + id, "1");
+                    final boolean deleteAfterUse = prefs.getBoolean(DELETE_AFTER_USE + id, false);
+                    final Timer timer = new Timer(id, state, length, totalLength, lastStartTime,
+                            lastWallClockTime, remainingTime, label, buttonTime, deleteAfterUse);
+
+                    final ContentValues values = createContentValues(timer);
+                    values.put(TimerDatabaseHelper.ID, id);
+                    db.insertWithOnConflict(TimerDatabaseHelper.TIMERS_TABLE_NAME, null, values,
+                            SQLiteDatabase.CONFLICT_REPLACE);
+                }
+
+                editor.remove(STATE + id);
+                editor.remove(LENGTH + id);
+                editor.remove(TOTAL_LENGTH + id);
+                editor.remove(LAST_START_TIME + id);
+                editor.remove(LAST_WALL_CLOCK_TIME + id);
+                editor.remove(REMAINING_TIME + id);
+                editor.remove(LABEL + id);
+                editor.remove(BUTTON_TIME + id);
+                editor.remove(DELETE_AFTER_USE + id);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
 
+        // The keys are only removed once the timers are committed to the database. The id counter
+        // is kept, since ids are still assigned from it.
+        editor.remove(TIMER_IDS);
         editor.apply();
+
+        LogUtils.i("Migrated " + timerIds.size() + " timers from the preferences");
+    }
+
+    private static SQLiteDatabase getDatabase(Context context) {
+        return TimerDatabaseHelper.getInstance(context).getWritableDatabase();
     }
 
     /**
-     * @param timer the timer to be removed
+     * Posts a write to the {@link AsyncHandler} thread, counting it as pending until it has run.
      */
-    static void removeTimer(SharedPreferences prefs, Timer timer) {
-        final SharedPreferences.Editor editor = prefs.edit();
+    private static void postWrite(Runnable write) {
+        sPendingWrites.incrementAndGet();
+        AsyncHandler.post(() -> {
+            try {
+                write.run();
+            } finally {
+                sPendingWrites.decrementAndGet();
+            }
+        });
+    }
 
-        final int id = timer.getId();
+    /**
+     * Waits for the timer writes posted so far, if any; reads don't wait for unrelated tasks of
+     * the {@link AsyncHandler} thread when all timers are already written.
+     */
+    private static void waitForPendingWrites() {
+        if (sPendingWrites.get() > 0) {
+            AsyncHandler.waitForPendingTasks();
+        }
+    }
+
+    /**
+     * @return the id to assign to a new timer; the counter is saved before the timer is written
+     */
+    private static synchronized int nextTimerId(Context context) {
+        final int id = getNextTimerId(context);
+        setNextTimerId(context, id + 1);
+        return id;
+    }
 
-        // Remove the timer id from the set of all timer ids.
-        final Set<String> timerIds = new HashSet<>(getTimerIds(prefs));
-        timerIds.remove(String.valueOf(id));
-        if (timerIds.isEmpty()) {
-            editor.remove(TIMER_IDS);
-            editor.remove(NEXT_TIMER_ID);
-        } else {
-            editor.putStringSet(TIMER_IDS, timerIds);
+    /**
+     * Ids are never given back, so that a write still queued for a removed timer cannot touch a
+     * new one.
+     */
+    private static synchronized void updateNextTimerId(Context context, int candidate) {
+        if (candidate > getNextTimerId(context)) {
+            setNextTimerId(context, candidate);
         }
+    }
 
-        // Record the fields of the timer.
-        editor.remove(STATE + id);
-        editor.remove(LENGTH + id);
-        editor.remove(TOTAL_LENGTH + id);
-        editor.remove(LAST_START_TIME + id);
-        editor.remove(LAST_WALL_CLOCK_TIME + id);
-        editor.remove(REMAINING_TIME + id);
-        editor.remove(LABEL + id);
-        editor.remove(BUTTON_TIME + id);
-        editor.remove(DELETE_AFTER_USE + id);
+    /**
+     * @return the id to assign to the next timer; timers stored before the counter was kept in
+     * the preferences are looked up in the database once
+     */
+    private static int getNextTimerId(Context context) {
+        if (sNextTimerId == -1) {
+            final SharedPreferences prefs = getDefaultSharedPreferences(context);
+            if (prefs.contains(NEXT_TIMER_ID)) {
+                sNextTimerId = prefs.getInt(NEXT_TIMER_ID, 1);
+            } else {
+                waitForPendingWrites();
+                try (Cursor cursor = getDatabase(context).rawQuery("SELECT MAX("
+                        + TimerDatabaseHelper.ID + ") FROM " + TimerDatabaseHelper.TIMERS_TABLE_NAME,
+                        null)) {
+                    sNextTimerId = cursor.moveToFirst() ? cursor.getInt(0) + 1 : 1;
+                }
+            }
+        }
+        return sNextTimerId;
+    }
 
-        editor.apply();
+    private static void setNextTimerId(Context context, int nextTimerId) {
+        sNextTimerId = nextTimerId;
+        getDefaultSharedPreferences(context).edit().putInt(NEXT_TIMER_ID, nextTimerId).apply();
     }
 
-    private static Set<String> getTimerIds(SharedPreferences prefs) {
-        return prefs.getStringSet(TIMER_IDS, Collections.emptySet());
+    private static ContentValues createContentValues(Timer timer) {
+        final ContentValues values = new ContentValues(TIMER_COLUMNS.length);
+        values.put(TimerDatabaseHelper.STATE, timer.getState().getValue());
+        values.put(TimerDatabaseHelper.LENGTH, timer.getLength());
+        values.put(TimerDatabaseHelper.TOTAL_LENGTH, timer.getTotalLength());
+        values.put(TimerDatabaseHelper.LAST_START_TIME, timer.getLastStartTime());
+        values.put(TimerDatabaseHelper.LAST_WALL_CLOCK_TIME, timer.getLastWallClockTime());
+        values.put(TimerDatabaseHelper.REMAINING_TIME, timer.getRemainingTime());
+        values.put(TimerDatabaseHelper.LABEL, timer.getLabel());
+        values.put(TimerDatabaseHelper.BUTTON_TIME, timer.getButtonTime());
+        values.put(TimerDatabaseHelper.DELETE_AFTER_USE, timer.getDeleteAfterUse() ? 1 : 0);
+        return values;
     }
 }
@@ -0,0 +1,84 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.data;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.best.deskclock.utils.LogUtils;
+import com.best.deskclock.utils.SdkUtils;
+
+/**
+ * Opens the database holding the timers, one row per timer, so that a change to a timer rewrites
+ * its row instead of the file of all preferences.
+ */
+final class TimerDatabaseHelper extends SQLiteOpenHelper {
+
+    static final String DATABASE_NAME = "timers.db";
+    static final String TIMERS_TABLE_NAME = "timers";
+
+    static final String ID = "_id";
+    static final String STATE = "state";
+    static final String LENGTH = "length";
+    static final String TOTAL_LENGTH = "total_length";
+    static final String LAST_START_TIME = "last_start_time";
+    static final String LAST_WALL_CLOCK_TIME = "last_wall_clock_time";
+    static final String REMAINING_TIME = "remaining_time";
+    static final String LABEL = "label";
+    static final String BUTTON_TIME = "button_time";
+    static final String DELETE_AFTER_USE = "delete_after_use";
+
+    private static final int DATABASE_VERSION = 1;
+
+    private static TimerDatabaseHelper sInstance;
+
+    private TimerDatabaseHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * @return the helper of the timer database, which lives in the device encrypted storage area
+     * like the preferences it replaces
+     */
+    static synchronized TimerDatabaseHelper getInstance(Context context) {
+        if (sInstance == null) {
+            final Context appContext = context.getApplicationContext() != null
+                    ? context.getApplicationContext()
+                    : context;
+            sInstance = new TimerDatabaseHelper(SdkUtils.isAtLeastAndroid7()
+                    ? appContext.createDeviceProtectedStorageContext()
+                    : appContext);
+        }
+
+        return sInstance;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.execSQL("PRAGMA synchronous = NORMAL;");
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TIMERS_TABLE_NAME + " (" +
+                ID + " INTEGER PRIMARY KEY, " +
+                STATE + " INTEGER NOT NULL, " +
+                LENGTH + " INTEGER NOT NULL, " +
+                TOTAL_LENGTH + " INTEGER NOT NULL, " +
+                LAST_START_TIME + " INTEGER NOT NULL, " +
+                LAST_WALL_CLOCK_TIME + " INTEGER NOT NULL, " +
+                REMAINING_TIME + " INTEGER NOT NULL, " +
+                LABEL + " TEXT, " +
+                BUTTON_TIME + " TEXT, " +
+                DELETE_AFTER_USE + " INTEGER NOT NULL DEFAULT 0);");
+        LogUtils.i("Timers table created");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        LogUtils.v("Upgrading timers database from version %d to %d", oldVersion, newVersion);
+    }
+}
@@ -242,11 +242,14 @@ final class TimerModel {
         Timer timer = new Timer(-1, RESET, length, length, Timer.UNUSED, Timer.UNUSED, length,
                 label, buttonTime, deleteAfterUse);
 
+        // Load the cache first, so that it does not read back the timer being added.
+        final List<Timer> timers = getMutableTimers();
+
         // Add the timer to permanent storage.
-        timer = TimerDAO.addTimer(mPrefs, timer);
+        timer = TimerDAO.addTimer(mContext, timer);
 
         // Add the timer to the cache.
-        getMutableTimers().add(0, timer);
+        timers.add(0, timer);
 
         // Update the timer notification.
         updateNotification();
@@ -466,17 +469,17 @@ final class TimerModel {
 
     private List<Timer> getMutableTimers() {
         if (mTimers == null) {
-            mTimers = TimerDAO.getTimers(mPrefs);
+            mTimers = TimerDAO.getTimers(mContext, mPrefs);
         }
 
         return mTimers;
     }
 
     /**
-     * Load timers from SharedPreferences after a restore or reset of settings
+     * Load timers from permanent storage after a restore or reset of settings
      */
     public void loadTimers() {
-        mTimers = TimerDAO.getTimers(mPrefs);
+        mTimers = TimerDAO.getTimers(mContext, mPrefs);
     }
 
     private List<Timer> getMutableExpiredTimers() {
@@ -528,7 +531,7 @@ final class TimerModel {
         }
 
         // Update the timer in permanent storage.
-        TimerDAO.updateTimer(mPrefs, timer);
+        TimerDAO.updateTimer(mContext, timer);
 
         // Update the timer in the cache.
         final Timer oldTimer = timers.set(index, timer);
@@ -564,7 +567,7 @@ final class TimerModel {
      */
     private void doRemoveTimer(Timer timer) {
         // Remove the timer from permanent storage.
-        TimerDAO.removeTimer(mPrefs, timer);
+        TimerDAO.removeTimer(mContext, timer);
 
         // Remove the timer from the cache.
         final List<Timer> timers = getMutableTimers();
@@ -23,7 +23,6 @@ import android.text.Spanned;
 import android.text.TextUtils;
 import android.text.style.ForegroundColorSpan;
 import android.text.style.StyleSpan;
-import android.util.ArrayMap;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
@@ -34,9 +33,7 @@ import com.google.android.material.color.MaterialColors;
 import java.text.DateFormatSymbols;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 /**
  * This class is responsible for encoding a weekly repeat cycle in a {@link #getBits bitset}. It
@@ -57,21 +54,20 @@ public record Weekdays(int mBits) {
     private static final int ALL_DAYS = 0x7F;
 
     /**
-     * Maps calendar weekdays to the bit masks that represent them in this class.
+     * Maps calendar weekdays to the bit masks that represent them in this class. The array is
+     * indexed by {@link Calendar#DAY_OF_WEEK} values, from {@link Calendar#SUNDAY} (1) to
+     * {@link Calendar#SATURDAY} (7).
      */
-    private static final Map<Integer, Integer> sCalendarDayToBit;
-
-    static {
-        final Map<Integer, Integer> map = new ArrayMap<>(7);
-        map.put(MONDAY, 0x01);
-        map.put(TUESDAY, 0x02);
-        map.put(WEDNESDAY, 0x04);
-        map.put(THURSDAY, 0x08);
-        map.put(FRIDAY, 0x10);
-        map.put(SATURDAY, 0x20);
-        map.put(SUNDAY, 0x40);
-        sCalendarDayToBit = Collections.unmodifiableMap(map);
-    }
+    private static final int[] CALENDAR_DAY_TO_BIT = {
+            0,    // unused
+            0x40, // SUNDAY
+            0x01, // MONDAY
+            0x02, // TUESDAY
+            0x04, // WEDNESDAY
+            0x08, // THURSDAY
+            0x10, // FRIDAY
+            0x20  // SATURDAY
+    };
 
     public Weekdays(int mBits) {
         // Mask off the unused bits.
@@ -102,10 +98,7 @@ public record Weekdays(int mBits) {
     public static Weekdays fromCalendarDays(int... calendarDays) {
         int bits = 0;
         for (int calendarDay : calendarDays) {
-            final Integer bit = sCalendarDayToBit.get(calendarDay);
-            if (bit != null) {
-                bits = bits | bit;
-            }
+            bits = bits | toBit(calendarDay);
         }
         return new Weekdays(bits);
     }
@@ -125,8 +118,8 @@ public record Weekdays(int mBits) {
      * @return a WeekDays instance with the {@code calendarDay} mutated
      */
     public Weekdays setBit(int calendarDay, boolean on) {
-        final Integer bit = sCalendarDayToBit.get(calendarDay);
-        if (bit == null) {
+        final int bit = toBit(calendarDay);
+        if (bit == 0) {
             return this;
         }
         return new Weekdays(on ? (mBits | bit) : (mBits & ~bit));
@@ -146,13 +139,21 @@ public record Weekdays(int mBits) {
      * @return {@code true} if the given {@code calendarDay}
      */
     public boolean isBitOn(int calendarDay) {
-        final Integer bit = sCalendarDayToBit.get(calendarDay);
-        if (bit == null) {
+        final int bit = toBit(calendarDay);
+        if (bit == 0) {
             throw new IllegalArgumentException(calendarDay + " is not a valid weekday");
         }
         return (mBits & bit) > 0;
     }
 
+    /**
+     * @param epochDay the number of days since 1970-01-01
+     * @return {@code true} if the weekday of the given {@code epochDay} is enabled
+     */
+    public boolean isEpochDayOn(long epochDay) {
+        return (mBits & (1 << isoDayIndex(epochDay))) != 0;
+    }
+
     /**
      * @return the weekly repeat schedule encoded as an integer
      */
@@ -183,18 +184,18 @@ public record Weekdays(int mBits) {
      * which is always between 1 and 7 inclusive; {@code -1} if no weekdays are enabled
      */
     public int getDistanceToPreviousDay(Calendar time) {
-        int calendarDay = time.get(DAY_OF_WEEK);
-        for (int count = 1; count <= 7; count++) {
-            calendarDay--;
-            if (calendarDay < SUNDAY) {
-                calendarDay = SATURDAY;
-            }
-            if (isBitOn(calendarDay)) {
-                return count;
-            }
-        }
+        return getDistanceToPreviousDay(calendarDayToIsoDayIndex(time.get(DAY_OF_WEEK)));
+    }
 
-        return -1;
+    /**
+     * Allocation-free variant of {@link #getDistanceToPreviousDay(Calendar)}.
+     *
+     * @param epochDay the number of days since 1970-01-01
+     * @return the number of days between the given {@code epochDay} and the previous enabled
+     * weekday which is always between 1 and 7 inclusive; {@code -1} if no weekdays are enabled
+     */
+    public int getDistanceToPreviousDay(long epochDay) {
+        return getDistanceToPreviousDay(isoDayIndex(epochDay));
     }
 
     /**
@@ -206,21 +207,69 @@ public record Weekdays(int mBits) {
      * is always between 0 and 6 inclusive; {@code -1} if no weekdays are enabled
      */
     public int getDistanceToNextDay(Calendar time) {
-        int calendarDay = time.get(DAY_OF_WEEK);
-        for (int count = 0; count < 7; count++) {
-            if (isBitOn(calendarDay)) {
-                return count;
-            }
+        return getDistanceToNextDay(calendarDayToIsoDayIndex(time.get(DAY_OF_WEEK)));
+    }
+
+    /**
+     * Allocation-free variant of {@link #getDistanceToNextDay(Calendar)}.
+     *
+     * @param epochDay the number of days since 1970-01-01
+     * @return the number of days between the given {@code epochDay} and the next enabled weekday
+     * which is always between 0 and 6 inclusive; {@code -1} if no weekdays are enabled
+     */
+    public int getDistanceToNextDay(long epochDay) {
+        return getDistanceToNextDay(isoDayIndex(epochDay));
+    }
+
+    /**
+     * @param dayIndex the weekday, from 0 (Monday) to 6 (Sunday)
+     */
+    private int getDistanceToNextDay(int dayIndex) {
+        if (mBits == 0) {
+            return -1;
+        }
 
-            calendarDay++;
-            if (calendarDay > SATURDAY) {
-                calendarDay = SUNDAY;
+        // Rotate the bits so that the given weekday becomes the lowest bit.
+        final int rotated = ((mBits >>> dayIndex) | (mBits << (7 - dayIndex))) & ALL_DAYS;
+        return Integer.numberOfTrailingZeros(rotated);
+    }
+
+    /**
+     * @param dayIndex the weekday, from 0 (Monday) to 6 (Sunday)
+     */
+    private int getDistanceToPreviousDay(int dayIndex) {
+        for (int count = 1; count <= 7; count++) {
+            if ((mBits & (1 << Math.floorMod(dayIndex - count, 7))) != 0) {
+                return count;
             }
         }
 
         return -1;
     }
 
+    /**
+     * @return the bit representing the given {@link Calendar#DAY_OF_WEEK} value, or {@code 0} if
+     * the value is not a valid weekday
+     */
+    private static int toBit(int calendarDay) {
+        return calendarDay >= SUNDAY && calendarDay <= SATURDAY ? CALENDAR_DAY_TO_BIT[calendarDay] : 0;
+    }
+
+    /**
+     * @return the weekday of the given {@link Calendar#DAY_OF_WEEK} value, from 0 (Monday) to 6 (Sunday)
+     */
+    private static int calendarDayToIsoDayIndex(int calendarDay) {
+        return (calendarDay + 5) % 7;
+    }
+
+    /**
+     * @return the weekday of the given epoch day, from 0 (Monday) to 6 (Sunday)
+     */
+    private static int isoDayIndex(long epochDay) {
+        // 1970-01-01 was a Thursday.
+        return (int) Math.floorMod(epochDay + 3, 7L);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
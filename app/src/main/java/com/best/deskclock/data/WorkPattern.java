@@ -0,0 +1,171 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.data;
+
+import androidx.annotation.NonNull;
+
+/**
+ * An immutable rotating work pattern, such as "2 days on, 2 days off" or alternating 6-day and
+ * 5-day weeks.
+ * <p>
+ * The pattern is a cycle of up to {@link #MAX_CYCLE_LENGTH} days stored as a bitmask, where bit
+ * {@code i} is set if the {@code i}-th day of the cycle is a workday. The cycle starts on an
+ * anchor day, expressed as the number of days since 1970-01-01, and repeats indefinitely in both
+ * directions, so checking any day is a single modulo operation.</p>
+ */
+public final class WorkPattern {
+
+    /**
+     * Maximum number of days in a cycle.
+     */
+    public static final int MAX_CYCLE_LENGTH = 64;
+
+    /**
+     * A pattern without any day; it is used by alarms that don't follow a work pattern.
+     */
+    public static final WorkPattern NONE = new WorkPattern(0, 0, 0);
+
+    /**
+     * Two weeks starting on Monday: Monday to Saturday worked, then Monday to Friday worked.
+     */
+    private static final long BIG_SMALL_WEEK_MASK = 0x3FL | (0x1FL << 7);
+
+    private final long mMask;
+    private final int mCycleLength;
+    private final long mAnchorEpochDay;
+
+    private WorkPattern(long mask, int cycleLength, long anchorEpochDay) {
+        mMask = mask;
+        mCycleLength = cycleLength;
+        mAnchorEpochDay = anchorEpochDay;
+    }
+
+    /**
+     * @param mask           the workdays of the cycle; bit {@code i} is the {@code i}-th day
+     * @param cycleLength    the number of days of the cycle, from 1 to {@link #MAX_CYCLE_LENGTH}
+     * @param anchorEpochDay the first day of a cycle, as the number of days since 1970-01-01
+     * @return the pattern, or {@link #NONE} if the cycle length is out of range or the cycle
+     * doesn't contain any workday
+     */
+    public static WorkPattern of(long mask, int cycleLength, long anchorEpochDay) {
+        if (cycleLength <= 0 || cycleLength > MAX_CYCLE_LENGTH) {
+            return NONE;
+        }
+
+        // Ignore the bits beyond the cycle so that equal patterns have equal masks.
+        final long cycleMask = cycleLength == MAX_CYCLE_LENGTH ? -1L : (1L << cycleLength) - 1;
+        if ((mask & cycleMask) == 0) {
+            // An alarm following this pattern would never ring.
+            return NONE;
+        }
+        return new WorkPattern(mask & cycleMask, cycleLength, anchorEpochDay);
+    }
+
+    /**
+     * Parses a cycle written as one character per day, {@code '1'} for a workday and {@code '0'}
+     * for a day off; for example {@code "1100"} for 2 days on and 2 days off.
+     *
+     * @param pattern        the cycle, starting with the anchor day
+     * @param anchorEpochDay the first day of a cycle, as the number of days since 1970-01-01
+     * @return the pattern, or {@link #NONE} if the string is empty, too long, malformed or
+     * without any workday
+     */
+    public static WorkPattern parse(String pattern, long anchorEpochDay) {
+        if (pattern == null) {
+            return NONE;
+        }
+
+        final String trimmed = pattern.trim();
+        if (trimmed.isEmpty() || trimmed.length() > MAX_CYCLE_LENGTH) {
+            return NONE;
+        }
+
+        long mask = 0;
+        for (int i = 0; i < trimmed.length(); i++) {
+            switch (trimmed.charAt(i)) {
+                case '1' -> mask |= 1L << i;
+                case '0' -> {
+                }
+                default -> {
+                    return NONE;
+                }
+            }
+        }
+        return of(mask, trimmed.length(), anchorEpochDay);
+    }
+
+    /**
+     * Creates an alternation of 6-day weeks (Saturday worked) and 5-day weeks, with weeks
+     * starting on Monday.
+     *
+     * @param epochDay       a day of the reference week
+     * @param saturdayWorked {@code true} if the reference week is a 6-day week
+     */
+    public static WorkPattern bigSmallWeek(long epochDay, boolean saturdayWorked) {
+        // 1970-01-01 was a Thursday; 0 is Monday and 6 is Sunday.
+        final long monday = epochDay - Math.floorMod(epochDay + 3, 7L);
+        return of(BIG_SMALL_WEEK_MASK, 14, saturdayWorked ? monday : monday - 7);
+    }
+
+    /**
+     * @return {@code true} if this pattern doesn't contain any day.
+     */
+    public boolean isEmpty() {
+        return mCycleLength == 0;
+    }
+
+    /**
+     * @return {@code true} if the given day, as the number of days since 1970-01-01, is a workday
+     * of this pattern; always {@code false} for {@link #NONE}.
+     */
+    public boolean isWorkday(long epochDay) {
+        if (mCycleLength == 0) {
+            return false;
+        }
+
+        final int dayOfCycle = (int) Math.floorMod(epochDay - mAnchorEpochDay, (long) mCycleLength);
+        return ((mMask >>> dayOfCycle) & 1) != 0;
+    }
+
+    public long getMask() {
+        return mMask;
+    }
+
+    public int getCycleLength() {
+        return mCycleLength;
+    }
+
+    public long getAnchorEpochDay() {
+        return mAnchorEpochDay;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final WorkPattern that = (WorkPattern) o;
+        return mMask == that.mMask && mCycleLength == that.mCycleLength
+                && mAnchorEpochDay == that.mAnchorEpochDay;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(mMask);
+        result = 31 * result + mCycleLength;
+        result = 31 * result + Long.hashCode(mAnchorEpochDay);
+        return result;
+    }
+
+    /**
+     * @return the cycle in the format accepted by {@link #parse(String, long)}.
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(mCycleLength);
+        for (int i = 0; i < mCycleLength; i++) {
+            sb.append(((mMask >>> i) & 1) != 0 ? '1' : '0');
+        }
+        return sb.toString();
+    }
+}
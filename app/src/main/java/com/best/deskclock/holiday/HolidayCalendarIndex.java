@@ -0,0 +1,213 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.holiday;
+
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Immutable in-memory index of legal holidays and compensation workdays.
+ * <p>
+ * Days are stored as two bitsets over a contiguous range of epoch days starting on January 1st
+ * of the first indexed year, so every lookup is a single bit test that neither allocates nor
+ * touches the database.</p>
+ */
+public final class HolidayCalendarIndex {
+
+    /**
+     * An index that contains no holiday and no compensation workday.
+     */
+    public static final HolidayCalendarIndex EMPTY = new HolidayCalendarIndex(0, 0, new long[0], new long[0]);
+
+    /**
+     * Dates outside of this range are considered invalid and are ignored.
+     */
+    private static final int MIN_YEAR = 1900;
+    private static final int MAX_YEAR = 2199;
+
+    /**
+     * Returned by {@link #parseEpochDay(String)} for malformed dates.
+     */
+    static final long INVALID_DAY = Long.MIN_VALUE;
+
+    private final long mFirstEpochDay;
+    private final int mDayCount;
+    private final long[] mHolidayBits;
+    private final long[] mCompDayBits;
+
+    private HolidayCalendarIndex(long firstEpochDay, int dayCount, long[] holidayBits, long[] compDayBits) {
+        mFirstEpochDay = firstEpochDay;
+        mDayCount = dayCount;
+        mHolidayBits = holidayBits;
+        mCompDayBits = compDayBits;
+    }
+
+    /**
+     * @return {@code true} if the given epoch day is a legal holiday; {@code false} otherwise.
+     */
+    public boolean isHoliday(long epochDay) {
+        return isBitOn(mHolidayBits, epochDay);
+    }
+
+    /**
+     * @return {@code true} if the given epoch day is a compensation workday; {@code false} otherwise.
+     */
+    public boolean isCompensationWorkday(long epochDay) {
+        return isBitOn(mCompDayBits, epochDay);
+    }
+
+    /**
+     * @return {@code true} if the date of the given calendar is a legal holiday; {@code false} otherwise.
+     */
+    public boolean isHoliday(Calendar calendar) {
+        return isHoliday(toEpochDay(calendar));
+    }
+
+    /**
+     * @return {@code true} if the date of the given calendar is a compensation workday;
+     * {@code false} otherwise.
+     */
+    public boolean isCompensationWorkday(Calendar calendar) {
+        return isCompensationWorkday(toEpochDay(calendar));
+    }
+
+    /**
+     * @return {@code true} if this index does not contain any day.
+     */
+    public boolean isEmpty() {
+        return mDayCount == 0;
+    }
+
+    private boolean isBitOn(long[] bits, long epochDay) {
+        final long offset = epochDay - mFirstEpochDay;
+        if (offset < 0 || offset >= mDayCount) {
+            return false;
+        }
+
+        return (bits[(int) (offset >>> 6)] & (1L << offset)) != 0;
+    }
+
+    /**
+     * Builds an index from the days stored in the database.
+     *
+     * @param days the days to index
+     * @return the index, or {@link #EMPTY} if there is no day to index.
+     */
+    public static HolidayCalendarIndex build(List<HolidayDay> days) {
+        if (days == null || days.isEmpty()) {
+            return EMPTY;
+        }
+
+        long minDay = Long.MAX_VALUE;
+        long maxDay = Long.MIN_VALUE;
+        for (HolidayDay day : days) {
+            minDay = Math.min(minDay, day.epochDay);
+            maxDay = Math.max(maxDay, day.epochDay);
+        }
+
+        // Align the table on whole years so that the range stays stable between data updates.
+        final long firstEpochDay = toEpochDay(yearOfEpochDay(minDay), 1, 1);
+        final long lastEpochDay = toEpochDay(yearOfEpochDay(maxDay) + 1, 1, 1) - 1;
+        final int dayCount = (int) (lastEpochDay - firstEpochDay + 1);
+        final long[] holidayBits = new long[(dayCount + 63) >>> 6];
+        final long[] compDayBits = new long[holidayBits.length];
+
+        for (HolidayDay day : days) {
+            final long offset = day.epochDay - firstEpochDay;
+            if (day.type == HolidayDay.TYPE_COMPENSATION_WORKDAY) {
+                setBit(compDayBits, offset);
+            } else {
+                setBit(holidayBits, offset);
+            }
+        }
+
+        return new HolidayCalendarIndex(firstEpochDay, dayCount, holidayBits, compDayBits);
+    }
+
+    private static void setBit(long[] bits, long offset) {
+        bits[(int) (offset >>> 6)] |= 1L << offset;
+    }
+
+    /**
+     * @return the epoch day of the date of the given calendar, in the calendar's own time zone.
+     */
+    public static long toEpochDay(Calendar calendar) {
+        return toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Converts a proleptic Gregorian date to the number of days since 1970-01-01.
+     *
+     * @param year       the year
+     * @param month      the month, from 1 (January) to 12 (December)
+     * @param dayOfMonth the day of the month, from 1 to 31
+     */
+    public static long toEpochDay(int year, int month, int dayOfMonth) {
+        final long y = month <= 2 ? year - 1 : year;
+        final long era = Math.floorDiv(y, 400);
+        final long yearOfEra = y - era * 400;
+        final long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + dayOfMonth - 1;
+        final long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * @return the year of the given epoch day.
+     */
+    public static int yearOfEpochDay(long epochDay) {
+        final long z = epochDay + 719468;
+        final long era = Math.floorDiv(z, 146097);
+        final long dayOfEra = z - era * 146097;
+        final long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final long mp = (5 * dayOfYear + 2) / 153;
+        return (int) (yearOfEra + era * 400 + (mp >= 10 ? 1 : 0));
+    }
+
+    /**
+     * Parses a date formatted as {@code yyyy-MM-dd}.
+     *
+     * @return the epoch day of the date, or {@link #INVALID_DAY} if the date is malformed.
+     */
+    static long parseEpochDay(String date) {
+        if (date == null) {
+            return INVALID_DAY;
+        }
+
+        final String trimmed = date.trim();
+        if (trimmed.length() != 10 || trimmed.charAt(4) != '-' || trimmed.charAt(7) != '-') {
+            return INVALID_DAY;
+        }
+
+        final int year = parseDigits(trimmed, 0, 4);
+        final int month = parseDigits(trimmed, 5, 7);
+        final int day = parseDigits(trimmed, 8, 10);
+        if (year < MIN_YEAR || year > MAX_YEAR || month < 1 || month > 12 || day < 1
+                || day > daysInMonth(year, month)) {
+            return INVALID_DAY;
+        }
+
+        return toEpochDay(year, month, day);
+    }
+
+    private static int parseDigits(String value, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            final char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+}
@@ -31,15 +31,38 @@ public interface HolidayDao {
     @Query("SELECT * FROM holiday WHERE SUBSTR(startDate, 1, 4) = :year")
     List<Holiday> getHolidaysByYear(String year);
 
-    @Query("SELECT * FROM holiday WHERE :date BETWEEN startDate AND endDate")
-    Holiday getHolidayByDate(String date);
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertDays(List<HolidayDay> days);
+
+    /**
+     * Inserts the days that are not stored yet, so that existing compensation workdays are
+     * never overwritten by legal holidays.
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertMissingDays(List<HolidayDay> days);
+
+    /**
+     * @return the type of the given day ({@link HolidayDay#TYPE_HOLIDAY} or
+     * {@link HolidayDay#TYPE_COMPENSATION_WORKDAY}), or {@code null} for a regular day.
+     */
+    @Query("SELECT type FROM holiday_day WHERE epochDay = :epochDay")
+    Integer getDayType(long epochDay);
 
-    @Query("SELECT * FROM holiday WHERE compDays LIKE '%' || :date || '%'")
-    Holiday getCompDayByDate(String date);
+    @Query("SELECT * FROM holiday_day")
+    List<HolidayDay> getAllDays();
+
+    @Query("DELETE FROM holiday WHERE SUBSTR(startDate, 1, 4) = :year")
+    void deleteHolidaysByYear(String year);
+
+    @Query("DELETE FROM holiday_day WHERE epochDay BETWEEN :firstEpochDay AND :lastEpochDay")
+    void deleteDaysBetween(long firstEpochDay, long lastEpochDay);
 
     @Query("SELECT * FROM holiday")
     List<Holiday> getAllHolidays();
 
     @Query("DELETE FROM holiday")
     void deleteAll();
+
+    @Query("DELETE FROM holiday_day")
+    void deleteAllDays();
 }
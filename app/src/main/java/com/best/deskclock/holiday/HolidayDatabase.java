@@ -16,30 +16,83 @@
 
 package com.best.deskclock.holiday;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
-@Database(entities = {Holiday.class}, version = 1, exportSchema = false)
+import java.util.ArrayList;
+import java.util.List;
+
+@Database(entities = {Holiday.class, HolidayDay.class}, version = 2, exportSchema = false)
 @TypeConverters({Converters.class})
 public abstract class HolidayDatabase extends RoomDatabase {
     public abstract HolidayDao holidayDao();
 
     private static volatile HolidayDatabase INSTANCE;
 
+    /**
+     * Adds the {@code holiday_day} table and fills it from the holidays already stored.
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `holiday_day` (`epochDay` INTEGER NOT NULL, "
+                    + "`type` INTEGER NOT NULL, PRIMARY KEY(`epochDay`))");
+
+            final List<Holiday> holidays = new ArrayList<>();
+            try (Cursor cursor = db.query("SELECT startDate, endDate, compDays FROM holiday")) {
+                while (cursor.moveToNext()) {
+                    final Holiday holiday = new Holiday();
+                    holiday.startDate = cursor.getString(0);
+                    holiday.endDate = cursor.getString(1);
+                    holiday.compDays = cursor.isNull(2) ? null : Converters.fromString(cursor.getString(2));
+                    holidays.add(holiday);
+                }
+            }
+
+            final ContentValues values = new ContentValues(2);
+            for (HolidayDay day : HolidayDay.fromHolidays(holidays)) {
+                values.put("epochDay", day.epochDay);
+                values.put("type", day.type);
+                db.insert("holiday_day", SQLiteDatabase.CONFLICT_REPLACE, values);
+            }
+        }
+    };
+
     public static HolidayDatabase getDatabase(final Context context) {
         if (INSTANCE == null) {
             synchronized (HolidayDatabase.class) {
                 if (INSTANCE == null) {
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                                     HolidayDatabase.class, "holiday_database")
+                            .addMigrations(MIGRATION_1_2)
                             .build();
                 }
             }
         }
         return INSTANCE;
     }
+
+    /**
+     * Closes the database, which is opened again on next access.
+     */
+    @VisibleForTesting
+    static void reset() {
+        synchronized (HolidayDatabase.class) {
+            if (INSTANCE != null) {
+                INSTANCE.close();
+                INSTANCE = null;
+            }
+        }
+    }
 }
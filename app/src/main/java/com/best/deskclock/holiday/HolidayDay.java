@@ -0,0 +1,96 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.holiday;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single day of the holiday calendar, keyed by its epoch day (number of days since 1970-01-01).
+ * <p>
+ * Holiday ranges and compensation workdays are expanded into one row per day when the data is
+ * imported, so that looking up a date is a primary key lookup.</p>
+ */
+@Entity(tableName = "holiday_day")
+public class HolidayDay {
+
+    public static final int TYPE_HOLIDAY = 0;
+    public static final int TYPE_COMPENSATION_WORKDAY = 1;
+
+    /**
+     * A holiday range longer than this is considered invalid and is ignored.
+     */
+    private static final int MAX_HOLIDAY_LENGTH = 366;
+
+    @PrimaryKey
+    public long epochDay;
+    public int type;
+
+    public HolidayDay(long epochDay, int type) {
+        this.epochDay = epochDay;
+        this.type = type;
+    }
+
+    /**
+     * Expands holiday records into one entry per day.
+     * <p>
+     * Compensation workdays are listed after the legal holidays, so that they take precedence
+     * when the list is inserted with {@link androidx.room.OnConflictStrategy#REPLACE}.</p>
+     *
+     * @param holidays the holidays to expand; invalid dates and ranges are skipped.
+     */
+    public static List<HolidayDay> fromHolidays(List<Holiday> holidays) {
+        final List<HolidayDay> days = new ArrayList<>();
+        if (holidays == null) {
+            return days;
+        }
+
+        for (Holiday holiday : holidays) {
+            addHolidays(holiday, days);
+        }
+        for (Holiday holiday : holidays) {
+            addCompensationWorkdays(holiday, days);
+        }
+        return days;
+    }
+
+    /**
+     * Adds one {@link #TYPE_HOLIDAY} entry per day of the holiday range, if it is valid.
+     */
+    public static void addHolidays(Holiday holiday, List<HolidayDay> days) {
+        final long start = HolidayCalendarIndex.parseEpochDay(holiday.startDate);
+        final long end = HolidayCalendarIndex.parseEpochDay(holiday.endDate);
+        if (isValidRange(start, end)) {
+            for (long day = start; day <= end; day++) {
+                days.add(new HolidayDay(day, TYPE_HOLIDAY));
+            }
+        }
+    }
+
+    /**
+     * Adds one {@link #TYPE_COMPENSATION_WORKDAY} entry per valid compensation workday of the holiday.
+     */
+    public static void addCompensationWorkdays(Holiday holiday, List<HolidayDay> days) {
+        if (holiday.compDays == null) {
+            return;
+        }
+
+        for (String compDay : holiday.compDays) {
+            final long day = HolidayCalendarIndex.parseEpochDay(compDay);
+            if (day != HolidayCalendarIndex.INVALID_DAY) {
+                days.add(new HolidayDay(day, TYPE_COMPENSATION_WORKDAY));
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the given epoch days form a valid holiday range.
+     */
+    static boolean isValidRange(long start, long end) {
+        return start != HolidayCalendarIndex.INVALID_DAY && end != HolidayCalendarIndex.INVALID_DAY
+                && end >= start && end - start < MAX_HOLIDAY_LENGTH;
+    }
+}
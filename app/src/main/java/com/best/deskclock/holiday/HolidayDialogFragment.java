@@ -2,6 +2,10 @@ package com.best.deskclock.holiday;
 
 import android.app.Dialog;
 import android.os.Bundle;
+import android.text.InputType;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.EditText;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
@@ -9,8 +13,11 @@ import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.FragmentManager;
 
 import com.best.deskclock.R;
+import com.best.deskclock.data.WorkPattern;
 import com.best.deskclock.provider.Alarm;
 
+import java.util.Calendar;
+
 public class HolidayDialogFragment extends DialogFragment {
 
     private static final String ARG_ALARM = "alarm";
@@ -37,21 +44,75 @@ public class HolidayDialogFragment extends DialogFragment {
                 getString(R.string.skip_holiday),
                 getString(R.string.daxiao_da),
                 getString(R.string.daxiao_xiao),
-                getString(R.string.danxiu)
+                getString(R.string.danxiu),
+                getString(R.string.work_pattern)
         };
 
         return new AlertDialog.Builder(requireContext())
                 .setTitle(R.string.holiday_title)
                 .setSingleChoiceItems(items, alarm.holidayOption, (dialog, which) -> {
-                    if (getActivity() instanceof HolidayDialogHandler) {
-                        ((HolidayDialogHandler) getActivity()).onDialogHolidayOptionSet(alarm, which);
+                    if (which == HolidayUtils.HOLIDAY_OPTION_WORK_PATTERN) {
+                        showWorkPatternDialog(alarm);
+                        return;
                     }
+
+                    // Keep the phase of the big/small weeks when the option doesn't change.
+                    final WorkPattern workPattern = which == alarm.holidayOption
+                            ? alarm.workPattern
+                            : HolidayUtils.createWorkPattern(which, getToday());
+                    setHolidayOption(alarm, which, workPattern);
                     dismiss();
                 })
                 .create();
     }
 
+    /**
+     * Asks for a cycle such as {@code "1100"}, whose first day is today.
+     */
+    private void showWorkPatternDialog(Alarm alarm) {
+        final View view = LayoutInflater.from(requireContext()).inflate(R.layout.dialog_edit_text, null);
+        final EditText editPattern = view.findViewById(android.R.id.edit);
+        editPattern.setInputType(InputType.TYPE_CLASS_NUMBER);
+        editPattern.setHint(R.string.work_pattern_hint);
+        if (alarm.holidayOption == HolidayUtils.HOLIDAY_OPTION_WORK_PATTERN) {
+            editPattern.setText(alarm.workPattern.toString());
+            editPattern.selectAll();
+        }
+
+        new AlertDialog.Builder(requireContext())
+                .setTitle(R.string.work_pattern)
+                .setView(view)
+                .setPositiveButton(android.R.string.ok, (dialog, which) -> {
+                    final String text = editPattern.getText().toString();
+                    final WorkPattern workPattern;
+                    if (alarm.holidayOption == HolidayUtils.HOLIDAY_OPTION_WORK_PATTERN
+                            && text.equals(alarm.workPattern.toString())) {
+                        // The displayed cycle starts on the anchor day, not today.
+                        workPattern = alarm.workPattern;
+                    } else {
+                        workPattern = WorkPattern.parse(text, getToday());
+                    }
+
+                    if (!workPattern.isEmpty()) {
+                        setHolidayOption(alarm, HolidayUtils.HOLIDAY_OPTION_WORK_PATTERN, workPattern);
+                    }
+                    dismiss();
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    private void setHolidayOption(Alarm alarm, int holidayOption, WorkPattern workPattern) {
+        if (getActivity() instanceof HolidayDialogHandler) {
+            ((HolidayDialogHandler) getActivity()).onDialogHolidayOptionSet(alarm, holidayOption, workPattern);
+        }
+    }
+
+    private static long getToday() {
+        return HolidayCalendarIndex.toEpochDay(Calendar.getInstance());
+    }
+
     public interface HolidayDialogHandler {
-        void onDialogHolidayOptionSet(Alarm alarm, int holidayOption);
+        void onDialogHolidayOptionSet(Alarm alarm, int holidayOption, WorkPattern workPattern);
     }
 }
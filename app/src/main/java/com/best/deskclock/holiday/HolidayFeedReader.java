@@ -0,0 +1,132 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.holiday;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the holiday feed, a JSON array of holiday objects, one record at a time.
+ * <p>
+ * Each record is validated and normalized as soon as it is read: string values are trimmed,
+ * a missing end date defaults to the start date, invalid compensation workdays are dropped and
+ * records without a valid date range are skipped. Only the current record is held in memory.</p>
+ */
+final class HolidayFeedReader implements Closeable {
+
+    private final JsonReader mReader;
+    private boolean mStarted;
+    private int mSkippedCount;
+
+    HolidayFeedReader(Reader in) {
+        mReader = new JsonReader(in);
+    }
+
+    /**
+     * @return the next valid record, or {@code null} at the end of the feed
+     * @throws IOException if the feed is not a well-formed JSON array of objects
+     */
+    Holiday next() throws IOException {
+        if (!mStarted) {
+            mReader.beginArray();
+            mStarted = true;
+        }
+
+        while (mReader.hasNext()) {
+            final Holiday holiday = readHoliday();
+            if (holiday != null) {
+                return holiday;
+            }
+            mSkippedCount++;
+        }
+
+        mReader.endArray();
+        return null;
+    }
+
+    /**
+     * @return the number of invalid records skipped so far.
+     */
+    int getSkippedCount() {
+        return mSkippedCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+
+    /**
+     * @return the record read, or {@code null} if it is invalid.
+     */
+    private Holiday readHoliday() throws IOException {
+        if (mReader.peek() != JsonToken.BEGIN_OBJECT) {
+            mReader.skipValue();
+            return null;
+        }
+
+        final Holiday holiday = new Holiday();
+        mReader.beginObject();
+        while (mReader.hasNext()) {
+            switch (mReader.nextName()) {
+                case "name" -> holiday.name = nextString();
+                case "startDate" -> holiday.startDate = nextString();
+                case "endDate" -> holiday.endDate = nextString();
+                case "compDays" -> holiday.compDays = nextDates();
+                default -> mReader.skipValue();
+            }
+        }
+        mReader.endObject();
+
+        if (holiday.endDate == null) {
+            holiday.endDate = holiday.startDate;
+        }
+        if (!HolidayDay.isValidRange(HolidayCalendarIndex.parseEpochDay(holiday.startDate),
+                HolidayCalendarIndex.parseEpochDay(holiday.endDate))) {
+            return null;
+        }
+        if (holiday.name == null) {
+            holiday.name = "";
+        }
+        return holiday;
+    }
+
+    /**
+     * @return the trimmed string value, or {@code null} if the value is not a string.
+     */
+    private String nextString() throws IOException {
+        final JsonToken token = mReader.peek();
+        if (token != JsonToken.STRING && token != JsonToken.NUMBER) {
+            mReader.skipValue();
+            return null;
+        }
+        return mReader.nextString().trim();
+    }
+
+    /**
+     * @return the valid dates of the array value, or {@code null} if the value is not an array.
+     */
+    private List<String> nextDates() throws IOException {
+        if (mReader.peek() != JsonToken.BEGIN_ARRAY) {
+            mReader.skipValue();
+            return null;
+        }
+
+        final List<String> dates = new ArrayList<>();
+        mReader.beginArray();
+        while (mReader.hasNext()) {
+            final String date = nextString();
+            if (HolidayCalendarIndex.parseEpochDay(date) != HolidayCalendarIndex.INVALID_DAY) {
+                dates.add(date);
+            }
+        }
+        mReader.endArray();
+        return dates;
+    }
+}
@@ -0,0 +1,97 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.holiday;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes holiday records to the database in fixed-size batches.
+ * <p>
+ * The data of a year is deleted the first time a record covers it, so that the imported
+ * records replace the years they cover while other years are left untouched. A year is covered
+ * if a holiday starts in it or if one of its days falls in it. All calls are expected to be made
+ * within a single transaction.</p>
+ */
+final class HolidayImporter {
+
+    /**
+     * Maximum number of records of each kind buffered before they are written.
+     */
+    static final int BATCH_SIZE = 256;
+
+    private final HolidayDao mHolidayDao;
+    private final Set<Integer> mReplacedYears = new HashSet<>();
+    private final List<Holiday> mHolidays = new ArrayList<>(BATCH_SIZE);
+    private final List<HolidayDay> mHolidayDays = new ArrayList<>(BATCH_SIZE);
+    private final List<HolidayDay> mCompensationWorkdays = new ArrayList<>(BATCH_SIZE);
+    private int mCount;
+
+    HolidayImporter(HolidayDao holidayDao) {
+        mHolidayDao = holidayDao;
+    }
+
+    /**
+     * Adds a validated record; it may only be written by a later call.
+     */
+    void add(Holiday holiday) {
+        // Let the database assign a new id.
+        holiday.id = 0;
+        replaceYear(HolidayCalendarIndex.yearOfEpochDay(HolidayCalendarIndex.parseEpochDay(holiday.startDate)));
+
+        final int holidayDaysStart = mHolidayDays.size();
+        final int compensationWorkdaysStart = mCompensationWorkdays.size();
+        HolidayDay.addHolidays(holiday, mHolidayDays);
+        HolidayDay.addCompensationWorkdays(holiday, mCompensationWorkdays);
+        for (int i = holidayDaysStart; i < mHolidayDays.size(); i++) {
+            replaceYear(HolidayCalendarIndex.yearOfEpochDay(mHolidayDays.get(i).epochDay));
+        }
+        for (int i = compensationWorkdaysStart; i < mCompensationWorkdays.size(); i++) {
+            replaceYear(HolidayCalendarIndex.yearOfEpochDay(mCompensationWorkdays.get(i).epochDay));
+        }
+
+        mHolidays.add(holiday);
+        mCount++;
+        if (mHolidays.size() >= BATCH_SIZE || mHolidayDays.size() >= BATCH_SIZE
+                || mCompensationWorkdays.size() >= BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffered records.
+     *
+     * @return the number of records imported.
+     */
+    int finish() {
+        flush();
+        return mCount;
+    }
+
+    private void replaceYear(int year) {
+        // Buffered records never belong to a year seen for the first time, so they are kept.
+        if (mReplacedYears.add(year)) {
+            mHolidayDao.deleteHolidaysByYear(String.valueOf(year));
+            mHolidayDao.deleteDaysBetween(HolidayCalendarIndex.toEpochDay(year, 1, 1),
+                    HolidayCalendarIndex.toEpochDay(year, 12, 31));
+        }
+    }
+
+    private void flush() {
+        if (!mHolidays.isEmpty()) {
+            mHolidayDao.insertAll(mHolidays);
+            mHolidays.clear();
+        }
+        // Compensation workdays take precedence over legal holidays falling on the same day.
+        if (!mCompensationWorkdays.isEmpty()) {
+            mHolidayDao.insertDays(mCompensationWorkdays);
+            mCompensationWorkdays.clear();
+        }
+        if (!mHolidayDays.isEmpty()) {
+            mHolidayDao.insertMissingDays(mHolidayDays);
+            mHolidayDays.clear();
+        }
+    }
+}
@@ -16,32 +16,58 @@
 
 package com.best.deskclock.holiday;
 
+import static com.best.deskclock.DeskClockApplication.getDefaultSharedPreferences;
+
 import android.content.Context;
+import android.content.SharedPreferences;
 
-import com.best.deskclock.data.DataModel;
+import androidx.annotation.VisibleForTesting;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.best.deskclock.alarms.AlarmStateManager;
+import com.best.deskclock.data.DataModel;
+import com.best.deskclock.data.SettingsDAO;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.lang.reflect.Type;
-import java.net.URL;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import com.best.deskclock.utils.LogUtils;
 
 public class HolidayRepository {
 
     private static volatile HolidayRepository sInstance;
+    private final Context mAppContext;
     private final HolidayDao mHolidayDao;
+    private final HolidaySync mHolidaySync;
     private final ExecutorService mExecutorService;
 
+    /**
+     * In-memory index used by all holiday checks; {@code null} until the database has been read.
+     */
+    private volatile HolidayCalendarIndex mCalendarIndex;
+
+    /**
+     * The first index, built on its own thread as soon as the repository is created so that the
+     * database is never read by the thread asking for the index. It doesn't share
+     * {@link #mExecutorService}, where it could be queued behind a network sync.
+     */
+    private final Future<HolidayCalendarIndex> mInitialCalendarIndex;
+
     private HolidayRepository(Context context) {
+        mAppContext = context.getApplicationContext();
         HolidayDatabase db = HolidayDatabase.getDatabase(context);
         mHolidayDao = db.holidayDao();
+        mHolidaySync = new HolidaySync(db, getDefaultSharedPreferences(mAppContext));
         mExecutorService = Executors.newSingleThreadExecutor();
+
+        // Build the index in the background so that the first alarm reschedule doesn't pay for it.
+        final ExecutorService indexExecutor = Executors.newSingleThreadExecutor();
+        mInitialCalendarIndex = indexExecutor.submit(() ->
+                HolidayRuleEngine.buildCalendarIndex(mHolidayDao.getAllDays()));
+        // The thread ends once the index is built.
+        indexExecutor.shutdown();
     }
 
     public static HolidayRepository getInstance(Context context) {
@@ -55,27 +81,104 @@ public class HolidayRepository {
         return sInstance;
     }
 
+    /**
+     * Drops the repository and closes its database, so that both are created again on next
+     * access, e.g. by tests that each start with a new application.
+     */
+    @VisibleForTesting
+    public static void reset() {
+        synchronized (HolidayRepository.class) {
+            if (sInstance != null) {
+                sInstance.mExecutorService.shutdownNow();
+                sInstance = null;
+            }
+        }
+        HolidayDatabase.reset();
+    }
+
+    /**
+     * Callback notified when a holiday data sync has finished.
+     */
+    public interface SyncCallback {
+        void onSyncFinished(boolean success);
+    }
+
+    /**
+     * Syncs the holiday data in the background; alarms depending on holidays are rescheduled
+     * only if the data has changed.
+     */
     public void updateWorkdayData() {
+        updateWorkdayData(null);
+    }
+
+    /**
+     * Same as {@link #updateWorkdayData()}, notifying the given callback on the sync thread.
+     */
+    public void updateWorkdayData(SyncCallback callback) {
         mExecutorService.execute(() -> {
+            final SharedPreferences prefs = getDefaultSharedPreferences(mAppContext);
+            boolean success = false;
             try {
-                URL url = new URL(DataModel.getDataModel().getHolidayDataUrl());
-                BufferedReader in = new BufferedReader(new InputStreamReader(url.openStream()));
-                Type listType = new TypeToken<List<Holiday>>() {}.getType();
-                List<Holiday> holidays = new Gson().fromJson(in, listType);
-                mHolidayDao.insertAll(holidays);
-                in.close();
+                final String url = DataModel.getDataModel().getHolidayDataUrl();
+                if (mHolidaySync.sync(url) == HolidaySync.RESULT_UPDATED) {
+                    rebuildCalendarIndex();
+                    AlarmStateManager.rescheduleHolidayAlarms(mAppContext);
+                }
+                SettingsDAO.setHolidaySyncSucceeded(prefs, System.currentTimeMillis());
+                success = true;
             } catch (Exception e) {
+                SettingsDAO.incrementHolidaySyncFailureCount(prefs);
                 LogUtils.e("Error updating holiday data", e);
             }
+
+            if (callback != null) {
+                callback.onSyncFinished(success);
+            }
         });
     }
 
-    public Holiday getHolidayByDate(String date) {
-        return mHolidayDao.getHolidayByDate(date);
+    /**
+     * Returns the holiday index, built in the background from the statutory holidays computed by
+     * {@link HolidayRuleEngine} and the holiday data stored in the database. Until the first index
+     * is built, this waits for it rather than reading the database on the calling thread; the wait
+     * is bounded by a database read, never by a holiday data sync.
+     * <p>
+     * The returned index is immutable; it is replaced as a whole after each data update.</p>
+     */
+    public HolidayCalendarIndex getCalendarIndex() {
+        HolidayCalendarIndex index = mCalendarIndex;
+        if (index != null) {
+            return index;
+        }
+
+        try {
+            index = mInitialCalendarIndex.get();
+        } catch (ExecutionException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            LogUtils.e("Failed to read the holiday data", e);
+            // Statutory holidays are computed and don't need the database.
+            index = HolidayRuleEngine.buildCalendarIndex(Collections.emptyList());
+        }
+
+        synchronized (this) {
+            // An index rebuilt after a data update in the meantime is more recent.
+            if (mCalendarIndex == null) {
+                mCalendarIndex = index;
+            }
+            return mCalendarIndex;
+        }
     }
 
-    public Holiday getCompDayByDate(String date) {
-        return mHolidayDao.getCompDayByDate(date);
+    /**
+     * Rebuilds the holiday index with the stored holiday data and publishes it atomically.
+     */
+    private void rebuildCalendarIndex() {
+        final HolidayCalendarIndex index = HolidayRuleEngine.buildCalendarIndex(mHolidayDao.getAllDays());
+        synchronized (this) {
+            mCalendarIndex = index;
+        }
     }
 
     public List<Holiday> getAllHolidays() {
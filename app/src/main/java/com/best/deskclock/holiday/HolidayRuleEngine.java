@@ -0,0 +1,194 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.holiday;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes the statutory public holidays of mainland China without any network access.
+ * <p>
+ * Fixed-date holidays follow the Gregorian calendar. Spring Festival, the Dragon Boat Festival
+ * and the Mid-Autumn Festival are computed from a precomputed Chinese lunisolar calendar table
+ * covering the lunar years 1900 to 2100, and Qingming from the solar term approximation used for
+ * Chinese almanacs. Only the statutory days are produced; the extra days off and the compensation
+ * workdays announced each year come from the downloaded holiday data, which takes precedence.</p>
+ */
+public final class HolidayRuleEngine {
+
+    /**
+     * First and last Gregorian years for which holidays are computed.
+     */
+    public static final int FIRST_YEAR = 1950;
+    public static final int LAST_YEAR = 2100;
+
+    private static final int FIRST_LUNAR_YEAR = 1900;
+
+    /**
+     * One entry per lunar year from 1900 to 2100:
+     * <ul>
+     *     <li>bits 0-3: the month followed by a leap month, or 0 if the year has no leap month</li>
+     *     <li>bits 4-15: the length of months 12 (bit 4) to 1 (bit 15); set for 30 days, clear for 29</li>
+     *     <li>bit 16: the length of the leap month; set for 30 days, clear for 29</li>
+     * </ul>
+     */
+    private static final int[] LUNAR_INFO = {
+            0x04bd8, 0x04ae0, 0x0a570, 0x054d5, 0x0d260, 0x0d950, 0x16554, 0x056a0, 0x09ad0, 0x055d2, // 1900
+            0x04ae0, 0x0a5b6, 0x0a4d0, 0x0d250, 0x1d255, 0x0b540, 0x0d6a0, 0x0ada2, 0x095b0, 0x14977, // 1910
+            0x04970, 0x0a4b0, 0x0b4b5, 0x06a50, 0x06d40, 0x1ab54, 0x02b60, 0x09570, 0x052f2, 0x04970, // 1920
+            0x06566, 0x0d4a0, 0x0ea50, 0x16a95, 0x05ad0, 0x02b60, 0x186e3, 0x092e0, 0x1c8d7, 0x0c950, // 1930
+            0x0d4a0, 0x1d8a6, 0x0b550, 0x056a0, 0x1a5b4, 0x025d0, 0x092d0, 0x0d2b2, 0x0a950, 0x0b557, // 1940
+            0x06ca0, 0x0b550, 0x15355, 0x04da0, 0x0a5b0, 0x14573, 0x052b0, 0x0a9a8, 0x0e950, 0x06aa0, // 1950
+            0x0aea6, 0x0ab50, 0x04b60, 0x0aae4, 0x0a570, 0x05260, 0x0f263, 0x0d950, 0x05b57, 0x056a0, // 1960
+            0x096d0, 0x04dd5, 0x04ad0, 0x0a4d0, 0x0d4d4, 0x0d250, 0x0d558, 0x0b540, 0x0b6a0, 0x195a6, // 1970
+            0x095b0, 0x049b0, 0x0a974, 0x0a4b0, 0x0b27a, 0x06a50, 0x06d40, 0x0af46, 0x0ab60, 0x09570, // 1980
+            0x04af5, 0x04970, 0x064b0, 0x074a3, 0x0ea50, 0x06b58, 0x05ac0, 0x0ab60, 0x096d5, 0x092e0, // 1990
+            0x0c960, 0x0d954, 0x0d4a0, 0x0da50, 0x07552, 0x056a0, 0x0abb7, 0x025d0, 0x092d0, 0x0cab5, // 2000
+            0x0a950, 0x0b4a0, 0x0baa4, 0x0ad50, 0x055d9, 0x04ba0, 0x0a5b0, 0x15176, 0x052b0, 0x0a930, // 2010
+            0x07954, 0x06aa0, 0x0ad50, 0x05b52, 0x04b60, 0x0a6e6, 0x0a4e0, 0x0d260, 0x0ea65, 0x0d530, // 2020
+            0x05aa0, 0x076a3, 0x096d0, 0x04afb, 0x04ad0, 0x0a4d0, 0x1d0b6, 0x0d250, 0x0d520, 0x0dd45, // 2030
+            0x0b5a0, 0x056d0, 0x055b2, 0x049b0, 0x0a577, 0x0a4b0, 0x0aa50, 0x1b255, 0x06d20, 0x0ada0, // 2040
+            0x14b63, 0x09370, 0x049f8, 0x04970, 0x064b0, 0x168a6, 0x0ea50, 0x06b20, 0x1a6c4, 0x0aae0, // 2050
+            0x092e0, 0x0d2e3, 0x0c960, 0x0d557, 0x0d4a0, 0x0da50, 0x05d55, 0x056a0, 0x0a6d0, 0x055d4, // 2060
+            0x052d0, 0x0a9b8, 0x0a950, 0x0b4a0, 0x0b6a6, 0x0ad50, 0x055a0, 0x0aba4, 0x0a5b0, 0x052b0, // 2070
+            0x0b273, 0x06930, 0x07337, 0x06aa0, 0x0ad50, 0x14b55, 0x04b60, 0x0a570, 0x054e4, 0x0d160, // 2080
+            0x0e968, 0x0d520, 0x0daa0, 0x16aa6, 0x056d0, 0x04ae0, 0x0a9d4, 0x0a2d0, 0x0d150, 0x0f252, // 2090
+            0x0d520                                                                                   // 2100
+    };
+
+    /**
+     * The epoch day of the first day of each lunar year, derived from {@link #LUNAR_INFO}.
+     */
+    private static final long[] LUNAR_NEW_YEAR_EPOCH_DAYS = new long[LUNAR_INFO.length];
+
+    static {
+        // The lunar year 1900 started on January 31st, 1900.
+        long epochDay = HolidayCalendarIndex.toEpochDay(1900, 1, 31);
+        for (int i = 0; i < LUNAR_INFO.length; i++) {
+            LUNAR_NEW_YEAR_EPOCH_DAYS[i] = epochDay;
+            epochDay += getLunarYearLength(LUNAR_INFO[i]);
+        }
+    }
+
+    private HolidayRuleEngine() {
+    }
+
+    /**
+     * Builds the holiday index from the statutory holidays merged with the downloaded data.
+     *
+     * @param downloadedDays the days of the downloaded holiday data; its compensation workdays
+     *                       override the computed holidays and its holidays extend them.
+     */
+    public static HolidayCalendarIndex buildCalendarIndex(List<HolidayDay> downloadedDays) {
+        final List<HolidayDay> days = getStatutoryHolidays(FIRST_YEAR, LAST_YEAR);
+        days.addAll(downloadedDays);
+        return HolidayCalendarIndex.build(days);
+    }
+
+    /**
+     * @return the statutory holidays of the given range of Gregorian years, within
+     * [{@link #FIRST_YEAR}, {@link #LAST_YEAR}].
+     */
+    public static List<HolidayDay> getStatutoryHolidays(int firstYear, int lastYear) {
+        final List<HolidayDay> days = new ArrayList<>((lastYear - firstYear + 1) * 12);
+        for (int year = Math.max(firstYear, FIRST_YEAR); year <= Math.min(lastYear, LAST_YEAR); year++) {
+            addStatutoryHolidays(year, days);
+        }
+        return days;
+    }
+
+    /**
+     * Adds the statutory holidays of the given Gregorian year, following the national regulations
+     * of 1949 and their revisions of 1999, 2007, 2013 and 2024.
+     */
+    private static void addStatutoryHolidays(int year, List<HolidayDay> days) {
+        // New Year's Day
+        addDays(days, HolidayCalendarIndex.toEpochDay(year, 1, 1), 1);
+
+        // Spring Festival; the lunar year always starts in the same Gregorian year.
+        final long springFestival = lunarToEpochDay(year, 1, 1);
+        if (year >= 2025) {
+            addDays(days, springFestival - 1, 4);
+        } else if (year >= 2008 && year <= 2013) {
+            addDays(days, springFestival - 1, 3);
+        } else {
+            addDays(days, springFestival, 3);
+        }
+
+        // Labour Day
+        final long labourDay = HolidayCalendarIndex.toEpochDay(year, 5, 1);
+        if (year >= 2025) {
+            addDays(days, labourDay, 2);
+        } else if (year >= 2000 && year <= 2007) {
+            addDays(days, labourDay, 3);
+        } else {
+            addDays(days, labourDay, 1);
+        }
+
+        if (year >= 2008) {
+            addDays(days, getQingmingEpochDay(year), 1);
+            addDays(days, lunarToEpochDay(year, 5, 5), 1);
+            addDays(days, lunarToEpochDay(year, 8, 15), 1);
+        }
+
+        // National Day
+        addDays(days, HolidayCalendarIndex.toEpochDay(year, 10, 1), year >= 1999 ? 3 : 2);
+    }
+
+    private static void addDays(List<HolidayDay> days, long firstEpochDay, int count) {
+        for (int i = 0; i < count; i++) {
+            days.add(new HolidayDay(firstEpochDay + i, HolidayDay.TYPE_HOLIDAY));
+        }
+    }
+
+    /**
+     * Converts a date of the Chinese lunisolar calendar to an epoch day.
+     *
+     * @param lunarYear  the lunar year, from 1900 to 2100
+     * @param lunarMonth the lunar month, from 1 to 12; leap months are never designated
+     * @param lunarDay   the day of the lunar month, from 1 to 30
+     */
+    public static long lunarToEpochDay(int lunarYear, int lunarMonth, int lunarDay) {
+        final int info = LUNAR_INFO[lunarYear - FIRST_LUNAR_YEAR];
+        final int leapMonth = info & 0xf;
+        long epochDay = LUNAR_NEW_YEAR_EPOCH_DAYS[lunarYear - FIRST_LUNAR_YEAR];
+        for (int month = 1; month < lunarMonth; month++) {
+            epochDay += getLunarMonthLength(info, month);
+            if (month == leapMonth) {
+                epochDay += getLeapMonthLength(info);
+            }
+        }
+        return epochDay + lunarDay - 1;
+    }
+
+    /**
+     * @return the epoch day of the Qingming solar term (solar longitude of 15 degrees) in China Standard Time,
+     * for a Gregorian year from 1900 to 2100.
+     */
+    static long getQingmingEpochDay(int year) {
+        final int y = year >= 2000 ? year - 2000 : year - 1900;
+        final double c = year >= 2000 ? 4.81 : 5.59;
+        // Number of leap days since the start of the century.
+        final int leapDays = y / 4 - y / 100;
+        return HolidayCalendarIndex.toEpochDay(year, 4, (int) (y * 0.2422 + c) - leapDays);
+    }
+
+    private static int getLunarYearLength(int info) {
+        int length = getLeapMonthLength(info);
+        for (int month = 1; month <= 12; month++) {
+            length += getLunarMonthLength(info, month);
+        }
+        return length;
+    }
+
+    private static int getLunarMonthLength(int info, int month) {
+        return (info & (0x10000 >> month)) != 0 ? 30 : 29;
+    }
+
+    private static int getLeapMonthLength(int info) {
+        if ((info & 0xf) == 0) {
+            return 0;
+        }
+        return (info & 0x10000) != 0 ? 30 : 29;
+    }
+}
@@ -0,0 +1,230 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.holiday;
+
+import android.content.SharedPreferences;
+
+import com.best.deskclock.data.SettingsDAO;
+import com.best.deskclock.utils.LogUtils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Downloads the holiday data and stores it only when it has changed.
+ * <p>
+ * The ETag and Last-Modified headers of the last stored data are sent back as a conditional
+ * request, and the content hash is compared for servers that don't support them. The feed is
+ * parsed and written while it is downloaded, in a single transaction that replaces the years it
+ * covers; it is rolled back if the content turns out to be unchanged or if anything fails, so
+ * syncing is idempotent and never leaves partial data behind.</p>
+ */
+public final class HolidaySync {
+
+    /**
+     * The stored data was replaced by the downloaded data.
+     */
+    public static final int RESULT_UPDATED = 0;
+
+    /**
+     * The stored data is up to date; nothing was written.
+     */
+    public static final int RESULT_UNCHANGED = 1;
+
+    private static final LogUtils.Logger LOGGER = new LogUtils.Logger("HolidaySync");
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 15_000;
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * Maximum size of the feed; larger feeds are rejected.
+     */
+    private static final long MAX_PAYLOAD_BYTES = 4 * 1024 * 1024;
+
+    private final HolidayDatabase mDatabase;
+    private final HolidayDao mHolidayDao;
+    private final SharedPreferences mPrefs;
+
+    public HolidaySync(HolidayDatabase database, SharedPreferences prefs) {
+        mDatabase = database;
+        mHolidayDao = database.holidayDao();
+        mPrefs = prefs;
+    }
+
+    /**
+     * Syncs the stored holiday data with the data available at the given url.
+     *
+     * @return {@link #RESULT_UPDATED} or {@link #RESULT_UNCHANGED}
+     * @throws IOException if the data could not be downloaded, is too large or is malformed
+     */
+    public int sync(String url) throws IOException {
+        // Validators of data downloaded from another url are meaningless.
+        final boolean sameUrl = url.equals(SettingsDAO.getHolidaySyncUrl(mPrefs));
+
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+            if (sameUrl) {
+                final String eTag = SettingsDAO.getHolidaySyncETag(mPrefs);
+                if (eTag != null) {
+                    connection.setRequestProperty("If-None-Match", eTag);
+                }
+                final String lastModified = SettingsDAO.getHolidaySyncLastModified(mPrefs);
+                if (lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", lastModified);
+                }
+            }
+
+            final int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                LOGGER.i("Holiday data not modified");
+                return RESULT_UNCHANGED;
+            }
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected response code " + responseCode);
+            }
+            if (connection.getContentLengthLong() > MAX_PAYLOAD_BYTES) {
+                throw new IOException("Holiday data too large: " + connection.getContentLengthLong());
+            }
+
+            final String eTag = connection.getHeaderField("ETag");
+            final String lastModified = connection.getHeaderField("Last-Modified");
+            final MessageDigest digest = newDigest();
+
+            try (InputStream in = new DigestInputStream(
+                    new BoundedInputStream(connection.getInputStream(), MAX_PAYLOAD_BYTES), digest)) {
+                return importFeed(in, digest, url, sameUrl, eTag, lastModified);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private int importFeed(InputStream in, MessageDigest digest, String url, boolean sameUrl,
+                           String eTag, String lastModified) throws IOException {
+
+        final int count;
+        final int skippedCount;
+        final String contentHash;
+        final boolean unchanged;
+
+        mDatabase.beginTransaction();
+        try {
+            final HolidayImporter importer = new HolidayImporter(mHolidayDao);
+            final HolidayFeedReader reader =
+                    new HolidayFeedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            Holiday holiday;
+            while ((holiday = reader.next()) != null) {
+                importer.add(holiday);
+            }
+            count = importer.finish();
+            skippedCount = reader.getSkippedCount();
+
+            // Hash trailing bytes too, so that the hash covers the whole content.
+            final byte[] buffer = new byte[1024];
+            while (in.read(buffer) != -1) {
+                // Just consume the stream.
+            }
+
+            if (count == 0) {
+                throw new IOException("No valid holiday record");
+            }
+
+            contentHash = toHex(digest.digest());
+            unchanged = sameUrl && contentHash.equals(SettingsDAO.getHolidaySyncContentHash(mPrefs));
+            if (!unchanged) {
+                mDatabase.setTransactionSuccessful();
+            }
+        } catch (RuntimeException e) {
+            // Gson reports some malformed input with unchecked exceptions.
+            throw new IOException("Malformed holiday data", e);
+        } finally {
+            mDatabase.endTransaction();
+        }
+
+        // Keep the new validators so that the next request can be conditional. They are only saved
+        // once the data they describe has been committed.
+        SettingsDAO.setHolidaySyncState(mPrefs, url, eTag, lastModified, contentHash);
+        if (unchanged) {
+            LOGGER.i("Holiday data unchanged");
+            return RESULT_UNCHANGED;
+        }
+
+        LOGGER.i("Holiday data updated with %d records, %d invalid records skipped",
+                count, skippedCount);
+        return RESULT_UPDATED;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android device supports SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Fails once more than a given number of bytes have been read, whatever the server announced.
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+
+        private final long mLimit;
+        private long mCount;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            mLimit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long n) throws IOException {
+            mCount += n;
+            if (mCount > mLimit) {
+                throw new IOException("Holiday data larger than " + mLimit + " bytes");
+            }
+        }
+    }
+}
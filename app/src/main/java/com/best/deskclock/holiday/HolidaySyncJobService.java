@@ -0,0 +1,131 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.holiday;
+
+import static android.text.format.DateUtils.DAY_IN_MILLIS;
+import static android.text.format.DateUtils.MINUTE_IN_MILLIS;
+
+import static com.best.deskclock.DeskClockApplication.getDefaultSharedPreferences;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.best.deskclock.data.SettingsDAO;
+import com.best.deskclock.utils.LogUtils;
+
+/**
+ * Syncs the holiday data in the background, away from the application startup path.
+ * <p>
+ * A persisted periodic job runs the sync once per {@link #SYNC_INTERVAL_MILLIS} while the device
+ * is idle and connected. Since idle jobs can't use the JobScheduler back-off policy, failures are
+ * retried by a one-shot job with an exponential delay that only requires a network connection.
+ * The same one-shot job fetches the data as soon as possible when it was never synced.</p>
+ */
+public class HolidaySyncJobService extends JobService {
+
+    private static final LogUtils.Logger LOGGER = new LogUtils.Logger("HolidaySyncJobService");
+
+    private static final int PERIODIC_JOB_ID = 0x48534A01;
+    private static final int RETRY_JOB_ID = 0x48534A02;
+
+    /**
+     * Interval between two periodic syncs.
+     */
+    private static final long SYNC_INTERVAL_MILLIS = DAY_IN_MILLIS;
+
+    /**
+     * Delay before retrying the first failed sync; doubled on each further failure.
+     */
+    private static final long INITIAL_BACKOFF_MILLIS = 30 * MINUTE_IN_MILLIS;
+
+    /**
+     * Schedules the periodic sync if it is not scheduled yet. This only talks to JobScheduler and
+     * never touches the network, so it can be called on the startup path.
+     */
+    public static void schedule(Context context) {
+        final JobScheduler jobScheduler = context.getSystemService(JobScheduler.class);
+        final boolean periodicJobPending = isJobPending(jobScheduler, PERIODIC_JOB_ID);
+        if (!periodicJobPending) {
+            jobScheduler.schedule(new JobInfo.Builder(PERIODIC_JOB_ID, getComponentName(context))
+                    .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                    .setRequiresDeviceIdle(true)
+                    .setPeriodic(SYNC_INTERVAL_MILLIS)
+                    .setPersisted(true)
+                    .build());
+        }
+
+        // Don't wait for the device to be idle if the data was never synced.
+        final SharedPreferences prefs = getDefaultSharedPreferences(context);
+        if (SettingsDAO.getHolidaySyncLastSuccessTime(prefs) == 0 && !isJobPending(jobScheduler, RETRY_JOB_ID)) {
+            scheduleRetry(context, 0);
+        }
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        final SharedPreferences prefs = getDefaultSharedPreferences(this);
+        final long lastSuccessTime = SettingsDAO.getHolidaySyncLastSuccessTime(prefs);
+        // The data may have been synced manually in the meantime.
+        if (params.getJobId() == PERIODIC_JOB_ID
+                && System.currentTimeMillis() - lastSuccessTime < SYNC_INTERVAL_MILLIS / 2) {
+            LOGGER.i("Holiday data synced recently; skipping periodic sync");
+            return false;
+        }
+
+        HolidayRepository.getInstance(this).updateWorkdayData(success -> {
+            // Finish first, as scheduling a job stops the running job with the same id.
+            jobFinished(params, false);
+            if (success) {
+                if (params.getJobId() != RETRY_JOB_ID) {
+                    getSystemService(JobScheduler.class).cancel(RETRY_JOB_ID);
+                }
+            } else {
+                final long delay = getBackoffDelay(SettingsDAO.getHolidaySyncFailureCount(prefs));
+                LOGGER.i("Holiday data sync failed; retrying in %d minutes", delay / MINUTE_IN_MILLIS);
+                scheduleRetry(this, delay);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The sync itself is not interruptible; failures are retried by the retry job.
+        return false;
+    }
+
+    private static void scheduleRetry(Context context, long delay) {
+        context.getSystemService(JobScheduler.class).schedule(
+                new JobInfo.Builder(RETRY_JOB_ID, getComponentName(context))
+                        .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                        .setMinimumLatency(delay)
+                        .setPersisted(true)
+                        .build());
+    }
+
+    /**
+     * @return the delay before retrying after the given number of consecutive failures.
+     */
+    private static long getBackoffDelay(int failureCount) {
+        final int shift = Math.min(Math.max(failureCount - 1, 0), 10);
+        return Math.min(INITIAL_BACKOFF_MILLIS << shift, SYNC_INTERVAL_MILLIS);
+    }
+
+    private static boolean isJobPending(JobScheduler jobScheduler, int jobId) {
+        for (JobInfo jobInfo : jobScheduler.getAllPendingJobs()) {
+            if (jobInfo.getId() == jobId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ComponentName getComponentName(Context context) {
+        return new ComponentName(context, HolidaySyncJobService.class);
+    }
+}
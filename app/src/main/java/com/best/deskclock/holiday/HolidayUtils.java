@@ -16,15 +16,15 @@
 
 package com.best.deskclock.holiday;
 
+import com.best.deskclock.alarms.AlarmScheduleCalculator;
 import com.best.deskclock.provider.Alarm;
 
 import android.content.Context;
 
 import com.best.deskclock.data.Weekdays;
+import com.best.deskclock.data.WorkPattern;
 
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.Locale;
 
 public class HolidayUtils {
 
@@ -33,8 +33,14 @@ public class HolidayUtils {
     public static final int HOLIDAY_OPTION_BIG_SMALL_DA = 2;
     public static final int HOLIDAY_OPTION_BIG_SMALL_XIAO = 3;
     public static final int HOLIDAY_OPTION_SINGLE_DAY_OFF = 4;
+    public static final int HOLIDAY_OPTION_WORK_PATTERN = 5;
 
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+    // Day of week index of Sunday, from 0 (Monday) to 6 (Sunday)
+    private static final int SUNDAY_INDEX = 6;
+
+    // Big/small weeks of alarms that have no pattern, anchored on the week of 1970-01-01
+    private static final WorkPattern DEFAULT_BIG_WEEK = WorkPattern.bigSmallWeek(0, true);
+    private static final WorkPattern DEFAULT_SMALL_WEEK = WorkPattern.bigSmallWeek(0, false);
 
     /**
      * Determines if the alarm should ring on the given date based on the selected holiday option.
@@ -42,69 +48,108 @@ public class HolidayUtils {
      * @param context       The context.
      * @param holidayOption The holiday option selected for the alarm.
      * @param daysOfWeek    The repeating days of the week for the alarm.
+     * @param workPattern   The work pattern of the alarm.
      * @param calendar      The date to check.
      * @return True if the alarm should ring, false otherwise.
      */
-    public static boolean shouldAlarmRing(Context context, int holidayOption, Weekdays daysOfWeek, Calendar calendar) {
+    public static boolean shouldAlarmRing(Context context, int holidayOption, Weekdays daysOfWeek,
+                                          WorkPattern workPattern, Calendar calendar) {
+        return shouldAlarmRing(getCalendarIndex(context, holidayOption), holidayOption, daysOfWeek,
+                workPattern, HolidayCalendarIndex.toEpochDay(calendar));
+    }
+
+    /**
+     * Determines if the alarm should ring on the given day based on the selected holiday option.
+     * <p>
+     * This doesn't allocate anything and runs in constant time.</p>
+     *
+     * @param index         The holiday index to check the day against.
+     * @param holidayOption The holiday option selected for the alarm.
+     * @param daysOfWeek    The repeating days of the week for the alarm.
+     * @param workPattern   The work pattern of the alarm, used by the big/small week and work
+     *                      pattern options.
+     * @param epochDay      The day to check, as the number of days since 1970-01-01.
+     * @return True if the alarm should ring, false otherwise.
+     */
+    public static boolean shouldAlarmRing(HolidayCalendarIndex index, int holidayOption,
+                                          Weekdays daysOfWeek, WorkPattern workPattern, long epochDay) {
         if (holidayOption == HOLIDAY_OPTION_NONE) {
             return true;
         }
 
-        String dateStr = DATE_FORMAT.format(calendar.getTime());
-        HolidayRepository repo = HolidayRepository.getInstance(context);
-
-        // Check if it's a legal holiday or compensation workday
-        Holiday holiday = repo.getHolidayByDate(dateStr);
-        Holiday compDay = repo.getCompDayByDate(dateStr);
-
-        boolean isLegalHoliday = (holiday != null);
-        boolean isCompWorkday = (compDay != null);
+        // Rotating shifts don't follow the national holiday calendar.
+        if (holidayOption == HOLIDAY_OPTION_WORK_PATTERN) {
+            return workPattern.isWorkday(epochDay);
+        }
 
-        int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
+        // For all other options:
+        // 1. Ring if it's a compensation workday (even if it's a weekend)
+        // 2. Skip if it's a legal holiday
+        if (index.isCompensationWorkday(epochDay)) {
+            return true;
+        }
+        if (index.isHoliday(epochDay)) {
+            return false;
+        }
 
         switch (holidayOption) {
             case HOLIDAY_OPTION_SKIP_HOLIDAY:
-                // Normal skip holiday logic:
-                // 1. Ring if it's a compensation workday (even if it's a weekend)
-                // 2. Skip if it's a legal holiday
-                // 3. Otherwise, follow the alarm's set days of the week
-                if (isCompWorkday) return true;
-                if (isLegalHoliday) return false;
-                return daysOfWeek.isBitOn(dayOfWeek);
+                // Follow the alarm's set days of the week
+                return daysOfWeek.isEpochDayOn(epochDay);
 
             case HOLIDAY_OPTION_BIG_SMALL_DA:
-                // Big Week: Sat don't work this week, next week Sat work.
-                // Usually means alternating Saturdays.
-                if (isCompWorkday) return true;
-                if (isLegalHoliday) return false;
-                if (dayOfWeek == Calendar.SATURDAY) {
-                    // Check if current week is Big or Small week.
-                    // For example, even weeks are Big weeks (Sat off), odd weeks are Small weeks (Sat work).
-                    // This is a simplified logic.
-                    return (calendar.get(Calendar.WEEK_OF_YEAR) % 2 == 0);
-                }
-                return (dayOfWeek != Calendar.SUNDAY);
-
             case HOLIDAY_OPTION_BIG_SMALL_XIAO:
-                // Small Week: Opposite of Big Week.
-                if (isCompWorkday) return true;
-                if (isLegalHoliday) return false;
-                if (dayOfWeek == Calendar.SATURDAY) {
-                    return (calendar.get(Calendar.WEEK_OF_YEAR) % 2 != 0);
-                }
-                return (dayOfWeek != Calendar.SUNDAY);
+                // Alternating 6-day and 5-day weeks, continuing across year boundaries.
+                return getBigSmallWeekPattern(holidayOption, workPattern).isWorkday(epochDay);
 
             case HOLIDAY_OPTION_SINGLE_DAY_OFF:
                 // Single Day Off: Every week work Mon-Sat, Sun off.
-                if (isCompWorkday) return true;
-                if (isLegalHoliday) return false;
-                return (dayOfWeek != Calendar.SUNDAY);
+                // 1970-01-01 was a Thursday; 0 is Monday and 6 is Sunday.
+                return Math.floorMod(epochDay + 3, 7L) != SUNDAY_INDEX;
 
             default:
                 return true;
         }
     }
 
+    /**
+     * @return the pattern of the alarm, or a pattern anchored on the first week of 1970 for alarms
+     * that were given a big/small week option without a pattern (e.g. restored from a backup).
+     */
+    private static WorkPattern getBigSmallWeekPattern(int holidayOption, WorkPattern workPattern) {
+        if (!workPattern.isEmpty()) {
+            return workPattern;
+        }
+        return holidayOption == HOLIDAY_OPTION_BIG_SMALL_DA ? DEFAULT_BIG_WEEK : DEFAULT_SMALL_WEEK;
+    }
+
+    /**
+     * Creates the work pattern stored with an alarm when a holiday option is selected.
+     *
+     * @param holidayOption the selected holiday option
+     * @param todayEpochDay the current day, as the number of days since 1970-01-01
+     * @return a 6-day week starting this week for {@link #HOLIDAY_OPTION_BIG_SMALL_DA}, a 5-day
+     * week starting this week for {@link #HOLIDAY_OPTION_BIG_SMALL_XIAO}, and
+     * {@link WorkPattern#NONE} for options that don't use a pattern.
+     */
+    public static WorkPattern createWorkPattern(int holidayOption, long todayEpochDay) {
+        return switch (holidayOption) {
+            case HOLIDAY_OPTION_BIG_SMALL_DA -> WorkPattern.bigSmallWeek(todayEpochDay, true);
+            case HOLIDAY_OPTION_BIG_SMALL_XIAO -> WorkPattern.bigSmallWeek(todayEpochDay, false);
+            default -> WorkPattern.NONE;
+        };
+    }
+
+    /**
+     * @return the holiday index to use for an alarm with the given holiday option; the database
+     * is never read for alarms that don't use holidays.
+     */
+    public static HolidayCalendarIndex getCalendarIndex(Context context, int holidayOption) {
+        return holidayOption == HOLIDAY_OPTION_NONE || holidayOption == HOLIDAY_OPTION_WORK_PATTERN
+                ? HolidayCalendarIndex.EMPTY
+                : HolidayRepository.getInstance(context).getCalendarIndex();
+    }
+
     /**
      * Calculates the absolute next alarm time, taking holidays into account.
      *
@@ -115,33 +160,27 @@ public class HolidayUtils {
      * @return The next valid firing time.
      */
     public static Calendar getNextWorkdayAlarmTime(Context context, int holidayOption, Alarm alarm, Calendar currentTime) {
-        Calendar nextInstanceTime = alarm.getNextAlarmTime(currentTime);
-
-        if (holidayOption == HOLIDAY_OPTION_NONE) {
-            return nextInstanceTime;
-        }
-
-        // Iterate up to 365 days to find the next valid workday
-        for (int i = 0; i < 365; i++) {
-            if (shouldAlarmRing(context, holidayOption, alarm.daysOfWeek, nextInstanceTime)) {
-                return nextInstanceTime;
-            }
-            // Advance to the next occurrence of the alarm
-            nextInstanceTime.add(Calendar.DAY_OF_YEAR, 1);
-            // After adding a day, the distance logic might be needed if it's a repeating alarm
-            if (alarm.daysOfWeek.isRepeating()) {
-                int addDays = alarm.daysOfWeek.getDistanceToNextDay(nextInstanceTime);
-                if (addDays > 0) {
-                    nextInstanceTime.add(Calendar.DAY_OF_WEEK, addDays);
-                }
-            }
-            // Ensure time is reset to the alarm time (in case of DST or multi-day jumps)
-            nextInstanceTime.set(Calendar.HOUR_OF_DAY, alarm.hour);
-            nextInstanceTime.set(Calendar.MINUTE, alarm.minutes);
-            nextInstanceTime.set(Calendar.SECOND, 0);
-            nextInstanceTime.set(Calendar.MILLISECOND, 0);
-        }
+        return getNextWorkdayAlarmTime(getCalendarIndex(context, holidayOption), holidayOption,
+                alarm, currentTime);
+    }
 
-        return alarm.getNextAlarmTime(currentTime); // Fallback
+    /**
+     * Calculates the absolute next alarm time, taking the holidays of the given index into account.
+     *
+     * @param index         The holiday index to check the days against.
+     * @param holidayOption The holiday option selected for the alarm.
+     * @param alarm         The alarm object.
+     * @param currentTime   The reference time.
+     * @return The next valid firing time.
+     */
+    public static Calendar getNextWorkdayAlarmTime(HolidayCalendarIndex index, int holidayOption,
+                                                   Alarm alarm, Calendar currentTime) {
+        final AlarmScheduleCalculator calculator =
+                AlarmScheduleCalculator.forCalendar(currentTime, index);
+        final long nextAlarmTime = calculator.getNextWorkdayAlarmTime(currentTime.getTimeInMillis(),
+                alarm.hour, alarm.minutes, alarm.daysOfWeek, alarm.getDateEpochDay(), holidayOption,
+                alarm.workPattern);
+
+        return AlarmScheduleCalculator.toCalendar(currentTime, nextAlarmTime);
     }
 }
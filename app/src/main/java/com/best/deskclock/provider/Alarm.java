@@ -17,6 +17,8 @@ import static com.best.deskclock.settings.PreferencesDefaultValues.DEFAULT_VOLUM
 import static com.best.deskclock.settings.PreferencesDefaultValues.SORT_ALARM_BY_ASCENDING_CREATION_ORDER;
 import static com.best.deskclock.settings.PreferencesDefaultValues.SORT_ALARM_BY_DESCENDING_CREATION_ORDER;
 
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
@@ -33,13 +35,21 @@ import androidx.annotation.NonNull;
 import androidx.loader.content.CursorLoader;
 
 import com.best.deskclock.R;
+import com.best.deskclock.alarms.AlarmScheduleCalculator;
+import com.best.deskclock.data.AlarmRepository;
 import com.best.deskclock.data.DataModel;
 import com.best.deskclock.data.SettingsDAO;
 import com.best.deskclock.data.Weekdays;
+import com.best.deskclock.data.WorkPattern;
+import com.best.deskclock.holiday.HolidayCalendarIndex;
+import com.best.deskclock.holiday.HolidayUtils;
 import com.best.deskclock.utils.RingtoneUtils;
 import com.best.deskclock.utils.SdkUtils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -50,6 +60,10 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
     public static final long INVALID_ID = -1;
 
     public int holidayOption;
+    /**
+     * The rotating work pattern used by the big/small week and work pattern holiday options.
+     */
+    public WorkPattern workPattern = WorkPattern.NONE;
     /**
      * SharedPreferences key used to indicate whether the styled repeat day display is enabled
      * for a specific alarm. Used to customize how repeat days are shown in the UI.
@@ -131,7 +145,10 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
             MISSED_ALARM_REPEAT_LIMIT,
             CRESCENDO_DURATION,
             ALARM_VOLUME,
-            HOLIDAY_OPTION
+            HOLIDAY_OPTION,
+            WORK_PATTERN_MASK,
+            WORK_PATTERN_LENGTH,
+            WORK_PATTERN_ANCHOR
     };
     private static final String[] QUERY_ALARMS_WITH_INSTANCES_COLUMNS = {
             ClockDatabaseHelper.ALARMS_TABLE_NAME + "." + _ID,
@@ -154,6 +171,9 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
             ClockDatabaseHelper.ALARMS_TABLE_NAME + "." + CRESCENDO_DURATION,
             ClockDatabaseHelper.ALARMS_TABLE_NAME + "." + ALARM_VOLUME,
             ClockDatabaseHelper.ALARMS_TABLE_NAME + "." + HOLIDAY_OPTION,
+            ClockDatabaseHelper.ALARMS_TABLE_NAME + "." + WORK_PATTERN_MASK,
+            ClockDatabaseHelper.ALARMS_TABLE_NAME + "." + WORK_PATTERN_LENGTH,
+            ClockDatabaseHelper.ALARMS_TABLE_NAME + "." + WORK_PATTERN_ANCHOR,
             ClockDatabaseHelper.INSTANCES_TABLE_NAME + "." + ClockContract.InstancesColumns.ALARM_STATE,
             ClockDatabaseHelper.INSTANCES_TABLE_NAME + "." + ClockContract.InstancesColumns._ID,
             ClockDatabaseHelper.INSTANCES_TABLE_NAME + "." + ClockContract.InstancesColumns.YEAR,
@@ -196,27 +216,30 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
     private static final int CRESCENDO_DURATION_INDEX = 17;
     private static final int ALARM_VOLUME_INDEX = 18;
     public static final int HOLIDAY_OPTION_INDEX = 19;
-
-    public static final int INSTANCE_STATE_INDEX = 20;
-    public static final int INSTANCE_ID_INDEX = 21;
-    public static final int INSTANCE_YEAR_INDEX = 22;
-    public static final int INSTANCE_MONTH_INDEX = 23;
-    public static final int INSTANCE_DAY_INDEX = 24;
-    public static final int INSTANCE_HOUR_INDEX = 25;
-    public static final int INSTANCE_MINUTE_INDEX = 26;
-    public static final int INSTANCE_LABEL_INDEX = 27;
-    public static final int INSTANCE_VIBRATE_INDEX = 28;
-    public static final int INSTANCE_VIBRATION_PATTERN_INDEX = 29;
-    public static final int INSTANCE_FLASH_INDEX = 30;
-    public static final int INSTANCE_AUTO_SILENCE_DURATION_INDEX = 31;
-    public static final int INSTANCE_SNOOZE_DURATION_INDEX = 32;
-    public static final int INSTANCE_MISSED_ALARM_REPEAT_COUNT_INDEX = 33;
-    public static final int INSTANCE_MISSED_ALARM_REPEAT_LIMIT_INDEX = 34;
-    public static final int INSTANCE_CRESCENDO_DURATION_INDEX = 35;
-    public static final int INSTANCE_ALARM_VOLUME_INDEX = 36;
+    private static final int WORK_PATTERN_MASK_INDEX = 20;
+    private static final int WORK_PATTERN_LENGTH_INDEX = 21;
+    private static final int WORK_PATTERN_ANCHOR_INDEX = 22;
+
+    public static final int INSTANCE_STATE_INDEX = 23;
+    public static final int INSTANCE_ID_INDEX = 24;
+    public static final int INSTANCE_YEAR_INDEX = 25;
+    public static final int INSTANCE_MONTH_INDEX = 26;
+    public static final int INSTANCE_DAY_INDEX = 27;
+    public static final int INSTANCE_HOUR_INDEX = 28;
+    public static final int INSTANCE_MINUTE_INDEX = 29;
+    public static final int INSTANCE_LABEL_INDEX = 30;
+    public static final int INSTANCE_VIBRATE_INDEX = 31;
+    public static final int INSTANCE_VIBRATION_PATTERN_INDEX = 32;
+    public static final int INSTANCE_FLASH_INDEX = 33;
+    public static final int INSTANCE_AUTO_SILENCE_DURATION_INDEX = 34;
+    public static final int INSTANCE_SNOOZE_DURATION_INDEX = 35;
+    public static final int INSTANCE_MISSED_ALARM_REPEAT_COUNT_INDEX = 36;
+    public static final int INSTANCE_MISSED_ALARM_REPEAT_LIMIT_INDEX = 37;
+    public static final int INSTANCE_CRESCENDO_DURATION_INDEX = 38;
+    public static final int INSTANCE_ALARM_VOLUME_INDEX = 39;
     public static final int INSTANCE_HOLIDAY_OPTION_INDEX = HOLIDAY_OPTION_INDEX;
 
-    private static final int COLUMN_COUNT = HOLIDAY_OPTION_INDEX + 1;
+    private static final int COLUMN_COUNT = WORK_PATTERN_ANCHOR_INDEX + 1;
     private static final int ALARM_JOIN_INSTANCE_COLUMN_COUNT = INSTANCE_ALARM_VOLUME_INDEX + 1;
     // Public fields
     public long id;
@@ -319,6 +342,8 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
         crescendoDuration = c.getInt(CRESCENDO_DURATION_INDEX);
         alarmVolume = c.getInt(ALARM_VOLUME_INDEX);
         holidayOption = c.getInt(HOLIDAY_OPTION_INDEX);
+        workPattern = WorkPattern.of(c.getLong(WORK_PATTERN_MASK_INDEX), c.getInt(WORK_PATTERN_LENGTH_INDEX),
+                c.getLong(WORK_PATTERN_ANCHOR_INDEX));
 
         if (c.getColumnCount() == ALARM_JOIN_INSTANCE_COLUMN_COUNT) {
             instanceState = c.getInt(INSTANCE_STATE_INDEX);
@@ -333,6 +358,31 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
         }
     }
 
+    public Alarm(Alarm alarm) {
+        id = alarm.id;
+        enabled = alarm.enabled;
+        year = alarm.year;
+        month = alarm.month;
+        day = alarm.day;
+        hour = alarm.hour;
+        minutes = alarm.minutes;
+        daysOfWeek = alarm.daysOfWeek;
+        vibrate = alarm.vibrate;
+        vibrationPattern = alarm.vibrationPattern;
+        flash = alarm.flash;
+        label = alarm.label;
+        alert = alarm.alert;
+        deleteAfterUse = alarm.deleteAfterUse;
+        autoSilenceDuration = alarm.autoSilenceDuration;
+        snoozeDuration = alarm.snoozeDuration;
+        missedAlarmRepeatLimit = alarm.missedAlarmRepeatLimit;
+        crescendoDuration = alarm.crescendoDuration;
+        alarmVolume = alarm.alarmVolume;
+        instanceState = alarm.instanceState;
+        holidayOption = alarm.holidayOption;
+        workPattern = alarm.workPattern;
+    }
+
     Alarm(Parcel p) {
         id = p.readLong();
         enabled = p.readInt() == 1;
@@ -356,6 +406,7 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
         crescendoDuration = p.readInt();
         alarmVolume = p.readInt();
         holidayOption = p.readInt();
+        workPattern = WorkPattern.of(p.readLong(), p.readInt(), p.readLong());
     }
 
     public ContentValues createContentValues() {
@@ -382,6 +433,9 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
         values.put(CRESCENDO_DURATION, crescendoDuration);
         values.put(ALARM_VOLUME, alarmVolume);
         values.put(HOLIDAY_OPTION, holidayOption);
+        values.put(WORK_PATTERN_MASK, workPattern.getMask());
+        values.put(WORK_PATTERN_LENGTH, workPattern.getCycleLength());
+        values.put(WORK_PATTERN_ANCHOR, workPattern.getAnchorEpochDay());
         if (alert == null) {
             // We want to put null, so default alarm changes
             values.putNull(RINGTONE);
@@ -413,6 +467,9 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
         p.writeInt(crescendoDuration);
         p.writeInt(alarmVolume);
         p.writeInt(holidayOption);
+        p.writeLong(workPattern.getMask());
+        p.writeInt(workPattern.getCycleLength());
+        p.writeLong(workPattern.getAnchorEpochDay());
     }
 
     public int describeContents() {
@@ -437,7 +494,7 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
      * @param context to query the database.
      * @return cursor loader with all the alarms.
      */
-    public static CursorLoader getAlarmsCursorLoader(Context context) {
+    public static AlarmsCursorLoader getAlarmsCursorLoader(Context context) {
         final SharedPreferences prefs = getDefaultSharedPreferences(context);
         boolean areEnabledAlarmsFirst = SettingsDAO.areEnabledAlarmsDisplayedFirst(prefs);
 
@@ -468,17 +525,19 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
             }
         }
 
-        return new CursorLoader(context, ALARMS_WITH_INSTANCES_URI,
-                QUERY_ALARMS_WITH_INSTANCES_COLUMNS, null, null, sortOrder) {
-            @Override
-            public Cursor loadInBackground() {
-                // Prime the ringtone title cache for later access. Most alarms will refer to
-                // system ringtones.
-                DataModel.getDataModel().loadRingtoneTitles();
+        return new AlarmsCursorLoader(context, sortOrder);
+    }
 
-                return super.loadInBackground();
-            }
-        };
+    /**
+     * Get an alarm joined with its instance, with the columns of {@link #getAlarmsCursorLoader}.
+     *
+     * @param cr      provides access to the content model
+     * @param alarmId for the desired alarm.
+     * @return cursor holding the alarm, empty if the alarm doesn't exist
+     */
+    public static Cursor queryAlarmWithInstance(ContentResolver cr, long alarmId) {
+        return cr.query(ContentUris.withAppendedId(ALARMS_WITH_INSTANCES_URI, alarmId),
+                QUERY_ALARMS_WITH_INSTANCES_COLUMNS, null, null, null);
     }
 
     /**
@@ -489,13 +548,7 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
      * @return alarm if found, null otherwise
      */
     public static Alarm getAlarm(ContentResolver cr, long alarmId) {
-        try (Cursor cursor = cr.query(getContentUri(alarmId), QUERY_COLUMNS, null, null, null)) {
-            if (cursor != null && cursor.moveToFirst()) {
-                return new Alarm(cursor);
-            }
-        }
-
-        return null;
+        return AlarmRepository.getAlarmRepository().getAlarm(cr, alarmId);
     }
 
     /**
@@ -512,6 +565,20 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
      */
     public static List<Alarm> getAlarms(ContentResolver cr, String selection,
                                         String... selectionArgs) {
+        if (selection == null) {
+            return AlarmRepository.getAlarmRepository().getAlarms(cr);
+        }
+
+        return queryAlarms(cr, selection, selectionArgs);
+    }
+
+    /**
+     * Get all alarms given conditions from the provider, bypassing the {@link AlarmRepository}.
+     *
+     * @see #getAlarms(ContentResolver, String, String...)
+     */
+    public static List<Alarm> queryAlarms(ContentResolver cr, String selection,
+                                          String... selectionArgs) {
         final List<Alarm> result = new LinkedList<>();
         try (Cursor cursor = cr.query(CONTENT_URI, QUERY_COLUMNS, selection, selectionArgs, null)) {
             if (cursor != null && cursor.moveToFirst()) {
@@ -525,22 +592,111 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
     }
 
     public Alarm addAlarm(ContentResolver contentResolver) {
-        ContentValues values = createContentValues();
-        Uri uri = contentResolver.insert(CONTENT_URI, values);
-        id = getId(uri);
-        return this;
+        final AlarmRepository repository = AlarmRepository.getAlarmRepository();
+        return repository.write(() -> {
+            ContentValues values = createContentValues();
+            Uri uri = contentResolver.insert(CONTENT_URI, values);
+            id = getId(uri);
+            repository.putAlarms(Collections.singletonList(this));
+            return this;
+        });
     }
 
     public void updateAlarm(ContentResolver contentResolver) {
         if (id == Alarm.INVALID_ID) return;
-        ContentValues values = createContentValues();
-        contentResolver.update(getContentUri(id), values, null, null);
+        final AlarmRepository repository = AlarmRepository.getAlarmRepository();
+        repository.write(() -> {
+            ContentValues values = createContentValues();
+            contentResolver.update(getContentUri(id), values, null, null);
+            repository.putAlarms(Collections.singletonList(this));
+            return null;
+        });
     }
 
+    /**
+     * Deletes the alarm and its instances in a single transaction.
+     */
     public static boolean deleteAlarm(ContentResolver contentResolver, long alarmId) {
         if (alarmId == INVALID_ID) return false;
-        int deletedRows = contentResolver.delete(getContentUri(alarmId), "", null);
-        return deletedRows == 1;
+        final ArrayList<ContentProviderOperation> operations = new ArrayList<>(2);
+        operations.add(newDeleteInstancesOperation(alarmId));
+        operations.add(ContentProviderOperation.newDelete(getContentUri(alarmId)).build());
+
+        final AlarmRepository repository = AlarmRepository.getAlarmRepository();
+        return repository.write(() -> {
+            final ContentProviderResult[] results = ClockProvider.applyBatch(contentResolver, operations);
+            if (results.length != operations.size()) {
+                return false;
+            }
+
+            repository.removeAlarms(alarmId);
+            return results[1].count != null && results[1].count == 1;
+        });
+    }
+
+    /**
+     * The foreign key of the instances is not enforced, so the instances of an alarm are deleted
+     * along with it.
+     */
+    private static ContentProviderOperation newDeleteInstancesOperation(long alarmId) {
+        return ContentProviderOperation.newDelete(ClockContract.InstancesColumns.CONTENT_URI)
+                .withSelection(ClockContract.InstancesColumns.ALARM_ID + " = ?",
+                        new String[]{String.valueOf(alarmId)})
+                .build();
+    }
+
+    /**
+     * Adds the alarms in a single transaction and sets their ids.
+     *
+     * @return {@code true} if all alarms were added, {@code false} if none was.
+     */
+    public static boolean addAlarms(ContentResolver contentResolver, List<Alarm> alarms) {
+        final ArrayList<ContentProviderOperation> operations = new ArrayList<>(alarms.size());
+        for (Alarm alarm : alarms) {
+            operations.add(ContentProviderOperation.newInsert(CONTENT_URI)
+                    .withValues(alarm.createContentValues())
+                    .build());
+        }
+
+        final AlarmRepository repository = AlarmRepository.getAlarmRepository();
+        return repository.write(() -> {
+            final ContentProviderResult[] results = ClockProvider.applyBatch(contentResolver, operations);
+            if (results.length != alarms.size()) {
+                return false;
+            }
+
+            for (int i = 0; i < results.length; i++) {
+                alarms.get(i).id = getId(results[i].uri);
+            }
+            repository.putAlarms(alarms);
+            return true;
+        });
+    }
+
+    /**
+     * Deletes the alarms, and their instances, in a single transaction.
+     */
+    public static void deleteAlarms(ContentResolver contentResolver, List<Alarm> alarms) {
+        final ArrayList<ContentProviderOperation> operations = new ArrayList<>(2 * alarms.size());
+        final long[] alarmIds = new long[alarms.size()];
+        int alarmCount = 0;
+        for (Alarm alarm : alarms) {
+            if (alarm.id != INVALID_ID) {
+                alarmIds[alarmCount++] = alarm.id;
+                operations.add(newDeleteInstancesOperation(alarm.id));
+                operations.add(ContentProviderOperation.newDelete(getContentUri(alarm.id)).build());
+            }
+        }
+
+        final long[] deletedAlarmIds = Arrays.copyOf(alarmIds, alarmCount);
+        final AlarmRepository repository = AlarmRepository.getAlarmRepository();
+        repository.write(() -> {
+            final ContentProviderResult[] results = ClockProvider.applyBatch(contentResolver, operations);
+            if (results.length == operations.size()) {
+                repository.removeAlarms(deletedAlarmIds);
+            }
+            return null;
+        });
     }
 
     public String getLabelOrDefault(Context context) {
@@ -657,7 +813,10 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
     }
 
     public AlarmInstance createInstanceAfter(Calendar time) {
-        Calendar nextInstanceTime = getNextAlarmTime(time);
+        return createInstanceAt(getNextAlarmTime(time));
+    }
+
+    private AlarmInstance createInstanceAt(Calendar nextInstanceTime) {
         AlarmInstance result = new AlarmInstance(nextInstanceTime, id);
         result.mVibrate = vibrate;
         result.mVibrationPattern = vibrationPattern;
@@ -677,27 +836,26 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
         return result;
     }
 
+    /**
+     * @return the date of this alarm as the number of days since 1970-01-01.
+     */
+    public long getDateEpochDay() {
+        return HolidayCalendarIndex.toEpochDay(year, month + 1, day);
+    }
+
     /**
      * @param currentTime the current time
      * @return previous firing time, or null if this is a one-time alarm.
      */
     public Calendar getPreviousAlarmTime(Calendar currentTime) {
-        final Calendar previousInstanceTime = Calendar.getInstance(currentTime.getTimeZone());
-        previousInstanceTime.set(Calendar.YEAR, year);
-        previousInstanceTime.set(Calendar.MONTH, month);
-        previousInstanceTime.set(Calendar.DAY_OF_MONTH, day);
-        previousInstanceTime.set(Calendar.HOUR_OF_DAY, hour);
-        previousInstanceTime.set(Calendar.MINUTE, minutes);
-        previousInstanceTime.set(Calendar.SECOND, 0);
-        previousInstanceTime.set(Calendar.MILLISECOND, 0);
-
-        final int subtractDays = daysOfWeek.getDistanceToPreviousDay(previousInstanceTime);
-        if (subtractDays > 0) {
-            previousInstanceTime.add(Calendar.DAY_OF_WEEK, -subtractDays);
-            return previousInstanceTime;
-        } else {
+        final AlarmScheduleCalculator calculator =
+                AlarmScheduleCalculator.forCalendar(currentTime, HolidayCalendarIndex.EMPTY);
+        final long previousAlarmTime = calculator.getPreviousAlarmTime(hour, minutes, daysOfWeek, getDateEpochDay());
+        if (previousAlarmTime == AlarmScheduleCalculator.NO_ALARM_TIME) {
             return null;
         }
+
+        return AlarmScheduleCalculator.toCalendar(currentTime, previousAlarmTime);
     }
 
     /**
@@ -706,7 +864,8 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
      *  <p>This method determines when the alarm should trigger again based on its
      *  configuration. It handles both repeating alarms (with specific days of the week)
      *  and one-time alarms (with a fixed date). Daylight Savings Time (DST) adjustments
-     *  are also taken into account by resetting the hour and minute after shifting days.
+     *  are also taken into account by resolving the local date and time only once the
+     *  day has been chosen.
      *
      * @return a {@link Calendar} instance representing the next valid alarm time.
      *         <p>- For repeating alarms: the next valid day of the week at the configured hour/minute.</p>
@@ -714,44 +873,31 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
      *           specified time has already passed relative to {@code currentTime}.</p>
      */
     public Calendar getNextAlarmTime(Calendar currentTime) {
-        final Calendar nextInstanceTime = Calendar.getInstance(currentTime.getTimeZone());
-        nextInstanceTime.set(Calendar.SECOND, 0);
-        nextInstanceTime.set(Calendar.MILLISECOND, 0);
-
-        if (daysOfWeek.isRepeating()) {
-            nextInstanceTime.setTimeInMillis(currentTime.getTimeInMillis());
-            nextInstanceTime.set(Calendar.HOUR_OF_DAY, hour);
-            nextInstanceTime.set(Calendar.MINUTE, minutes);
-
-            // If we are still behind the passed in currentTime, then add a day
-            if (nextInstanceTime.getTimeInMillis() <= currentTime.getTimeInMillis()) {
-                nextInstanceTime.add(Calendar.DAY_OF_YEAR, 1);
-            }
-
-            // The day of the week might be invalid, so find next valid one
-            final int addDays = daysOfWeek.getDistanceToNextDay(nextInstanceTime);
-            if (addDays > 0) {
-                nextInstanceTime.add(Calendar.DAY_OF_WEEK, addDays);
-            }
+        final AlarmScheduleCalculator calculator =
+                AlarmScheduleCalculator.forCalendar(currentTime, HolidayCalendarIndex.EMPTY);
+        return AlarmScheduleCalculator.toCalendar(currentTime,
+                getNextAlarmTime(calculator, currentTime.getTimeInMillis()));
+    }
 
-            // Daylight Savings Time can alter the hours and minutes when adjusting the day above.
-            // Reset the desired hour and minute now that the correct day has been chosen.
-            nextInstanceTime.set(Calendar.HOUR_OF_DAY, hour);
-            nextInstanceTime.set(Calendar.MINUTE, minutes);
-        } else {
-            nextInstanceTime.set(Calendar.YEAR, year);
-            nextInstanceTime.set(Calendar.MONTH, month);
-            nextInstanceTime.set(Calendar.DAY_OF_MONTH, day);
-            nextInstanceTime.set(Calendar.HOUR_OF_DAY, hour);
-            nextInstanceTime.set(Calendar.MINUTE, minutes);
-
-            // If we are still behind the passed in currentTime, then add a day
-            if (nextInstanceTime.getTimeInMillis() <= currentTime.getTimeInMillis()) {
-                nextInstanceTime.add(Calendar.DAY_OF_YEAR, 1);
-            }
-        }
+    /**
+     * Allocation-free variant of {@link #getNextAlarmTime(Calendar)}, to be used when many alarms
+     * are scheduled or sorted with the same {@code calculator}.
+     *
+     * @return the next alarm time in milliseconds since the epoch.
+     */
+    public long getNextAlarmTime(AlarmScheduleCalculator calculator, long nowMillis) {
+        return calculator.getNextAlarmTime(nowMillis, hour, minutes, daysOfWeek, getDateEpochDay());
+    }
 
-        return nextInstanceTime;
+    /**
+     * Same as {@link #getNextAlarmTime(AlarmScheduleCalculator, long)}, but skips the days on which
+     * the holiday option of this alarm prevents it from ringing.
+     *
+     * @return the next valid alarm time in milliseconds since the epoch.
+     */
+    public long getNextWorkdayAlarmTime(AlarmScheduleCalculator calculator, long nowMillis) {
+        return calculator.getNextWorkdayAlarmTime(nowMillis, hour, minutes, daysOfWeek, getDateEpochDay(),
+                holidayOption, workPattern);
     }
 
     /**
@@ -782,9 +928,8 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
      * Returns the next alarm time for sorting purposes.
      */
     public Calendar getSortableNextAlarmTime(AlarmInstance instance, Calendar now) {
-        Calendar result = Calendar.getInstance(now.getTimeZone());
-        result.set(Calendar.SECOND, 0);
-        result.set(Calendar.MILLISECOND, 0);
+        final AlarmScheduleCalculator calculator =
+                AlarmScheduleCalculator.forCalendar(now, HolidayCalendarIndex.EMPTY);
 
         if (daysOfWeek.isRepeating()) {
             // If a future instance exists (e.g. after Dismiss), use it.
@@ -792,48 +937,32 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
             if (instance != null && instance.getAlarmTime().getTimeInMillis() > now.getTimeInMillis()) {
                 return instance.getAlarmTime();
             }
+        }
 
-            return getNextAlarmTime(now);
-        } else {
-            if (isSpecifiedDate()) {
-                if (isDateInThePast()) {
-                    // Expired specific date → anchor to today at the alarm's time
-                    result.set(Calendar.YEAR, now.get(Calendar.YEAR));
-                    result.set(Calendar.MONTH, now.get(Calendar.MONTH));
-                    result.set(Calendar.DAY_OF_MONTH, now.get(Calendar.DAY_OF_MONTH));
-                    result.set(Calendar.HOUR_OF_DAY, hour);
-                    result.set(Calendar.MINUTE, minutes);
-
-                    // If the time has already passed today, shift to tomorrow
-                    if (result.getTimeInMillis() < now.getTimeInMillis()) {
-                        result.add(Calendar.DAY_OF_YEAR, 1);
-                    }
-                } else {
-                    // Future or today’s specified date → respect the defined date/time
-                    result.set(Calendar.YEAR, year);
-                    result.set(Calendar.MONTH, month);
-                    result.set(Calendar.DAY_OF_MONTH, day);
-                    result.set(Calendar.HOUR_OF_DAY, hour);
-                    result.set(Calendar.MINUTE, minutes);
-                }
+        return AlarmScheduleCalculator.toCalendar(now,
+                getSortableNextAlarmTime(calculator, now.getTimeInMillis()));
+    }
 
-                return result;
-            }
+    /**
+     * Returns the next alarm time for sorting purposes, ignoring any existing instance.
+     *
+     * @return the next alarm time in milliseconds since the epoch.
+     */
+    public long getSortableNextAlarmTime(AlarmScheduleCalculator calculator, long nowMillis) {
+        if (daysOfWeek.isRepeating()) {
+            return getNextAlarmTime(calculator, nowMillis);
         }
 
-        // Alarms with no date and no repetition → today at the alarm time,
-        // and if the time has passed, shift to tomorrow
-        result.set(Calendar.YEAR, now.get(Calendar.YEAR));
-        result.set(Calendar.MONTH, now.get(Calendar.MONTH));
-        result.set(Calendar.DAY_OF_MONTH, now.get(Calendar.DAY_OF_MONTH));
-        result.set(Calendar.HOUR_OF_DAY, hour);
-        result.set(Calendar.MINUTE, minutes);
-
-        if (result.getTimeInMillis() < now.getTimeInMillis()) {
-            result.add(Calendar.DAY_OF_YEAR, 1);
+        // Future or today’s specified date → respect the defined date/time
+        if (isSpecifiedDate() && !isDateInThePast()) {
+            return calculator.toMillis(getDateEpochDay(), hour, minutes);
         }
 
-        return result;
+        // Expired specific date or alarms with no date and no repetition → today at the alarm time,
+        // and if the time has passed, shift to tomorrow
+        final long today = calculator.toEpochDay(nowMillis);
+        final long result = calculator.toMillis(today, hour, minutes);
+        return result < nowMillis ? calculator.toMillis(today + 1, hour, minutes) : result;
     }
 
     @Override
@@ -873,8 +1002,19 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
                 '}';
     }
 
-    public com.best.deskclock.provider.AlarmInstance createInstanceAfter(android.content.Context context, java.util.Calendar time) {
-        return createInstanceAfter(time);
+    /**
+     * Same as {@link #createInstanceAfter(Calendar)}, but the instance is created on the next day
+     * allowed by the holiday option of this alarm.
+     */
+    public AlarmInstance createInstanceAfter(Context context, Calendar time) {
+        if (holidayOption == HolidayUtils.HOLIDAY_OPTION_NONE) {
+            return createInstanceAfter(time);
+        }
+
+        final AlarmScheduleCalculator calculator = AlarmScheduleCalculator.forCalendar(time,
+                HolidayUtils.getCalendarIndex(context, holidayOption));
+        return createInstanceAt(AlarmScheduleCalculator.toCalendar(time,
+                getNextWorkdayAlarmTime(calculator, time.getTimeInMillis())));
     }
     public static boolean isTomorrow(Alarm alarm, java.util.Calendar now) {
         return alarm.isTomorrow(now);
@@ -909,4 +1049,37 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
         this.alarmVolume = 11; // Default
         this.vibrationPattern = "default";
     }
+
+    /**
+     * Loads all alarms joined with their instances. The provider notifies the row of each changed
+     * alarm, which its owner re-queries with {@link #queryAlarmWithInstance}, so content changes
+     * don't reload every alarm; the owner calls {@link #reload()} when the list itself changes.
+     */
+    public static final class AlarmsCursorLoader extends CursorLoader {
+
+        private AlarmsCursorLoader(Context context, String sortOrder) {
+            super(context, ALARMS_WITH_INSTANCES_URI, QUERY_ALARMS_WITH_INSTANCES_COLUMNS,
+                    null, null, sortOrder);
+        }
+
+        @Override
+        public Cursor loadInBackground() {
+            // Prime the ringtone title cache for later access. Most alarms will refer to
+            // system ringtones.
+            DataModel.getDataModel().loadRingtoneTitles();
+
+            return super.loadInBackground();
+        }
+
+        @Override
+        public void onContentChanged() {
+        }
+
+        /**
+         * Reloads all alarms now if the loader is started, or else once it is started again.
+         */
+        public void reload() {
+            super.onContentChanged();
+        }
+    }
 }
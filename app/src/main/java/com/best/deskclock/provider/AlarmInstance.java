@@ -16,6 +16,8 @@ import static com.best.deskclock.settings.PreferencesDefaultValues.DEFAULT_VOLUM
 import static com.best.deskclock.settings.PreferencesDefaultValues.TIMEOUT_END_OF_RINGTONE;
 import static com.best.deskclock.settings.PreferencesDefaultValues.TIMEOUT_NEVER;
 
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
@@ -29,11 +31,14 @@ import androidx.annotation.NonNull;
 
 import com.best.deskclock.R;
 import com.best.deskclock.alarms.AlarmStateManager;
+import com.best.deskclock.data.AlarmRepository;
 import com.best.deskclock.data.SettingsDAO;
 import com.best.deskclock.utils.LogUtils;
 import com.best.deskclock.utils.RingtoneUtils;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -250,6 +255,7 @@ public final class AlarmInstance implements ClockContract.InstancesColumns {
         values.put(CRESCENDO_DURATION, mCrescendoDuration);
         values.put(ALARM_VOLUME, mAlarmVolume);
         values.put(HOLIDAY_OPTION, mHolidayOption);
+        values.put(FIRE_TIME_MILLIS, getAlarmTime().getTimeInMillis());
 
         return values;
     }
@@ -277,13 +283,7 @@ public final class AlarmInstance implements ClockContract.InstancesColumns {
      * @return instance if found, null otherwise
      */
     public static AlarmInstance getInstance(ContentResolver cr, long instanceId) {
-        try (Cursor cursor = cr.query(getContentUri(instanceId), QUERY_COLUMNS, null, null, null)) {
-            if (cursor != null && cursor.moveToFirst()) {
-                return new AlarmInstance(cursor, false);
-            }
-        }
-
-        return null;
+        return AlarmRepository.getAlarmRepository().getInstance(cr, instanceId);
     }
 
     /**
@@ -295,7 +295,7 @@ public final class AlarmInstance implements ClockContract.InstancesColumns {
      */
     public static List<AlarmInstance> getInstancesByAlarmId(ContentResolver contentResolver,
                                                             long alarmId) {
-        return getInstances(contentResolver, ALARM_ID + "=" + alarmId);
+        return AlarmRepository.getAlarmRepository().getInstancesByAlarmId(contentResolver, alarmId);
     }
 
     /**
@@ -307,17 +307,31 @@ public final class AlarmInstance implements ClockContract.InstancesColumns {
      */
     public static AlarmInstance getNextUpcomingInstanceByAlarmId(ContentResolver contentResolver,
                                                                  long alarmId) {
-        final List<AlarmInstance> alarmInstances = getInstancesByAlarmId(contentResolver, alarmId);
-        if (alarmInstances.isEmpty()) {
-            return null;
-        }
-        AlarmInstance nextAlarmInstance = alarmInstances.get(0);
-        for (AlarmInstance instance : alarmInstances) {
-            if (instance.getAlarmTime().before(nextAlarmInstance.getAlarmTime())) {
-                nextAlarmInstance = instance;
+        return AlarmRepository.getAlarmRepository().getNextInstanceByAlarmId(contentResolver, alarmId);
+    }
+
+    /**
+     * Get the instance matching the given selection that fires first. The instances are sorted by
+     * the database using the fire time index and only the first one is read.
+     *
+     * @param cr            provides access to the content model
+     * @param selection     A filter declaring which rows to return, formatted as an
+     *                      SQL WHERE clause (excluding the WHERE itself).
+     * @param selectionArgs the values replacing the ?s of the selection.
+     * @return the earliest instance matching the selection or null if none found.
+     */
+    public static AlarmInstance getFirstInstance(ContentResolver cr, String selection,
+                                                 String... selectionArgs) {
+        final Uri uri = CONTENT_URI.buildUpon()
+                .appendQueryParameter(ClockContract.LIMIT_PARAM_KEY, "1")
+                .build();
+        try (Cursor cursor = cr.query(uri, QUERY_COLUMNS, selection, selectionArgs, FIRE_TIME_MILLIS)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                return new AlarmInstance(cursor, false);
             }
         }
-        return nextAlarmInstance;
+
+        return null;
     }
 
     /**
@@ -325,7 +339,7 @@ public final class AlarmInstance implements ClockContract.InstancesColumns {
      */
     public static List<AlarmInstance> getInstancesByState(
             ContentResolver contentResolver, int state) {
-        return getInstances(contentResolver, ALARM_STATE + "=" + state);
+        return AlarmRepository.getAlarmRepository().getInstancesByState(contentResolver, state);
     }
 
     /**
@@ -342,6 +356,21 @@ public final class AlarmInstance implements ClockContract.InstancesColumns {
      */
     public static List<AlarmInstance> getInstances(ContentResolver cr, String selection,
                                                    String... selectionArgs) {
+        if (selection == null) {
+            return AlarmRepository.getAlarmRepository().getInstances(cr);
+        }
+
+        return queryInstances(cr, selection, selectionArgs);
+    }
+
+    /**
+     * Get a list of instances given selection from the provider, bypassing the
+     * {@link AlarmRepository}.
+     *
+     * @see #getInstances(ContentResolver, String, String...)
+     */
+    public static List<AlarmInstance> queryInstances(ContentResolver cr, String selection,
+                                                     String... selectionArgs) {
         final List<AlarmInstance> result = new LinkedList<>();
         try (Cursor cursor = cr.query(CONTENT_URI, QUERY_COLUMNS, selection, selectionArgs, null)) {
             if (cursor != null && cursor.moveToFirst()) {
@@ -355,45 +384,157 @@ public final class AlarmInstance implements ClockContract.InstancesColumns {
     }
 
     public void addInstance(ContentResolver contentResolver) {
-        // Make sure we are not adding a duplicate instances. This is not a
-        // fix and should never happen. This is only a safe guard against bad code, and you
-        // should fix the root issue if you see the error message.
-        String dupSelector = AlarmInstance.ALARM_ID + " = " + mAlarmId;
-        for (AlarmInstance otherInstances : getInstances(contentResolver, dupSelector)) {
-            if (otherInstances.getAlarmTime().equals(getAlarmTime())) {
-                LogUtils.i("Detected duplicate instance in DB. Updating " + otherInstances + " to " + this);
-                // Copy over the new instance values and update the db
-                mId = otherInstances.mId;
-                updateInstance(contentResolver);
-                return;
+        final AlarmRepository repository = AlarmRepository.getAlarmRepository();
+        repository.write(() -> {
+            // Make sure we are not adding a duplicate instances. This is not a
+            // fix and should never happen. This is only a safe guard against bad code, and you
+            // should fix the root issue if you see the error message.
+            final List<AlarmInstance> alarmInstances = mAlarmId == null
+                    ? Collections.emptyList()
+                    : getInstancesByAlarmId(contentResolver, mAlarmId);
+            for (AlarmInstance otherInstances : alarmInstances) {
+                if (otherInstances.getAlarmTime().equals(getAlarmTime())) {
+                    LogUtils.i("Detected duplicate instance in DB. Updating " + otherInstances + " to " + this);
+                    // Copy over the new instance values and update the db
+                    mId = otherInstances.mId;
+                    updateInstance(contentResolver);
+                    return null;
+                }
             }
-        }
 
-        ContentValues values = createContentValues();
-        Uri uri = contentResolver.insert(CONTENT_URI, values);
-        mId = getId(uri);
+            ContentValues values = createContentValues();
+            Uri uri = contentResolver.insert(CONTENT_URI, values);
+            mId = getId(uri);
+            repository.putInstance(this);
+            return null;
+        });
     }
 
     public void updateInstance(ContentResolver contentResolver) {
         if (mId == INVALID_ID) return;
-        ContentValues values = createContentValues();
-        contentResolver.update(getContentUri(mId), values, null, null);
+        final AlarmRepository repository = AlarmRepository.getAlarmRepository();
+        repository.write(() -> {
+            ContentValues values = createContentValues();
+            contentResolver.update(getContentUri(mId), values, null, null);
+            repository.putInstance(this);
+            return null;
+        });
+    }
+
+    /**
+     * Writes the state of the instance only, for state transitions that don't change any other
+     * field.
+     */
+    public void updateInstanceState(ContentResolver contentResolver) {
+        if (mId == INVALID_ID) return;
+        final AlarmRepository repository = AlarmRepository.getAlarmRepository();
+        repository.write(() -> {
+            ClockProvider.updateInstanceState(contentResolver, mId,
+                    mAlarmId == null ? Alarm.INVALID_ID : mAlarmId, mAlarmState);
+            repository.setInstanceState(mId, mAlarmState);
+            return null;
+        });
     }
 
     public static void deleteInstance(ContentResolver contentResolver, long instanceId) {
         if (instanceId == INVALID_ID) return;
-        contentResolver.delete(getContentUri(instanceId), "", null);
+        final AlarmRepository repository = AlarmRepository.getAlarmRepository();
+        repository.write(() -> {
+            contentResolver.delete(getContentUri(instanceId), "", null);
+            repository.removeInstance(instanceId);
+            return null;
+        });
     }
 
-    public static void deleteOtherInstances(Context context, ContentResolver contentResolver,
-                                            long alarmId, long instanceId) {
-        final List<AlarmInstance> instances = getInstancesByAlarmId(contentResolver, alarmId);
+    /**
+     * Adds instances of newly created alarms in a single transaction and sets their ids. Unlike
+     * {@link #addInstance(ContentResolver)}, existing instances are not checked for duplicates.
+     *
+     * @return {@code true} if all instances were added, {@code false} if none was.
+     */
+    public static boolean addInstances(ContentResolver contentResolver, List<AlarmInstance> instances) {
+        final ArrayList<ContentProviderOperation> operations = new ArrayList<>(instances.size());
+        for (AlarmInstance instance : instances) {
+            operations.add(ContentProviderOperation.newInsert(CONTENT_URI)
+                    .withValues(instance.createContentValues())
+                    .build());
+        }
+
+        final AlarmRepository repository = AlarmRepository.getAlarmRepository();
+        return repository.write(() -> {
+            final ContentProviderResult[] results = ClockProvider.applyBatch(contentResolver, operations);
+            if (results.length != instances.size()) {
+                return false;
+            }
+
+            for (int i = 0; i < results.length; i++) {
+                instances.get(i).mId = getId(results[i].uri);
+            }
+            repository.updateInstances(instances, Collections.emptyList());
+            return true;
+        });
+    }
+
+    /**
+     * Deletes the instances in a single transaction.
+     */
+    public static void deleteInstances(ContentResolver contentResolver, List<AlarmInstance> instances) {
+        final ArrayList<ContentProviderOperation> operations = new ArrayList<>(instances.size());
         for (AlarmInstance instance : instances) {
-            if (instance.mId != instanceId) {
-                AlarmStateManager.unregisterInstance(context, instance);
-                deleteInstance(contentResolver, instance.mId);
+            if (instance.mId != INVALID_ID) {
+                operations.add(ContentProviderOperation.newDelete(getContentUri(instance.mId)).build());
             }
         }
+
+        final AlarmRepository repository = AlarmRepository.getAlarmRepository();
+        repository.write(() -> {
+            final ContentProviderResult[] results = ClockProvider.applyBatch(contentResolver, operations);
+            if (results.length == operations.size()) {
+                repository.updateInstances(Collections.emptyList(), instances);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Writes the state and the fire time of the instances to update, and deletes the instances to
+     * delete, in a single transaction. The fire time is written again as it changes with the time
+     * zone while the local date and time of the instances don't.
+     */
+    public static void updateAndDeleteInstances(ContentResolver contentResolver,
+                                                List<AlarmInstance> updatedInstances,
+                                                List<AlarmInstance> deletedInstances) {
+        final ArrayList<ContentProviderOperation> operations =
+                new ArrayList<>(updatedInstances.size() + deletedInstances.size());
+        for (AlarmInstance instance : updatedInstances) {
+            if (instance.mId != INVALID_ID) {
+                operations.add(ContentProviderOperation.newUpdate(getContentUri(instance.mId))
+                        .withValue(ALARM_STATE, instance.mAlarmState)
+                        .withValue(FIRE_TIME_MILLIS, instance.getAlarmTime().getTimeInMillis())
+                        .build());
+            }
+        }
+        for (AlarmInstance instance : deletedInstances) {
+            if (instance.mId != INVALID_ID) {
+                operations.add(ContentProviderOperation.newDelete(getContentUri(instance.mId)).build());
+            }
+        }
+
+        final AlarmRepository repository = AlarmRepository.getAlarmRepository();
+        repository.write(() -> {
+            final ContentProviderResult[] results = ClockProvider.applyBatch(contentResolver, operations);
+            if (results.length == operations.size()) {
+                repository.updateInstances(updatedInstances, deletedInstances);
+            }
+            return null;
+        });
+    }
+
+    public static void deleteOtherInstances(Context context, ContentResolver contentResolver,
+                                            long alarmId, long instanceId) {
+        final List<AlarmInstance> instances = getInstancesByAlarmId(contentResolver, alarmId);
+        instances.removeIf(instance -> instance.mId == instanceId);
+        AlarmStateManager.unregisterAndDeleteInstances(context, instances);
     }
 
     public String getLabelOrDefault(Context context) {
@@ -36,6 +36,11 @@ public final class ClockContract {
      */
     public static final String AUTHORITY = BuildConfig.APPLICATION_ID;
 
+    /**
+     * Query parameter limiting the number of rows returned by a query, e.g. {@code ?limit=1}.
+     */
+    public static final String LIMIT_PARAM_KEY = "limit";
+
     /**
      * This utility class cannot be instantiated
      */
@@ -67,6 +72,27 @@ public final class ClockContract {
          */
         String HOLIDAY_OPTION = "holidayOption";
 
+        /**
+         * Workdays of the alarm work pattern cycle, bit {@code i} being the {@code i}-th day.
+         *
+         * <p>Type: INTEGER</p>
+         */
+        String WORK_PATTERN_MASK = "workPatternMask";
+
+        /**
+         * Number of days of the alarm work pattern cycle, or 0 if the alarm has no work pattern.
+         *
+         * <p>Type: INTEGER</p>
+         */
+        String WORK_PATTERN_LENGTH = "workPatternLength";
+
+        /**
+         * First day of a work pattern cycle, as the number of days since 1970-01-01.
+         *
+         * <p>Type: INTEGER</p>
+         */
+        String WORK_PATTERN_ANCHOR = "workPatternAnchor";
+
         /**
          * True if flash should turn on
          * <p>Type: BOOLEAN</p>
@@ -304,5 +330,12 @@ public final class ClockContract {
          * <p>Type: INTEGER</p>
          */
         String MISSED_ALARM_REPEAT_COUNT = "missed_alarm_repeat_count";
+
+        /**
+         * Alarm time in milliseconds since the epoch, derived from the local date and time
+         * columns when the instance is written. Used to sort and index instances.
+         * <p>Type: INTEGER (long)</p>
+         */
+        String FIRE_TIME_MILLIS = "fire_time_millis";
     }
 }
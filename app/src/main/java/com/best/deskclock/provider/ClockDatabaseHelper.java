@@ -11,8 +11,13 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
+import com.best.deskclock.data.WorkPattern;
+import com.best.deskclock.holiday.HolidayCalendarIndex;
+import com.best.deskclock.holiday.HolidayUtils;
 import com.best.deskclock.utils.LogUtils;
 
 import java.util.Calendar;
@@ -27,13 +32,29 @@ class ClockDatabaseHelper extends SQLiteOpenHelper {
     static final String ALARMS_TABLE_NAME = "alarm_templates";
     static final String INSTANCES_TABLE_NAME = "alarm_instances";
 
-    private static final int DATABASE_VERSION = 23;
+    private static final int DATABASE_VERSION = 25;
     private static final int MINIMUM_SUPPORTED_VERSION = 15;
 
     private final Context mContext;
+
+    /**
+     * Compiled UPDATE of the state of an instance, reused by every state transition.
+     * Guarded by {@code this}.
+     */
+    private SQLiteStatement mUpdateInstanceStateStatement;
+
+    /**
+     * Compiled lookup of the alarm of an instance, used to notify the joined row of the alarm.
+     * Guarded by {@code this}.
+     */
+    private SQLiteStatement mInstanceAlarmIdStatement;
+
     public ClockDatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
         mContext = context;
+        // Readers (the alarm list, widgets) no longer wait for the alarm writes, and a write is a
+        // single append to the log instead of a rollback journal plus the database file.
+        setWriteAheadLoggingEnabled(true);
     }
 
     private static void createAlarmsTable(SQLiteDatabase db, String alarmsTableName) {
@@ -49,6 +70,9 @@ class ClockDatabaseHelper extends SQLiteOpenHelper {
                 ClockContract.AlarmsColumns.VIBRATE + " INTEGER NOT NULL, " +
                 ClockContract.AlarmsColumns.VIBRATION_PATTERN + " TEXT DEFAULT 'default', " +
                 ClockContract.AlarmsColumns.HOLIDAY_OPTION + " INTEGER NOT NULL DEFAULT 0, " +
+                ClockContract.AlarmsColumns.WORK_PATTERN_MASK + " INTEGER NOT NULL DEFAULT 0, " +
+                ClockContract.AlarmsColumns.WORK_PATTERN_LENGTH + " INTEGER NOT NULL DEFAULT 0, " +
+                ClockContract.AlarmsColumns.WORK_PATTERN_ANCHOR + " INTEGER NOT NULL DEFAULT 0, " +
                 ClockContract.AlarmsColumns.FLASH + " INTEGER NOT NULL, " +
                 ClockContract.AlarmsColumns.LABEL + " TEXT NOT NULL, " +
                 ClockContract.AlarmsColumns.RINGTONE + " TEXT, " +
@@ -83,6 +107,7 @@ class ClockDatabaseHelper extends SQLiteOpenHelper {
                 ClockContract.InstancesColumns.ALARM_VOLUME + " INTEGER NOT NULL, " +
                 ClockContract.InstancesColumns.MISSED_ALARM_REPEAT_LIMIT + " INTEGER NOT NULL DEFAULT 0, " +
                 ClockContract.InstancesColumns.MISSED_ALARM_REPEAT_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+                ClockContract.InstancesColumns.FIRE_TIME_MILLIS + " INTEGER NOT NULL DEFAULT 0, " +
                 ClockContract.InstancesColumns.ALARM_ID + " INTEGER REFERENCES " +
                 ALARMS_TABLE_NAME + "(" + ClockContract.AlarmsColumns._ID + ") " +
                 "ON UPDATE CASCADE ON DELETE CASCADE);");
@@ -90,10 +115,36 @@ class ClockDatabaseHelper extends SQLiteOpenHelper {
         LogUtils.i("Instance table created");
     }
 
+    /**
+     * Creates the indexes used to find the instances of an alarm and the next firing instance
+     * without scanning and sorting the whole table.
+     */
+    private static void createInstanceIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INSTANCES_TABLE_NAME + "_alarm_id_state_fire_time ON " +
+                INSTANCES_TABLE_NAME + " (" +
+                ClockContract.InstancesColumns.ALARM_ID + ", " +
+                ClockContract.InstancesColumns.ALARM_STATE + ", " +
+                ClockContract.InstancesColumns.FIRE_TIME_MILLIS + ");");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INSTANCES_TABLE_NAME + "_state_fire_time ON " +
+                INSTANCES_TABLE_NAME + " (" +
+                ClockContract.InstancesColumns.ALARM_STATE + ", " +
+                ClockContract.InstancesColumns.FIRE_TIME_MILLIS + ");");
+
+        LogUtils.i("Instance indexes created");
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        // In WAL mode, NORMAL only syncs the log at checkpoints: a commit can be lost on power
+        // failure but the database can't be corrupted. Alarms are registered again at boot.
+        db.execSQL("PRAGMA synchronous = NORMAL;");
+    }
+
     @Override
     public void onCreate(SQLiteDatabase db) {
         createAlarmsTable(db, ALARMS_TABLE_NAME);
         createInstanceTable(db, INSTANCES_TABLE_NAME);
+        createInstanceIndexes(db);
     }
 
     @Override
@@ -225,6 +276,129 @@ class ClockDatabaseHelper extends SQLiteOpenHelper {
             LogUtils.i("Added missed_alarm_repeat_limit and missed_alarm_repeat_count columns for version 23 upgrade.");
         }
 
+        // Add the work pattern columns that replace the week number parity of big/small weeks
+        if (oldVersion < 24) {
+            db.execSQL("ALTER TABLE " + ALARMS_TABLE_NAME + " ADD COLUMN " +
+                    ClockContract.AlarmsColumns.WORK_PATTERN_MASK + " INTEGER NOT NULL DEFAULT 0;");
+            db.execSQL("ALTER TABLE " + ALARMS_TABLE_NAME + " ADD COLUMN " +
+                    ClockContract.AlarmsColumns.WORK_PATTERN_LENGTH + " INTEGER NOT NULL DEFAULT 0;");
+            db.execSQL("ALTER TABLE " + ALARMS_TABLE_NAME + " ADD COLUMN " +
+                    ClockContract.AlarmsColumns.WORK_PATTERN_ANCHOR + " INTEGER NOT NULL DEFAULT 0;");
+
+            // Big weeks used to have their Saturday worked in even weeks of the year, and small
+            // weeks in odd weeks; anchor both on the current week so that nothing changes for now.
+            final Calendar saturday = Calendar.getInstance();
+            final long today = HolidayCalendarIndex.toEpochDay(saturday);
+            // 1970-01-01 was a Thursday; 0 is Monday and 5 is Saturday.
+            saturday.add(Calendar.DAY_OF_YEAR, 5 - (int) Math.floorMod(today + 3, 7L));
+            final boolean isEvenWeek = saturday.get(Calendar.WEEK_OF_YEAR) % 2 == 0;
+            updateWorkPattern(db, HolidayUtils.HOLIDAY_OPTION_BIG_SMALL_DA,
+                    WorkPattern.bigSmallWeek(today, isEvenWeek));
+            updateWorkPattern(db, HolidayUtils.HOLIDAY_OPTION_BIG_SMALL_XIAO,
+                    WorkPattern.bigSmallWeek(today, !isEvenWeek));
+
+            LogUtils.i("Added work pattern columns for version 24 upgrade.");
+        }
+
+        // Add the fire time column and the instance indexes
+        if (oldVersion < 25) {
+            db.execSQL("ALTER TABLE " + INSTANCES_TABLE_NAME + " ADD COLUMN " +
+                    ClockContract.InstancesColumns.FIRE_TIME_MILLIS + " INTEGER NOT NULL DEFAULT 0;");
+            updateFireTimes(db);
+            createInstanceIndexes(db);
+
+            LogUtils.i("Added fire_time_millis column and instance indexes for version 25 upgrade.");
+        }
+    }
+
+    /**
+     * Computes the fire time of the existing instances from their local date and time.
+     */
+    private static void updateFireTimes(SQLiteDatabase db) {
+        final String[] columns = {
+                ClockContract.InstancesColumns._ID,
+                ClockContract.InstancesColumns.YEAR,
+                ClockContract.InstancesColumns.MONTH,
+                ClockContract.InstancesColumns.DAY,
+                ClockContract.InstancesColumns.HOUR,
+                ClockContract.InstancesColumns.MINUTES
+        };
+
+        final Calendar calendar = Calendar.getInstance();
+        final ContentValues values = new ContentValues(1);
+        try (Cursor cursor = db.query(INSTANCES_TABLE_NAME, columns, null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                calendar.clear();
+                calendar.set(cursor.getInt(1), cursor.getInt(2), cursor.getInt(3),
+                        cursor.getInt(4), cursor.getInt(5), 0);
+                values.put(ClockContract.InstancesColumns.FIRE_TIME_MILLIS, calendar.getTimeInMillis());
+                db.update(INSTANCES_TABLE_NAME, values, ClockContract.InstancesColumns._ID + "=?",
+                        new String[]{String.valueOf(cursor.getLong(0))});
+            }
+        }
+    }
+
+    private static void updateWorkPattern(SQLiteDatabase db, int holidayOption, WorkPattern pattern) {
+        final ContentValues values = new ContentValues(3);
+        values.put(ClockContract.AlarmsColumns.WORK_PATTERN_MASK, pattern.getMask());
+        values.put(ClockContract.AlarmsColumns.WORK_PATTERN_LENGTH, pattern.getCycleLength());
+        values.put(ClockContract.AlarmsColumns.WORK_PATTERN_ANCHOR, pattern.getAnchorEpochDay());
+        db.update(ALARMS_TABLE_NAME, values, ClockContract.AlarmsColumns.HOLIDAY_OPTION + "=?",
+                new String[]{String.valueOf(holidayOption)});
+    }
+
+    /**
+     * Sets the state of an instance with a compiled statement, without the parsing and the boxed
+     * {@link ContentValues} of {@link SQLiteDatabase#update}.
+     *
+     * @return the number of rows changed
+     */
+    synchronized int updateInstanceState(long instanceId, int state) {
+        if (mUpdateInstanceStateStatement == null) {
+            mUpdateInstanceStateStatement = getWritableDatabase().compileStatement(
+                    "UPDATE " + INSTANCES_TABLE_NAME +
+                            " SET " + ClockContract.InstancesColumns.ALARM_STATE + " = ?" +
+                            " WHERE " + ClockContract.InstancesColumns._ID + " = ?");
+        }
+
+        mUpdateInstanceStateStatement.bindLong(1, state);
+        mUpdateInstanceStateStatement.bindLong(2, instanceId);
+        return mUpdateInstanceStateStatement.executeUpdateDelete();
+    }
+
+    /**
+     * @return the id of the alarm of an instance, or {@link Alarm#INVALID_ID} if the instance
+     * doesn't exist or has no alarm
+     */
+    synchronized long getInstanceAlarmId(long instanceId) {
+        if (mInstanceAlarmIdStatement == null) {
+            mInstanceAlarmIdStatement = getReadableDatabase().compileStatement(
+                    "SELECT " + ClockContract.InstancesColumns.ALARM_ID +
+                            " FROM " + INSTANCES_TABLE_NAME +
+                            " WHERE " + ClockContract.InstancesColumns._ID + " = ?");
+        }
+
+        mInstanceAlarmIdStatement.bindLong(1, instanceId);
+        try {
+            final long alarmId = mInstanceAlarmIdStatement.simpleQueryForLong();
+            // A NULL alarm id reads as 0, which is never a row id.
+            return alarmId == 0 ? Alarm.INVALID_ID : alarmId;
+        } catch (SQLiteDoneException e) {
+            return Alarm.INVALID_ID;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (mUpdateInstanceStateStatement != null) {
+            mUpdateInstanceStateStatement.close();
+            mUpdateInstanceStateStatement = null;
+        }
+        if (mInstanceAlarmIdStatement != null) {
+            mInstanceAlarmIdStatement.close();
+            mInstanceAlarmIdStatement = null;
+        }
+        super.close();
     }
 
     long fixAlarmInsert(ContentValues values) {
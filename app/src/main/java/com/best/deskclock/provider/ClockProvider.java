@@ -12,23 +12,32 @@ import static com.best.deskclock.provider.ClockDatabaseHelper.ALARMS_TABLE_NAME;
 import static com.best.deskclock.provider.ClockDatabaseHelper.INSTANCES_TABLE_NAME;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.RemoteException;
 import android.text.TextUtils;
 import android.util.ArrayMap;
 
 import androidx.annotation.NonNull;
 
+import com.best.deskclock.data.AlarmRepository;
 import com.best.deskclock.utils.LogUtils;
 import com.best.deskclock.utils.SdkUtils;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -39,23 +48,34 @@ public class ClockProvider extends ContentProvider {
     private static final int INSTANCES = 3;
     private static final int INSTANCES_ID = 4;
     private static final int ALARMS_WITH_INSTANCES = 5;
+    private static final int ALARMS_WITH_INSTANCES_ID = 6;
+    /**
+     * Changes are collected for this long before observers are notified, so that the rows written
+     * one after the other by a snooze or a dismiss reach the observers as a single change.
+     */
+    private static final long NOTIFY_DELAY_MILLIS = 100;
+    /**
+     * Above this number of changed rows in a table, the table URI is notified instead of each row.
+     */
+    private static final int MAX_NOTIFIED_ROWS = 10;
     /**
      * Projection map used by query for snoozed alarms.
      */
     private static final Map<String, String> sAlarmsWithInstancesProjection = new ArrayMap<>();
+    /**
+     * Joins every alarm with its most relevant instance: the one with the lowest state, then the
+     * earliest fire time. The instances are grouped once instead of looking up the instance of
+     * each alarm with a correlated subquery; SQLite takes the bare columns of a MIN() aggregate
+     * from the row holding the minimum.
+     */
     private static final String ALARM_JOIN_INSTANCE_TABLE_STATEMENT =
-            ALARMS_TABLE_NAME + " LEFT JOIN " + INSTANCES_TABLE_NAME + " ON (" +
-                    ALARMS_TABLE_NAME + "." + AlarmsColumns._ID + " = " + InstancesColumns.ALARM_ID + ")";
-    private static final String ALARM_JOIN_INSTANCE_WHERE_STATEMENT =
-            INSTANCES_TABLE_NAME + "." + InstancesColumns._ID + " IS NULL OR " +
-                    INSTANCES_TABLE_NAME + "." + InstancesColumns._ID + " = (" +
-                    "SELECT " + InstancesColumns._ID +
+            ALARMS_TABLE_NAME + " LEFT JOIN (" +
+                    "SELECT *, MIN((" + InstancesColumns.ALARM_STATE + " << 44) + " +
+                    InstancesColumns.FIRE_TIME_MILLIS + ")" +
                     " FROM " + INSTANCES_TABLE_NAME +
-                    " WHERE " + InstancesColumns.ALARM_ID +
-                    " = " + ALARMS_TABLE_NAME + "." + AlarmsColumns._ID +
-                    " ORDER BY " + InstancesColumns.ALARM_STATE + ", " +
-                    InstancesColumns.YEAR + ", " + InstancesColumns.MONTH + ", " +
-                    InstancesColumns.DAY + " LIMIT 1)";
+                    " GROUP BY " + InstancesColumns.ALARM_ID + ") AS " + INSTANCES_TABLE_NAME + " ON (" +
+                    ALARMS_TABLE_NAME + "." + AlarmsColumns._ID + " = " +
+                    INSTANCES_TABLE_NAME + "." + InstancesColumns.ALARM_ID + ")";
     private static final UriMatcher sURIMatcher = new UriMatcher(UriMatcher.NO_MATCH);
 
     static {
@@ -85,6 +105,12 @@ public class ClockProvider extends ContentProvider {
                 ALARMS_TABLE_NAME + "." + AlarmsColumns.HOLIDAY_OPTION);
         sAlarmsWithInstancesProjection.put(AlarmsColumns.HOLIDAY_OPTION,
                 ALARMS_TABLE_NAME + "." + AlarmsColumns.HOLIDAY_OPTION);
+        sAlarmsWithInstancesProjection.put(ALARMS_TABLE_NAME + "." + AlarmsColumns.WORK_PATTERN_MASK,
+                ALARMS_TABLE_NAME + "." + AlarmsColumns.WORK_PATTERN_MASK);
+        sAlarmsWithInstancesProjection.put(ALARMS_TABLE_NAME + "." + AlarmsColumns.WORK_PATTERN_LENGTH,
+                ALARMS_TABLE_NAME + "." + AlarmsColumns.WORK_PATTERN_LENGTH);
+        sAlarmsWithInstancesProjection.put(ALARMS_TABLE_NAME + "." + AlarmsColumns.WORK_PATTERN_ANCHOR,
+                ALARMS_TABLE_NAME + "." + AlarmsColumns.WORK_PATTERN_ANCHOR);
         sAlarmsWithInstancesProjection.put(ALARMS_TABLE_NAME + "." + AlarmsColumns.FLASH,
                 ALARMS_TABLE_NAME + "." + AlarmsColumns.FLASH);
         sAlarmsWithInstancesProjection.put(ALARMS_TABLE_NAME + "." + AlarmsColumns.LABEL,
@@ -149,8 +175,30 @@ public class ClockProvider extends ContentProvider {
         sURIMatcher.addURI(ClockContract.AUTHORITY, "instances", INSTANCES);
         sURIMatcher.addURI(ClockContract.AUTHORITY, "instances/#", INSTANCES_ID);
         sURIMatcher.addURI(ClockContract.AUTHORITY, "alarms_with_instances", ALARMS_WITH_INSTANCES);
+        sURIMatcher.addURI(ClockContract.AUTHORITY, "alarms_with_instances/#", ALARMS_WITH_INSTANCES_ID);
     }
 
+    /**
+     * URIs changed by the batch running on the current thread with their change flags, notified
+     * once it is committed. {@code null} when no batch is running.
+     */
+    private final ThreadLocal<Map<Uri, Integer>> mPendingNotifications = new ThreadLocal<>();
+
+    /**
+     * URIs changed during the current notification delay with their change flags.
+     * Guarded by itself.
+     */
+    private final Map<Uri, Integer> mDelayedNotifications = new ArrayMap<>();
+
+    private final Handler mNotifyHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mNotifyRunnable = this::notifyDelayedChanges;
+
+    /**
+     * The provider of this process, used by {@link #updateInstanceState} to skip the content
+     * resolver. {@code null} until the provider is created.
+     */
+    private static volatile ClockProvider sLocalProvider;
+
     private ClockDatabaseHelper mOpenHelper;
 
     public ClockProvider() {
@@ -178,6 +226,7 @@ public class ClockProvider extends ContentProvider {
         }
 
         mOpenHelper = new ClockDatabaseHelper(storageContext);
+        sLocalProvider = this;
         return true;
     }
 
@@ -204,13 +253,19 @@ public class ClockProvider extends ContentProvider {
             }
             case ALARMS_WITH_INSTANCES -> {
                 qb.setTables(ALARM_JOIN_INSTANCE_TABLE_STATEMENT);
-                qb.appendWhere(ALARM_JOIN_INSTANCE_WHERE_STATEMENT);
                 qb.setProjectionMap(sAlarmsWithInstancesProjection);
             }
+            case ALARMS_WITH_INSTANCES_ID -> {
+                qb.setTables(ALARM_JOIN_INSTANCE_TABLE_STATEMENT);
+                qb.setProjectionMap(sAlarmsWithInstancesProjection);
+                qb.appendWhere(ALARMS_TABLE_NAME + "." + AlarmsColumns._ID + "=");
+                qb.appendWhere(Objects.requireNonNull(uri.getLastPathSegment()));
+            }
             default -> throw new IllegalArgumentException("Unknown URI " + uri);
         }
 
-        Cursor ret = qb.query(db, projectionIn, selection, selectionArgs, null, null, sort);
+        final String limit = uri.getQueryParameter(ClockContract.LIMIT_PARAM_KEY);
+        Cursor ret = qb.query(db, projectionIn, selection, selectionArgs, null, null, sort, limit);
 
         if (ret == null) {
             LogUtils.e("Alarms.query: failed");
@@ -237,6 +292,7 @@ public class ClockProvider extends ContentProvider {
     public int update(@NonNull Uri uri, ContentValues values, String where, String[] whereArgs) {
         int count;
         String alarmId;
+        long parentAlarmId;
         SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         switch (sURIMatcher.match(uri)) {
             case ALARMS_ID -> {
@@ -244,18 +300,22 @@ public class ClockProvider extends ContentProvider {
                 count = db.update(ALARMS_TABLE_NAME, values,
                         AlarmsColumns._ID + "=" + alarmId,
                         null);
+                parentAlarmId = ContentUris.parseId(uri);
             }
             case INSTANCES_ID -> {
                 alarmId = uri.getLastPathSegment();
                 count = db.update(INSTANCES_TABLE_NAME, values,
                         InstancesColumns._ID + "=" + alarmId,
                         null);
+                parentAlarmId = getInstanceAlarmId(ContentUris.parseId(uri), values);
             }
             default -> throw new UnsupportedOperationException("Cannot update URI: " + uri);
         }
 
-        LogUtils.v("*** notifyChange() id: " + alarmId + " url " + uri);
-        notifyChange(Objects.requireNonNull(getContext()).getContentResolver(), uri);
+        if (count > 0) {
+            LogUtils.v("*** notifyChange() id: " + alarmId + " url " + uri);
+            notifyChange(uri, parentAlarmId, ContentResolver.NOTIFY_UPDATE);
+        }
         return count;
     }
 
@@ -270,7 +330,9 @@ public class ClockProvider extends ContentProvider {
         };
 
         Uri uriResult = ContentUris.withAppendedId(uri, rowId);
-        notifyChange(Objects.requireNonNull(getContext()).getContentResolver(), uriResult);
+        final long parentAlarmId = sURIMatcher.match(uri) == ALARMS ? rowId
+                : getInstanceAlarmId(rowId, initialValues);
+        notifyChange(uriResult, parentAlarmId, ContentResolver.NOTIFY_INSERT);
         return uriResult;
     }
 
@@ -278,6 +340,7 @@ public class ClockProvider extends ContentProvider {
     public int delete(@NonNull Uri uri, String where, String[] whereArgs) {
         int count;
         String primaryKey;
+        long parentAlarmId = Alarm.INVALID_ID;
         SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         switch (sURIMatcher.match(uri)) {
             case ALARMS -> count = db.delete(ALARMS_TABLE_NAME, where, whereArgs);
@@ -289,10 +352,13 @@ public class ClockProvider extends ContentProvider {
                     where = AlarmsColumns._ID + "=" + primaryKey + " AND (" + where + ")";
                 }
                 count = db.delete(ALARMS_TABLE_NAME, where, whereArgs);
+                parentAlarmId = ContentUris.parseId(uri);
             }
             case INSTANCES -> count = db.delete(INSTANCES_TABLE_NAME, where, whereArgs);
             case INSTANCES_ID -> {
                 primaryKey = uri.getLastPathSegment();
+                // The alarm of the instance must be looked up before its row is gone.
+                parentAlarmId = mOpenHelper.getInstanceAlarmId(ContentUris.parseId(uri));
                 if (TextUtils.isEmpty(where)) {
                     where = InstancesColumns._ID + "=" + primaryKey;
                 } else {
@@ -303,20 +369,228 @@ public class ClockProvider extends ContentProvider {
             default -> throw new IllegalArgumentException("Cannot delete from URI: " + uri);
         }
 
-        notifyChange(Objects.requireNonNull(getContext()).getContentResolver(), uri);
+        if (count > 0) {
+            notifyChange(uri, parentAlarmId, ContentResolver.NOTIFY_DELETE);
+        }
+        return count;
+    }
+
+    /**
+     * Applies all operations in a single transaction: either all of them are committed or none
+     * is. Observers are notified of the changed rows after the commit.
+     */
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        final Map<Uri, Integer> changedUris = new ArrayMap<>();
+        final ContentProviderResult[] results;
+        mPendingNotifications.set(changedUris);
+        db.beginTransaction();
+        try {
+            results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            mPendingNotifications.remove();
+        }
+
+        notifyChanges(changedUris);
+        return results;
+    }
+
+    /**
+     * Inserts all rows in a single transaction and notifies observers after the commit.
+     */
+    @Override
+    public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        final Map<Uri, Integer> changedUris = new ArrayMap<>();
+        mPendingNotifications.set(changedUris);
+        db.beginTransaction();
+        try {
+            for (ContentValues rowValues : values) {
+                insert(uri, rowValues);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            mPendingNotifications.remove();
+        }
+
+        notifyChanges(changedUris);
+        return values.length;
+    }
+
+    /**
+     * Applies a batch of operations on this provider, see {@link #applyBatch(ArrayList)}.
+     *
+     * @return the results of the operations, or an empty array if the batch failed and was
+     * rolled back.
+     */
+    static ContentProviderResult[] applyBatch(ContentResolver resolver,
+                                              ArrayList<ContentProviderOperation> operations) {
+
+        if (operations.isEmpty()) {
+            return new ContentProviderResult[0];
+        }
+
+        try {
+            return resolver.applyBatch(ClockContract.AUTHORITY, operations);
+        } catch (RemoteException | OperationApplicationException e) {
+            LogUtils.e("Failed to apply a batch of " + operations.size() + " operations", e);
+            return new ContentProviderResult[0];
+        }
+    }
+
+    /**
+     * Sets the state of an instance. This is the write of every state transition of the alarm
+     * lifecycle, so it runs a compiled statement of the local provider instead of going through
+     * the content resolver and {@link ContentValues}; a regular update is used if the provider
+     * has not been created in this process.
+     *
+     * @param alarmId the alarm of the instance, known by the caller, so that the change of its
+     *                row can be notified without reading the instance back
+     * @return the number of rows changed
+     */
+    static int updateInstanceState(ContentResolver resolver, long instanceId, long alarmId,
+                                   int state) {
+        final Uri uri = ContentUris.withAppendedId(InstancesColumns.CONTENT_URI, instanceId);
+        final ClockProvider provider = sLocalProvider;
+        if (provider == null) {
+            final ContentValues values = new ContentValues(1);
+            values.put(InstancesColumns.ALARM_STATE, state);
+            return resolver.update(uri, values, null, null);
+        }
+
+        final int count = provider.mOpenHelper.updateInstanceState(instanceId, state);
+        if (count > 0) {
+            provider.notifyChange(uri, alarmId, ContentResolver.NOTIFY_UPDATE);
+        }
         return count;
     }
 
     /**
-     * Notify affected URIs of changes.
+     * @return the alarm of an instance, taken from the written values when they contain it
+     */
+    private long getInstanceAlarmId(long instanceId, ContentValues values) {
+        final Long alarmId = values == null ? null : values.getAsLong(InstancesColumns.ALARM_ID);
+        return alarmId != null ? alarmId : mOpenHelper.getInstanceAlarmId(instanceId);
+    }
+
+    /**
+     * Records the change of a row, or of a whole table, together with the change of the row of
+     * its alarm in {@link AlarmsColumns#ALARMS_WITH_INSTANCES_URI}. The changes are notified at
+     * the end of the batch running on the current thread, or of the notification delay.
+     *
+     * @param alarmId the alarm of the changed row, or {@link Alarm#INVALID_ID} if unknown or if
+     *                several alarms have changed
+     * @param flags   the {@link ContentResolver} flag of the change
+     */
+    private void notifyChange(Uri uri, long alarmId, int flags) {
+        final Uri joinedUri = alarmId == Alarm.INVALID_ID ? AlarmsColumns.ALARMS_WITH_INSTANCES_URI
+                : ContentUris.withAppendedId(AlarmsColumns.ALARMS_WITH_INSTANCES_URI, alarmId);
+        // An alarm keeps its joined row when only its instances change.
+        final int joinedFlags = sURIMatcher.match(uri) == ALARMS_ID ? flags : ContentResolver.NOTIFY_UPDATE;
+
+        final Map<Uri, Integer> pendingNotifications = mPendingNotifications.get();
+        if (pendingNotifications != null) {
+            pendingNotifications.merge(uri, flags, (a, b) -> a | b);
+            pendingNotifications.merge(joinedUri, joinedFlags, (a, b) -> a | b);
+            return;
+        }
+
+        final Map<Uri, Integer> changes = new ArrayMap<>(2);
+        changes.put(uri, flags);
+        changes.merge(joinedUri, joinedFlags, (a, b) -> a | b);
+        notifyChanges(changes);
+    }
+
+    /**
+     * Schedules the notification of changed URIs at the end of the notification delay.
+     */
+    private void notifyChanges(Map<Uri, Integer> changedUris) {
+        if (changedUris.isEmpty()) {
+            return;
+        }
+
+        // The rows are committed: a write that did not go through the repository makes it stale.
+        AlarmRepository.getAlarmRepository().onDatabaseChanged();
+
+        synchronized (mDelayedNotifications) {
+            final boolean scheduled = !mDelayedNotifications.isEmpty();
+            for (Map.Entry<Uri, Integer> change : changedUris.entrySet()) {
+                mDelayedNotifications.merge(change.getKey(), change.getValue(), (a, b) -> a | b);
+            }
+            if (!scheduled) {
+                mNotifyHandler.postDelayed(mNotifyRunnable, NOTIFY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Notifies the URIs changed during the notification delay. When a whole table or many of its
+     * rows have changed, the table URI is notified instead of each row; its observers and those of
+     * its rows all receive it. URIs are notified together with their change flags from Android 11.
      */
-    private void notifyChange(ContentResolver resolver, Uri uri) {
-        resolver.notifyChange(uri, null);
+    private void notifyDelayedChanges() {
+        final Map<Uri, Integer> changes;
+        synchronized (mDelayedNotifications) {
+            changes = new ArrayMap<>(mDelayedNotifications);
+            mDelayedNotifications.clear();
+        }
+
+        final Map<Uri, Integer> tableFlags = new ArrayMap<>();
+        final Map<Uri, Integer> rowCounts = new ArrayMap<>();
+        for (Map.Entry<Uri, Integer> change : changes.entrySet()) {
+            final Uri tableUri = getTableUri(change.getKey());
+            tableFlags.merge(tableUri, change.getValue(), (a, b) -> a | b);
+            rowCounts.merge(tableUri, 1, Integer::sum);
+        }
 
-        final int match = sURIMatcher.match(uri);
-        // Also notify the joined table of changes to instances or alarms.
-        if (match == ALARMS || match == INSTANCES || match == ALARMS_ID || match == INSTANCES_ID) {
-            resolver.notifyChange(AlarmsColumns.ALARMS_WITH_INSTANCES_URI, null);
+        final Map<Integer, List<Uri>> urisByFlags = new ArrayMap<>();
+        for (Map.Entry<Uri, Integer> change : changes.entrySet()) {
+            final Uri tableUri = getTableUri(change.getKey());
+            final boolean wholeTable = changes.containsKey(tableUri)
+                    || rowCounts.get(tableUri) > MAX_NOTIFIED_ROWS;
+            if (wholeTable && !change.getKey().equals(tableUri)) {
+                continue;
+            }
+
+            final int flags = wholeTable ? tableFlags.get(tableUri) : change.getValue();
+            urisByFlags.computeIfAbsent(flags, f -> new ArrayList<>()).add(change.getKey());
         }
+        for (Uri tableUri : rowCounts.keySet()) {
+            if (!changes.containsKey(tableUri) && rowCounts.get(tableUri) > MAX_NOTIFIED_ROWS) {
+                urisByFlags.computeIfAbsent(tableFlags.get(tableUri), f -> new ArrayList<>())
+                        .add(tableUri);
+            }
+        }
+
+        final ContentResolver resolver = Objects.requireNonNull(getContext()).getContentResolver();
+        for (Map.Entry<Integer, List<Uri>> entry : urisByFlags.entrySet()) {
+            LogUtils.v("*** notifyChange() urls " + entry.getValue());
+            if (SdkUtils.isAtLeastAndroid11()) {
+                resolver.notifyChange(entry.getValue(), null, entry.getKey());
+            } else {
+                for (Uri uri : entry.getValue()) {
+                    resolver.notifyChange(uri, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the URI of the table of a row URI, or the URI itself if it is a table URI
+     */
+    private static Uri getTableUri(Uri uri) {
+        return switch (sURIMatcher.match(uri)) {
+            case ALARMS, ALARMS_ID -> AlarmsColumns.CONTENT_URI;
+            case INSTANCES, INSTANCES_ID -> InstancesColumns.CONTENT_URI;
+            case ALARMS_WITH_INSTANCES, ALARMS_WITH_INSTANCES_ID -> AlarmsColumns.ALARMS_WITH_INSTANCES_URI;
+            default -> uri;
+        };
     }
 }
@@ -133,12 +133,43 @@ public final class AsyncRingtonePlayer {
      * Plays the ringtone.
      */
     public void play(Uri ringtoneUri, long crescendoDuration) {
+        play(ringtoneUri, crescendoDuration, null);
+    }
+
+    /**
+     * Plays the ringtone and notifies the given listener, on the playback thread, once it has
+     * started.
+     */
+    public void play(Uri ringtoneUri, long crescendoDuration, OnPlaybackStartedListener listener) {
         LOGGER.d("Executing play");
         mExecutor.execute(() -> {
-            if (getPlaybackDelegate().play(mContext, ringtoneUri, crescendoDuration)) {
+            final MediaPlayerPlaybackDelegate delegate = getPlaybackDelegate();
+            if (delegate.play(mContext, ringtoneUri, crescendoDuration)) {
                 scheduleVolumeAdjustment();
             }
-        });    }
+
+            if (listener != null && delegate.isPlaying()) {
+                listener.onPlaybackStarted(delegate.isPlayingPrewarmed());
+            }
+        });
+    }
+
+    /**
+     * Prepares the ringtone ahead of time, so that a later call to {@link #play} with the same uri
+     * starts it without resolving and preparing it first.
+     */
+    public void prewarm(Uri ringtoneUri) {
+        LOGGER.d("Executing prewarm");
+        mExecutor.execute(() -> getPlaybackDelegate().prewarm(mContext, ringtoneUri));
+    }
+
+    /**
+     * Releases the ringtone prepared by {@link #prewarm} if it has not been played.
+     */
+    public void cancelPrewarm() {
+        LOGGER.d("Executing cancelPrewarm");
+        mExecutor.execute(() -> getPlaybackDelegate().releasePrewarmed());
+    }
 
     /**
      * Stops playing the ringtone.
@@ -158,6 +189,7 @@ public final class AsyncRingtonePlayer {
     public void shutdown() {
         if (mExecutor != null && !mExecutor.isShutdown()) {
             LOGGER.d("Releasing AsyncRingtonePlayer resources");
+            mExecutor.execute(() -> getPlaybackDelegate().releasePrewarmed());
             mExecutor.shutdown();
         } else {
             LOGGER.d("No AsyncRingtonePlayer to release");
@@ -192,7 +224,7 @@ public final class AsyncRingtonePlayer {
     /**
      * @return the platform-specific playback delegate to use to play the ringtone.
      */
-    private PlaybackDelegate getPlaybackDelegate() {
+    private MediaPlayerPlaybackDelegate getPlaybackDelegate() {
         if (mPlaybackDelegate == null) {
             mPlaybackDelegate = new MediaPlayerPlaybackDelegate();
         }
@@ -208,6 +240,17 @@ public final class AsyncRingtonePlayer {
         private AudioManager mAudioManager;
         private MediaPlayer mMediaPlayer;
 
+        /**
+         * The player prepared by {@link #prewarm} and the uri it was prepared for.
+         */
+        private MediaPlayer mPrewarmedPlayer;
+        private Uri mPrewarmedUri;
+
+        /**
+         * Whether {@link #mMediaPlayer} was prepared by {@link #prewarm}.
+         */
+        private boolean mPlayingPrewarmed;
+
         private long mCrescendoDuration = 0;
         private long mCrescendoStopTime = 0;
 
@@ -222,12 +265,15 @@ public final class AsyncRingtonePlayer {
                 ringtoneUri = getInCallRingtoneUri(context);
             }
 
-            mMediaPlayer = RingtoneUtils.createPreparedMediaPlayer(
-                    context,
-                    ringtoneUri,
-                    RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM),
-                    getFallbackRingtoneUri(context)
-            );
+            mPlayingPrewarmed = !inCall && mPrewarmedPlayer != null && mPrewarmedUri.equals(ringtoneUri);
+            if (mPlayingPrewarmed) {
+                mMediaPlayer = mPrewarmedPlayer;
+                mPrewarmedPlayer = null;
+                mPrewarmedUri = null;
+            } else {
+                releasePrewarmed();
+                mMediaPlayer = createPreparedMediaPlayer(context, ringtoneUri);
+            }
 
             if (mMediaPlayer == null) {
                 LOGGER.e("Unable to prepare MediaPlayer for ringtone.");
@@ -263,10 +309,55 @@ public final class AsyncRingtonePlayer {
 
             mCrescendoDuration = 0;
             mCrescendoStopTime = 0;
+            mPlayingPrewarmed = false;
 
             abandonAudioFocus();
         }
 
+        /**
+         * Resolves and prepares the ringtone, replacing any ringtone prepared earlier.
+         */
+        void prewarm(Context context, Uri ringtoneUri) {
+            releasePrewarmed();
+
+            if (ringtoneUri == null) {
+                return;
+            }
+
+            mPrewarmedPlayer = createPreparedMediaPlayer(context, ringtoneUri);
+            if (mPrewarmedPlayer != null) {
+                mPrewarmedUri = ringtoneUri;
+            }
+        }
+
+        /**
+         * Releases the ringtone prepared by {@link #prewarm}, if any.
+         */
+        void releasePrewarmed() {
+            if (mPrewarmedPlayer != null) {
+                mPrewarmedPlayer.release();
+                mPrewarmedPlayer = null;
+            }
+            mPrewarmedUri = null;
+        }
+
+        boolean isPlaying() {
+            return mMediaPlayer != null && mMediaPlayer.isPlaying();
+        }
+
+        boolean isPlayingPrewarmed() {
+            return mPlayingPrewarmed;
+        }
+
+        private static MediaPlayer createPreparedMediaPlayer(Context context, Uri ringtoneUri) {
+            return RingtoneUtils.createPreparedMediaPlayer(
+                    context,
+                    ringtoneUri,
+                    RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM),
+                    getFallbackRingtoneUri(context)
+            );
+        }
+
         @Override
         public boolean adjustVolume() {
             if (mMediaPlayer == null || !mMediaPlayer.isPlaying()) {
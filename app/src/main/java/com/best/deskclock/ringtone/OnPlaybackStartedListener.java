@@ -0,0 +1,15 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.ringtone;
+
+/**
+ * Notified when a ringtone player starts playing the ringtone it was asked to play.
+ */
+public interface OnPlaybackStartedListener {
+
+    /**
+     * @param prewarmed {@code true} if the ringtone had been prepared ahead of time by a call to
+     *                  {@code prewarm}; {@code false} if it was resolved and prepared on demand
+     */
+    void onPlaybackStarted(boolean prewarmed);
+}
@@ -7,122 +7,180 @@
 package com.best.deskclock.ringtone;
 
 import static android.media.AudioManager.STREAM_ALARM;
-
-import static com.best.deskclock.utils.RingtoneUtils.RANDOM_CUSTOM_RINGTONE;
-import static com.best.deskclock.utils.RingtoneUtils.RANDOM_RINGTONE;
-import static com.best.deskclock.utils.RingtoneUtils.RINGTONE_SILENT;
+import static android.media.RingtoneManager.TITLE_COLUMN_INDEX;
 
 import android.content.Context;
 import android.database.Cursor;
 import android.media.RingtoneManager;
 import android.net.Uri;
-
-import androidx.loader.content.AsyncTaskLoader;
+import android.os.Handler;
+import android.os.Looper;
 
 import com.best.deskclock.ItemAdapter;
-import com.best.deskclock.R;
 import com.best.deskclock.data.CustomRingtone;
 import com.best.deskclock.data.DataModel;
+import com.best.deskclock.data.RingtoneMetadataCache;
 import com.best.deskclock.utils.LogUtils;
 import com.best.deskclock.utils.RingtoneUtils;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Assembles the list of ItemHolders that back the RecyclerView used to choose a ringtone.
+ * Loads the ringtones offered by the {@link RingtonePickerActivity} in the background and delivers
+ * them to the main thread as they become available, so the picker can show its fixed entries at
+ * once and grow its list while the rest is read:
+ * <ul>
+ *     <li>the system ringtones are read from a single media store cursor and delivered in pages
+ *     of {@link #PAGE_SIZE} ringtones, titles included;</li>
+ *     <li>the custom ringtones are checked for readability in parallel, and the number of those
+ *     that can be read is delivered once all have been checked.</li>
+ * </ul>
  */
-class RingtoneLoader extends AsyncTaskLoader<List<ItemAdapter.ItemHolder<Uri>>> {
+final class RingtoneLoader {
+
+    /**
+     * The number of system ringtones delivered at once.
+     */
+    private static final int PAGE_SIZE = 32;
+
+    /**
+     * The number of threads reading the system ringtones and checking the custom ringtones.
+     */
+    private static final int THREAD_COUNT = 4;
+
+    /**
+     * Receives on the main thread the ringtones loaded by a {@link RingtoneLoader}.
+     */
+    interface Callback {
+
+        /**
+         * @param readableCount the number of custom ringtones that can be read
+         */
+        void onCustomRingtonesChecked(int readableCount);
+
+        /**
+         * @param page the holders of the next system ringtones, in the order of the media store
+         * @param last {@code true} if no system ringtone remains to be delivered
+         */
+        void onSystemRingtonesLoaded(List<ItemAdapter.ItemHolder<Uri>> page, boolean last);
+    }
 
-    private final Uri mDefaultRingtoneUri;
-    private final String mDefaultRingtoneTitle;
-    private List<CustomRingtone> mCustomRingtones;
+    private final Context mContext;
 
-    RingtoneLoader(Context context, Uri defaultRingtoneUri, String defaultRingtoneTitle) {
-        super(context);
-        mDefaultRingtoneUri = defaultRingtoneUri;
-        mDefaultRingtoneTitle = defaultRingtoneTitle;
-    }
+    private final Callback mCallback;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(THREAD_COUNT);
+
+    /**
+     * Incremented each time the custom ringtones are checked again, so that the result of an
+     * earlier check is not delivered. Only accessed on the main thread.
+     */
+    private int mCustomRingtonesGeneration;
 
-    @Override
-    protected void onStartLoading() {
-        super.onStartLoading();
+    private volatile boolean mCancelled;
 
-        mCustomRingtones = DataModel.getDataModel().getCustomRingtones();
-        forceLoad();
+    RingtoneLoader(Context context, Callback callback) {
+        mContext = context;
+        mCallback = callback;
     }
 
-    @Override
-    public List<ItemAdapter.ItemHolder<Uri>> loadInBackground() {
-        // Prime the ringtone title cache for later access.
-        DataModel.getDataModel().loadRingtoneTitles();
-        DataModel.getDataModel().loadRingtonePermissions();
-
-        // Fetch the standard system ringtones.
-        final RingtoneManager ringtoneManager = new RingtoneManager(getContext());
-        ringtoneManager.setType(STREAM_ALARM);
-
-        try (Cursor systemRingtoneCursor = ringtoneManager.getCursor()) {
-            final int systemRingtoneCount = systemRingtoneCursor.getCount();
-            // item count = # system ringtones + # custom ringtones + 2 headers + Add new music item
-            final int itemCount = systemRingtoneCount + mCustomRingtones.size() + 3;
-
-            final List<ItemAdapter.ItemHolder<Uri>> itemHolders = new ArrayList<>(itemCount);
-
-            // Add the item holder for the Music heading.
-            itemHolders.add(new HeaderHolder(R.string.your_sounds));
-
-            // Add the item holder for the random custom ringtones only if at least 2 files can be read.
-            int readableCount = 0;
-            Iterator<CustomRingtone> iterator = mCustomRingtones.iterator();
-            while (iterator.hasNext() && readableCount < 2) {
-                CustomRingtone ringtone = iterator.next();
-                if (RingtoneUtils.isRingtoneUriReadable(getContext(), ringtone.getUri())) {
-                    readableCount++;
-                }
-            }
+    /**
+     * Reads the system ringtones and delivers them in pages to
+     * {@link Callback#onSystemRingtonesLoaded}.
+     */
+    void loadSystemRingtones() {
+        if (mCancelled) {
+            return;
+        }
 
-            if (readableCount >= 2) {
-                itemHolders.add(new SystemRingtoneHolder(RANDOM_CUSTOM_RINGTONE, null));
-            }
+        mExecutor.execute(() -> {
+            final RingtoneManager ringtoneManager = new RingtoneManager(mContext);
+            ringtoneManager.setType(STREAM_ALARM);
+
+            List<ItemAdapter.ItemHolder<Uri>> page = new ArrayList<>(PAGE_SIZE);
+            try (Cursor cursor = ringtoneManager.getCursor()) {
+                for (cursor.moveToFirst(); !cursor.isAfterLast() && !mCancelled; cursor.moveToNext()) {
+                    final Uri ringtoneUri = ringtoneManager.getRingtoneUri(cursor.getPosition());
+                    page.add(new SystemRingtoneHolder(ringtoneUri, cursor.getString(TITLE_COLUMN_INDEX)));
 
-            // Add an item holder for each custom ringtone and also cache a pretty name.
-            for (CustomRingtone ringtone : mCustomRingtones) {
-                itemHolders.add(new CustomRingtoneHolder(ringtone));
+                    if (page.size() == PAGE_SIZE && !cursor.isLast()) {
+                        deliverSystemRingtones(page, false);
+                        page = new ArrayList<>(PAGE_SIZE);
+                    }
+                }
+            } catch (Exception e) {
+                LogUtils.e("Could not get system ringtone cursor", e);
             }
 
-            // Add an item holder for the "Add new" music ringtone.
-            itemHolders.add(new AddCustomRingtoneHolder());
+            deliverSystemRingtones(page, true);
+        });
+    }
 
-            // Add an item holder for the Ringtones heading.
-            itemHolders.add(new HeaderHolder(R.string.device_sounds));
+    /**
+     * Checks in parallel which of the given custom ringtones can be read and delivers their number
+     * to {@link Callback#onCustomRingtonesChecked}. The result of any earlier check still running
+     * is discarded.
+     */
+    void checkCustomRingtones(List<CustomRingtone> ringtones) {
+        if (mCancelled) {
+            return;
+        }
 
-            // Add the item holder for the random ringtones.
-            itemHolders.add(new SystemRingtoneHolder(RANDOM_RINGTONE, null));
+        final int generation = ++mCustomRingtonesGeneration;
 
-            // Add an item holder for the silent ringtone.
-            itemHolders.add(new SystemRingtoneHolder(RINGTONE_SILENT, null));
+        // Recheck the permissions held by the data model alongside the readability checks.
+        mExecutor.execute(() -> DataModel.getDataModel().loadRingtonePermissions());
 
-            // Add an item holder for the system default alarm sound.
-            itemHolders.add(new SystemRingtoneHolder(mDefaultRingtoneUri, mDefaultRingtoneTitle));
+        if (ringtones.isEmpty()) {
+            deliverCustomRingtones(generation, 0);
+            return;
+        }
 
-            // Add an item holder for each system ringtone.
-            for (int i = 0; i < systemRingtoneCount; i++) {
-                final Uri ringtoneUri = ringtoneManager.getRingtoneUri(i);
-                itemHolders.add(new SystemRingtoneHolder(ringtoneUri, null));
-            }
+        final AtomicInteger remainingCount = new AtomicInteger(ringtones.size());
+        final AtomicInteger readableCount = new AtomicInteger();
+        for (CustomRingtone ringtone : ringtones) {
+            final Uri uri = ringtone.getUri();
+            mExecutor.execute(() -> {
+                if (!mCancelled && RingtoneMetadataCache.getRingtoneMetadataCache()
+                        .check(mContext, uri).isReadable()) {
+                    readableCount.incrementAndGet();
+                }
 
-            return itemHolders;
-        } catch (Exception e) {
-            LogUtils.e("Could not get system ringtone cursor");
-            return new ArrayList<>();
+                if (remainingCount.decrementAndGet() == 0) {
+                    deliverCustomRingtones(generation, readableCount.get());
+                }
+            });
         }
     }
 
-    @Override
-    protected void onReset() {
-        super.onReset();
-        mCustomRingtones = null;
+    /**
+     * Stops loading; nothing is delivered after this call.
+     */
+    void cancel() {
+        mCancelled = true;
+        mExecutor.shutdownNow();
+        mMainHandler.removeCallbacksAndMessages(null);
+    }
+
+    private void deliverSystemRingtones(List<ItemAdapter.ItemHolder<Uri>> page, boolean last) {
+        mMainHandler.post(() -> {
+            if (!mCancelled) {
+                mCallback.onSystemRingtonesLoaded(page, last);
+            }
+        });
+    }
+
+    private void deliverCustomRingtones(int generation, int readableCount) {
+        mMainHandler.post(() -> {
+            if (!mCancelled && generation == mCustomRingtonesGeneration) {
+                mCallback.onCustomRingtonesChecked(readableCount);
+            }
+        });
     }
 }
@@ -15,6 +15,9 @@ import static com.best.deskclock.ringtone.AddCustomRingtoneViewHolder.VIEW_TYPE_
 import static com.best.deskclock.ringtone.HeaderViewHolder.VIEW_TYPE_ITEM_HEADER;
 import static com.best.deskclock.ringtone.RingtoneViewHolder.VIEW_TYPE_CUSTOM_SOUND;
 import static com.best.deskclock.ringtone.RingtoneViewHolder.VIEW_TYPE_SYSTEM_SOUND;
+import static com.best.deskclock.utils.RingtoneUtils.RANDOM_CUSTOM_RINGTONE;
+import static com.best.deskclock.utils.RingtoneUtils.RANDOM_RINGTONE;
+import static com.best.deskclock.utils.RingtoneUtils.RINGTONE_SILENT;
 
 import android.app.Dialog;
 import android.content.ContentResolver;
@@ -45,8 +48,6 @@ import androidx.core.view.WindowInsetsCompat;
 import androidx.documentfile.provider.DocumentFile;
 import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.FragmentManager;
-import androidx.loader.app.LoaderManager;
-import androidx.loader.content.Loader;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -69,6 +70,8 @@ import com.best.deskclock.widget.CollapsingToolbarBaseActivity;
 import com.google.android.material.color.MaterialColors;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -83,7 +86,7 @@ import java.util.concurrent.Executors;
  * </ul>
  */
 public class RingtonePickerActivity extends CollapsingToolbarBaseActivity
-        implements LoaderManager.LoaderCallbacks<List<ItemAdapter.ItemHolder<Uri>>> {
+        implements RingtoneLoader.Callback {
 
     /**
      * Key to an extra that defines resource id to the title of this activity.
@@ -120,6 +123,32 @@ public class RingtonePickerActivity extends CollapsingToolbarBaseActivity
      */
     private ItemAdapter<ItemAdapter.ItemHolder<Uri>> mRingtoneAdapter;
 
+    /**
+     * Loads the system ringtones and checks the custom ringtones in the background.
+     */
+    private RingtoneLoader mRingtoneLoader;
+
+    /**
+     * The holders of the system ringtones delivered so far by the {@link #mRingtoneLoader}, kept
+     * when the custom ringtones change.
+     */
+    private final List<ItemAdapter.ItemHolder<Uri>> mSystemRingtoneHolders = new ArrayList<>();
+
+    /**
+     * {@code true} once all the system ringtones have been delivered.
+     */
+    private boolean mSystemRingtonesLoaded;
+
+    /**
+     * {@code true} once the custom ringtones currently shown have been checked for readability.
+     */
+    private boolean mCustomRingtonesChecked;
+
+    /**
+     * The number of custom ringtones found readable by the last check.
+     */
+    private int mReadableCustomRingtoneCount;
+
     /**
      * Displays a set of selectable ringtones.
      */
@@ -311,7 +340,10 @@ public class RingtonePickerActivity extends CollapsingToolbarBaseActivity
 
         mFragmentManager = getSupportFragmentManager();
 
-        LoaderManager.getInstance(this).initLoader(0, null, this);
+        // Show the fixed entries and the custom ringtones now; the system ringtones follow.
+        mRingtoneLoader = new RingtoneLoader(context, this);
+        showRingtones();
+        mRingtoneLoader.loadSystemRingtones();
 
         applyWindowInsets();
     }
@@ -371,31 +403,125 @@ public class RingtonePickerActivity extends CollapsingToolbarBaseActivity
         outState.putParcelable(EXTRA_RINGTONE_URI, mSelectedRingtoneUri);
     }
 
-    @NonNull
     @Override
-    public Loader<List<ItemAdapter.ItemHolder<Uri>>> onCreateLoader(int id, Bundle args) {
-        return new RingtoneLoader(getApplicationContext(), mDefaultRingtoneUri, mDefaultRingtoneTitle);
+    protected void onDestroy() {
+        mRingtoneLoader.cancel();
+
+        super.onDestroy();
+    }
+
+    @Override
+    public void onCustomRingtonesChecked(int readableCount) {
+        mCustomRingtonesChecked = true;
+        mReadableCustomRingtoneCount = readableCount;
+
+        // Offer the random custom ringtones only if at least 2 files can be read.
+        final RingtoneHolder randomCustomRingtone = getRingtoneHolder(RANDOM_CUSTOM_RINGTONE);
+        if (readableCount >= 2 && randomCustomRingtone == null) {
+            mRingtoneAdapter.insertItems(1,
+                    Collections.singletonList(new SystemRingtoneHolder(RANDOM_CUSTOM_RINGTONE, null)));
+        } else if (readableCount < 2 && randomCustomRingtone != null) {
+            stopPlayingRingtone(randomCustomRingtone, false);
+            mRingtoneAdapter.removeItem(randomCustomRingtone);
+        }
+
+        // Show the error icon of the custom ringtones that cannot be read.
+        for (ItemAdapter.ItemHolder<Uri> itemHolder : mRingtoneAdapter.getItems()) {
+            if (itemHolder instanceof CustomRingtoneHolder
+                    && !RingtoneUtils.isRingtoneUriReadableCached(this, itemHolder.item)) {
+                itemHolder.notifyItemChanged();
+            }
+        }
+
+        selectRingtone();
     }
 
     @Override
-    public void onLoadFinished(@NonNull Loader<List<ItemAdapter.ItemHolder<Uri>>> loader,
-                               List<ItemAdapter.ItemHolder<Uri>> itemHolders) {
+    public void onSystemRingtonesLoaded(List<ItemAdapter.ItemHolder<Uri>> page, boolean last) {
+        mSystemRingtoneHolders.addAll(page);
+        mSystemRingtonesLoaded = last;
+
+        // Append the page without binding the ringtones already shown again.
+        mRingtoneAdapter.insertItems(mRingtoneAdapter.getItemCount(), page);
+
+        selectRingtone();
+    }
+
+    /**
+     * Shows the custom ringtones and the fixed entries along with the system ringtones loaded so
+     * far, then checks in the background which custom ringtones can be read.
+     */
+    private void showRingtones() {
+        final List<CustomRingtone> customRingtones = DataModel.getDataModel().getCustomRingtones();
+
+        // item count = # system ringtones + # custom ringtones + 2 headers + Add new music item
+        // + random custom, random, silent and default ringtones
+        final List<ItemAdapter.ItemHolder<Uri>> itemHolders =
+                new ArrayList<>(mSystemRingtoneHolders.size() + customRingtones.size() + 7);
+
+        // Add the item holder for the Music heading.
+        itemHolders.add(new HeaderHolder(R.string.your_sounds));
+
+        // Keep the item holder for the random custom ringtones until the custom ringtones have
+        // been checked again.
+        if (mReadableCustomRingtoneCount >= 2 && customRingtones.size() >= 2) {
+            itemHolders.add(new SystemRingtoneHolder(RANDOM_CUSTOM_RINGTONE, null));
+        }
+
+        // Add an item holder for each custom ringtone.
+        for (CustomRingtone ringtone : customRingtones) {
+            itemHolders.add(new CustomRingtoneHolder(ringtone));
+        }
+
+        // Add an item holder for the "Add new" music ringtone.
+        itemHolders.add(new AddCustomRingtoneHolder());
+
+        // Add an item holder for the Ringtones heading.
+        itemHolders.add(new HeaderHolder(R.string.device_sounds));
+
+        // Add the item holder for the random ringtones.
+        itemHolders.add(new SystemRingtoneHolder(RANDOM_RINGTONE, null));
+
+        // Add an item holder for the silent ringtone.
+        itemHolders.add(new SystemRingtoneHolder(RINGTONE_SILENT, null));
+
+        // Add an item holder for the system default alarm sound.
+        itemHolders.add(new SystemRingtoneHolder(mDefaultRingtoneUri, mDefaultRingtoneTitle));
+
+        // Add the item holders of the system ringtones loaded so far.
+        itemHolders.addAll(mSystemRingtoneHolders);
 
-        // Update the adapter with fresh data.
         mRingtoneAdapter.setItems(itemHolders);
 
+        mCustomRingtonesChecked = false;
+        mRingtoneLoader.checkCustomRingtones(customRingtones);
+
+        selectRingtone();
+    }
+
+    /**
+     * Selects the holder of {@link #mSelectedRingtoneUri} once it is shown and starts playing it if
+     * indicated. Clears the selection once all ringtones are shown if none of them matches.
+     */
+    private void selectRingtone() {
+        if (mSelectedRingtoneUri == null) {
+            return;
+        }
+
         // Attempt to select the requested ringtone.
         final RingtoneHolder toSelect = getRingtoneHolder(mSelectedRingtoneUri);
         if (toSelect != null) {
-            toSelect.setSelected(true);
-            mSelectedRingtoneUri = toSelect.getUri();
-            toSelect.notifyItemChanged();
-
-            // Start playing the ringtone if indicated.
-            if (mIsPlaying) {
-                startPlayingRingtone(toSelect);
+            // Holders kept from an earlier call are already selected.
+            if (!toSelect.isSelected()) {
+                toSelect.setSelected(true);
+                toSelect.notifyItemChanged();
+
+                // Start playing the ringtone if indicated.
+                if (mIsPlaying) {
+                    startPlayingRingtone(toSelect);
+                }
             }
-        } else {
+        } else if (mSystemRingtonesLoaded && mCustomRingtonesChecked) {
             // Clear the selection since it does not exist in the data.
             RingtonePreviewKlaxon.stop(this, mPrefs);
             mSelectedRingtoneUri = null;
@@ -403,10 +529,6 @@ public class RingtonePickerActivity extends CollapsingToolbarBaseActivity
         }
     }
 
-    @Override
-    public void onLoaderReset(@NonNull Loader<List<ItemAdapter.ItemHolder<Uri>>> loader) {
-    }
-
     /**
      * This method adjusts the space occupied by system elements (such as the status bar,
      * navigation bar or screen notch) and adjust the display of the application interface
@@ -466,7 +588,7 @@ public class RingtonePickerActivity extends CollapsingToolbarBaseActivity
         }
 
         if (!ringtone.isPlaying() && !ringtone.isSilent()) {
-            if (RingtoneUtils.isRingtoneUriReadable(this, ringtoneUri)) {
+            if (RingtoneUtils.isRingtoneUriReadableCached(this, ringtoneUri)) {
                 RingtonePreviewKlaxon.start(getApplicationContext(), mPrefs, ringtoneUri);
                 ringtone.setPlaying(true);
                 mIsPlaying = true;
@@ -551,7 +673,7 @@ public class RingtonePickerActivity extends CollapsingToolbarBaseActivity
                     .setPositiveButton(R.string.remove_sound, okListener)
                     .setNegativeButton(android.R.string.cancel, null);
 
-            if (RingtoneUtils.isRingtoneUriReadable(requireContext(), toRemove)) {
+            if (RingtoneUtils.isRingtoneUriReadableCached(requireContext(), toRemove)) {
                 dialogBuilder.setMessage(R.string.confirm_remove_custom_ringtone);
             } else {
                 dialogBuilder.setMessage(R.string.custom_ringtone_lost_permissions);
@@ -663,12 +785,12 @@ public class RingtonePickerActivity extends CollapsingToolbarBaseActivity
 
             final String title = name;
             handler.post(() -> {
-                // When the loader completes, it must play the new ringtone.
+                // Once shown, the new ringtone must be played.
                 mSelectedRingtoneUri = DataModel.getDataModel().customRingtoneToAdd(uri, title);
                 mIsPlaying = true;
 
-                // Reload the data to reflect the change in the UI.
-                LoaderManager.getInstance(this).restartLoader(0, null, RingtonePickerActivity.this);
+                // Show the change in the UI.
+                showRingtones();
             });
         });
     }
@@ -711,8 +833,8 @@ public class RingtonePickerActivity extends CollapsingToolbarBaseActivity
                         // Add the new custom ringtone to the data model.
                         DataModel.getDataModel().customRingtoneToAdd(fileUri, finalName);
 
-                        // Reload the data to reflect the change in the UI.
-                        LoaderManager.getInstance(this).restartLoader(0, null, RingtonePickerActivity.this);
+                        // Show the change in the UI.
+                        showRingtones();
                     });
                 }
             }
@@ -815,8 +937,8 @@ public class RingtonePickerActivity extends CollapsingToolbarBaseActivity
                 // Remove the ringtone from the adapter.
                 mRingtoneAdapter.removeItem(toRemove);
 
-                // Reload the data to reflect the change in the UI.
-                LoaderManager.getInstance(this).restartLoader(0, null, RingtonePickerActivity.this);
+                // Show the change in the UI.
+                showRingtones();
             });
         });
     }
@@ -76,6 +76,22 @@ public final class RingtonePlayer {
     private boolean mMediaVolumeModified = false;
     private boolean mIsCrescendoRunningForSystemMediaVolume = false;
 
+    /**
+     * The player prepared by {@link #prewarm} and the uri it was prepared for.
+     */
+    private ExoPlayer mPrewarmedPlayer;
+    private Uri mPrewarmedUri;
+
+    /**
+     * Whether {@link #mExoPlayer} was prepared by {@link #prewarm}.
+     */
+    private boolean mPlayingPrewarmed;
+
+    /**
+     * Notified the first time the ringtone passed to {@link #play} starts playing.
+     */
+    private OnPlaybackStartedListener mPlaybackStartedListener;
+
     private final Handler mVolumeHandler = new Handler(Looper.getMainLooper());
 
     private final Runnable mVolumeAdjustmentRunnable = new Runnable() {
@@ -140,33 +156,45 @@ public final class RingtonePlayer {
     /**
      * Listener attached to the {@link ExoPlayer} instance to handle playback state changes.
      *
-     * <p>Once the player enters {@code STATE_READY}, this listener begins playback and sets
-     * the volume appropriately based on the current context:</p>
-     * <ul>
-     *     <li>If a phone call is active, volume is reduced to a safe level (12.5%).</li>
-     *     <li>If a crescendo duration is specified, playback starts silently and volume increases gradually.</li>
-     *     <li>Otherwise, volume is immediately set to maximum (100%).</li>
-     * </ul>
+     * <p>Once the player enters {@code STATE_READY}, this listener begins playback.</p>
      */
     private final Player.Listener mPlayerListener = new Player.Listener() {
         @Override
         public void onPlaybackStateChanged(int state) {
             if (state == Player.STATE_READY) {
-                mExoPlayer.play();
-
-                if (isInTelephoneCall(mAudioManager)) {
-                    mExoPlayer.setVolume(IN_CALL_VOLUME);
-                } else if (mCrescendoDuration > 0) {
-                    mCrescendoStopTime = System.currentTimeMillis() + mCrescendoDuration;
-                    mExoPlayer.setVolume(0f);
-                    mVolumeHandler.post(mVolumeAdjustmentRunnable);
-                } else {
-                    mExoPlayer.setVolume(1f);
-                }
+                startPlayback();
             }
         }
     };
 
+    /**
+     * Begins playback of the prepared ringtone and sets the volume appropriately based on the
+     * current context:
+     * <ul>
+     *     <li>If a phone call is active, volume is reduced to a safe level (12.5%).</li>
+     *     <li>If a crescendo duration is specified, playback starts silently and volume increases gradually.</li>
+     *     <li>Otherwise, volume is immediately set to maximum (100%).</li>
+     * </ul>
+     */
+    private void startPlayback() {
+        mExoPlayer.play();
+
+        if (isInTelephoneCall(mAudioManager)) {
+            mExoPlayer.setVolume(IN_CALL_VOLUME);
+        } else if (mCrescendoDuration > 0) {
+            mCrescendoStopTime = System.currentTimeMillis() + mCrescendoDuration;
+            mExoPlayer.setVolume(0f);
+            mVolumeHandler.post(mVolumeAdjustmentRunnable);
+        } else {
+            mExoPlayer.setVolume(1f);
+        }
+
+        if (mPlaybackStartedListener != null) {
+            mPlaybackStartedListener.onPlaybackStarted(mPlayingPrewarmed);
+            mPlaybackStartedListener = null;
+        }
+    }
+
     /**
      * Starts playback of the specified alarm ringtone, handling output routing,
      * volume adjustment, and crescendo effects.
@@ -191,9 +219,19 @@ public final class RingtonePlayer {
      *     <li>If the device is in a phone call, a fallback ringtone is used at reduced volume.</li>
      *     <li>The ringtone is played in loop mode, with optional crescendo over a configurable duration.</li>
      *     <li>The current media volume is saved and restored later in {@link #stop()}.</li>
+     *     <li>If the ringtone was prepared by {@link #prewarm} and plays on the speaker outside of
+     *     a phone call, the prepared player is used and playback starts as soon as it is ready.</li>
      * </ul>
      */
     public void play(Uri ringtoneUri, long crescendoDuration) {
+        play(ringtoneUri, crescendoDuration, null);
+    }
+
+    /**
+     * Starts playback of the specified alarm ringtone like {@link #play(Uri, long)} and notifies
+     * the given listener, on the main thread, once it has started.
+     */
+    public void play(Uri ringtoneUri, long crescendoDuration, OnPlaybackStartedListener listener) {
         if (mExoPlayer != null) {
             stopSystemMediaVolumeCrescendo();
             stop();
@@ -204,6 +242,7 @@ public final class RingtonePlayer {
         }
 
         mCrescendoDuration = crescendoDuration;
+        mPlaybackStartedListener = listener;
 
         boolean isBluetooth = false;
         AudioDeviceInfo preferredDevice = null;
@@ -230,27 +269,32 @@ public final class RingtonePlayer {
             }
         }
 
-        mExoPlayer = new ExoPlayer.Builder(mContext)
-                .setAudioAttributes(buildAudioAttributes(isBluetooth), isBluetooth)
-                .build();
-
         boolean inCall = isInTelephoneCall(mAudioManager);
 
-        if (inCall) {
-            ringtoneUri = getInCallRingtoneUri(mContext);
-        }
+        // The prewarmed player is built for the speaker and can only be used when it has not failed
+        mPlayingPrewarmed = !isBluetooth && !inCall && mPrewarmedPlayer != null
+                && mPrewarmedUri.equals(ringtoneUri)
+                && mPrewarmedPlayer.getPlaybackState() != Player.STATE_IDLE;
 
-        if (RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM).equals(ringtoneUri)) {
-            ringtoneUri = RingtoneManager.getActualDefaultRingtoneUri(mContext, RingtoneManager.TYPE_ALARM);
-        }
+        if (mPlayingPrewarmed) {
+            mExoPlayer = mPrewarmedPlayer;
+            mPrewarmedPlayer = null;
+            mPrewarmedUri = null;
+        } else {
+            cancelPrewarm();
 
-        if (ringtoneUri == null || !RingtoneUtils.isRingtoneUriReadable(mContext, ringtoneUri)) {
-            ringtoneUri = getFallbackRingtoneUri(mContext);
-        }
+            mExoPlayer = new ExoPlayer.Builder(mContext)
+                    .setAudioAttributes(buildAudioAttributes(isBluetooth), isBluetooth)
+                    .build();
 
-        mExoPlayer.setMediaItem(MediaItem.fromUri(ringtoneUri));
+            if (inCall) {
+                ringtoneUri = getInCallRingtoneUri(mContext);
+            }
 
-        mExoPlayer.setRepeatMode(REPEAT_MODE_ONE);
+            mExoPlayer.setMediaItem(MediaItem.fromUri(resolveRingtoneUri(ringtoneUri)));
+
+            mExoPlayer.setRepeatMode(REPEAT_MODE_ONE);
+        }
 
         if (preferredDevice == null) {
             preferredDevice = findSpeakerDevice(mAudioManager);
@@ -263,7 +307,61 @@ public final class RingtonePlayer {
 
         mExoPlayer.addListener(mPlayerListener);
 
-        mExoPlayer.prepare();
+        if (!mPlayingPrewarmed) {
+            mExoPlayer.prepare();
+        } else if (mExoPlayer.getPlaybackState() == Player.STATE_READY) {
+            // The listener was not attached when the prewarmed player became ready.
+            startPlayback();
+        }
+    }
+
+    /**
+     * Resolves and prepares the ringtone ahead of time, so that a later call to {@link #play} with
+     * the same uri only has to start it.
+     *
+     * <p>Any ringtone prepared earlier is released. Must be called on the main thread.</p>
+     */
+    public void prewarm(Uri ringtoneUri) {
+        cancelPrewarm();
+
+        if (ringtoneUri == null) {
+            return;
+        }
+
+        mPrewarmedPlayer = new ExoPlayer.Builder(mContext)
+                .setAudioAttributes(buildAudioAttributes(false), false)
+                .build();
+        mPrewarmedPlayer.setMediaItem(MediaItem.fromUri(resolveRingtoneUri(ringtoneUri)));
+        mPrewarmedPlayer.setRepeatMode(REPEAT_MODE_ONE);
+        mPrewarmedPlayer.prepare();
+        mPrewarmedUri = ringtoneUri;
+    }
+
+    /**
+     * Releases the ringtone prepared by {@link #prewarm} if it has not been played.
+     */
+    public void cancelPrewarm() {
+        if (mPrewarmedPlayer != null) {
+            mPrewarmedPlayer.release();
+            mPrewarmedPlayer = null;
+        }
+        mPrewarmedUri = null;
+    }
+
+    /**
+     * @return the uri that actually plays the given ringtone: the current alarm ringtone for the
+     * default one, and the fallback ringtone if the ringtone cannot be read
+     */
+    private Uri resolveRingtoneUri(Uri ringtoneUri) {
+        if (RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM).equals(ringtoneUri)) {
+            ringtoneUri = RingtoneManager.getActualDefaultRingtoneUri(mContext, RingtoneManager.TYPE_ALARM);
+        }
+
+        if (ringtoneUri == null || !RingtoneUtils.isRingtoneUriReadable(mContext, ringtoneUri)) {
+            ringtoneUri = getFallbackRingtoneUri(mContext);
+        }
+
+        return ringtoneUri;
     }
 
     /**
@@ -287,6 +385,8 @@ public final class RingtonePlayer {
 
         mCrescendoDuration = 0;
         mCrescendoStopTime = 0;
+        mPlayingPrewarmed = false;
+        mPlaybackStartedListener = null;
 
         // Restore the media volume to its original state
         if (mMediaVolumeModified && mOriginalMediaVolume >= 0) {
@@ -75,7 +75,7 @@ final class RingtoneViewHolder extends ItemAdapter.ItemViewHolder<RingtoneHolder
 
         final int itemViewType = getItemViewType();
         if (itemViewType == VIEW_TYPE_CUSTOM_SOUND) {
-            if (!RingtoneUtils.isRingtoneUriReadable(context, itemHolder.getUri())) {
+            if (!RingtoneUtils.isRingtoneUriReadableCached(context, itemHolder.getUri())) {
                 final Drawable error = AppCompatResources.getDrawable(context, R.drawable.ic_error);
                 if (error != null) {
                     error.setTint(Color.parseColor("#FF4444"));
@@ -22,6 +22,7 @@ import static com.best.deskclock.settings.PreferencesKeys.KEY_ABOUT_TRANSLATE;
 import static com.best.deskclock.settings.PreferencesKeys.KEY_ABOUT_VERSION;
 import static com.best.deskclock.settings.PreferencesKeys.KEY_ABOUT_VIEW_ON_GITHUB;
 import static com.best.deskclock.settings.PreferencesKeys.KEY_ABOUT_WHATS_NEW;
+import static com.best.deskclock.settings.PreferencesKeys.KEY_ALARM_RINGTONE_LATENCY;
 import static com.best.deskclock.settings.PreferencesKeys.KEY_DEBUG_CATEGORY;
 import static com.best.deskclock.settings.PreferencesKeys.KEY_DISPLAY_DEBUG_SETTINGS;
 import static com.best.deskclock.settings.PreferencesKeys.KEY_ENABLE_LOCAL_LOGGING;
@@ -53,8 +54,8 @@ import com.best.deskclock.R;
 import com.best.deskclock.alarms.AlarmStateManager;
 import com.best.deskclock.controller.ThemeController;
 import com.best.deskclock.data.DataModel;
+import com.best.deskclock.data.TimerDAO;
 import com.best.deskclock.data.SettingsDAO;
-import com.best.deskclock.provider.Alarm;
 import com.best.deskclock.uidata.UiDataModel;
 import com.best.deskclock.utils.LogUtils;
 import com.best.deskclock.utils.Utils;
@@ -70,7 +71,6 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.util.Date;
-import java.util.List;
 import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -117,6 +117,7 @@ public class AboutFragment extends ScreenFragment
     Preference mCredit2;
     PreferenceCategory mDebugCategoryPref;
     SwitchPreferenceCompat mEnableLocalLoggingPref;
+    Preference mAlarmRingtoneLatencyPref;
 
     /**
      * Used only for release versions.
@@ -149,6 +150,7 @@ public class AboutFragment extends ScreenFragment
         mCredit2 = findPreference(KEY_ABOUT_CRDROID);
         mDebugCategoryPref = findPreference(KEY_DEBUG_CATEGORY);
         mEnableLocalLoggingPref = findPreference(KEY_ENABLE_LOCAL_LOGGING);
+        mAlarmRingtoneLatencyPref = findPreference(KEY_ALARM_RINGTONE_LATENCY);
 
         setupPreferences();
     }
@@ -334,6 +336,18 @@ public class AboutFragment extends ScreenFragment
         mDebugCategoryPref.setVisible(SettingsDAO.isDebugSettingsDisplayed(mPrefs));
         mEnableLocalLoggingPref.setVisible(SettingsDAO.isDebugSettingsDisplayed(mPrefs));
         mEnableLocalLoggingPref.setOnPreferenceChangeListener(this);
+
+        mAlarmRingtoneLatencyPref.setVisible(SettingsDAO.isDebugSettingsDisplayed(mPrefs));
+        final long alarmRingtoneLatency = SettingsDAO.getLastAlarmRingtoneLatency(mPrefs);
+        if (alarmRingtoneLatency < 0) {
+            mAlarmRingtoneLatencyPref.setSummary(R.string.alarm_ringtone_latency_summary_none);
+        } else if (SettingsDAO.isLastAlarmRingtonePrewarmed(mPrefs)) {
+            mAlarmRingtoneLatencyPref.setSummary(getString(
+                    R.string.alarm_ringtone_latency_summary_prewarmed, alarmRingtoneLatency));
+        } else {
+            mAlarmRingtoneLatencyPref.setSummary(getString(
+                    R.string.alarm_ringtone_latency_summary_cold, alarmRingtoneLatency));
+        }
     }
 
     private void resetPreferences() {
@@ -370,16 +384,15 @@ public class AboutFragment extends ScreenFragment
             requireContext().sendBroadcast(new Intent(ACTION_LANGUAGE_CODE_CHANGED));
             // Required to update widgets.
             requireContext().sendBroadcast(new Intent(ACTION_APPWIDGET_UPDATE));
-            // Required to update the timer list.
+            // Delete all timers, which are not stored with the settings, and update the timer list.
+            TimerDAO.removeAllTimers(requireContext());
             DataModel.getDataModel().loadTimers();
+            // Reset the stopwatch and delete its laps, which are not stored with the settings either.
+            DataModel.getDataModel().clearStopwatch();
             // Required to update the tab to display.
             UiDataModel.getUiDataModel().setSelectedTab(UiDataModel.Tab.CLOCKS);
             // Delete all alarms.
-            final List<Alarm> alarms = Alarm.getAlarms(requireContext().getContentResolver(), null);
-            for (Alarm alarm : alarms) {
-                AlarmStateManager.deleteAllInstances(requireContext(), alarm.id);
-                Alarm.deleteAlarm(requireContext().getContentResolver(), alarm.id);
-            }
+            AlarmStateManager.deleteAllAlarms(requireContext());
 
             ThemeController.setNewSettingWithDelay();
 
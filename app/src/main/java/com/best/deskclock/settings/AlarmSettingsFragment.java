@@ -44,6 +44,7 @@ import static com.best.deskclock.settings.PreferencesKeys.KEY_POWER_BUTTON;
 import static com.best.deskclock.settings.PreferencesKeys.KEY_REPEAT_MISSED_ALARM;
 import static com.best.deskclock.settings.PreferencesKeys.KEY_SHAKE_ACTION;
 import static com.best.deskclock.settings.PreferencesKeys.KEY_SHAKE_INTENSITY;
+import static com.best.deskclock.settings.PreferencesKeys.KEY_SHUFFLE_RANDOM_RINGTONES;
 import static com.best.deskclock.settings.PreferencesKeys.KEY_SORT_ALARM;
 import static com.best.deskclock.settings.PreferencesKeys.KEY_SYSTEM_MEDIA_VOLUME;
 import static com.best.deskclock.settings.PreferencesKeys.KEY_TURN_ON_BACK_FLASH_FOR_TRIGGERED_ALARM;
@@ -114,6 +115,7 @@ public class AlarmSettingsFragment extends ScreenFragment
 
     Preference mAlarmFontPref;
     Preference mAlarmRingtonePref;
+    SwitchPreferenceCompat mShuffleRandomRingtonesPref;
     SwitchPreferenceCompat mEnablePerAlarmAutoSilencePref;
     AutoSilenceDurationPreference mAlarmAutoSilencePref;
     SwitchPreferenceCompat mEnablePerAlarmSnoozeDurationPref;
@@ -207,6 +209,7 @@ public class AlarmSettingsFragment extends ScreenFragment
         mMaterialTimePickerStylePref = findPreference(KEY_MATERIAL_TIME_PICKER_STYLE);
         mMaterialDatePickerStylePref = findPreference(KEY_MATERIAL_DATE_PICKER_STYLE);
         mAlarmRingtonePref = findPreference(KEY_DEFAULT_ALARM_RINGTONE);
+        mShuffleRandomRingtonesPref = findPreference(KEY_SHUFFLE_RANDOM_RINGTONES);
         mEnablePerAlarmAutoSilencePref = findPreference(KEY_ENABLE_PER_ALARM_AUTO_SILENCE);
         mAlarmAutoSilencePref = findPreference(KEY_AUTO_SILENCE_DURATION);
         mEnablePerAlarmSnoozeDurationPref = findPreference(KEY_ENABLE_PER_ALARM_SNOOZE_DURATION);
@@ -281,7 +284,7 @@ public class AlarmSettingsFragment extends ScreenFragment
                  KEY_DISPLAY_DISMISS_BUTTON, KEY_ENABLE_ALARM_VIBRATIONS_BY_DEFAULT,
                  KEY_ENABLE_SNOOZED_OR_DISMISSED_ALARM_VIBRATIONS,
                  KEY_TURN_ON_BACK_FLASH_FOR_TRIGGERED_ALARM,
-                 KEY_ENABLE_DELETE_OCCASIONAL_ALARM_BY_DEFAULT ->
+                 KEY_ENABLE_DELETE_OCCASIONAL_ALARM_BY_DEFAULT, KEY_SHUFFLE_RANDOM_RINGTONES ->
                     Utils.setVibrationTime(requireContext(), 50);
 
             case KEY_ENABLE_PER_ALARM_AUTO_SILENCE -> {
@@ -550,6 +553,8 @@ public class AlarmSettingsFragment extends ScreenFragment
 
         mAlarmRingtonePref.setOnPreferenceClickListener(this);
 
+        mShuffleRandomRingtonesPref.setOnPreferenceChangeListener(this);
+
         mEnablePerAlarmAutoSilencePref.setOnPreferenceChangeListener(this);
 
         // Alarm auto silence duration preference
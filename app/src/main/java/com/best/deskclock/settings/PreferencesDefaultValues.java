@@ -64,6 +64,7 @@ public class PreferencesDefaultValues {
     public static final String DEFAULT_HOME_TIME_ZONE = null;
 
     // Alarm
+    public static final boolean DEFAULT_SHUFFLE_RANDOM_RINGTONES = false;
     public static final boolean DEFAULT_ENABLE_PER_ALARM_AUTO_SILENCE = true;
     public static final int DEFAULT_AUTO_SILENCE_DURATION = 600;
     public static final boolean DEFAULT_ENABLE_PER_ALARM_SNOOZE_DURATION = true;
@@ -33,6 +33,7 @@ public class PreferencesKeys {
     public static final String KEY_DISPLAY_DEBUG_SETTINGS = "key_display_debug_settings";
     public static final String KEY_DEBUG_CATEGORY = "key_debug_category";
     public static final String KEY_ENABLE_LOCAL_LOGGING = "key_enable_local_logging";
+    public static final String KEY_ALARM_RINGTONE_LATENCY = "key_alarm_ringtone_latency";
 
     // Interface
     public static final String KEY_THEME = "key_theme";
@@ -71,6 +72,7 @@ public class PreferencesKeys {
 
     // Alarm
     public static final String KEY_DEFAULT_ALARM_RINGTONE = "key_default_alarm_ringtone";
+    public static final String KEY_SHUFFLE_RANDOM_RINGTONES = "key_shuffle_random_ringtones";
     public static final String KEY_ENABLE_PER_ALARM_AUTO_SILENCE = "key_enable_per_alarm_auto_silence";
     public static final String KEY_AUTO_SILENCE_DURATION = "key_auto_silence_duration";
     public static final String KEY_ENABLE_PER_ALARM_SNOOZE_DURATION = "key_enable_per_alarm_snooze_duration";
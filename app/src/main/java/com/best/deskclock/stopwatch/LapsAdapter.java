@@ -7,6 +7,8 @@
 package com.best.deskclock.stopwatch;
 
 import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Color;
 import android.graphics.Typeface;
 import android.text.format.DateUtils;
 import android.util.TypedValue;
@@ -22,17 +24,19 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.best.deskclock.R;
 import com.best.deskclock.data.DataModel;
 import com.best.deskclock.data.Lap;
+import com.best.deskclock.data.LapStatistics;
 import com.best.deskclock.data.Stopwatch;
 import com.best.deskclock.uidata.UiDataModel;
 import com.best.deskclock.utils.ThemeUtils;
 import com.best.deskclock.utils.Utils;
+import com.google.android.material.color.MaterialColors;
 
 import java.text.DecimalFormatSymbols;
-import java.util.List;
+import java.util.Locale;
 
 /**
  * Displays a list of lap times in reverse order. That is, the newest lap is at the top, the oldest
- * lap is at the bottom.
+ * lap is at the bottom. Once two laps are recorded, the shortest and longest laps are highlighted.
  */
 class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
 
@@ -64,6 +68,12 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
      */
     private int mLastFormattedAccumulatedTimeLength;
 
+    /**
+     * The lap number format for lap counts of 100 or more, and the number of digits it pads to.
+     */
+    private String mLapNumberFormat;
+    private int mLapNumberFormatDigitCount;
+
     LapsAdapter(Context context) {
         mContext = context;
         mInflater = LayoutInflater.from(context);
@@ -134,7 +144,7 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
      */
     @Override
     public int getItemCount() {
-        final int lapCount = getLaps().size();
+        final int lapCount = getLapCount();
         final int currentLapCount = lapCount == 0 ? 0 : 1;
         return currentLapCount + lapCount;
     }
@@ -149,37 +159,41 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
     @Override
     public void onBindViewHolder(@NonNull LapItemHolder viewHolder, int position) {
         final long lapTime;
-        final int lapNumber;
         final long totalTime;
+        final int lapCount = getLapCount();
+        final int lapNumber = getLapNumber(lapCount, position);
 
-        // Lap will be null for the current lap.
-        final Lap lap = position == 0 ? null : getLaps().get(position - 1);
-        if (lap != null) {
-            // For a recorded lap, merely extract the values to format.
-            lapTime = lap.getLapTime();
-            lapNumber = lap.getLapNumber();
-            totalTime = lap.getAccumulatedTime();
+        if (position != 0) {
+            // For a recorded lap, merely read the values to format.
+            lapTime = DataModel.getDataModel().getLapTime(lapNumber);
+            totalTime = DataModel.getDataModel().getLapAccumulatedTime(lapNumber);
         } else {
             // For the current lap, compute times relative to the stopwatch.
             totalTime = getStopwatch().getTotalTime();
             lapTime = DataModel.getDataModel().getCurrentLapTime(totalTime);
-            lapNumber = getLaps().size() + 1;
         }
 
         // Bind data into the child views.
         viewHolder.lapTime.setText(formatLapTime(lapTime, true));
         viewHolder.accumulatedTime.setText(formatAccumulatedTime(totalTime, true));
-        viewHolder.lapNumber.setText(formatLapNumber(getLaps().size() + 1, lapNumber));
+        viewHolder.lapNumber.setText(formatLapNumber(lapCount + 1, lapNumber));
+
+        // Highlight the shortest and longest recorded laps once they can be told apart.
+        final LapStatistics statistics = DataModel.getDataModel().getLapStatistics();
+        if (position == 0 || lapCount < 2) {
+            viewHolder.lapTime.setTextColor(viewHolder.defaultLapTimeColor);
+        } else if (lapNumber == statistics.getShortestLapNumber()) {
+            viewHolder.lapTime.setTextColor(viewHolder.shortestLapTimeColor);
+        } else if (lapNumber == statistics.getLongestLapNumber()) {
+            viewHolder.lapTime.setTextColor(viewHolder.longestLapTimeColor);
+        } else {
+            viewHolder.lapTime.setTextColor(viewHolder.defaultLapTimeColor);
+        }
     }
 
     @Override
     public long getItemId(int position) {
-        final List<Lap> laps = getLaps();
-        if (position == 0) {
-            return laps.size() + 1;
-        }
-
-        return laps.get(position - 1).getLapNumber();
+        return getLapNumber(getLapCount(), position);
     }
 
     /**
@@ -209,12 +223,18 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
      * @return a newly cleared lap
      */
     Lap addLap() {
+        final LapStatistics statistics = DataModel.getDataModel().getLapStatistics();
+        final int oldShortestLapNumber = statistics.getShortestLapNumber();
+        final int oldLongestLapNumber = statistics.getLongestLapNumber();
+        final boolean wasHighlighting = statistics.getCount() >= 2;
+
         final Lap lap = DataModel.getDataModel().addLap();
 
         Utils.setVibrationTime(mContext, 10);
 
-        if (getItemCount() == 10) {
-            // 10 total laps indicates all items switch from 1 to 2 digit lap numbers.
+        final int itemCount = getItemCount();
+        if (itemCount >= 10 && getDigitCount(itemCount) != getDigitCount(itemCount - 1)) {
+            // 10, 100, ... total laps indicates all items switch to one more digit in lap numbers.
             notifyDataSetChanged();
         } else {
             // New current lap now exists.
@@ -222,6 +242,16 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
 
             // Prior current lap must be refreshed once with the true values in place.
             notifyItemChanged(1);
+
+            // Laps that are no longer, or have just become, the shortest or longest must be
+            // refreshed to update their highlight.
+            final int lapCount = getLapCount();
+            if (oldShortestLapNumber != statistics.getShortestLapNumber() || !wasHighlighting) {
+                notifyLapChanged(lapCount, oldShortestLapNumber);
+            }
+            if (oldLongestLapNumber != statistics.getLongestLapNumber() || !wasHighlighting) {
+                notifyLapChanged(lapCount, oldLongestLapNumber);
+            }
         }
 
         return lap;
@@ -254,25 +284,24 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
         builder.append(mContext.getString(R.string.sw_share_main, stopwatchTime));
         builder.append("\n");
 
-        final List<Lap> laps = getLaps();
-        if (!laps.isEmpty()) {
+        final int lapCount = getLapCount();
+        if (lapCount > 0) {
             // Add a header for lap times.
             builder.append(mContext.getString(R.string.sw_share_laps));
             builder.append("\n");
 
             // Loop through the laps in the order they were recorded; reverse of display order.
             final String separator = DecimalFormatSymbols.getInstance().getDecimalSeparator() + " ";
-            for (int i = laps.size() - 1; i >= 0; i--) {
-                final Lap lap = laps.get(i);
-                builder.append(lap.getLapNumber());
+            for (int lapNumber = 1; lapNumber <= lapCount; lapNumber++) {
+                builder.append(lapNumber);
                 builder.append(separator);
-                final long lapTime = lap.getLapTime();
+                final long lapTime = DataModel.getDataModel().getLapTime(lapNumber);
                 builder.append(formatTime(lapTime, lapTime, " "));
                 builder.append("\n");
             }
 
             // Append the final lap
-            builder.append(laps.size() + 1);
+            builder.append(lapCount + 1);
             builder.append(separator);
             final long lapTime = DataModel.getDataModel().getCurrentLapTime(totalTime);
             builder.append(formatTime(lapTime, lapTime, " "));
@@ -287,15 +316,37 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
     /**
      * @param lapCount  the total number of recorded laps
      * @param lapNumber the number of the lap being formatted
-     * @return e.g. "# 7" if {@code lapCount} less than 10; "# 07" if {@code lapCount} is 10 or more
+     * @return e.g. "# 7" if {@code lapCount} less than 10; "# 07" if {@code lapCount} is 10 or more;
+     * "# 007" if {@code lapCount} is 100 or more, and so on
      */
     @VisibleForTesting
     String formatLapNumber(int lapCount, int lapNumber) {
         if (lapCount < 10) {
             return mContext.getString(R.string.lap_number_single_digit, lapNumber);
-        } else {
+        } else if (lapCount < 100) {
             return mContext.getString(R.string.lap_number_double_digit, lapNumber);
         }
+
+        // Pad to the width of the lap count, reusing the localized double digit format.
+        final int digitCount = getDigitCount(lapCount);
+        if (mLapNumberFormatDigitCount != digitCount) {
+            mLapNumberFormat = mContext.getString(R.string.lap_number_double_digit)
+                    .replace("%02d", "%0" + digitCount + "d");
+            mLapNumberFormatDigitCount = digitCount;
+        }
+        return String.format(Locale.getDefault(), mLapNumberFormat, lapNumber);
+    }
+
+    /**
+     * @return the number of decimal digits of the given positive number
+     */
+    private static int getDigitCount(int number) {
+        int digitCount = 1;
+        while (number >= 10) {
+            number /= 10;
+            digitCount++;
+        }
+        return digitCount;
     }
 
     /**
@@ -345,8 +396,29 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
         return DataModel.getDataModel().getStopwatch();
     }
 
-    private List<Lap> getLaps() {
-        return DataModel.getDataModel().getLaps();
+    private int getLapCount() {
+        return DataModel.getDataModel().getLapCount();
+    }
+
+    /**
+     * @param lapCount the number of recorded laps
+     * @param position the adapter position of a lap; {@code 0} is the current lap
+     * @return the 1-based number of the lap at {@code position}
+     */
+    private static int getLapNumber(int lapCount, int position) {
+        return lapCount + 1 - position;
+    }
+
+    /**
+     * @param lapCount  the number of recorded laps
+     * @param lapNumber the 1-based number of the recorded lap to refresh; {@code 0} for none
+     */
+    private void notifyLapChanged(int lapCount, int lapNumber) {
+        // Position 1 is the newest recorded lap, which has already been refreshed.
+        final int position = lapCount + 1 - lapNumber;
+        if (lapNumber > 0 && position > 1) {
+            notifyItemChanged(position);
+        }
     }
 
     /**
@@ -357,6 +429,9 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
         private final TextView lapNumber;
         private final TextView lapTime;
         private final TextView accumulatedTime;
+        private final ColorStateList defaultLapTimeColor;
+        private final int shortestLapTimeColor;
+        private final int longestLapTimeColor;
 
         LapItemHolder(View itemView) {
             super(itemView);
@@ -374,6 +449,11 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
 
             lapTime = itemView.findViewById(R.id.lap_time);
             lapTime.setTextSize(TypedValue.COMPLEX_UNIT_SP, 18);
+            defaultLapTimeColor = lapTime.getTextColors();
+            shortestLapTimeColor = MaterialColors.getColor(
+                    context, com.google.android.material.R.attr.colorPrimary, Color.BLACK);
+            longestLapTimeColor = MaterialColors.getColor(
+                    context, androidx.appcompat.R.attr.colorError, Color.RED);
 
             accumulatedTime = itemView.findViewById(R.id.lap_total);
             accumulatedTime.setTextSize(TypedValue.COMPLEX_UNIT_SP, 18);
@@ -18,13 +18,10 @@ import android.view.View;
 import androidx.annotation.NonNull;
 
 import com.best.deskclock.data.DataModel;
-import com.best.deskclock.data.Lap;
 import com.best.deskclock.data.Stopwatch;
 import com.best.deskclock.utils.ThemeUtils;
 import com.google.android.material.color.MaterialColors;
 
-import java.util.List;
-
 /**
  * Custom view that draws a reference lap as a circle when one exists.
  */
@@ -110,10 +107,10 @@ public final class StopwatchCircleView extends View {
         mPaint.setColor(mRemainderColor);
         mPaint.setStrokeWidth(mStrokeSize);
 
-        final List<Lap> laps = getLaps();
+        final int lapCount = DataModel.getDataModel().getLapCount();
 
         // If a reference lap does not exist or should not be drawn, draw a simple white circle.
-        if (laps.isEmpty() || !DataModel.getDataModel().canAddMoreLaps()) {
+        if (lapCount == 0 || !DataModel.getDataModel().canAddMoreLaps()) {
             // Draw a complete white circle; no red arc required.
             canvas.drawCircle(xCenter, yCenter, radius, mPaint);
 
@@ -123,11 +120,9 @@ public final class StopwatchCircleView extends View {
 
         // The first lap is the reference lap to which all future laps are compared.
         final Stopwatch stopwatch = getStopwatch();
-        final int lapCount = laps.size();
-        final Lap firstLap = laps.get(lapCount - 1);
-        final Lap priorLap = laps.get(0);
-        final long firstLapTime = firstLap.getLapTime();
-        final long currentLapTime = stopwatch.getTotalTime() - priorLap.getAccumulatedTime();
+        final long firstLapTime = DataModel.getDataModel().getLapTime(1);
+        final long currentLapTime =
+                stopwatch.getTotalTime() - DataModel.getDataModel().getLapAccumulatedTime(lapCount);
 
         // Draw a combination of red and white arcs to create a circle.
         mArcRect.top = yCenter - radius;
@@ -148,7 +143,8 @@ public final class StopwatchCircleView extends View {
         if (lapCount > 1) {
             mPaint.setColor(mRemainderColor);
             mPaint.setStrokeWidth(mMarkerStrokeSize);
-            final float markerAngle = (float) priorLap.getLapTime() / (float) firstLapTime * 360;
+            final long priorLapTime = DataModel.getDataModel().getLapTime(lapCount);
+            final float markerAngle = (float) priorLapTime / (float) firstLapTime * 360;
             final float startAngle = 270 + markerAngle;
             final float sweepAngle = mScreenDensity * (float) (360 / (radius * Math.PI));
             canvas.drawArc(mArcRect, startAngle, sweepAngle, false, mPaint);
@@ -163,8 +159,4 @@ public final class StopwatchCircleView extends View {
     private Stopwatch getStopwatch() {
         return DataModel.getDataModel().getStopwatch();
     }
-
-    private List<Lap> getLaps() {
-        return DataModel.getDataModel().getLaps();
-    }
 }
@@ -38,6 +38,23 @@ public final class StopwatchTextController {
             return;
         }
 
+        mHundredthsTextView.setText(UiDataModel.getUiDataModel().getFormattedNumber(
+                (int) (accumulatedTime % SECOND_IN_MILLIS) / 10, 2));
+
+        // Avoid unnecessary computations and garbage creation if seconds have not changed since
+        // last layout pass.
+        if ((mLastTime / SECOND_IN_MILLIS) != (accumulatedTime / SECOND_IN_MILLIS)) {
+            mMainTextView.setText(formatMainTime(mMainTextView.getContext(), accumulatedTime));
+        }
+        mLastTime = accumulatedTime;
+    }
+
+    /**
+     * @param accumulatedTime the time elapsed on the stopwatch, in milliseconds
+     * @return the hours, minutes and seconds of the given time as displayed by the stopwatch,
+     *      without the hundredths of a second
+     */
+    public static String formatMainTime(Context context, long accumulatedTime) {
         final int hours = (int) (accumulatedTime / HOUR_IN_MILLIS);
         int remainder = (int) (accumulatedTime % HOUR_IN_MILLIS);
 
@@ -45,18 +62,7 @@ public final class StopwatchTextController {
         remainder = (int) (remainder % MINUTE_IN_MILLIS);
 
         final int seconds = (int) (remainder / SECOND_IN_MILLIS);
-        remainder = (int) (remainder % SECOND_IN_MILLIS);
-
-        mHundredthsTextView.setText(UiDataModel.getUiDataModel().getFormattedNumber(
-                remainder / 10, 2));
 
-        // Avoid unnecessary computations and garbage creation if seconds have not changed since
-        // last layout pass.
-        if ((mLastTime / SECOND_IN_MILLIS) != (accumulatedTime / SECOND_IN_MILLIS)) {
-            final Context context = mMainTextView.getContext();
-            final String time = Utils.getTimeString(context, hours, minutes, seconds);
-            mMainTextView.setText(time);
-        }
-        mLastTime = accumulatedTime;
+        return Utils.getTimeString(context, hours, minutes, seconds);
     }
 }
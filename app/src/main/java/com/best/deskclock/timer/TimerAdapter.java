@@ -18,6 +18,7 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -42,8 +43,16 @@ public class TimerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     private final int SINGLE_TIMER = R.layout.timer_single_item;
     private final int MULTIPLE_TIMERS = R.layout.timer_item;
 
+    /**
+     * Payload of a timer whose state changed: its view holder is bound again in place instead of
+     * being cross-faded with a new one.
+     */
+    private static final Object PAYLOAD_TIMER_UPDATED = new Object();
+
     /** Maps each timer id to the corresponding {@link TimerViewHolder} that draws it. */
     private final Map<Integer, TimerViewHolder> mHolders = new ArrayMap<>();
+    /** The ids of the timers in the order last dispatched to the RecyclerView. */
+    private final List<Integer> mTimerIds = new ArrayList<>();
     private final TimerClickHandler mTimerClickHandler;
     private final Context mContext;
     private final SharedPreferences mPrefs;
@@ -52,6 +61,7 @@ public class TimerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
         mContext = context;
         mPrefs = sharedPreferences;
         mTimerClickHandler = timerClickHandler;
+        snapshotTimerIds();
     }
 
     @Override
@@ -92,19 +102,74 @@ public class TimerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     @Override
     public void timerAdded(Timer timer) {
         saveTimerList();
-        notifyDataSetChanged();
+        dispatchTimersChanged(timer.getId());
     }
 
     @Override
     public void timerRemoved(Timer timer) {
         mHolders.remove(timer.getId());
         saveTimerList();
-        notifyDataSetChanged();
+        dispatchTimersChanged(timer.getId());
     }
 
     @Override
     public void timerUpdated(Timer before, Timer after) {
-        notifyDataSetChanged();
+        dispatchTimersChanged(after.getId());
+    }
+
+    /**
+     * Notifies the RecyclerView of the timers inserted, removed or moved since the last dispatch,
+     * and of the change of a timer, instead of binding every timer again.
+     *
+     * @param changedTimerId the id of the timer that was added, removed or updated
+     */
+    private void dispatchTimersChanged(int changedTimerId) {
+        final List<Integer> oldTimerIds = new ArrayList<>(mTimerIds);
+        snapshotTimerIds();
+        final List<Integer> newTimerIds = mTimerIds;
+
+        // The layout of a timer depends on whether it is the only one.
+        if ((oldTimerIds.size() == 1) != (newTimerIds.size() == 1)) {
+            notifyDataSetChanged();
+            return;
+        }
+
+        DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldTimerIds.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newTimerIds.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return oldTimerIds.get(oldItemPosition).equals(newTimerIds.get(newItemPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return newTimerIds.get(newItemPosition) != changedTimerId;
+            }
+
+            @Override
+            public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+                return PAYLOAD_TIMER_UPDATED;
+            }
+        }).dispatchUpdatesTo(this);
+    }
+
+    /**
+     * Records the current order of the timers as the one displayed by the RecyclerView.
+     */
+    void snapshotTimerIds() {
+        mTimerIds.clear();
+        for (Timer timer : getTimers()) {
+            mTimerIds.add(timer.getId());
+        }
     }
 
     /**
@@ -175,6 +240,7 @@ public class TimerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
             }
 
             // Notify adapter
+            snapshotTimerIds();
             notifyDataSetChanged();
         }
     }
@@ -242,6 +308,7 @@ public class TimerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
 
             Collections.swap(DataModel.getDataModel().getTimers(), fromPosition, toPosition);
             Objects.requireNonNull(recyclerView.getAdapter()).notifyItemMoved(fromPosition, toPosition);
+            mAdapter.snapshotTimerIds();
 
             mAdapter.saveTimerList();
 
@@ -0,0 +1,88 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.uidata;
+
+import java.util.Locale;
+
+/**
+ * Caches numbers formatted in the current locale and padded with zeroes to requested lengths.
+ * <p>
+ * The formatted values of each length are stored in an array indexed by value, so a cache hit
+ * is two array reads and doesn't create any garbage. This class doesn't depend on the Android
+ * framework.</p>
+ */
+final class FormattedNumberCache {
+
+    /**
+     * Values greater than or equal to this limit are formatted without being cached.
+     */
+    private static final int MAX_CACHED_VALUE = 10000;
+
+    /**
+     * Maps a length to the formatted values of that length, indexed by value.
+     */
+    private String[][] mCache = new String[4][];
+
+    /**
+     * @param value  a positive integer to format as a String
+     * @param length the length of the String; zeroes are padded to match this length
+     * @return the {@code value} formatted as a String in the current locale and padded to the
+     * requested {@code length}
+     * @throws IllegalArgumentException if {@code value} is negative
+     */
+    String getFormattedNumber(int value, int length) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value may not be negative: " + value);
+        }
+
+        if (value >= MAX_CACHED_VALUE || length < 0) {
+            return format(value, length);
+        }
+
+        if (length >= mCache.length) {
+            final String[][] cache = new String[length + 1][];
+            System.arraycopy(mCache, 0, cache, 0, mCache.length);
+            mCache = cache;
+        }
+
+        String[] valueCache = mCache[length];
+        if (valueCache == null) {
+            valueCache = new String[getCacheSize(length)];
+            mCache[length] = valueCache;
+        }
+
+        if (value >= valueCache.length) {
+            return format(value, length);
+        }
+
+        String formatted = valueCache[value];
+        if (formatted == null) {
+            formatted = format(value, length);
+            valueCache[value] = formatted;
+        }
+
+        return formatted;
+    }
+
+    /**
+     * Clears all cached values, e.g. when the locale changes.
+     */
+    void clear() {
+        mCache = new String[4][];
+    }
+
+    /**
+     * @return the number of values of the given length, at most {@link #MAX_CACHED_VALUE}.
+     */
+    private static int getCacheSize(int length) {
+        int size = 1;
+        for (int i = 0; i < length && size < MAX_CACHED_VALUE; i++) {
+            size *= 10;
+        }
+        return Math.min(size, MAX_CACHED_VALUE);
+    }
+
+    private static String format(int value, int length) {
+        return String.format(Locale.getDefault(), "%0" + length + "d", value);
+    }
+}
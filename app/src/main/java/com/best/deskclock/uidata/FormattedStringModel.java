@@ -15,7 +15,6 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.util.ArrayMap;
-import android.util.SparseArray;
 
 import com.best.deskclock.utils.SdkUtils;
 
@@ -38,10 +37,8 @@ final class FormattedStringModel {
 
     /**
      * Caches formatted numbers in the current locale padded with zeroes to requested lengths.
-     * The first level of the cache maps length to the second level of the cache.
-     * The second level of the cache maps an integer to a formatted String in the current locale.
      */
-    private final SparseArray<SparseArray<String>> mNumberFormatCache = new SparseArray<>(3);
+    private final FormattedNumberCache mNumberFormatCache = new FormattedNumberCache();
 
     /**
      * Single-character version of weekday names; e.g.: 'S', 'M', 'T', 'W', 'T', 'F', 'S'
@@ -94,26 +91,7 @@ final class FormattedStringModel {
      * @throws IllegalArgumentException if {@code value} is negative
      */
     String getFormattedNumber(int value, int length) {
-        if (value < 0) {
-            throw new IllegalArgumentException("value may not be negative: " + value);
-        }
-
-        // Look up the value cache using the length; -ve and +ve values are cached separately.
-        SparseArray<String> valueCache = mNumberFormatCache.get(length);
-        if (valueCache == null) {
-            valueCache = new SparseArray<>((int) Math.pow(10, length));
-            mNumberFormatCache.put(length, valueCache);
-        }
-
-        // Look up the cached formatted value using the value.
-        String formatted = valueCache.get(value);
-        if (formatted == null) {
-            final String sign = "";
-            formatted = String.format(Locale.getDefault(), sign + "%0" + length + "d", value);
-            valueCache.put(value, formatted);
-        }
-
-        return formatted;
+        return mNumberFormatCache.getFormattedNumber(value, length);
     }
 
     /**
@@ -25,7 +25,11 @@ import android.provider.MediaStore;
 
 import com.best.deskclock.R;
 import com.best.deskclock.alarms.AlarmStateManager;
+import com.best.deskclock.data.DataModel;
+import com.best.deskclock.data.TimerDAO;
 import com.best.deskclock.data.Weekdays;
+import com.best.deskclock.data.WorkPattern;
+import com.best.deskclock.holiday.HolidayUtils;
 import com.best.deskclock.provider.Alarm;
 import com.best.deskclock.provider.AlarmInstance;
 
@@ -40,8 +44,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -64,9 +68,14 @@ public class BackupAndRestoreUtils {
         Map<String, String> strings = new HashMap<>();
         Map<String, Integer> ints = new HashMap<>();
         Map<String, Long> longs = new HashMap<>();
-        Set<String> timerIds = prefs.getStringSet(TIMER_IDS, Collections.emptySet());
+        Set<String> timerIds = TimerDAO.getTimerIds(context);
 
-        for (Map.Entry<String, ?> entry : settings.entrySet()) {
+        // The timers are stored in their own database; they are exported under the keys of the
+        // preferences that used to store them, which are migrated back into the database on restore.
+        Map<String, Object> allSettings = new HashMap<>(settings);
+        allSettings.putAll(TimerDAO.getTimerPreferences(context));
+
+        for (Map.Entry<String, ?> entry : allSettings.entrySet()) {
             if (entry.getKey() != null) {
                 String key = entry.getKey();
 
@@ -138,6 +147,10 @@ public class BackupAndRestoreUtils {
                 alarmObject.put("snoozeDuration", alarm.snoozeDuration);
                 alarmObject.put("crescendoDuration", alarm.crescendoDuration);
                 alarmObject.put("alarmVolume", alarm.alarmVolume);
+                alarmObject.put("holidayOption", alarm.holidayOption);
+                alarmObject.put("workPatternMask", alarm.workPattern.getMask());
+                alarmObject.put("workPatternLength", alarm.workPattern.getCycleLength());
+                alarmObject.put("workPatternAnchor", alarm.workPattern.getAnchorEpochDay());
 
                 if (alarm.daysOfWeek.isRepeating() || !alarm.isSpecifiedDate()) {
                     alarmsArray.put(alarmObject);
@@ -196,6 +209,11 @@ public class BackupAndRestoreUtils {
         BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
         SharedPreferences.Editor editor = prefs.edit();
 
+        // Reset the stopwatch and delete its laps, which are not stored with the settings. This is
+        // done before the settings are restored, so that laps saved in the preferences by older
+        // versions are moved into the emptied log.
+        DataModel.getDataModel().clearStopwatch();
+
         // Do not reset the KEY_IS_FIRST_LAUNCH key to prevent the "FirstLaunch" activity from reappearing.
         // Also, exclude keys corresponding to custom ringtones and the selected alarm ringtone,
         // as this causes bugs for alarms.
@@ -274,19 +292,18 @@ public class BackupAndRestoreUtils {
 
             editor.apply();
 
-            final ContentResolver contentResolver = context.getContentResolver();
+            // The restored timers replace the current ones when the timers are loaded again.
+            TimerDAO.removeAllTimers(context);
+
             // Clear the alarm list before restoring to avoid adding duplicates
-            final List<Alarm> alarms = Alarm.getAlarms(contentResolver, null);
-            for (Alarm alarm : alarms) {
-                AlarmStateManager.deleteAllInstances(context, alarm.id);
-                Alarm.deleteAlarm(contentResolver, alarm.id);
-            }
+            AlarmStateManager.deleteAllAlarms(context);
 
+            final List<Alarm> restoredAlarms = new ArrayList<>();
             if (jsonObject.has("Alarms")) {
                 JSONArray alarmsArray = jsonObject.getJSONArray("Alarms");
                 for (int i = 0; i < alarmsArray.length(); i++) {
                     JSONObject alarmObject = alarmsArray.getJSONObject(i);
-                    restoreAlarm(context, contentResolver, alarmObject, false);
+                    restoredAlarms.add(restoreAlarm(context, alarmObject, false));
                 }
             }
 
@@ -294,9 +311,11 @@ public class BackupAndRestoreUtils {
                 JSONArray alarmsWithDateArray = jsonObject.getJSONArray("Alarms with specified date");
                 for (int i = 0; i < alarmsWithDateArray.length(); i++) {
                     JSONObject alarmObject = alarmsWithDateArray.getJSONObject(i);
-                    restoreAlarm(context, contentResolver, alarmObject, true);
+                    restoredAlarms.add(restoreAlarm(context, alarmObject, true));
                 }
             }
+
+            addRestoredAlarms(context, restoredAlarms);
         } catch (IOException | JSONException e) {
             LogUtils.e("Error during restore", e);
         } finally {
@@ -308,12 +327,44 @@ public class BackupAndRestoreUtils {
         }
     }
 
+    /**
+     * Adds the restored alarms in a single transaction, then the future instances of the enabled
+     * ones in another, and schedules these instances.
+     */
+    private static void addRestoredAlarms(Context context, List<Alarm> alarms) {
+        final ContentResolver contentResolver = context.getContentResolver();
+        if (!Alarm.addAlarms(contentResolver, alarms)) {
+            LogUtils.e("Failed to restore " + alarms.size() + " alarms");
+            return;
+        }
+
+        final Calendar now = Calendar.getInstance();
+        final List<AlarmInstance> alarmInstances = new ArrayList<>();
+        for (Alarm alarm : alarms) {
+            if (alarm.enabled) {
+                alarmInstances.add(alarm.createInstanceAfter(context, now));
+            }
+        }
+
+        if (!AlarmInstance.addInstances(contentResolver, alarmInstances)) {
+            LogUtils.e("Failed to schedule " + alarmInstances.size() + " restored alarms");
+            return;
+        }
+
+        for (int i = 0; i < alarmInstances.size(); i++) {
+            final AlarmInstance alarmInstance = alarmInstances.get(i);
+            AlarmStateManager.registerInstance(context, alarmInstance, i == alarmInstances.size() - 1);
+            LogUtils.i("BackupAndRestoreUtils scheduled alarm instance: %s", alarmInstance);
+        }
+    }
+
     /**
      * Restore alarm data.
-     * If the alarm is enabled, a future instance will be scheduled.
+     *
+     * @return the restored alarm, not yet added to the database.
      */
-    private static void restoreAlarm(Context context, ContentResolver contentResolver,
-                                     JSONObject alarmObject, boolean hasSpecifiedDate) throws JSONException {
+    private static Alarm restoreAlarm(Context context, JSONObject alarmObject, boolean hasSpecifiedDate)
+            throws JSONException {
 
         long id = alarmObject.getLong("id");
         boolean enabled = alarmObject.getBoolean("enabled");
@@ -329,6 +380,10 @@ public class BackupAndRestoreUtils {
         int snoozeDuration = alarmObject.getInt("snoozeDuration");
         int crescendoDuration = alarmObject.getInt("crescendoDuration");
         int alarmVolume = alarmObject.getInt("alarmVolume");
+        // Backups made before holiday options were added don't have these values.
+        int holidayOption = alarmObject.optInt("holidayOption", HolidayUtils.HOLIDAY_OPTION_NONE);
+        WorkPattern workPattern = WorkPattern.of(alarmObject.optLong("workPatternMask"),
+                alarmObject.optInt("workPatternLength"), alarmObject.optLong("workPatternAnchor"));
 
         String alarmRingtone;
         if (RingtoneUtils.isRandomRingtone(Uri.parse(alert))) {
@@ -361,15 +416,10 @@ public class BackupAndRestoreUtils {
         restoredAlarm = new Alarm(id, enabled, year, month, day, hour, minutes,
                 vibrate, flash, Weekdays.fromBits(daysOfWeek), label, alarmRingtone, deleteAfterUse,
                 autoSilenceDuration, snoozeDuration, crescendoDuration, alarmVolume);
+        restoredAlarm.holidayOption = holidayOption;
+        restoredAlarm.workPattern = workPattern;
 
-        Alarm.addAlarm(contentResolver, restoredAlarm);
-
-        if (restoredAlarm.enabled) {
-            AlarmInstance alarmInstance = restoredAlarm.createInstanceAfter(context, Calendar.getInstance());
-            AlarmInstance.addInstance(contentResolver, alarmInstance);
-            AlarmStateManager.registerInstance(context, alarmInstance, true);
-            LogUtils.i("BackupAndRestoreUtils scheduled alarm instance: %s", alarmInstance);
-        }
+        return restoredAlarm;
     }
 
     /**
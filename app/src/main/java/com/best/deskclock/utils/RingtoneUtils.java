@@ -5,7 +5,6 @@ package com.best.deskclock.utils;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.database.Cursor;
 import android.media.AudioAttributes;
 import android.media.AudioDeviceInfo;
 import android.media.AudioManager;
@@ -13,22 +12,16 @@ import android.media.MediaPlayer;
 import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.UserManager;
-import android.provider.OpenableColumns;
 
 import androidx.annotation.AnyRes;
 
 import com.best.deskclock.DeskClockApplication;
-import com.best.deskclock.data.CustomRingtone;
-import com.best.deskclock.data.RingtoneModel;
+import com.best.deskclock.data.RingtoneCatalog;
+import com.best.deskclock.data.RingtoneMetadataCache;
 import com.best.deskclock.data.SettingsDAO;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.Random;
 
 public class RingtoneUtils {
 
@@ -81,6 +74,10 @@ public class RingtoneUtils {
     /**
      * @return {@code true} if the given URI of a ringtone is readable by the application.
      * {@code false} otherwise.
+     * <p>
+     * The ringtone is opened on every call, as this decides whether an alarm plays its own
+     * ringtone or the fallback one, and a permission can be revoked or a file deleted at any time.
+     * Screens that only display the answer use {@link #isRingtoneUriReadableCached}.</p>
      */
     public static boolean isRingtoneUriReadable(Context context, Uri uri) {
         if (RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM).equals(uri)) {
@@ -95,6 +92,15 @@ public class RingtoneUtils {
         }
     }
 
+    /**
+     * Variant of {@link #isRingtoneUriReadable} that does not block: answers from the
+     * {@link RingtoneMetadataCache} and, if the ringtone has not been checked yet, assumes it is
+     * readable while it is checked in the background.
+     */
+    public static boolean isRingtoneUriReadableCached(Context context, Uri uri) {
+        return RingtoneMetadataCache.getRingtoneMetadataCache().peekReadable(context, uri);
+    }
+
     /**
      * Creates and prepares a {@link MediaPlayer} instance to play a ringtone.
      *
@@ -134,79 +140,47 @@ public class RingtoneUtils {
     }
 
     /**
-     * @return the duration of the ringtone.
+     * @return the duration of the ringtone, or of the default alarm ringtone if it cannot be read.
      */
     public static int getRingtoneDuration(Context context, Uri ringtoneUri) {
-        MediaPlayer player = createPreparedMediaPlayer(
-                context,
-                ringtoneUri,
-                RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM)
-        );
-
-        if (player == null) {
-            return 0;
+        final RingtoneMetadataCache cache = RingtoneMetadataCache.getRingtoneMetadataCache();
+
+        long duration = ringtoneUri == null ? 0 : cache.getMetadata(context, ringtoneUri).getDuration();
+        if (duration <= 0) {
+            duration = cache.getMetadata(context,
+                    RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM)).getDuration();
         }
 
-        int duration = player.getDuration();
-        player.release();
-        return duration;
+        return (int) Math.max(duration, 0);
     }
 
     /**
-     * Returns a randomly selected system alarm ringtone URI.
+     * Returns a randomly selected system alarm ringtone URI, taken from the
+     * {@link RingtoneCatalog}. If shuffling is enabled, no ringtone is repeated before all the
+     * others have been returned.
      * <p>
      * If no valid ringtones are found, the system's default alarm ringtone is returned.
      */
     public static Uri getRandomRingtoneUri() {
         Context context = DeskClockApplication.getContext();
+        SharedPreferences prefs = DeskClockApplication.getDefaultSharedPreferences(context);
 
-        RingtoneManager manager = new RingtoneManager(context);
-        manager.setType(RingtoneManager.TYPE_ALARM);
-
-        Cursor cursor = manager.getCursor();
-        List<Uri> uris = new ArrayList<>();
-
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                Uri uri = manager.getRingtoneUri(cursor.getPosition());
-                if (uri != null) {
-                    uris.add(uri);
-                }
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
-
-        if (uris.isEmpty()) {
-            return RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
-        }
-
-        return uris.get(new Random().nextInt(uris.size()));
+        return RingtoneCatalog.getRingtoneCatalog().getRandomRingtoneUri(context,
+                SettingsDAO.isRandomRingtoneShuffleEnabled(prefs));
     }
 
     /**
-     * Returns a randomly selected custom ringtone URI.
+     * Returns a randomly selected custom ringtone URI, taken from the {@link RingtoneCatalog}.
+     * If shuffling is enabled, no ringtone is repeated before all the others have been returned.
      * <p>
      * If no valid ringtones are found, the system's default alarm ringtone is returned.
      */
     public static Uri getRandomCustomRingtoneUri() {
         Context context = DeskClockApplication.getContext();
-
-        List<Uri> uris = new ArrayList<>();
-
         SharedPreferences prefs = DeskClockApplication.getDefaultSharedPreferences(context);
-        RingtoneModel ringtoneModel = new RingtoneModel(context, prefs);
-        for (CustomRingtone custom : ringtoneModel.getCustomRingtones()) {
-            if (custom.hasPermissions()) {
-                uris.add(custom.getUri());
-            }
-        }
-        ringtoneModel.releaseResources();
 
-        if (uris.isEmpty()) {
-            return RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
-        }
-
-        return uris.get(new Random().nextInt(uris.size()));
+        return RingtoneCatalog.getRingtoneCatalog().getRandomCustomRingtoneUri(context,
+                SettingsDAO.isRandomRingtoneShuffleEnabled(prefs));
     }
 
     /**
@@ -216,43 +190,7 @@ public class RingtoneUtils {
      * use {@code file://}.</p>
      */
     public static long getRingtoneFileSize(Context context, Uri uri) {
-        long size = -1;
-
-        String scheme = uri.getScheme();
-        if ("file".equalsIgnoreCase(scheme)) {
-            File file = new File(Objects.requireNonNull(uri.getPath()));
-            if (file.exists()) {
-                size = file.length();
-            }
-        } else if ("content".equalsIgnoreCase(scheme)) {
-            try (Cursor cursor = context.getContentResolver().query(
-                    uri, new String[]{OpenableColumns.SIZE}, null, null, null)) {
-                if (cursor != null && cursor.moveToFirst()) {
-                    int sizeIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
-                    if (!cursor.isNull(sizeIndex)) {
-                        size = cursor.getLong(sizeIndex);
-                    }
-                }
-            }
-        }
-
-        // As a fallback: read the whole stream
-        if (size < 0) {
-            try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
-                if (inputStream != null) {
-                    byte[] buffer = new byte[8192];
-                    int read;
-                    size = 0;
-                    while ((read = inputStream.read(buffer)) != -1) {
-                        size += read;
-                    }
-                }
-            } catch (IOException e) {
-                LogUtils.e("Failed to determine file size of ringtone", e);
-            }
-        }
-
-        return size;
+        return RingtoneMetadataCache.getRingtoneMetadataCache().check(context, uri).getSize();
     }
 
     /**
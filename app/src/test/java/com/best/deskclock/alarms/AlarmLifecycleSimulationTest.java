@@ -0,0 +1,119 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.alarms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.best.deskclock.data.AlarmRepository;
+import com.best.deskclock.holiday.HolidayRepository;
+import com.best.deskclock.provider.ClockContract;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.TimeZone;
+
+/**
+ * Regression suite of the alarm lifecycle: replays a year of alarms with the real
+ * {@link AlarmStateManager}, in a time zone with Daylight Saving Time and in one with holidays,
+ * with the clock moved forward and backward a few times, and fails if any firing broke the
+ * schedule.
+ * <p>
+ * The number of alarms is read from the {@code alarmLifecycle.alarmCount} system property. The
+ * unit tests replay a few dozen alarms; {@code ./gradlew :app:simulateAlarmLifecycle} replays
+ * the default of a few thousand, which takes a while.</p>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class AlarmLifecycleSimulationTest {
+
+    private static final int ALARM_COUNT = Integer.getInteger("alarmLifecycle.alarmCount", 2000);
+    private static final long SEED = 20240101L;
+
+    private static final long HOUR_IN_MILLIS = 60 * 60 * 1000L;
+    private static final long DAY_IN_MILLIS = 24 * HOUR_IN_MILLIS;
+
+    private final TimeZone mDefaultTimeZone = TimeZone.getDefault();
+
+    @Before
+    public void setUp() {
+        resetRepositories();
+    }
+
+    @After
+    public void tearDown() {
+        resetRepositories();
+        TimeZone.setDefault(mDefaultTimeZone);
+    }
+
+    /**
+     * The repositories are process-wide, while each test starts with new databases.
+     */
+    private static void resetRepositories() {
+        AlarmRepository.getAlarmRepository().invalidate();
+        HolidayRepository.reset();
+    }
+
+    @Test
+    public void replayYear_withDaylightSavingTime() {
+        replay("America/New_York");
+    }
+
+    @Test
+    public void replayYear_withHolidays() {
+        replay("Asia/Shanghai");
+    }
+
+    private static void replay(String zoneId) {
+        final ZoneId zone = ZoneId.of(zoneId);
+        TimeZone.setDefault(TimeZone.getTimeZone(zone));
+        final CountingClockProvider provider =
+                Robolectric.setupContentProvider(CountingClockProvider.class, ClockContract.AUTHORITY);
+
+        final Context context = ApplicationProvider.getApplicationContext();
+        final long start = LocalDateTime.of(2025, 1, 1, 0, 0).atZone(zone).toInstant().toEpochMilli();
+        final SimulationReport report;
+        try (AlarmLifecycleSimulator simulator = new AlarmLifecycleSimulator(context, provider, zone,
+                start, SEED)) {
+            simulator.addAlarms(ALARM_COUNT);
+
+            runFor(simulator, 60 * DAY_IN_MILLIS);
+
+            // The user sets the clock one hour back, as after a manual correction.
+            simulator.changeTime(simulator.currentTimeMillis() - HOUR_IN_MILLIS);
+            runFor(simulator, 90 * DAY_IN_MILLIS);
+
+            // The device was off overnight: the morning alarms are missed or snoozed when it
+            // restarts.
+            simulator.changeTime(simulator.currentTimeMillis() + 10 * HOUR_IN_MILLIS);
+            runFor(simulator, 100 * DAY_IN_MILLIS);
+
+            // The clock jumps a day back, as after a wrong network time.
+            simulator.changeTime(simulator.currentTimeMillis() - DAY_IN_MILLIS);
+            runFor(simulator, 113 * DAY_IN_MILLIS);
+
+            report = simulator.finish();
+        }
+
+        final String summary = zoneId + ", " + ALARM_COUNT + " alarms, 1 year\n" + report;
+        assertEquals(summary, 0, report.getViolationCount());
+        assertTrue(summary, report.getCount(SimulationReport.Transition.FIRED) > 0);
+        assertEquals(summary, 3, report.getCount(SimulationReport.Transition.FIX_ALARM_INSTANCES));
+    }
+
+    private static void runFor(AlarmLifecycleSimulator simulator, long durationMillis) {
+        simulator.runUntil(simulator.currentTimeMillis() + durationMillis);
+    }
+}
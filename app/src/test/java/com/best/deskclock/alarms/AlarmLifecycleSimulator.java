@@ -0,0 +1,443 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.alarms;
+
+import static com.best.deskclock.DeskClockApplication.getDefaultSharedPreferences;
+import static com.best.deskclock.settings.PreferencesDefaultValues.ALARM_SNOOZE_DURATION_DISABLED;
+import static com.best.deskclock.settings.PreferencesDefaultValues.TIMEOUT_NEVER;
+
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Looper;
+
+import com.best.deskclock.data.SettingsDAO;
+import com.best.deskclock.data.Weekdays;
+import com.best.deskclock.data.WorkPattern;
+import com.best.deskclock.holiday.HolidayCalendarIndex;
+import com.best.deskclock.holiday.HolidayUtils;
+import com.best.deskclock.provider.Alarm;
+import com.best.deskclock.provider.AlarmInstance;
+import com.best.deskclock.utils.RingtoneUtils;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Drives the real {@link AlarmStateManager} through a simulated period of alarms, in a Robolectric
+ * process.
+ * <p>
+ * The AlarmManager and the wall clock are replaced through the seams of {@link AlarmStateManager}
+ * by an {@link InMemoryStateChangeScheduler} and a {@link VirtualClock}; alarms and instances are
+ * stored by the real {@code ClockProvider}, wrapped in a {@link CountingClockProvider}, in the
+ * throwaway database of the Robolectric process.
+ * Due state changes are delivered with the intents {@link AlarmStateManager} scheduled, through
+ * {@link AlarmStateManager#handleIntent}, like {@code AlarmService} does; time changes go through
+ * {@link AlarmStateManager#fixAlarmInstances}, like the {@code TIME_SET} broadcast.</p>
+ * <p>
+ * Users are simulated with a seeded random generator, so a run is fully deterministic: they
+ * dismiss, snooze or ignore firing alarms from the notification actions, and sometimes dismiss an
+ * upcoming alarm in advance. Every firing is checked against the schedule of its alarm, and
+ * mismatches are reported as violations.</p>
+ */
+final class AlarmLifecycleSimulator implements AutoCloseable {
+
+    private static final long MINUTE_IN_MILLIS = 60 * 1000L;
+
+    private static final int MAX_SNOOZE_COUNT = 3;
+
+    /**
+     * Actions taken by the simulated user.
+     */
+    private static final int ACTION_DISMISS = 0;
+    private static final int ACTION_SNOOZE = 1;
+    private static final int ACTION_PREDISMISS = 2;
+
+    private record UserAction(long time, long instanceId, int action, long sequence)
+            implements Comparable<UserAction> {
+        @Override
+        public int compareTo(UserAction other) {
+            final int result = Long.compare(time, other.time);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final Context mContext;
+    private final ContentResolver mContentResolver;
+    private final CountingClockProvider mProvider;
+    private final VirtualClock mClock;
+    private final InMemoryStateChangeScheduler mScheduler = new InMemoryStateChangeScheduler();
+    private final PriorityQueue<UserAction> mUserActions = new PriorityQueue<>();
+    private final SimulationReport mReport = new SimulationReport();
+    private final SplittableRandom mRandom;
+
+    /**
+     * Last occurrence of each alarm, fired or dismissed in advance; cleared by time changes.
+     */
+    private final Map<Long, Long> mLastOccurrences = new HashMap<>();
+    private final Map<Long, Integer> mSnoozeCounts = new HashMap<>();
+
+    /**
+     * The instances that have been snoozed; their time no longer matches their alarm.
+     */
+    private final Set<Long> mSnoozedInstanceIds = new HashSet<>();
+
+    private long mUserActionSequence;
+    private final long mStartNanos;
+
+    /**
+     * @param context     the context of the Robolectric application
+     * @param provider    the provider registered for the clock authority
+     * @param zone        the time zone of the device, which must also be the default time zone
+     * @param startMillis the time the simulation starts at
+     * @param seed        the seed of the simulated users
+     */
+    AlarmLifecycleSimulator(Context context, CountingClockProvider provider, ZoneId zone,
+                            long startMillis, long seed) {
+        mContext = context;
+        mContentResolver = context.getContentResolver();
+        mProvider = provider;
+        mClock = new VirtualClock(zone, startMillis);
+        mRandom = new SplittableRandom(seed);
+
+        AlarmStateManager.setClock(mClock);
+        AlarmStateManager.setStateChangeScheduler(mScheduler);
+        mStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Restores the system clock and the AlarmManager scheduling of {@link AlarmStateManager}.
+     */
+    @Override
+    public void close() {
+        AlarmStateManager.setClock(null);
+        AlarmStateManager.setStateChangeScheduler(null);
+    }
+
+    /**
+     * Creates enabled alarms with a mix of repeating days, holiday options, silence and snooze
+     * durations, and registers their first instance like the alarm editor does. A few alarms are
+     * set at 2:30 so that Daylight Saving Time gaps are crossed.
+     */
+    void addAlarms(int count) {
+        final Calendar now = getCalendar();
+        final long today = HolidayCalendarIndex.toEpochDay(now);
+        for (int i = 0; i < count; i++) {
+            final boolean inDstGap = mRandom.nextInt(20) == 0;
+            final int hour = inDstGap ? 2 : 5 + mRandom.nextInt(5);
+            final int minutes = inDstGap ? 30 : 5 * mRandom.nextInt(12);
+
+            final int days = mRandom.nextInt(10);
+            final Weekdays daysOfWeek = days < 5 ? Weekdays.fromBits(0x1F)
+                    : days < 7 ? Weekdays.fromBits(0x7F)
+                    : days < 8 ? Weekdays.fromBits(0x60)
+                    : Weekdays.NONE;
+
+            // The alarms are silent, so that no ringtone is prepared while they are scheduled.
+            final Alarm alarm = new Alarm(Alarm.INVALID_ID, true, now.get(Calendar.YEAR),
+                    now.get(Calendar.MONTH), now.get(Calendar.DAY_OF_MONTH), hour, minutes, false,
+                    "default", false, daysOfWeek, "", RingtoneUtils.RINGTONE_SILENT.toString(),
+                    !daysOfWeek.isRepeating() && mRandom.nextBoolean(),
+                    mRandom.nextInt(4) == 0 ? TIMEOUT_NEVER : 600,
+                    mRandom.nextInt(10) == 0 ? ALARM_SNOOZE_DURATION_DISABLED : 10, 0, 0, 11);
+
+            // Holiday options only apply to repeating alarms.
+            final int option = daysOfWeek.isRepeating() ? mRandom.nextInt(20) : 19;
+            if (option < 5) {
+                alarm.holidayOption = HolidayUtils.HOLIDAY_OPTION_SKIP_HOLIDAY;
+            } else if (option < 7) {
+                alarm.holidayOption = HolidayUtils.HOLIDAY_OPTION_BIG_SMALL_DA + mRandom.nextInt(2);
+                alarm.workPattern = HolidayUtils.createWorkPattern(alarm.holidayOption, today);
+            } else if (option < 8) {
+                alarm.holidayOption = HolidayUtils.HOLIDAY_OPTION_SINGLE_DAY_OFF;
+            } else if (option < 9) {
+                alarm.holidayOption = HolidayUtils.HOLIDAY_OPTION_WORK_PATTERN;
+                alarm.workPattern = WorkPattern.parse("11110000", today);
+            }
+
+            alarm.addAlarm(mContentResolver);
+            final AlarmInstance instance = alarm.createInstanceAfter(mContext, now);
+            instance.addInstance(mContentResolver);
+
+            final long start = System.nanoTime();
+            AlarmStateManager.registerInstance(mContext, instance, true);
+            mReport.addTransition(SimulationReport.Transition.REGISTER, System.nanoTime() - start);
+            idleMainLooper();
+        }
+    }
+
+    /**
+     * Delivers all state changes and user actions due until the given time, then moves the
+     * clock to that time.
+     */
+    void runUntil(long endMillis) {
+        while (true) {
+            final long nextChange = mScheduler.peekTime();
+            final UserAction nextAction = mUserActions.peek();
+            if (nextAction != null && nextAction.time <= nextChange && nextAction.time <= endMillis) {
+                mUserActions.poll();
+                mClock.setTimeMillis(Math.max(mClock.millis(), nextAction.time));
+                performUserAction(nextAction);
+                continue;
+            }
+
+            final InMemoryStateChangeScheduler.StateChange change = mScheduler.poll(endMillis);
+            if (change == null) {
+                break;
+            }
+            mClock.setTimeMillis(Math.max(mClock.millis(), change.mTime));
+            deliver(change.mInstanceId, change.mNewState, change.mIntent, true);
+        }
+        mClock.setTimeMillis(Math.max(mClock.millis(), endMillis));
+    }
+
+    /**
+     * Moves the wall clock, forward or backward, and fixes the instances like
+     * {@code AlarmInitReceiver} does on {@code TIME_SET}.
+     */
+    void changeTime(long newTimeMillis) {
+        mClock.setTimeMillis(newTimeMillis);
+        mLastOccurrences.clear();
+        // The pending user actions were meant for the old time.
+        mUserActions.clear();
+
+        final long start = System.nanoTime();
+        SettingsDAO.updateGlobalIntentId(getDefaultSharedPreferences(mContext));
+        AlarmStateManager.fixAlarmInstances(mContext);
+        mReport.addTransition(SimulationReport.Transition.FIX_ALARM_INSTANCES, System.nanoTime() - start);
+        idleMainLooper();
+
+        // Instances may fire again right away if the clock went back into their firing window.
+        for (AlarmInstance instance : AlarmInstance.getInstances(mContentResolver, null)) {
+            if (instance.mAlarmState == AlarmInstance.FIRED_STATE) {
+                onFired(instance, false);
+            }
+        }
+    }
+
+    long currentTimeMillis() {
+        return mClock.millis();
+    }
+
+    /**
+     * Verifies the final state and returns the report of the simulation.
+     */
+    SimulationReport finish() {
+        verifyInstances();
+        mReport.setDatabaseOperations(mProvider);
+        mReport.setSchedulerOperations(mScheduler);
+        mReport.setElapsedNanos(System.nanoTime() - mStartNanos);
+        return mReport;
+    }
+
+    // **************
+    // ** Delivery **
+    // **************
+
+    private void deliver(long instanceId, int newState, Intent intent, boolean scheduled) {
+        final long start = System.nanoTime();
+        AlarmStateManager.handleIntent(mContext, intent);
+        mReport.addTransition(getTransition(newState), System.nanoTime() - start);
+        idleMainLooper();
+
+        final AlarmInstance instance = AlarmInstance.getInstance(mContentResolver, instanceId);
+        if (instance == null) {
+            mSnoozeCounts.remove(instanceId);
+            mSnoozedInstanceIds.remove(instanceId);
+            return;
+        }
+
+        switch (instance.mAlarmState) {
+            case AlarmInstance.SNOOZE_STATE -> mSnoozedInstanceIds.add(instanceId);
+            case AlarmInstance.FIRED_STATE -> {
+                if (newState == AlarmInstance.FIRED_STATE) {
+                    onFired(instance, scheduled);
+                }
+            }
+            case AlarmInstance.NOTIFICATION_STATE -> {
+                if (!mSnoozedInstanceIds.contains(instanceId) && mRandom.nextInt(20) == 0) {
+                    // "Dismiss now" from the upcoming alarm notification.
+                    addUserAction(mClock.millis() + MINUTE_IN_MILLIS, instance, ACTION_PREDISMISS);
+                }
+            }
+            default -> {
+                // Nothing for the user to do.
+            }
+        }
+    }
+
+    /**
+     * Runs the messages posted to the main thread, such as the next alarm broadcasts.
+     */
+    private static void idleMainLooper() {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(1));
+    }
+
+    private static SimulationReport.Transition getTransition(int state) {
+        return switch (state) {
+            case AlarmInstance.SILENT_STATE -> SimulationReport.Transition.SILENT;
+            case AlarmInstance.NOTIFICATION_STATE -> SimulationReport.Transition.NOTIFICATION;
+            case AlarmInstance.FIRED_STATE -> SimulationReport.Transition.FIRED;
+            case AlarmInstance.SNOOZE_STATE -> SimulationReport.Transition.SNOOZE;
+            case AlarmInstance.MISSED_STATE -> SimulationReport.Transition.MISSED;
+            case AlarmInstance.PREDISMISSED_STATE -> SimulationReport.Transition.PREDISMISSED;
+            default -> SimulationReport.Transition.DISMISSED;
+        };
+    }
+
+    // ********************
+    // ** Simulated user **
+    // ********************
+
+    private void onFired(AlarmInstance instance, boolean scheduled) {
+        final Alarm alarm = instance.mAlarmId == null
+                ? null
+                : Alarm.getAlarm(mContentResolver, instance.mAlarmId);
+        if (alarm != null) {
+            verifyFiring(instance, alarm, scheduled);
+        }
+
+        // After a few snoozes, or if the alarm would ring forever, the user gets up.
+        final boolean canSnooze = mSnoozeCounts.getOrDefault(instance.mId, 0) < MAX_SNOOZE_COUNT;
+        final boolean timesOut = instance.getTimeout(mContext) != null;
+        final int choice = mRandom.nextInt(20);
+        if (choice < 12 || !canSnooze) {
+            addUserAction(mClock.millis() + MINUTE_IN_MILLIS, instance, ACTION_DISMISS);
+        } else if (choice < 17) {
+            addUserAction(mClock.millis() + MINUTE_IN_MILLIS / 2, instance, ACTION_SNOOZE);
+        } else if (!timesOut) {
+            addUserAction(mClock.millis() + 5 * MINUTE_IN_MILLIS, instance, ACTION_DISMISS);
+        }
+        // Otherwise the alarm is ignored; it times out and is snoozed or missed.
+    }
+
+    private void addUserAction(long time, AlarmInstance instance, int action) {
+        mUserActions.add(new UserAction(time, instance.mId, action, mUserActionSequence++));
+    }
+
+    /**
+     * Sends the intent of the notification action the user picked, if the instance is still in
+     * the state the action applies to.
+     */
+    private void performUserAction(UserAction action) {
+        final AlarmInstance instance = AlarmInstance.getInstance(mContentResolver, action.instanceId);
+        if (instance == null) {
+            return;
+        }
+
+        switch (action.action) {
+            case ACTION_DISMISS -> {
+                if (instance.mAlarmState == AlarmInstance.FIRED_STATE) {
+                    deliver(instance.mId, AlarmInstance.DISMISSED_STATE, AlarmStateManager.createStateChangeIntent(
+                            mContext, AlarmStateManager.ALARM_DISMISS_TAG, instance,
+                            AlarmInstance.DISMISSED_STATE), false);
+                }
+            }
+            case ACTION_SNOOZE -> {
+                if (instance.mAlarmState == AlarmInstance.FIRED_STATE) {
+                    mSnoozeCounts.merge(instance.mId, 1, Integer::sum);
+                    deliver(instance.mId, AlarmInstance.SNOOZE_STATE, AlarmStateManager.createStateChangeIntent(
+                            mContext, AlarmStateManager.ALARM_SNOOZE_TAG, instance,
+                            AlarmInstance.SNOOZE_STATE), false);
+                }
+            }
+            case ACTION_PREDISMISS -> {
+                if (instance.mAlarmState == AlarmInstance.NOTIFICATION_STATE) {
+                    if (!mSnoozedInstanceIds.contains(instance.mId)) {
+                        mLastOccurrences.put(instance.mAlarmId, instance.getAlarmTime().getTimeInMillis());
+                    }
+                    deliver(instance.mId, AlarmInstance.PREDISMISSED_STATE, AlarmStateManager.createStateChangeIntent(
+                            mContext, AlarmStateManager.ALARM_DISMISS_TAG, instance,
+                            AlarmInstance.PREDISMISSED_STATE), false);
+                }
+            }
+            default -> mReport.addViolation("Unknown user action " + action.action);
+        }
+    }
+
+    // ******************
+    // ** Verification **
+    // ******************
+
+    /**
+     * Checks that a firing happens at the local time of its alarm, on a day allowed by its
+     * repeating days and holiday option, and that no occurrence was skipped since the last one.
+     */
+    private void verifyFiring(AlarmInstance instance, Alarm alarm, boolean scheduled) {
+        if (mSnoozedInstanceIds.contains(instance.mId)) {
+            return;
+        }
+
+        final long alarmTime = instance.getAlarmTime().getTimeInMillis();
+        final HolidayCalendarIndex holidayIndex = HolidayUtils.getCalendarIndex(mContext, alarm.holidayOption);
+        final AlarmScheduleCalculator calculator = AlarmScheduleCalculator.forCalendar(getCalendar(), holidayIndex);
+        final long day = calculator.toEpochDay(alarmTime);
+        if (calculator.toMillis(day, alarm.hour, alarm.minutes) != alarmTime) {
+            mReport.addViolation("Alarm " + alarm.id + " fired at " + alarmTime
+                    + " instead of " + alarm.hour + ":" + alarm.minutes + " local time");
+        }
+
+        if (alarm.daysOfWeek.isRepeating() && !alarm.daysOfWeek.isEpochDayOn(day)) {
+            mReport.addViolation("Alarm " + alarm.id + " fired on disabled day " + day);
+        }
+
+        if (alarm.daysOfWeek.isRepeating() && !HolidayUtils.shouldAlarmRing(holidayIndex,
+                alarm.holidayOption, alarm.daysOfWeek, alarm.workPattern, day)) {
+            mReport.addViolation("Alarm " + alarm.id + " fired on day " + day
+                    + " excluded by holiday option " + alarm.holidayOption);
+        }
+
+        if (scheduled && alarmTime != mClock.millis()) {
+            mReport.addViolation("Alarm " + alarm.id + " fired at " + mClock.millis()
+                    + " instead of " + alarmTime);
+        }
+
+        final Long lastOccurrence = mLastOccurrences.put(alarm.id, alarmTime);
+        if (scheduled && lastOccurrence != null && alarm.daysOfWeek.isRepeating()) {
+            final long expected = alarm.getNextWorkdayAlarmTime(calculator, lastOccurrence);
+            if (expected != alarmTime) {
+                mReport.addViolation("Alarm " + alarm.id + " fired at " + alarmTime
+                        + " but its next occurrence after " + lastOccurrence + " is " + expected);
+            }
+        }
+    }
+
+    /**
+     * Checks that every enabled repeating alarm has exactly one pending instance; missed and
+     * predismissed instances have already been replaced by the next one.
+     */
+    private void verifyInstances() {
+        final Map<Long, Integer> pendingCounts = new HashMap<>();
+        final List<AlarmInstance> instances = AlarmInstance.getInstances(mContentResolver, null);
+        for (AlarmInstance instance : instances) {
+            if (instance.mAlarmState != AlarmInstance.DISMISSED_STATE
+                    && instance.mAlarmState != AlarmInstance.MISSED_STATE
+                    && instance.mAlarmState != AlarmInstance.PREDISMISSED_STATE) {
+                pendingCounts.merge(instance.mAlarmId, 1, Integer::sum);
+            }
+        }
+
+        for (Alarm alarm : Alarm.getAlarms(mContentResolver, null)) {
+            final int count = pendingCounts.getOrDefault(alarm.id, 0);
+            if (alarm.enabled && alarm.daysOfWeek.isRepeating() && count != 1) {
+                mReport.addViolation("Alarm " + alarm.id + " has " + count + " pending instances");
+            }
+        }
+    }
+
+    private Calendar getCalendar() {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(mClock.millis());
+        return calendar;
+    }
+}
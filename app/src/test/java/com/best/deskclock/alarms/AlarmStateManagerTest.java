@@ -0,0 +1,153 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.alarms;
+
+import static com.best.deskclock.settings.PreferencesDefaultValues.TIMEOUT_NEVER;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.ContentResolver;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.best.deskclock.data.AlarmRepository;
+import com.best.deskclock.data.Weekdays;
+import com.best.deskclock.provider.Alarm;
+import com.best.deskclock.provider.AlarmInstance;
+import com.best.deskclock.provider.ClockContract;
+import com.best.deskclock.provider.ClockProvider;
+import com.best.deskclock.utils.RingtoneUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Tests of the {@link AlarmStateManager} transitions that reschedule the parent alarm.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class AlarmStateManagerTest {
+
+    private static final ZoneId ZONE = ZoneId.of("UTC");
+
+    private final TimeZone mDefaultTimeZone = TimeZone.getDefault();
+
+    private Context mContext;
+    private ContentResolver mContentResolver;
+    private VirtualClock mClock;
+
+    @Before
+    public void setUp() {
+        TimeZone.setDefault(TimeZone.getTimeZone(ZONE));
+        Robolectric.setupContentProvider(ClockProvider.class, ClockContract.AUTHORITY);
+        // The repository outlives the database of the previous test.
+        AlarmRepository.getAlarmRepository().invalidate();
+
+        mContext = ApplicationProvider.getApplicationContext();
+        mContentResolver = mContext.getContentResolver();
+        mClock = new VirtualClock(ZONE, toMillis(1, 6, 0));
+        AlarmStateManager.setClock(mClock);
+        AlarmStateManager.setStateChangeScheduler(new InMemoryStateChangeScheduler());
+    }
+
+    @After
+    public void tearDown() {
+        AlarmStateManager.setClock(null);
+        AlarmStateManager.setStateChangeScheduler(null);
+        AlarmRepository.getAlarmRepository().invalidate();
+        TimeZone.setDefault(mDefaultTimeZone);
+    }
+
+    @Test
+    public void dismissPredismissedInstance_keepsNextInstanceDismissedInAdvance() {
+        final Alarm alarm = addDailyAlarm();
+        final AlarmInstance today = registerFirstInstance(alarm);
+
+        // The user dismisses today's and tomorrow's occurrences in advance.
+        AlarmStateManager.setPreDismissState(mContext, today);
+        final AlarmInstance tomorrow = getInstanceAt(alarm, toMillis(2, 8, 0));
+        AlarmStateManager.setPreDismissState(mContext, tomorrow);
+
+        // Today's occurrence reaches its time and is deleted.
+        mClock.setTimeMillis(toMillis(1, 8, 0));
+        AlarmStateManager.deleteInstanceAndUpdateParent(mContext,
+                AlarmInstance.getInstance(mContentResolver, today.mId));
+
+        // Rescheduling the parent again would reset tomorrow's instance, which would then fire.
+        assertEquals(AlarmInstance.PREDISMISSED_STATE,
+                getInstanceAt(alarm, toMillis(2, 8, 0)).mAlarmState);
+        assertEquals(2, AlarmInstance.getInstancesByAlarmId(mContentResolver, alarm.id).size());
+    }
+
+    @Test
+    public void dismissMissedInstance_keepsNextInstanceDismissedInAdvance() {
+        final Alarm alarm = addDailyAlarm();
+        final AlarmInstance today = registerFirstInstance(alarm);
+
+        // Today's occurrence rings unanswered, then the user dismisses tomorrow's in advance.
+        mClock.setTimeMillis(toMillis(1, 8, 0));
+        AlarmStateManager.setFiredState(mContext, today);
+        AlarmStateManager.setMissedState(mContext, today);
+        final AlarmInstance tomorrow = getInstanceAt(alarm, toMillis(2, 8, 0));
+        AlarmStateManager.setPreDismissState(mContext, tomorrow);
+
+        // The missed notification expires.
+        mClock.setTimeMillis(today.getMissedTimeToLive().getTimeInMillis());
+        AlarmStateManager.deleteInstanceAndUpdateParent(mContext,
+                AlarmInstance.getInstance(mContentResolver, today.mId));
+
+        assertEquals(AlarmInstance.PREDISMISSED_STATE,
+                getInstanceAt(alarm, toMillis(2, 8, 0)).mAlarmState);
+        assertEquals(2, AlarmInstance.getInstancesByAlarmId(mContentResolver, alarm.id).size());
+    }
+
+    /**
+     * @return a new enabled alarm ringing every day at 8:00, silently and without timeout
+     */
+    private Alarm addDailyAlarm() {
+        final Alarm alarm = new Alarm(Alarm.INVALID_ID, true, 2025, Calendar.JANUARY, 1, 8, 0, false,
+                "default", false, Weekdays.fromBits(0x7F), "", RingtoneUtils.RINGTONE_SILENT.toString(),
+                false, TIMEOUT_NEVER, 10, 0, 0, 11);
+        alarm.addAlarm(mContentResolver);
+        return alarm;
+    }
+
+    private AlarmInstance registerFirstInstance(Alarm alarm) {
+        final Calendar now = Calendar.getInstance();
+        now.setTimeInMillis(mClock.millis());
+        final AlarmInstance instance = alarm.createInstanceAfter(mContext, now);
+        instance.addInstance(mContentResolver);
+        AlarmStateManager.registerInstance(mContext, instance, true);
+        return instance;
+    }
+
+    private AlarmInstance getInstanceAt(Alarm alarm, long alarmTime) {
+        final List<AlarmInstance> instances =
+                AlarmInstance.getInstancesByAlarmId(mContentResolver, alarm.id);
+        for (AlarmInstance instance : instances) {
+            if (instance.getAlarmTime().getTimeInMillis() == alarmTime) {
+                return instance;
+            }
+        }
+        throw new AssertionError("No instance at " + alarmTime + " in " + instances);
+    }
+
+    /**
+     * @return the time of the given day of January 2025
+     */
+    private static long toMillis(int day, int hour, int minutes) {
+        return LocalDateTime.of(2025, 1, day, hour, minutes).atZone(ZONE).toInstant().toEpochMilli();
+    }
+}
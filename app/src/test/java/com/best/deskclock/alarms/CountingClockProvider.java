@@ -0,0 +1,65 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.alarms;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import com.best.deskclock.provider.ClockProvider;
+
+/**
+ * The real {@link ClockProvider}, counting the database operations it performs. Batches and bulk
+ * inserts are counted once per row, as they go through {@link #insert}, {@link #update} and
+ * {@link #delete}.
+ */
+public class CountingClockProvider extends ClockProvider {
+
+    private long mQueryCount;
+    private long mInsertCount;
+    private long mUpdateCount;
+    private long mDeleteCount;
+
+    @Override
+    public Cursor query(@NonNull Uri uri, String[] projectionIn, String selection,
+                        String[] selectionArgs, String sort) {
+        mQueryCount++;
+        return super.query(uri, projectionIn, selection, selectionArgs, sort);
+    }
+
+    @Override
+    public Uri insert(@NonNull Uri uri, ContentValues initialValues) {
+        mInsertCount++;
+        return super.insert(uri, initialValues);
+    }
+
+    @Override
+    public int update(@NonNull Uri uri, ContentValues values, String where, String[] whereArgs) {
+        mUpdateCount++;
+        return super.update(uri, values, where, whereArgs);
+    }
+
+    @Override
+    public int delete(@NonNull Uri uri, String where, String[] whereArgs) {
+        mDeleteCount++;
+        return super.delete(uri, where, whereArgs);
+    }
+
+    long getQueryCount() {
+        return mQueryCount;
+    }
+
+    long getInsertCount() {
+        return mInsertCount;
+    }
+
+    long getUpdateCount() {
+        return mUpdateCount;
+    }
+
+    long getDeleteCount() {
+        return mDeleteCount;
+    }
+}
@@ -0,0 +1,110 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.alarms;
+
+import android.content.Context;
+import android.content.Intent;
+
+import com.best.deskclock.provider.AlarmInstance;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Stands in for the AlarmManager scheduler of {@link AlarmStateManager}: keeps at
+ * most one pending state change per instance, like the pending intents keyed by instance, and
+ * hands back the same intents the system would deliver, in time order.
+ */
+final class InMemoryStateChangeScheduler implements AlarmStateManager.StateChangeScheduler {
+
+    private static final String SCHEDULER_TAG = "IN_MEMORY_SCHEDULER";
+
+    static final class StateChange implements Comparable<StateChange> {
+        final long mTime;
+        final long mInstanceId;
+        final int mNewState;
+        final Intent mIntent;
+        private final long mSequence;
+
+        private StateChange(long time, long instanceId, int newState, Intent intent, long sequence) {
+            mTime = time;
+            mInstanceId = instanceId;
+            mNewState = newState;
+            mIntent = intent;
+            mSequence = sequence;
+        }
+
+        @Override
+        public int compareTo(StateChange other) {
+            final int result = Long.compare(mTime, other.mTime);
+            return result != 0 ? result : Long.compare(mSequence, other.mSequence);
+        }
+    }
+
+    private final PriorityQueue<StateChange> mQueue = new PriorityQueue<>();
+    private final Map<Long, StateChange> mPending = new HashMap<>();
+    private long mSequence;
+
+    private long mScheduleCount;
+    private long mCancelCount;
+
+    @Override
+    public void scheduleInstanceStateChange(Context context, Calendar time, AlarmInstance instance,
+                                            int newState) {
+        mScheduleCount++;
+        final Intent intent = AlarmStateManager.createStateChangeIntent(context, SCHEDULER_TAG,
+                instance, newState);
+        final StateChange change = new StateChange(time.getTimeInMillis(), instance.mId, newState,
+                intent, mSequence++);
+        // Replaces any pending change of the instance, like PendingIntent.FLAG_UPDATE_CURRENT.
+        mPending.put(instance.mId, change);
+        mQueue.add(change);
+    }
+
+    @Override
+    public void cancelScheduledInstanceStateChange(Context context, AlarmInstance instance) {
+        mCancelCount++;
+        mPending.remove(instance.mId);
+    }
+
+    /**
+     * @return the time of the next pending change, or {@link Long#MAX_VALUE} if there is none
+     */
+    long peekTime() {
+        final StateChange next = peek();
+        return next == null ? Long.MAX_VALUE : next.mTime;
+    }
+
+    /**
+     * Removes the next pending change, if it is due at or before the given time.
+     */
+    StateChange poll(long untilMillis) {
+        final StateChange next = peek();
+        if (next == null || next.mTime > untilMillis) {
+            return null;
+        }
+        mQueue.poll();
+        mPending.remove(next.mInstanceId);
+        return next;
+    }
+
+    private StateChange peek() {
+        // Drop the changes that were replaced or canceled.
+        StateChange next = mQueue.peek();
+        while (next != null && mPending.get(next.mInstanceId) != next) {
+            mQueue.poll();
+            next = mQueue.peek();
+        }
+        return next;
+    }
+
+    long getScheduleCount() {
+        return mScheduleCount;
+    }
+
+    long getCancelCount() {
+        return mCancelCount;
+    }
+}
@@ -0,0 +1,121 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.alarms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Counts and timings collected while replaying the alarm lifecycle.
+ */
+final class SimulationReport {
+
+    /**
+     * The calls into {@link AlarmStateManager} that are measured: the state changes delivered by
+     * the scheduler or requested by the user, by target state, then the registration of new
+     * instances and the time changes.
+     */
+    enum Transition {
+        SILENT,
+        NOTIFICATION,
+        FIRED,
+        SNOOZE,
+        MISSED,
+        PREDISMISSED,
+        DISMISSED,
+        REGISTER,
+        FIX_ALARM_INSTANCES
+    }
+
+    /**
+     * Maximum number of violations kept in the report.
+     */
+    private static final int MAX_VIOLATIONS = 100;
+
+    private final long[] mCounts = new long[Transition.values().length];
+    private final long[] mNanos = new long[Transition.values().length];
+    private final List<String> mViolations = new ArrayList<>();
+    private long mViolationCount;
+
+    private long mQueryCount;
+    private long mInsertCount;
+    private long mUpdateCount;
+    private long mDeleteCount;
+    private long mScheduleCount;
+    private long mCancelCount;
+    private long mElapsedNanos;
+
+    void addTransition(Transition transition, long nanos) {
+        mCounts[transition.ordinal()]++;
+        mNanos[transition.ordinal()] += nanos;
+    }
+
+    void addViolation(String violation) {
+        mViolationCount++;
+        if (mViolations.size() < MAX_VIOLATIONS) {
+            mViolations.add(violation);
+        }
+    }
+
+    void setDatabaseOperations(CountingClockProvider provider) {
+        mQueryCount = provider.getQueryCount();
+        mInsertCount = provider.getInsertCount();
+        mUpdateCount = provider.getUpdateCount();
+        mDeleteCount = provider.getDeleteCount();
+    }
+
+    void setSchedulerOperations(InMemoryStateChangeScheduler scheduler) {
+        mScheduleCount = scheduler.getScheduleCount();
+        mCancelCount = scheduler.getCancelCount();
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        mElapsedNanos = elapsedNanos;
+    }
+
+    long getCount(Transition transition) {
+        return mCounts[transition.ordinal()];
+    }
+
+    /**
+     * @return the total time spent in the given transition, including the nested transitions
+     */
+    long getNanos(Transition transition) {
+        return mNanos[transition.ordinal()];
+    }
+
+    long getDatabaseOperationCount() {
+        return mQueryCount + mInsertCount + mUpdateCount + mDeleteCount;
+    }
+
+    long getViolationCount() {
+        return mViolationCount;
+    }
+
+    List<String> getViolations() {
+        return Collections.unmodifiableList(mViolations);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "%-26s %10s %12s%n", "transition", "count", "us/op"));
+        for (Transition transition : Transition.values()) {
+            final long count = getCount(transition);
+            sb.append(String.format(Locale.US, "%-26s %10d %12d%n", transition, count,
+                    count == 0 ? 0 : getNanos(transition) / count / 1000));
+        }
+        sb.append(String.format(Locale.US, "database: %d queries, %d inserts, %d updates, %d deletes%n",
+                mQueryCount, mInsertCount, mUpdateCount, mDeleteCount));
+        sb.append(String.format(Locale.US, "scheduler: %d scheduled, %d canceled%n",
+                mScheduleCount, mCancelCount));
+        sb.append(String.format(Locale.US, "elapsed: %d ms, violations: %d%n",
+                mElapsedNanos / 1_000_000, mViolationCount));
+        for (String violation : mViolations) {
+            sb.append("  ").append(violation).append('\n');
+        }
+        return sb.toString();
+    }
+}
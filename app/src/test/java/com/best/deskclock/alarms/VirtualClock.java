@@ -0,0 +1,48 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.alarms;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * A wall clock that only moves when the simulation moves it.
+ */
+final class VirtualClock extends Clock {
+
+    private final ZoneId mZone;
+    private long mNowMillis;
+
+    VirtualClock(ZoneId zone, long nowMillis) {
+        mZone = zone;
+        mNowMillis = nowMillis;
+    }
+
+    /**
+     * Moves the clock to the given time; the time may go backward, like after a manual time change.
+     */
+    void setTimeMillis(long nowMillis) {
+        mNowMillis = nowMillis;
+    }
+
+    @Override
+    public long millis() {
+        return mNowMillis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(mNowMillis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return mZone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new VirtualClock(zone, mNowMillis);
+    }
+}
@@ -0,0 +1,154 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.holiday;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.best.deskclock.data.SettingsDAO;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class HolidaySyncTest {
+
+    private static final String FEED = "["
+            + "{\"name\":\"New Year\",\"startDate\":\"2025-01-01\",\"endDate\":\"2025-01-01\"},"
+            + "{\"name\":\"Spring Festival\",\"startDate\":\"2025-01-28\",\"endDate\":\"2025-02-04\","
+            + "\"compDays\":[\"2025-01-26\",\"2025-02-08\"]}"
+            + "]";
+
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer mServer;
+    private HolidayDatabase mDatabase;
+    private SharedPreferences mPrefs;
+    private HolidaySync mHolidaySync;
+
+    private volatile int mResponseCode;
+    private volatile String mBody;
+    private final List<String> mIfNoneMatchHeaders = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        final Context context = ApplicationProvider.getApplicationContext();
+        mDatabase = Room.inMemoryDatabaseBuilder(context, HolidayDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        mPrefs = context.getSharedPreferences("holiday_sync_test", Context.MODE_PRIVATE);
+        mPrefs.edit().clear().commit();
+        mHolidaySync = new HolidaySync(mDatabase, mPrefs);
+
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.createContext("/holidays.json", this::handle);
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+        mDatabase.close();
+    }
+
+    @Test
+    public void sync_storesFeedAndValidators() throws IOException {
+        serve(200, FEED);
+
+        assertEquals(HolidaySync.RESULT_UPDATED, mHolidaySync.sync(url()));
+
+        assertEquals(2, mDatabase.holidayDao().getAllHolidays().size());
+        assertTrue(mDatabase.holidayDao().getAllDays().size() > 0);
+        assertEquals(url(), SettingsDAO.getHolidaySyncUrl(mPrefs));
+        assertEquals(ETAG, SettingsDAO.getHolidaySyncETag(mPrefs));
+    }
+
+    @Test
+    public void sync_sendsETagAndKeepsDataWhenNotModified() throws IOException {
+        serve(200, FEED);
+        mHolidaySync.sync(url());
+
+        serve(304, null);
+        assertEquals(HolidaySync.RESULT_UNCHANGED, mHolidaySync.sync(url()));
+
+        assertEquals(ETAG, mIfNoneMatchHeaders.get(mIfNoneMatchHeaders.size() - 1));
+        assertEquals(2, mDatabase.holidayDao().getAllHolidays().size());
+    }
+
+    @Test
+    public void sync_failsOnHttpError() {
+        serve(500, "Internal error");
+
+        try {
+            mHolidaySync.sync(url());
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+            // Expected.
+        }
+
+        assertTrue(mDatabase.holidayDao().getAllHolidays().isEmpty());
+        assertNull(SettingsDAO.getHolidaySyncUrl(mPrefs));
+    }
+
+    @Test
+    public void sync_rollsBackMalformedFeed() throws IOException {
+        serve(200, FEED);
+        mHolidaySync.sync(url());
+
+        serve(200, "[{\"name\":\"New Year\",\"startDate\":\"2026-01-01\",");
+        try {
+            mHolidaySync.sync(url());
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+            // Expected.
+        }
+
+        assertEquals(2, mDatabase.holidayDao().getAllHolidays().size());
+        assertEquals(ETAG, SettingsDAO.getHolidaySyncETag(mPrefs));
+    }
+
+    private void serve(int responseCode, String body) {
+        mResponseCode = responseCode;
+        mBody = body;
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + "/holidays.json";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        mIfNoneMatchHeaders.add(String.valueOf(exchange.getRequestHeaders().getFirst("If-None-Match")));
+
+        final byte[] body = mBody == null ? new byte[0] : mBody.getBytes(StandardCharsets.UTF_8);
+        if (mResponseCode == 200) {
+            exchange.getResponseHeaders().set("ETag", ETAG);
+        }
+        exchange.sendResponseHeaders(mResponseCode, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
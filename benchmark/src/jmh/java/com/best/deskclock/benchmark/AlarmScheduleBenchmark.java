@@ -0,0 +1,147 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.benchmark;
+
+import com.best.deskclock.alarms.AlarmScheduleCalculator;
+import com.best.deskclock.data.Weekdays;
+import com.best.deskclock.data.WorkPattern;
+import com.best.deskclock.holiday.HolidayCalendarIndex;
+import com.best.deskclock.holiday.HolidayRuleEngine;
+import com.best.deskclock.holiday.HolidayUtils;
+import com.best.deskclock.provider.Alarm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the computations done every time an alarm is scheduled or the alarm list is sorted.
+ * <p>
+ * Every invocation moves the reference time forward by a prime number of minutes, so that all
+ * hours of the day, days of the week and holidays of the year are visited.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AlarmScheduleBenchmark {
+
+    private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("Asia/Shanghai");
+
+    private static final long STEP_MILLIS = 7919L * 60 * 1000;
+
+    private Calendar mStartTime;
+    private long mStartMillis;
+    private long mEndMillis;
+    private long mNowMillis;
+
+    private Calendar mNow;
+    private HolidayCalendarIndex mIndex;
+    private AlarmScheduleCalculator mCalculator;
+    private Alarm mAlarm;
+    private Alarm mHolidayAlarm;
+    private Alarm mWorkPatternAlarm;
+    private Weekdays mWeekdays;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mStartTime = Calendar.getInstance(TIME_ZONE);
+        mStartTime.clear();
+        mStartTime.set(2026, Calendar.JANUARY, 1);
+        mStartMillis = mStartTime.getTimeInMillis();
+        mEndMillis = mStartMillis + 365L * 24 * 60 * 60 * 1000;
+        mNowMillis = mStartMillis;
+        mNow = Calendar.getInstance(TIME_ZONE);
+
+        // Holidays are computed offline, the same way as when the downloaded data is missing.
+        mIndex = HolidayRuleEngine.buildCalendarIndex(Collections.emptyList());
+        mCalculator = AlarmScheduleCalculator.forCalendar(mStartTime, mIndex);
+
+        mWeekdays = Weekdays.fromCalendarDays(Calendar.MONDAY, Calendar.TUESDAY, Calendar.WEDNESDAY,
+                Calendar.THURSDAY, Calendar.FRIDAY);
+
+        mAlarm = createAlarm(mWeekdays);
+
+        mHolidayAlarm = createAlarm(mWeekdays);
+        mHolidayAlarm.holidayOption = HolidayUtils.HOLIDAY_OPTION_SKIP_HOLIDAY;
+
+        mWorkPatternAlarm = createAlarm(Weekdays.fromBits(0x7F));
+        mWorkPatternAlarm.holidayOption = HolidayUtils.HOLIDAY_OPTION_WORK_PATTERN;
+        mWorkPatternAlarm.workPattern = WorkPattern.parse("1111000", mCalculator.toEpochDay(mStartMillis));
+    }
+
+    private Alarm createAlarm(Weekdays daysOfWeek) {
+        return new Alarm(1, true, mStartTime.get(Calendar.YEAR), mStartTime.get(Calendar.MONTH),
+                mStartTime.get(Calendar.DAY_OF_MONTH), 7, 30, true, "default", false, daysOfWeek,
+                "", "content://settings/system/alarm_alert", false, 10, 10, 0, 0, 11);
+    }
+
+    private long nextNowMillis() {
+        mNowMillis += STEP_MILLIS;
+        if (mNowMillis >= mEndMillis) {
+            mNowMillis = mStartMillis;
+        }
+        return mNowMillis;
+    }
+
+    private Calendar nextNow() {
+        mNow.setTimeInMillis(nextNowMillis());
+        return mNow;
+    }
+
+    @Benchmark
+    public long alarmGetNextAlarmTime() {
+        return mAlarm.getNextAlarmTime(mCalculator, nextNowMillis());
+    }
+
+    @Benchmark
+    public Calendar alarmGetNextAlarmTimeCalendar() {
+        return mAlarm.getNextAlarmTime(nextNow());
+    }
+
+    @Benchmark
+    public long alarmGetNextWorkdayAlarmTime() {
+        return mHolidayAlarm.getNextWorkdayAlarmTime(mCalculator, nextNowMillis());
+    }
+
+    @Benchmark
+    public long alarmGetNextWorkPatternAlarmTime() {
+        return mWorkPatternAlarm.getNextWorkdayAlarmTime(mCalculator, nextNowMillis());
+    }
+
+    /**
+     * The path taken when an alarm instance is created: a calculator is built for the current
+     * time zone on every call.
+     */
+    @Benchmark
+    public Calendar holidayUtilsGetNextWorkdayAlarmTime() {
+        return HolidayUtils.getNextWorkdayAlarmTime(mIndex, mHolidayAlarm.holidayOption,
+                mHolidayAlarm, nextNow());
+    }
+
+    @Benchmark
+    public boolean holidayUtilsShouldAlarmRing() {
+        return HolidayUtils.shouldAlarmRing(mIndex, mHolidayAlarm.holidayOption,
+                mHolidayAlarm.daysOfWeek, mHolidayAlarm.workPattern,
+                mCalculator.toEpochDay(nextNowMillis()));
+    }
+
+    @Benchmark
+    public int weekdaysGetDistanceToNextDay() {
+        return mWeekdays.getDistanceToNextDay(nextNow());
+    }
+
+    @Benchmark
+    public int weekdaysGetDistanceToNextEpochDay() {
+        return mWeekdays.getDistanceToNextDay(mCalculator.toEpochDay(nextNowMillis()));
+    }
+}
@@ -0,0 +1,81 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.benchmark;
+
+import android.content.ContextWrapper;
+import android.content.res.Resources;
+
+import com.best.deskclock.R;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A context that serves the English strings used by the formatting benchmarks, without loading
+ * the resources of the app.
+ */
+final class BenchmarkContext extends ContextWrapper {
+
+    private final Resources mResources = new BenchmarkResources();
+
+    BenchmarkContext() {
+        super(null);
+    }
+
+    @Override
+    public Resources getResources() {
+        return mResources;
+    }
+
+    private static final class BenchmarkResources extends Resources {
+
+        private final Map<Integer, String> mStrings = new HashMap<>();
+        private final Map<Integer, String[]> mPlurals = new HashMap<>();
+
+        BenchmarkResources() {
+            super(BenchmarkResources.class.getClassLoader());
+
+            mStrings.put(R.string.hours_minutes_seconds, "%1$d:%2$02d:%3$02d");
+            mStrings.put(R.string.minutes_seconds, "%1$d:%2$02d");
+            mStrings.put(R.string.seconds_only, "%1$02d");
+            mStrings.put(R.string.timer_notifications_less_min, "Less than a minute remaining");
+            mStrings.put(R.string.timer_notifications_hours, "%1$s %3$s");
+            mStrings.put(R.string.timer_notifications_minutes, "%2$s %3$s");
+            mStrings.put(R.string.timer_notifications_hours_minutes, "%1$s %2$s remaining");
+            mStrings.put(R.string.timer_notifications_seconds, "%4$s %3$s");
+            mStrings.put(R.string.timer_notifications_minutes_seconds, "%2$s  %4$s %3$s");
+            mStrings.put(R.string.timer_notifications_hours_seconds, "%1$s  %4$s %3$s");
+            mStrings.put(R.string.timer_notifications_hours_minutes_seconds, "%1$s %2$s %4$s %3$s");
+            mStrings.put(R.string.timer_remaining_single, "remaining");
+            mStrings.put(R.string.timer_remaining_multiple, "remaining");
+
+            mPlurals.put(R.plurals.hours, new String[]{"1 hour", "%s hours"});
+            mPlurals.put(R.plurals.minutes, new String[]{"1 minute", "%s minutes"});
+            mPlurals.put(R.plurals.seconds, new String[]{"1 second", "%s seconds"});
+        }
+
+        @Override
+        public String getString(int id) {
+            final String value = mStrings.get(id);
+            if (value == null) {
+                throw new NotFoundException("String resource ID #0x" + Integer.toHexString(id));
+            }
+            return value;
+        }
+
+        @Override
+        public String getString(int id, Object... formatArgs) {
+            return String.format(Locale.getDefault(), getString(id), formatArgs);
+        }
+
+        @Override
+        public String getQuantityString(int id, int quantity, Object... formatArgs) {
+            final String[] values = mPlurals.get(id);
+            if (values == null) {
+                throw new NotFoundException("Plurals resource ID #0x" + Integer.toHexString(id));
+            }
+            return String.format(Locale.getDefault(), values[quantity == 1 ? 0 : 1], formatArgs);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.benchmark;
+
+import static android.text.format.DateUtils.HOUR_IN_MILLIS;
+import static android.text.format.DateUtils.SECOND_IN_MILLIS;
+
+import android.content.Context;
+
+import com.best.deskclock.data.TimerStringFormatter;
+import com.best.deskclock.stopwatch.StopwatchTextController;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the strings built on every tick of a running stopwatch or timer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TimeFormattingBenchmark {
+
+    /**
+     * Longest time visited before wrapping around, so that hours, minutes and seconds all vary.
+     */
+    private static final long MAX_TIME = 3 * HOUR_IN_MILLIS;
+
+    private Context mContext;
+    private long mStopwatchTime;
+    private long mTimerTime;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mContext = new BenchmarkContext();
+    }
+
+    /**
+     * The stopwatch main text is rebuilt every time the displayed second changes.
+     */
+    @Benchmark
+    public String stopwatchFormatMainTime() {
+        mStopwatchTime = (mStopwatchTime + SECOND_IN_MILLIS) % MAX_TIME;
+        return StopwatchTextController.formatMainTime(mContext, mStopwatchTime);
+    }
+
+    /**
+     * A timer notification is updated every second; a few milliseconds are added so that the
+     * partial second is rounded up.
+     */
+    @Benchmark
+    public String timerFormatTimeRemaining() {
+        mTimerTime = (mTimerTime + SECOND_IN_MILLIS + 7) % MAX_TIME;
+        return TimerStringFormatter.formatTimeRemaining(mContext, mTimerTime, true);
+    }
+}
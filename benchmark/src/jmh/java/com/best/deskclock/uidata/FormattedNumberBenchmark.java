@@ -0,0 +1,54 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.best.deskclock.uidata;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the number cache behind {@link FormattedStringModel#getFormattedNumber(int, int)},
+ * which the stopwatch calls every frame to display hundredths of a second.
+ * <p>
+ * The benchmark lives in the package of the model to reach the package-private cache; the model
+ * itself registers a broadcast receiver and can't be created outside of an Android process.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FormattedNumberBenchmark {
+
+    private FormattedNumberCache mCache;
+    private int mValue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mCache = new FormattedNumberCache();
+    }
+
+    /**
+     * Hundredths of a second, padded to 2 digits; after the first 100 calls every value is cached.
+     */
+    @Benchmark
+    public String getFormattedHundredths() {
+        mValue = (mValue + 1) % 100;
+        return mCache.getFormattedNumber(mValue, 2);
+    }
+
+    /**
+     * Formats every value again, as after a locale change.
+     */
+    @Benchmark
+    public String getFormattedNumberUncached() {
+        mValue = (mValue + 1) % 100;
+        mCache.clear();
+        return mCache.getFormattedNumber(mValue, 2);
+    }
+}